@@ -74,6 +74,7 @@ import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.DumpableCollection;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.statistic.Metrics;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
 import org.eclipse.jetty.util.thread.Scheduler;
@@ -118,7 +119,7 @@ import org.slf4j.LoggerFactory;
  * </pre>
  */
 @ManagedObject("The HTTP client")
-public class HttpClient extends ContainerLifeCycle
+public class HttpClient extends ContainerLifeCycle implements Metrics.Publisher
 {
     public static final String USER_AGENT = "Jetty/" + Jetty.VERSION;
     private static final Logger LOG = LoggerFactory.getLogger(HttpClient.class);
@@ -151,6 +152,7 @@ public class HttpClient extends ContainerLifeCycle
     private String defaultRequestContentType = "application/octet-stream";
     private boolean useInputDirectByteBuffers = true;
     private boolean useOutputDirectByteBuffers = true;
+    private Metrics.Counter sentRequests = Metrics.Counter.NOOP;
 
     /**
      * Creates a HttpClient instance that can perform HTTP/1.1 requests to non-TLS and TLS destinations.
@@ -551,9 +553,18 @@ public class HttpClient extends ContainerLifeCycle
     protected void send(final HttpRequest request, List<Response.ResponseListener> listeners)
     {
         HttpDestination destination = (HttpDestination)resolveDestination(request);
+        sentRequests.increment();
         destination.send(request, listeners);
     }
 
+    @Override
+    public void publish(Metrics metrics)
+    {
+        Metrics client = metrics.withLabel("client", getName());
+        sentRequests = client.counter("jetty_client_requests_total", "number of requests sent");
+        client.gauge("jetty_client_destinations", "number of destinations", destinations::size);
+    }
+
     protected void newConnection(final HttpDestination destination, final Promise<Connection> promise)
     {
         Origin.Address address = destination.getConnectAddress();
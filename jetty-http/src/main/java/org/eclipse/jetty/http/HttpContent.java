@@ -63,6 +63,20 @@ public interface HttpContent
 
     String getETagValue();
 
+    /**
+     * <p>Gets the content fields pre-encoded as a block, for contents whose fields are put in many responses.</p>
+     * <p>The block has the {@code Last-Modified}, {@code Content-Type} and {@code Content-Encoding}
+     * fields of this content, and its {@code ETag} field if requested, in that order,
+     * but not its {@code Content-Length} field.</p>
+     *
+     * @param etag whether the block has the {@code ETag} field
+     * @return the block of pre-encoded fields, or null if the fields of this content are not pre-encoded
+     */
+    default PreEncodedHttpFields getPreEncodedFields(boolean etag)
+    {
+        return null;
+    }
+
     ByteBuffer getIndirectBuffer();
 
     ByteBuffer getDirectBuffer();
@@ -144,13 +144,14 @@ public class HttpField
      */
     public boolean contains(String search)
     {
+        String value = getValue();
         if (search == null)
-            return _value == null;
+            return value == null;
         if (search.isEmpty())
             return false;
-        if (_value == null)
+        if (value == null)
             return false;
-        if (search.equals(_value))
+        if (search.equals(value))
             return true;
 
         search = StringUtil.asciiToLowerCase(search);
@@ -159,9 +160,9 @@ public class HttpField
         int match = 0;
         int param = 0;
 
-        for (int i = 0; i < _value.length(); i++)
+        for (int i = 0; i < value.length(); i++)
         {
-            char c = _value.charAt(i);
+            char c = value.charAt(i);
             switch (state)
             {
                 case 0: // initial white space
@@ -322,7 +323,7 @@ public class HttpField
             return false;
         if (!_name.equalsIgnoreCase(field.getName()))
             return false;
-        return Objects.equals(_value, field.getValue());
+        return Objects.equals(getValue(), field.getValue());
     }
 
     public HttpHeader getHeader()
@@ -332,12 +333,12 @@ public class HttpField
 
     public int getIntValue()
     {
-        return Integer.parseInt(_value);
+        return Integer.parseInt(getValue());
     }
 
     public long getLongValue()
     {
-        return Long.parseLong(_value);
+        return Long.parseLong(getValue());
     }
 
     public String getLowerCaseName()
@@ -357,17 +358,18 @@ public class HttpField
 
     public String[] getValues()
     {
-        if (_value == null)
+        String value = getValue();
+        if (value == null)
             return null;
 
-        QuotedCSV list = new QuotedCSV(false, _value);
+        QuotedCSV list = new QuotedCSV(false, value);
         return list.getValues().toArray(new String[list.size()]);
     }
 
     @Override
     public int hashCode()
     {
-        int vhc = Objects.hashCode(_value);
+        int vhc = Objects.hashCode(getValue());
         if (_header == null)
             return vhc ^ nameHashCode();
         return vhc ^ _header.hashCode();
@@ -389,26 +391,33 @@ public class HttpField
         return _name.equalsIgnoreCase(name);
     }
 
-    private int nameHashCode()
+    int nameHashCode()
     {
         int h = this.hash;
-        int len = _name.length();
-        if (h == 0 && len > 0)
+        if (h == 0)
         {
-            for (int i = 0; i < len; i++)
-            {
-                // simple case insensitive hash
-                char c = _name.charAt(i);
-                // assuming us-ascii (per last paragraph on http://tools.ietf.org/html/rfc7230#section-3.2.4)
-                if ((c >= 'a' && c <= 'z'))
-                    c -= 0x20;
-                h = 31 * h + c;
-            }
+            h = nameHashCode(_name);
             this.hash = h;
         }
         return h;
     }
 
+    static int nameHashCode(String name)
+    {
+        int h = 0;
+        int len = name.length();
+        for (int i = 0; i < len; i++)
+        {
+            // simple case insensitive hash
+            char c = name.charAt(i);
+            // assuming us-ascii (per last paragraph on http://tools.ietf.org/html/rfc7230#section-3.2.4)
+            if ((c >= 'a' && c <= 'z'))
+                c -= 0x20;
+            h = 31 * h + c;
+        }
+        return h;
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,292 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.ArrayTernaryTrie;
+import org.eclipse.jetty.util.Trie;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A cache of {@link HttpField}s that learns the fields that are frequently repeated,
+ * shared by the {@link HttpParser}s of the connections of a connector.</p>
+ * <p>Parsers {@link #record(HttpField) record} the fields that they did not find in a cache.
+ * A field that is recorded {@link #getPromoteThreshold()} times is promoted to a trie, so that
+ * subsequent lookups of the same name and value return the same field instance, without
+ * allocating the {@code String}s of the field.</p>
+ * <p>Every {@link #getAgingPeriod()} records, the counts of the fields that are not yet promoted
+ * are halved, and the promoted fields that have been looked up less than the promote threshold
+ * times since the previous aging are evicted from the trie.</p>
+ * <p>Lookups are lock free: the trie is not modified once published, and is replaced by a new
+ * trie when fields are promoted or evicted, which happens rarely once the cache has learned
+ * the traffic of the connector.</p>
+ * <p>As the promoted fields are returned to the parsers of any connection, lookups are case
+ * sensitive, and credentials such as the {@code Authorization}, {@code Proxy-Authorization}
+ * and {@code Cookie} fields are never recorded.</p>
+ *
+ * @see HttpParser#setSharedFieldCache(HttpFieldCache)
+ */
+@ManagedObject("Shared HTTP field cache")
+public class HttpFieldCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(HttpFieldCache.class);
+
+    private final Map<HttpField, AtomicInteger> _candidates = new ConcurrentHashMap<>();
+    private final Map<HttpField, Entry> _promoted = new HashMap<>();
+    private final AtomicInteger _records = new AtomicInteger();
+    private final AtomicBoolean _updating = new AtomicBoolean();
+    private final LongAdder _promotions = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final int _capacity;
+    private final int _maxCandidates;
+    private final int _promoteThreshold;
+    private final int _agingPeriod;
+    private volatile Trie<Entry> _trie;
+
+    /**
+     * @param capacity the capacity of the trie, in nodes
+     */
+    public HttpFieldCache(int capacity)
+    {
+        this(capacity, 1024, 16, 8192);
+    }
+
+    /**
+     * @param capacity the capacity of the trie, in nodes
+     * @param maxCandidates the max number of fields counted before they are promoted
+     * @param promoteThreshold the number of records that promote a field to the trie
+     * @param agingPeriod the number of records between agings of the cache
+     */
+    public HttpFieldCache(int capacity, int maxCandidates, int promoteThreshold, int agingPeriod)
+    {
+        if (capacity <= 0 || maxCandidates <= 0 || promoteThreshold <= 0 || agingPeriod <= 0)
+            throw new IllegalArgumentException();
+        _capacity = capacity;
+        _maxCandidates = maxCandidates;
+        _promoteThreshold = promoteThreshold;
+        _agingPeriod = agingPeriod;
+    }
+
+    @ManagedAttribute("The capacity of the trie, in nodes")
+    public int getCapacity()
+    {
+        return _capacity;
+    }
+
+    @ManagedAttribute("The max number of fields counted before they are promoted")
+    public int getMaxCandidates()
+    {
+        return _maxCandidates;
+    }
+
+    @ManagedAttribute("The number of records that promote a field to the trie")
+    public int getPromoteThreshold()
+    {
+        return _promoteThreshold;
+    }
+
+    @ManagedAttribute("The number of records between agings of the cache")
+    public int getAgingPeriod()
+    {
+        return _agingPeriod;
+    }
+
+    @ManagedAttribute("The number of fields counted before they are promoted")
+    public int getCandidates()
+    {
+        return _candidates.size();
+    }
+
+    @ManagedAttribute("The number of fields promoted to the trie")
+    public int getSize()
+    {
+        Trie<Entry> trie = _trie;
+        return trie == null ? 0 : trie.keySet().size();
+    }
+
+    @ManagedAttribute("The number of fields promoted since the cache was created")
+    public long getPromotions()
+    {
+        return _promotions.sum();
+    }
+
+    @ManagedAttribute("The number of fields evicted since the cache was created")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    /**
+     * <p>Looks up the promoted field that best matches the bytes of the given buffer.</p>
+     *
+     * @param buffer the buffer to look up
+     * @param offset the offset in the buffer, relative to its position
+     * @param len the max number of bytes to match
+     * @return the promoted field with the longest name and value matching the bytes, or null
+     * @see Trie#getBest(ByteBuffer, int, int)
+     */
+    public HttpField getBest(ByteBuffer buffer, int offset, int len)
+    {
+        Trie<Entry> trie = _trie;
+        if (trie == null)
+            return null;
+        Entry entry = trie.getBest(buffer, offset, len);
+        if (entry == null)
+            return null;
+        entry._hits.increment();
+        return entry._field;
+    }
+
+    /**
+     * <p>Records a field that was parsed without being found in a cache.</p>
+     * <p>The field must be immutable, as it is returned by {@link #getBest(ByteBuffer, int, int)}
+     * to other parsers once promoted.</p>
+     *
+     * @param field the parsed field
+     */
+    public void record(HttpField field)
+    {
+        HttpHeader header = field.getHeader();
+        if (header == null || isCredential(header) || field.getValue() == null)
+            return;
+
+        AtomicInteger count = _candidates.get(field);
+        if (count == null && _candidates.size() < _maxCandidates)
+            count = _candidates.computeIfAbsent(field, f -> new AtomicInteger());
+        boolean promote = count != null && count.incrementAndGet() >= _promoteThreshold;
+        boolean age = _records.incrementAndGet() >= _agingPeriod;
+
+        // A field that is not promoted because another thread is updating
+        // the cache is still a candidate, and is promoted by a later record.
+        if ((promote || age) && _updating.compareAndSet(false, true))
+        {
+            try
+            {
+                boolean changed = promote && promote(field);
+                if (_records.get() >= _agingPeriod)
+                {
+                    _records.set(0);
+                    changed |= age();
+                }
+                if (changed)
+                    _trie = newTrie();
+            }
+            finally
+            {
+                _updating.set(false);
+            }
+        }
+    }
+
+    private static boolean isCredential(HttpHeader header)
+    {
+        switch (header)
+        {
+            case AUTHORIZATION:
+            case PROXY_AUTHORIZATION:
+            case COOKIE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean promote(HttpField field)
+    {
+        _candidates.remove(field);
+        if (_promoted.containsKey(field))
+            return false;
+        _promoted.put(field, new Entry(field));
+        _promotions.increment();
+        if (LOG.isDebugEnabled())
+            LOG.debug("Promoted {} in {}", field, this);
+        return true;
+    }
+
+    private boolean age()
+    {
+        for (Iterator<AtomicInteger> i = _candidates.values().iterator(); i.hasNext(); )
+        {
+            if (i.next().updateAndGet(c -> c >> 1) == 0)
+                i.remove();
+        }
+
+        boolean evicted = false;
+        for (Iterator<Entry> i = _promoted.values().iterator(); i.hasNext(); )
+        {
+            Entry entry = i.next();
+            if (entry._hits.sumThenReset() < _promoteThreshold)
+            {
+                i.remove();
+                _evictions.increment();
+                evicted = true;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Evicted {} from {}", entry._field, this);
+            }
+        }
+        return evicted;
+    }
+
+    private Trie<Entry> newTrie()
+    {
+        if (_promoted.isEmpty())
+            return null;
+        // Case sensitive, so that a lookup only returns a field with the same bytes.
+        Trie<Entry> trie = new ArrayTernaryTrie<>(false, _capacity);
+        for (Iterator<Entry> i = _promoted.values().iterator(); i.hasNext(); )
+        {
+            Entry entry = i.next();
+            // The key is the same as the bytes parsed, "name: value".
+            if (!trie.put(entry._field.toString(), entry))
+            {
+                i.remove();
+                _evictions.increment();
+            }
+        }
+        return trie;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d,candidates=%d,capacity=%d}", getClass().getSimpleName(), hashCode(), getSize(), getCandidates(), getCapacity());
+    }
+
+    private static class Entry
+    {
+        private final LongAdder _hits = new LongAdder();
+        private final HttpField _field;
+
+        private Entry(HttpField field)
+        {
+            _field = field;
+        }
+    }
+}
@@ -513,8 +513,22 @@ public interface HttpFields extends Iterable<HttpField>
      */
     class Mutable implements Iterable<HttpField>, HttpFields
     {
+        // The number of fields above which lookups use an index rather than scanning the fields.
+        private static final int INDEX_THRESHOLD = 16;
+        private static final int[] HEADER_HASHES = new int[HttpHeader.values().length];
+
+        static
+        {
+            for (HttpHeader header : HttpHeader.values())
+            {
+                HEADER_HASHES[header.ordinal()] = HttpField.nameHashCode(header.asString());
+            }
+        }
+
         private HttpField[] _fields;
         private int _size;
+        private Index _index;
+        private boolean _indexable = true;
 
         /**
          * Initialize an empty HttpFields.
@@ -633,6 +647,8 @@ public interface HttpFields extends Iterable<HttpField>
                 if (_size == _fields.length)
                     _fields = Arrays.copyOf(_fields, _size * 2);
                 _fields[_size++] = field;
+                if (_index != null && !_index.add(_fields, _size - 1))
+                    _index = null;
             }
             return this;
         }
@@ -647,6 +663,7 @@ public interface HttpFields extends Iterable<HttpField>
             if (fields.size() == 0)
                 return this;
 
+            _index = null;
             if (fields instanceof Immutable)
             {
                 Immutable b = (Immutable)fields;
@@ -741,6 +758,8 @@ public interface HttpFields extends Iterable<HttpField>
         public Mutable clear()
         {
             _size = 0;
+            _index = null;
+            _indexable = true;
             return this;
         }
 
@@ -967,6 +986,21 @@ public interface HttpFields extends Iterable<HttpField>
 
         public Mutable put(HttpField field)
         {
+            Index index = index();
+            if (index != null)
+            {
+                int slot = index.find(_fields, field.nameHashCode(), field.getName());
+                // Not present, append it.
+                if (slot < 0)
+                    return add(field);
+                // Present once, replace it in place.
+                if (index._counts[slot] == 1)
+                {
+                    set(index._slots[slot] - 1, field);
+                    return this;
+                }
+            }
+
             boolean put = false;
 
             for (int i = 0; i < _size; i++)
@@ -975,10 +1009,14 @@ public interface HttpFields extends Iterable<HttpField>
                 if (f.isSameName(field))
                 {
                     if (put)
+                    {
                         System.arraycopy(_fields, i + 1, _fields, i, _size-- - i-- - 1);
+                        _fields[_size] = null;
+                        _index = null;
+                    }
                     else
                     {
-                        _fields[i] = field;
+                        set(i, field);
                         put = true;
                     }
                 }
@@ -1232,7 +1270,7 @@ public interface HttpFields extends Iterable<HttpField>
             if (newField == null)
                 remove(first);
             else
-                _fields[first] = newField;
+                set(first, newField);
         }
 
         /**
@@ -1243,6 +1281,10 @@ public interface HttpFields extends Iterable<HttpField>
          */
         public Mutable remove(HttpHeader name)
         {
+            // Use an existing index to skip the scan, but don't build one
+            // as it is discarded as soon as a field is removed.
+            if (_index != null && indexOf(name) < 0)
+                return this;
             for (int i = 0; i < _size; i++)
             {
                 HttpField f = _fields[i];
@@ -1271,6 +1313,8 @@ public interface HttpFields extends Iterable<HttpField>
          */
         public Mutable remove(String name)
         {
+            if (_index != null && indexOf(name) < 0)
+                return this;
             for (int i = 0; i < _size; i++)
             {
                 HttpField f = _fields[i];
@@ -1285,6 +1329,107 @@ public interface HttpFields extends Iterable<HttpField>
             _size--;
             System.arraycopy(_fields, i + 1, _fields, i, _size - i);
             _fields[_size] = null;
+            _index = null;
+        }
+
+        private void set(int i, HttpField field)
+        {
+            HttpField old = _fields[i];
+            _fields[i] = field;
+            if (_index != null && !(field.is(old.getName()) && Index.isIndexable(field)))
+                _index = null;
+        }
+
+        /**
+         * @return the index of the fields, built if there are enough fields, or null
+         */
+        private Index index()
+        {
+            if (_index == null && _indexable && _size > INDEX_THRESHOLD)
+            {
+                _index = Index.build(_fields, _size);
+                // A field with a name that does not match its header cannot be looked up
+                // by header in the index, so scan the fields until they are cleared.
+                _indexable = _index != null;
+            }
+            return _index;
+        }
+
+        private int indexOf(HttpHeader header)
+        {
+            Index index = index();
+            if (index != null)
+            {
+                int slot = index.find(_fields, HEADER_HASHES[header.ordinal()], header.asString());
+                if (slot < 0)
+                    return -1;
+                int position = index._slots[slot] - 1;
+                // The first field with the name of the header may be a field without header.
+                if (_fields[position].getHeader() == header)
+                    return position;
+            }
+            for (int i = 0; i < _size; i++)
+            {
+                if (_fields[i].getHeader() == header)
+                    return i;
+            }
+            return -1;
+        }
+
+        private int indexOf(String name)
+        {
+            Index index = index();
+            if (index != null)
+            {
+                int slot = index.find(_fields, HttpField.nameHashCode(name), name);
+                return slot < 0 ? -1 : index._slots[slot] - 1;
+            }
+            for (int i = 0; i < _size; i++)
+            {
+                if (_fields[i].is(name))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean contains(HttpHeader header)
+        {
+            return indexOf(header) >= 0;
+        }
+
+        @Override
+        public boolean contains(String name)
+        {
+            return indexOf(name) >= 0;
+        }
+
+        @Override
+        public String get(HttpHeader header)
+        {
+            int i = indexOf(header);
+            return i < 0 ? null : _fields[i].getValue();
+        }
+
+        @Override
+        public String get(String header)
+        {
+            int i = indexOf(header);
+            return i < 0 ? null : _fields[i].getValue();
+        }
+
+        @Override
+        public HttpField getField(HttpHeader header)
+        {
+            int i = indexOf(header);
+            return i < 0 ? null : _fields[i];
+        }
+
+        @Override
+        public HttpField getField(String name)
+        {
+            int i = indexOf(name);
+            return i < 0 ? null : _fields[i];
         }
 
         public int size()
@@ -1355,6 +1500,7 @@ public interface HttpFields extends Iterable<HttpField>
                 System.arraycopy(_fields, _cursor, _fields, _cursor + 1, _size++);
                 _fields[_cursor++] = field;
                 _current = -1;
+                _index = null;
             }
 
             @Override
@@ -1417,7 +1563,97 @@ public interface HttpFields extends Iterable<HttpField>
                 if (field == null)
                     remove();
                 else
-                    _fields[_current] = field;
+                    Mutable.this.set(_current, field);
+            }
+        }
+
+        /**
+         * <p>An open addressing index of the first field of each name, by case insensitive name hash.</p>
+         * <p>Each slot holds the position plus one of the first field with a name, or 0 if the slot
+         * is free, and the number of fields with that name. The index is updated when fields are
+         * appended or replaced by fields with the same name, and is discarded when fields are
+         * removed or inserted, as that shifts the positions of the fields.</p>
+         */
+        private static class Index
+        {
+            private final int[] _slots;
+            private final int[] _counts;
+            private int _names;
+
+            private Index(int capacity)
+            {
+                _slots = new int[capacity];
+                _counts = new int[capacity];
+            }
+
+            /**
+             * @param fields the fields to index
+             * @param size the number of fields
+             * @return the index of the fields, or null if a field cannot be indexed
+             */
+            private static Index build(HttpField[] fields, int size)
+            {
+                // A power of 2 capacity, at least twice the number of fields.
+                Index index = new Index(Integer.highestOneBit(size * 4 - 1));
+                for (int i = 0; i < size; i++)
+                {
+                    if (!index.add(fields, i))
+                        return null;
+                }
+                return index;
+            }
+
+            private static boolean isIndexable(HttpField field)
+            {
+                HttpHeader header = field.getHeader();
+                return header == null || header.is(field.getName());
+            }
+
+            /**
+             * @param fields the indexed fields
+             * @param hash the case insensitive hash of the name
+             * @param name the name
+             * @return the slot of the name, or the complement of the free slot for the name
+             */
+            private int find(HttpField[] fields, int hash, String name)
+            {
+                int mask = _slots.length - 1;
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (true)
+                {
+                    int position = _slots[slot];
+                    if (position == 0)
+                        return ~slot;
+                    if (fields[position - 1].is(name))
+                        return slot;
+                    slot = (slot + 1) & mask;
+                }
+            }
+
+            /**
+             * @param fields the indexed fields
+             * @param position the position of the field to add to the index
+             * @return whether the field was added, false if the index is too full
+             * or the name of the field does not match its header
+             */
+            private boolean add(HttpField[] fields, int position)
+            {
+                HttpField field = fields[position];
+                if (!isIndexable(field))
+                    return false;
+                int slot = find(fields, field.nameHashCode(), field.getName());
+                if (slot >= 0)
+                {
+                    _counts[slot]++;
+                    return true;
+                }
+                if (2 * (_names + 1) > _slots.length)
+                    return false;
+                slot = ~slot;
+                _slots[slot] = position + 1;
+                _counts[slot] = 1;
+                _names++;
+                return true;
             }
         }
     }
@@ -599,6 +599,20 @@ public class HttpGenerator
             for (int f = 0; f < n; f++)
             {
                 HttpField field = fields.getField(f);
+
+                // Write a block of pre-encoded fields with a single copy.
+                if (field instanceof PreEncodedHttpField)
+                {
+                    PreEncodedHttpFields block = ((PreEncodedHttpField)field).getBlock();
+                    if (block != null && block.isAt(fields, f))
+                    {
+                        block.putTo(header);
+                        contentType |= block.hasContentType();
+                        f += block.size() - 1;
+                        continue;
+                    }
+                }
+
                 HttpHeader h = field.getHeader();
                 if (h == null)
                     putTo(field, header);
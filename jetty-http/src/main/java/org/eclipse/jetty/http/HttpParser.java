@@ -74,7 +74,9 @@ import static org.eclipse.jetty.http.HttpCompliance.Violation.WHITESPACE_AFTER_F
  * (eg. "Connection: close"), or just header names (eg. "Connection:" ).
  * For headers who's value is not known statically (eg. Host, COOKIE) then a
  * per parser dynamic Trie of {@link HttpFields} from previous parsed messages
- * is used to help the parsing of subsequent messages.
+ * is used to help the parsing of subsequent messages, and optionally a
+ * {@link HttpFieldCache} shared with the parsers of other connections that
+ * learns the fields frequently repeated across connections.
  * </p>
  * <p>
  * The parser can work in varying compliance modes:
@@ -181,10 +183,15 @@ public class HttpParser
     private boolean _cr;
     private ByteBuffer _contentChunk;
     private Trie<HttpField> _fieldCache;
+    private HttpFieldCache _sharedFieldCache;
     private int _length;
     private final StringBuilder _string = new StringBuilder();
     private int _headerCacheSize = 1024;
     private boolean _headerCacheCaseSensitive;
+    private boolean _lazyFieldValues;
+    private int _valueStart = -1;
+    private int _valueEnd;
+    private ByteBuffer _referencedBuffer;
 
     static
     {
@@ -314,6 +321,45 @@ public class HttpParser
         _headerCacheCaseSensitive = headerCacheCaseSensitive;
     }
 
+    public HttpFieldCache getSharedFieldCache()
+    {
+        return _sharedFieldCache;
+    }
+
+    /**
+     * <p>Sets the cache of header fields shared with other parsers.</p>
+     * <p>The header fields that are not found in the caches are recorded in the shared cache,
+     * which promotes the fields that are frequently repeated so that they are found by
+     * the subsequent lookups of this and the other parsers.</p>
+     *
+     * @param sharedFieldCache the shared cache, or null to not use a shared cache
+     */
+    public void setSharedFieldCache(HttpFieldCache sharedFieldCache)
+    {
+        _sharedFieldCache = sharedFieldCache;
+    }
+
+    public boolean isLazyFieldValues()
+    {
+        return _lazyFieldValues;
+    }
+
+    /**
+     * <p>Sets whether the values of the header fields that this parser does not interpret
+     * are parsed lazily.</p>
+     * <p>A lazy field value references the bytes of the buffer being parsed, and its
+     * {@code String} is only created when {@link HttpField#getValue()} is called.
+     * The handler is notified with {@link HttpHandler#referenceBuffer(ByteBuffer)} when
+     * a buffer is referenced, and the bytes of the buffer must not be modified until the
+     * message has been processed: the fields of a message must not be accessed afterwards.</p>
+     *
+     * @param lazyFieldValues whether the values of header fields are parsed lazily
+     */
+    public void setLazyFieldValues(boolean lazyFieldValues)
+    {
+        _lazyFieldValues = lazyFieldValues;
+    }
+
     protected void checkViolation(Violation violation) throws BadMessageException
     {
         if (violation.isAllowedBy(_complianceMode))
@@ -553,6 +599,139 @@ public class HttpParser
         return s;
     }
 
+    /* Append the run of VCHARs at the buffer position to the URI,
+     * without looking up the token of each character.
+     */
+    private boolean appendURI(ByteBuffer buffer)
+    {
+        int length = HttpTokens.vcharLength(buffer);
+        if (length == 0)
+            return false;
+
+        _headerBytes += length;
+        if (_maxHeaderBytes > 0 && _headerBytes > _maxHeaderBytes)
+        {
+            LOG.warn("URI is too large >{}", _maxHeaderBytes);
+            throw new BadMessageException(HttpStatus.URI_TOO_LONG_414);
+        }
+
+        if (buffer.hasArray())
+        {
+            _uri.append(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.position() + length);
+        }
+        else
+        {
+            int limit = buffer.limit();
+            buffer.limit(buffer.position() + length);
+            _uri.append(buffer);
+            buffer.limit(limit);
+        }
+        return true;
+    }
+
+    /* Append the run of VCHAR, obs-text and SP at the buffer position to the field value,
+     * without looking up the token of each character. As for the characters parsed one
+     * at a time, trailing spaces are not included in the length of the value.
+     */
+    private boolean appendValue(ByteBuffer buffer)
+    {
+        int length = HttpTokens.fieldContentLength(buffer);
+        if (length == 0)
+            return false;
+
+        _headerBytes += length;
+        if (_maxHeaderBytes > 0 && _headerBytes > _maxHeaderBytes)
+        {
+            boolean header = _state == State.HEADER;
+            LOG.warn("{} is too large {}>{}", header ? "Header" : "Trailer", _headerBytes, _maxHeaderBytes);
+            throw new BadMessageException(header
+                ? HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE_431
+                : HttpStatus.PAYLOAD_TOO_LARGE_413);
+        }
+
+        int position = buffer.position();
+        int end = position + length;
+        if (_valueStart >= 0)
+        {
+            for (int i = end; i-- > position;)
+            {
+                if (buffer.get(i) != HttpTokens.SPACE)
+                {
+                    _valueEnd = i + 1;
+                    break;
+                }
+            }
+            buffer.position(end);
+            return true;
+        }
+
+        _string.ensureCapacity(_string.length() + length);
+        for (int i = position; i < end; i++)
+        {
+            byte b = buffer.get(i);
+            _string.append((char)(0xff & b));
+            if (b != HttpTokens.SPACE)
+                _length = _string.length();
+        }
+        buffer.position(end);
+        return true;
+    }
+
+    /* Whether the value of the current header field can be lazy:
+     * it is not interpreted nor cached by this parser, nor continued
+     * on the next line, and its first character is in the buffer.
+     */
+    private boolean isLazyValue()
+    {
+        if (!_lazyFieldValues || _state != State.HEADER || _string.length() > 0)
+            return false;
+        if (Violation.MULTILINE_FIELD_VALUE.isAllowedBy(_complianceMode))
+            return false;
+        if (_header == null)
+            return true;
+        switch (_header)
+        {
+            case CONTENT_LENGTH:
+            case TRANSFER_ENCODING:
+            case HOST:
+            case CONNECTION:
+                return false;
+
+            case AUTHORIZATION:
+            case ACCEPT:
+            case ACCEPT_CHARSET:
+            case ACCEPT_ENCODING:
+            case ACCEPT_LANGUAGE:
+            case COOKIE:
+            case CACHE_CONTROL:
+            case USER_AGENT:
+                return _fieldCache == null && _sharedFieldCache == null;
+
+            default:
+                return true;
+        }
+    }
+
+    /* Copy the bytes of the lazy value parsed so far to the value string,
+     * with the whitespace that follows, but not a trailing CR.
+     */
+    private void copyValue(ByteBuffer buffer)
+    {
+        for (int i = _valueStart; i < _valueEnd; i++)
+        {
+            _string.append((char)(0xff & buffer.get(i)));
+        }
+        _length = _string.length();
+        for (int i = _valueEnd; i < buffer.position(); i++)
+        {
+            byte b = buffer.get(i);
+            if (b == HttpTokens.SPACE || b == HttpTokens.TAB)
+                _string.append((char)b);
+        }
+        _valueStart = -1;
+    }
+
     private boolean handleHeaderContentMessage()
     {
         boolean handleHeader = _handler.headerComplete();
@@ -581,6 +760,10 @@ public class HttpParser
         // Process headers
         while (_state.ordinal() < State.HEADER.ordinal() && buffer.hasRemaining() && !handle)
         {
+            // fast path for the visible characters of the URI
+            if (_state == State.URI && !_cr && appendURI(buffer))
+                continue;
+
             // process each character
             HttpTokens.Token t = next(buffer);
             if (t == null)
@@ -952,6 +1135,7 @@ public class HttpParser
             if (_header != null)
             {
                 boolean addToConnectionTrie = false;
+                boolean addToSharedCache = false;
                 switch (_header)
                 {
                     case CONTENT_LENGTH:
@@ -1024,6 +1208,7 @@ public class HttpParser
                                 CASE_SENSITIVE_FIELD_NAME.isAllowedBy(_complianceMode) ? _headerString : _header.asString(),
                                 _valueString);
                             addToConnectionTrie = _fieldCache != null;
+                            addToSharedCache = _sharedFieldCache != null;
                         }
                         break;
 
@@ -1034,14 +1219,19 @@ public class HttpParser
                         break;
 
                     case AUTHORIZATION:
+                    case COOKIE:
+                        // Credentials are only cached for the connection that sent them.
+                        addToConnectionTrie = _fieldCache != null && _field == null;
+                        break;
+
                     case ACCEPT:
                     case ACCEPT_CHARSET:
                     case ACCEPT_ENCODING:
                     case ACCEPT_LANGUAGE:
-                    case COOKIE:
                     case CACHE_CONTROL:
                     case USER_AGENT:
                         addToConnectionTrie = _fieldCache != null && _field == null;
+                        addToSharedCache = _sharedFieldCache != null && _field == null;
                         break;
 
                     default:
@@ -1054,6 +1244,13 @@ public class HttpParser
                         _field = new HttpField(_header, caseInsensitiveHeader(_headerString, _header.asString()), _valueString);
                     _fieldCache.put(_field);
                 }
+
+                if (addToSharedCache && _header != null && _valueString != null)
+                {
+                    if (_field == null)
+                        _field = new HttpField(_header, caseInsensitiveHeader(_headerString, _header.asString()), _valueString);
+                    _sharedFieldCache.record(_field);
+                }
             }
             _handler.parsedHeader(_field != null ? _field : new HttpField(_header, _headerString, _valueString));
         }
@@ -1095,6 +1292,10 @@ public class HttpParser
         // Process headers
         while ((_state == State.HEADER || _state == State.TRAILER) && buffer.hasRemaining())
         {
+            // fast path for the content of a field value
+            if (_fieldState == FieldState.IN_VALUE && !_cr && appendValue(buffer))
+                continue;
+
             // process each character
             HttpTokens.Token t = next(buffer);
             if (t == null)
@@ -1232,6 +1433,8 @@ public class HttpParser
                             {
                                 // Try a look ahead for the known header name and value.
                                 HttpField cachedField = _fieldCache == null ? null : _fieldCache.getBest(buffer, -1, buffer.remaining());
+                                if (cachedField == null && _sharedFieldCache != null)
+                                    cachedField = _sharedFieldCache.getBest(buffer, -1, buffer.remaining());
                                 if (cachedField == null)
                                     cachedField = CACHE.getBest(buffer, -1, buffer.remaining());
 
@@ -1411,8 +1614,16 @@ public class HttpParser
                         case VCHAR:
                         case COLON:
                         case OTEXT: // TODO review? should this be a utf8 string?
-                            _string.append(t.getChar());
-                            _length = _string.length();
+                            if (isLazyValue())
+                            {
+                                _valueEnd = buffer.position();
+                                _valueStart = _valueEnd - 1;
+                            }
+                            else
+                            {
+                                _string.append(t.getChar());
+                                _length = _string.length();
+                            }
                             setState(FieldState.IN_VALUE);
                             break;
 
@@ -1425,7 +1636,17 @@ public class HttpParser
                     switch (t.getType())
                     {
                         case LF:
-                            if (_length > 0)
+                            if (_valueStart >= 0)
+                            {
+                                _field = new LazyValueHttpField(_header, _headerString, buffer, _valueStart, _valueEnd - _valueStart);
+                                _valueStart = -1;
+                                if (_referencedBuffer != buffer)
+                                {
+                                    _referencedBuffer = buffer;
+                                    _handler.referenceBuffer(buffer);
+                                }
+                            }
+                            else if (_length > 0)
                             {
                                 _valueString = takeString();
                                 _length = -1;
@@ -1435,7 +1656,8 @@ public class HttpParser
 
                         case SPACE:
                         case HTAB:
-                            _string.append(t.getChar());
+                            if (_valueStart < 0)
+                                _string.append(t.getChar());
                             break;
 
                         case ALPHA:
@@ -1444,8 +1666,15 @@ public class HttpParser
                         case VCHAR:
                         case COLON:
                         case OTEXT: // TODO review? should this be a utf8 string?
-                            _string.append(t.getChar());
-                            _length = _string.length();
+                            if (_valueStart >= 0)
+                            {
+                                _valueEnd = buffer.position();
+                            }
+                            else
+                            {
+                                _string.append(t.getChar());
+                                _length = _string.length();
+                            }
                             break;
 
                         default:
@@ -1458,6 +1687,11 @@ public class HttpParser
             }
         }
 
+        // The buffer may be refilled, so a lazy value that continues
+        // in the next buffer is copied, as a non lazy value would be.
+        if (_valueStart >= 0)
+            copyValue(buffer);
+
         return false;
     }
 
@@ -1873,6 +2107,8 @@ public class HttpParser
         _headerBytes = 0;
         _host = false;
         _headerComplete = false;
+        _valueStart = -1;
+        _referencedBuffer = null;
     }
 
     protected void setState(State state)
@@ -1904,6 +2140,38 @@ public class HttpParser
             getContentLength());
     }
 
+    /**
+     * <p>A header field with a value that is only converted to a {@code String} when accessed.</p>
+     */
+    private static class LazyValueHttpField extends HttpField
+    {
+        private final ByteBuffer _buffer;
+        private final int _offset;
+        private final int _length;
+        // Volatile, as the value may be resolved by a thread other than the readers.
+        private volatile String _value;
+
+        private LazyValueHttpField(HttpHeader header, String name, ByteBuffer buffer, int offset, int length)
+        {
+            super(header, name, null);
+            _buffer = buffer;
+            _offset = offset;
+            _length = length;
+        }
+
+        @Override
+        public String getValue()
+        {
+            String value = _value;
+            if (value == null)
+            {
+                value = BufferUtil.toString(_buffer, _offset, _length, StandardCharsets.ISO_8859_1);
+                _value = value;
+            }
+            return value;
+        }
+    }
+
     /* Event Handler interface
      * These methods return true if the caller should process the events
      * so far received (eg return from parseNext and call HttpChannel.handle).
@@ -1937,6 +2205,18 @@ public class HttpParser
         {
         }
 
+        /**
+         * <p>Called when the value of a parsed header field references the bytes of
+         * the buffer being parsed, rather than a copy of them, once per buffer per message.</p>
+         * <p>The bytes of the buffer must not be modified until the message has been processed.</p>
+         *
+         * @param buffer the buffer referenced by the field values
+         * @see HttpParser#setLazyFieldValues(boolean)
+         */
+        default void referenceBuffer(ByteBuffer buffer)
+        {
+        }
+
         /**
          * Called to signal that an EOF was received unexpectedly
          * during the parsing of an HTTP message
@@ -18,6 +18,9 @@
 
 package org.eclipse.jetty.http;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import org.eclipse.jetty.util.TypeUtil;
 
 /**
@@ -32,6 +35,10 @@ public class HttpTokens
     static final byte SPACE = 0x20;
     static final byte[] CRLF = {CARRIAGE_RETURN, LINE_FEED};
 
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
     public enum EndOfContent
     {
         UNKNOWN_CONTENT, NO_CONTENT, EOF_CONTENT, CONTENT_LENGTH, CHUNKED_CONTENT
@@ -188,5 +195,60 @@ public class HttpTokens
             }
         }
     }
-}
 
+    /**
+     * <p>Scans the bytes of a field value from the buffer position, 8 bytes at a time.</p>
+     * <p>The bytes that are scanned are those that {@link HttpParser} appends to a field
+     * value without further checks: VCHAR, obs-text and SP.</p>
+     *
+     * @param buffer the buffer to scan, not consumed
+     * @return the number of bytes from the buffer position before the first
+     * byte that is not VCHAR, obs-text or SP
+     */
+    static int fieldContentLength(ByteBuffer buffer)
+    {
+        return scan(buffer, SPACE, true);
+    }
+
+    /**
+     * <p>Scans the bytes of a request target from the buffer position, 8 bytes at a time.</p>
+     *
+     * @param buffer the buffer to scan, not consumed
+     * @return the number of bytes from the buffer position before the first byte that is not VCHAR
+     */
+    static int vcharLength(ByteBuffer buffer)
+    {
+        return scan(buffer, 0x21, false);
+    }
+
+    private static int scan(ByteBuffer buffer, int min, boolean obsText)
+    {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+        long addMin = (0x80 - min) * ONES;
+        int i = position;
+        while (limit - i >= 8)
+        {
+            long word = buffer.getLong(i);
+            long low = word & LOW_BITS;
+            // The high bit of a byte is set if its low bits are >= min,
+            // and if its low bits are not DEL; no carry crosses bytes.
+            long valid = (low + addMin) & ((low ^ LOW_BITS) + LOW_BITS) & HIGH_BITS;
+            long high = word & HIGH_BITS;
+            valid = obsText ? valid | high : valid & ~high;
+            long invalid = ~valid & HIGH_BITS;
+            if (invalid != 0)
+                return i - position + ((bigEndian ? Long.numberOfLeadingZeros(invalid) : Long.numberOfTrailingZeros(invalid)) >>> 3);
+            i += 8;
+        }
+        while (i < limit)
+        {
+            int b = 0xFF & buffer.get(i);
+            if (b < min || b == 0x7F || b >= 0x80 && !obsText)
+                break;
+            i++;
+        }
+        return i - position;
+    }
+}
@@ -92,15 +92,31 @@ public class PreEncodedHttpField extends HttpField
         }
     }
 
-    private final byte[][] _encodedField = new byte[__encoders.length][];
+    private final byte[][] _encodedField;
+    private final PreEncodedHttpFields _block;
 
     public PreEncodedHttpField(HttpHeader header, String name, String value)
     {
         super(header, name, value);
+        _encodedField = new byte[__encoders.length][];
         for (int i = 0; i < __encoders.length; i++)
         {
             _encodedField[i] = __encoders[i].getEncodedField(header, name, value);
         }
+        _block = null;
+    }
+
+    /**
+     * <p>Copies a field, without encoding it again, as the first field of a block.</p>
+     *
+     * @param field the field to copy
+     * @param block the block that starts with the copy
+     */
+    PreEncodedHttpField(PreEncodedHttpField field, PreEncodedHttpFields block)
+    {
+        super(field.getHeader(), field.getName(), field.getValue());
+        _encodedField = field._encodedField;
+        _block = block;
     }
 
     public PreEncodedHttpField(HttpHeader header, String value)
@@ -117,4 +133,17 @@ public class PreEncodedHttpField extends HttpField
     {
         bufferInFillMode.put(_encodedField[index(version)]);
     }
+
+    byte[] getEncodedField(HttpVersion version)
+    {
+        return _encodedField[index(version)];
+    }
+
+    /**
+     * @return the block of fields that starts with this field, or null
+     */
+    public PreEncodedHttpFields getBlock()
+    {
+        return _block;
+    }
 }
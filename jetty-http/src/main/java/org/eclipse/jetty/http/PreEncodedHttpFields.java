@@ -0,0 +1,189 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>A block of {@link PreEncodedHttpField}s that are pre-encoded together for HTTP/1,
+ * so that a block of fields repeated in many responses, for example the fields of a
+ * cached static resource, is generated with a single copy.</p>
+ * <p>The first field of the block is a copy that references the block: when the
+ * {@link HttpGenerator} finds the fields of the block in sequence in the fields of a
+ * message, it writes the pre-encoded block, otherwise it writes the fields one by one.
+ * Other encoders, such as the HTTP/2 one, write the fields one by one.</p>
+ * <pre>
+ * PreEncodedHttpFields block = PreEncodedHttpFields.of(lastModified, contentType, etag);
+ * for (HttpField field : block)
+ *     fields.put(field);
+ * </pre>
+ * <p>The fields that a generator interprets rather than just writes, such as
+ * {@code Content-Length} or {@code Connection}, cannot be part of a block.</p>
+ */
+public class PreEncodedHttpFields implements Iterable<HttpField>
+{
+    private static final EnumSet<HttpHeader> INTERPRETED_HEADERS = EnumSet.of(
+        HttpHeader.CONTENT_LENGTH,
+        HttpHeader.TRANSFER_ENCODING,
+        HttpHeader.CONNECTION,
+        HttpHeader.KEEP_ALIVE,
+        HttpHeader.PROXY_CONNECTION,
+        HttpHeader.UPGRADE,
+        HttpHeader.TE,
+        HttpHeader.SERVER,
+        HttpHeader.C_METHOD,
+        HttpHeader.C_SCHEME,
+        HttpHeader.C_AUTHORITY,
+        HttpHeader.C_PATH,
+        HttpHeader.C_STATUS,
+        HttpHeader.C_PROTOCOL);
+
+    private final PreEncodedHttpField[] _fields;
+    private final byte[] _encodedFields;
+    private final boolean _contentType;
+
+    /**
+     * @param fields the fields of the block
+     * @throws IllegalArgumentException if there are no fields, or a field cannot be part of a block
+     */
+    public PreEncodedHttpFields(PreEncodedHttpField... fields)
+    {
+        if (fields.length == 0)
+            throw new IllegalArgumentException("No fields");
+        _fields = Arrays.copyOf(fields, fields.length);
+        _fields[0] = new PreEncodedHttpField(fields[0], this);
+
+        boolean contentType = false;
+        int length = 0;
+        for (PreEncodedHttpField field : fields)
+        {
+            if (!isBlockable(field))
+                throw new IllegalArgumentException("Cannot pre-encode in a block: " + field);
+            contentType |= field.getHeader() == HttpHeader.CONTENT_TYPE;
+            length += field.getEncodedField(HttpVersion.HTTP_1_1).length;
+        }
+        _contentType = contentType;
+
+        byte[] encoded = new byte[length];
+        int offset = 0;
+        for (PreEncodedHttpField field : fields)
+        {
+            byte[] bytes = field.getEncodedField(HttpVersion.HTTP_1_1);
+            System.arraycopy(bytes, 0, encoded, offset, bytes.length);
+            offset += bytes.length;
+        }
+        _encodedFields = encoded;
+    }
+
+    /**
+     * <p>Creates a block of the given fields, skipping the null fields.</p>
+     *
+     * @param fields the fields of the block, possibly null
+     * @return a block of the non null fields, or null if there are none, or if they
+     * are not all {@link PreEncodedHttpField}s that can be part of a block
+     */
+    public static PreEncodedHttpFields of(HttpField... fields)
+    {
+        List<PreEncodedHttpField> preEncoded = new ArrayList<>(fields.length);
+        for (HttpField field : fields)
+        {
+            if (field == null)
+                continue;
+            if (!(field instanceof PreEncodedHttpField) || !isBlockable(field))
+                return null;
+            preEncoded.add((PreEncodedHttpField)field);
+        }
+        if (preEncoded.isEmpty())
+            return null;
+        return new PreEncodedHttpFields(preEncoded.toArray(new PreEncodedHttpField[0]));
+    }
+
+    private static boolean isBlockable(HttpField field)
+    {
+        HttpHeader header = field.getHeader();
+        return header == null || !INTERPRETED_HEADERS.contains(header);
+    }
+
+    /**
+     * @return the number of fields of the block
+     */
+    public int size()
+    {
+        return _fields.length;
+    }
+
+    /**
+     * @param index the index of the field
+     * @return the field of the block at the given index
+     */
+    public HttpField getField(int index)
+    {
+        return _fields[index];
+    }
+
+    @Override
+    public Iterator<HttpField> iterator()
+    {
+        return Arrays.<HttpField>asList(_fields).iterator();
+    }
+
+    /**
+     * @return whether the block has a {@code Content-Type} field
+     */
+    public boolean hasContentType()
+    {
+        return _contentType;
+    }
+
+    /**
+     * @param fields the fields of a message
+     * @param index the index in the fields of the first field of the block
+     * @return whether the fields of the block are, in sequence, the fields of the message from the given index
+     */
+    public boolean isAt(HttpFields fields, int index)
+    {
+        if (index + _fields.length > fields.size())
+            return false;
+        for (int i = 0; i < _fields.length; i++)
+        {
+            if (fields.getField(index + i) != _fields[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param bufferInFillMode the buffer to write the HTTP/1 encoding of the block to
+     */
+    public void putTo(ByteBuffer bufferInFillMode)
+    {
+        bufferInFillMode.put(_encodedFields);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x%s", getClass().getSimpleName(), hashCode(), Arrays.toString(_fields));
+    }
+}
@@ -0,0 +1,202 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class HttpFieldCacheTest
+{
+    @Test
+    public void testPromote()
+    {
+        HttpFieldCache cache = new HttpFieldCache(1024, 16, 3, 1000);
+        HttpField field = new HttpField(HttpHeader.USER_AGENT, "agent");
+        ByteBuffer buffer = BufferUtil.toBuffer("User-Agent: agent\r\n");
+
+        cache.record(field);
+        cache.record(new HttpField(HttpHeader.USER_AGENT, "agent"));
+        assertNull(cache.getBest(buffer, 0, buffer.remaining()));
+        assertEquals(1, cache.getCandidates());
+
+        cache.record(field);
+        assertSame(field, cache.getBest(buffer, 0, buffer.remaining()));
+        assertEquals(1, cache.getSize());
+        assertEquals(0, cache.getCandidates());
+        assertEquals(1, cache.getPromotions());
+    }
+
+    @Test
+    public void testUnknownHeaderNotRecorded()
+    {
+        HttpFieldCache cache = new HttpFieldCache(1024, 16, 1, 1000);
+        cache.record(new HttpField("X-Custom", "value"));
+        assertEquals(0, cache.getCandidates());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testMaxCandidates()
+    {
+        HttpFieldCache cache = new HttpFieldCache(1024, 4, 100, 1000);
+        for (int i = 0; i < 10; i++)
+        {
+            cache.record(new HttpField(HttpHeader.USER_AGENT, "agent/" + i));
+        }
+        assertEquals(4, cache.getCandidates());
+    }
+
+    @Test
+    public void testCredentialsNotRecorded()
+    {
+        HttpFieldCache cache = new HttpFieldCache(1024, 16, 1, 1000);
+        cache.record(new HttpField(HttpHeader.AUTHORIZATION, "Basic dXNlcjpwYXNz"));
+        cache.record(new HttpField(HttpHeader.PROXY_AUTHORIZATION, "Basic dXNlcjpwYXNz"));
+        cache.record(new HttpField(HttpHeader.COOKIE, "JSESSIONID=0123456789"));
+        assertEquals(0, cache.getCandidates());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testCaseSensitive()
+    {
+        HttpFieldCache cache = new HttpFieldCache(1024, 16, 1, 1000);
+        HttpField field = new HttpField(HttpHeader.USER_AGENT, "agent");
+        cache.record(field);
+        ByteBuffer buffer = BufferUtil.toBuffer("User-Agent: agent\r\n");
+        assertSame(field, cache.getBest(buffer, 0, buffer.remaining()));
+
+        buffer = BufferUtil.toBuffer("User-Agent: AGENT\r\n");
+        assertNull(cache.getBest(buffer, 0, buffer.remaining()));
+    }
+
+    @Test
+    public void testAging()
+    {
+        HttpFieldCache cache = new HttpFieldCache(1024, 16, 2, 8);
+        HttpField hot = new HttpField(HttpHeader.USER_AGENT, "hot");
+        HttpField cold = new HttpField(HttpHeader.USER_AGENT, "cold");
+        ByteBuffer hotBuffer = BufferUtil.toBuffer("User-Agent: hot\r\n");
+        ByteBuffer coldBuffer = BufferUtil.toBuffer("User-Agent: cold\r\n");
+
+        cache.record(hot);
+        cache.record(hot);
+        cache.record(cold);
+        cache.record(cold);
+        assertEquals(2, cache.getSize());
+
+        // Only the hot field is looked up before the cache ages.
+        for (int i = 0; i < 2; i++)
+        {
+            assertSame(hot, cache.getBest(hotBuffer, 0, hotBuffer.remaining()));
+        }
+        for (int i = 0; i < 4; i++)
+        {
+            cache.record(new HttpField(HttpHeader.ACCEPT, "type/" + i));
+        }
+
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        assertSame(hot, cache.getBest(hotBuffer, 0, hotBuffer.remaining()));
+        assertNull(cache.getBest(coldBuffer, 0, coldBuffer.remaining()));
+        // The candidates recorded once have been aged out.
+        assertEquals(0, cache.getCandidates());
+    }
+
+    @Test
+    public void testSharedByParsers()
+    {
+        HttpFieldCache cache = new HttpFieldCache(1024, 16, 2, 1000);
+        String request =
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "User-Agent: agent\r\n" +
+                "\r\n";
+
+        List<HttpField> fields = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            // A new parser for each request, as for new connections.
+            HttpParser parser = new HttpParser(new HttpParser.RequestHandler()
+            {
+                @Override
+                public void startRequest(String method, String uri, HttpVersion version)
+                {
+                }
+
+                @Override
+                public void parsedHeader(HttpField field)
+                {
+                    if (field.getHeader() == HttpHeader.USER_AGENT)
+                        fields.add(field);
+                }
+
+                @Override
+                public boolean headerComplete()
+                {
+                    return false;
+                }
+
+                @Override
+                public boolean content(ByteBuffer item)
+                {
+                    return false;
+                }
+
+                @Override
+                public boolean contentComplete()
+                {
+                    return false;
+                }
+
+                @Override
+                public boolean messageComplete()
+                {
+                    return true;
+                }
+
+                @Override
+                public void badMessage(BadMessageException failure)
+                {
+                }
+
+                @Override
+                public void earlyEOF()
+                {
+                }
+            });
+            parser.setSharedFieldCache(cache);
+            parser.parseNext(BufferUtil.toBuffer(request));
+        }
+
+        assertEquals(3, fields.size());
+        assertNotSame(fields.get(0), fields.get(1));
+        assertEquals("agent", fields.get(2).getValue());
+        assertSame(fields.get(1), fields.get(2));
+    }
+}
@@ -1077,4 +1077,55 @@ public class HttpFieldsTest
         fields.ensureField(new HttpField("Test", "three, four"));
         assertThat(fields.stream().map(HttpField::toString).collect(Collectors.toList()), contains("Test: one, two, three, four"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testManyFields()
+    {
+        HttpFields.Mutable fields = HttpFields.build();
+        for (int i = 0; i < 40; i++)
+        {
+            fields.add("X-Header-" + i, "value" + i);
+        }
+        fields.add(HttpHeader.SET_COOKIE, "a=1");
+        fields.add(HttpHeader.SET_COOKIE, "b=2");
+
+        assertEquals("value7", fields.get("x-header-7"));
+        assertEquals("value39", fields.getField("X-HEADER-39").getValue());
+        assertEquals("a=1", fields.get(HttpHeader.SET_COOKIE));
+        assertTrue(fields.contains("X-Header-0"));
+        assertFalse(fields.contains("X-Header-40"));
+        assertFalse(fields.contains(HttpHeader.CONTENT_TYPE));
+
+        // Replaced in place, keeping the order of the fields.
+        fields.put("X-Header-3", "other");
+        assertEquals("other", fields.getField(3).getValue());
+        assertEquals("other", fields.get("X-Header-3"));
+
+        // Multiple fields replaced by the first.
+        fields.put(HttpHeader.SET_COOKIE, "c=3");
+        assertEquals(41, fields.size());
+        assertEquals("c=3", fields.getField(40).getValue());
+        assertEquals(Collections.singletonList("c=3"), fields.getValuesList(HttpHeader.SET_COOKIE));
+
+        fields.remove("X-Header-0");
+        assertEquals(40, fields.size());
+        assertNull(fields.get("X-Header-0"));
+        assertEquals("value1", fields.getField(0).getValue());
+        assertEquals("value39", fields.get("X-Header-39"));
+
+        fields.add(HttpHeader.CONTENT_TYPE, "text/plain");
+        assertEquals("text/plain", fields.get(HttpHeader.CONTENT_TYPE));
+        assertEquals("text/plain", fields.get("content-type"));
+
+        ListIterator<HttpField> iterator = fields.listIterator();
+        iterator.next();
+        iterator.set(new HttpField("X-Other", "set"));
+        assertNull(fields.get("X-Header-1"));
+        assertEquals("set", fields.get("X-Other"));
+
+        // A field with a name that does not match its header.
+        fields.add(new HttpField(HttpHeader.ACCEPT, "X-Accept", "*/*"));
+        assertEquals("*/*", fields.get(HttpHeader.ACCEPT));
+        assertEquals("*/*", fields.get("X-Accept"));
+    }
+}
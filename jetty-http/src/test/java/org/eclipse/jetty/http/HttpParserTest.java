@@ -798,6 +798,93 @@ public class HttpParserTest
         assertEquals("value\talternate", _val[1]);
     }
 
+    @Test
+    public void testLongURIAndValueSplit()
+    {
+        String uri = "/path/to/resource.html?query=" + "0123456789abcdef".repeat(4) + "&euro=%E2%82%AC";
+        String value = "a=1; bb=22;  ccc=" + "xyz".repeat(20) + "; \u00e6=obs\u00ff ; last";
+        byte[] bytes = ("GET " + uri + " HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Cookie: " + value + "   \r\n" +
+            "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        for (boolean direct : new boolean[]{false, true})
+        {
+            for (int split = 1; split < bytes.length; split++)
+            {
+                init();
+                HttpParser.RequestHandler handler = new Handler();
+                HttpParser parser = new HttpParser(handler);
+                parseNext(parser, toBuffer(bytes, 0, split, direct));
+                parseNext(parser, toBuffer(bytes, split, bytes.length - split, direct));
+
+                String test = "direct=" + direct + " split=" + split;
+                assertThat(test, _bad, nullValue());
+                assertThat(test, _uriOrStatus, is(uri));
+                assertThat(test, _hdr[1], is("Cookie"));
+                assertThat(test, _val[1], is(value));
+                assertTrue(_messageCompleted, test);
+            }
+        }
+    }
+
+    @Test
+    public void testIllegalCharacterInLongURIAndValue()
+    {
+        for (boolean direct : new boolean[]{false, true})
+        {
+            for (char c : new char[]{0x00, 0x01, 0x0B, 0x7F})
+            {
+                for (int i = 0; i < 24; i++)
+                {
+                    StringBuilder value = new StringBuilder("x".repeat(24));
+                    value.setCharAt(i, c);
+                    byte[] bytes = ("GET / HTTP/1.1\r\n" +
+                        "Host: localhost\r\n" +
+                        "Cookie: " + value + "\r\n" +
+                        "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+                    init();
+                    HttpParser.RequestHandler handler = new Handler();
+                    HttpParser parser = new HttpParser(handler);
+                    parseNext(parser, toBuffer(bytes, 0, bytes.length, direct));
+                    assertThat("value direct=" + direct + " i=" + i, _bad, containsString("Illegal character"));
+
+                    // A heap URI containing DEL is accepted, as it has always been.
+                    if (c == 0x7F)
+                        continue;
+
+                    bytes = ("GET /" + value + " HTTP/1.1\r\n" +
+                        "Host: localhost\r\n" +
+                        "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+                    init();
+                    parser = new HttpParser(handler);
+                    parseNext(parser, toBuffer(bytes, 0, bytes.length, direct));
+                    assertThat("uri direct=" + direct + " i=" + i, _bad, containsString("Illegal character"));
+                }
+            }
+        }
+    }
+
+    private static void parseNext(HttpParser parser, ByteBuffer buffer)
+    {
+        while (buffer.hasRemaining() && !parser.isState(State.END) && !parser.isState(State.CLOSE))
+        {
+            int remaining = buffer.remaining();
+            parser.parseNext(buffer);
+            if (buffer.remaining() == remaining)
+                break;
+        }
+    }
+
+    private static ByteBuffer toBuffer(byte[] bytes, int offset, int length, boolean direct)
+    {
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        buffer.put(bytes, offset, length).flip();
+        return buffer;
+    }
+
     @Test
     public void testCaseSensitiveMethod()
     {
@@ -2108,6 +2195,64 @@ public class HttpParserTest
         assertSame(field, _fields.get(0));
     }
 
+    @Test
+    public void testLazyFieldValues()
+    {
+        ByteBuffer buffer = BufferUtil.toBuffer(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Header1: value1 \r\n" +
+                "Header2:  value 2a  \r\n" +
+                "Header3:\r\n" +
+                "User-Agent: agent\r\n" +
+                "Content-Length: 0\r\n" +
+                "\r\n");
+
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        parser.setLazyFieldValues(true);
+        parseAll(parser, buffer);
+
+        assertTrue(_messageCompleted);
+        assertEquals(6, _fields.size());
+        assertEquals("localhost", _fields.get(0).getValue());
+        assertEquals("value1", _fields.get(1).getValue());
+        assertEquals("value 2a", _fields.get(2).getValue());
+        assertEquals("", _fields.get(3).getValue());
+        assertEquals(HttpHeader.USER_AGENT, _fields.get(4).getHeader());
+        assertEquals("agent", _fields.get(4).getValue());
+        assertEquals(0L, _fields.get(5).getLongValue());
+        assertEquals(1, _referencedBuffers.size());
+        assertSame(buffer, _referencedBuffers.get(0));
+    }
+
+    @Test
+    public void testLazyFieldValueSplitAcrossBuffers()
+    {
+        ByteBuffer buffer1 = BufferUtil.toBuffer(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Header1: value1\r\n" +
+                "Header2: val");
+        ByteBuffer buffer2 = BufferUtil.toBuffer(
+            "ue2\r\n" +
+                "Header3: value3\r\n" +
+                "\r\n");
+
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        parser.setLazyFieldValues(true);
+        parser.parseNext(buffer1);
+        parser.parseNext(buffer2);
+
+        assertTrue(_messageCompleted);
+        assertEquals(4, _fields.size());
+        assertEquals("value1", _fields.get(1).getValue());
+        assertEquals("value2", _fields.get(2).getValue());
+        assertEquals("value3", _fields.get(3).getValue());
+        assertThat(_referencedBuffers, contains(buffer1, buffer2));
+    }
+
     @Test
     public void testParseRequest()
     {
@@ -2830,6 +2975,7 @@ public class HttpParserTest
         _contentCompleted = false;
         _messageCompleted = false;
         _complianceViolation.clear();
+        _referencedBuffers.clear();
     }
 
     private String _host;
@@ -2841,6 +2987,7 @@ public class HttpParserTest
     private String _versionOrReason;
     private List<HttpField> _fields = new ArrayList<>();
     private List<HttpField> _trailers = new ArrayList<>();
+    private final List<ByteBuffer> _referencedBuffers = new ArrayList<>();
     private String[] _hdr;
     private String[] _val;
     private int _headers;
@@ -2894,6 +3041,12 @@ public class HttpParserTest
             }
         }
 
+        @Override
+        public void referenceBuffer(ByteBuffer buffer)
+        {
+            _referencedBuffers.add(buffer);
+        }
+
         @Override
         public boolean headerComplete()
         {
@@ -0,0 +1,72 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class HttpTokensTest
+{
+    public static Stream<Arguments> buffers()
+    {
+        return Stream.of(
+            Arguments.of(false, ByteOrder.BIG_ENDIAN),
+            Arguments.of(true, ByteOrder.BIG_ENDIAN),
+            Arguments.of(false, ByteOrder.LITTLE_ENDIAN),
+            Arguments.of(true, ByteOrder.LITTLE_ENDIAN)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("buffers")
+    public void testScanMatchesTokens(boolean direct, ByteOrder order)
+    {
+        byte[] bytes = new byte[21];
+        for (int b = 0; b < 256; b++)
+        {
+            HttpTokens.Type type = HttpTokens.TOKENS[b].getType();
+            boolean fieldContent = type != HttpTokens.Type.CNTL && type != HttpTokens.Type.HTAB &&
+                type != HttpTokens.Type.CR && type != HttpTokens.Type.LF;
+            boolean vchar = fieldContent && type != HttpTokens.Type.SPACE && type != HttpTokens.Type.OTEXT;
+
+            // Scan from an unaligned position, with the byte at every index of two words and a tail.
+            for (int i = 1; i < bytes.length; i++)
+            {
+                Arrays.fill(bytes, (byte)'a');
+                bytes[i] = (byte)b;
+                ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+                buffer.order(order).put(bytes).flip().position(1);
+
+                String test = "b=0x" + Integer.toHexString(b) + " i=" + i;
+                assertThat(test, HttpTokens.fieldContentLength(buffer), is(fieldContent ? bytes.length - 1 : i - 1));
+                assertThat(test, HttpTokens.vcharLength(buffer), is(vchar ? bytes.length - 1 : i - 1));
+                assertThat(test, buffer.position(), is(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PreEncodedHttpFieldsTest
+{
+    private static final PreEncodedHttpField LAST_MODIFIED = new PreEncodedHttpField(HttpHeader.LAST_MODIFIED, DateGenerator.__01Jan1970);
+    private static final PreEncodedHttpField CONTENT_TYPE = new PreEncodedHttpField(HttpHeader.CONTENT_TYPE, "text/plain");
+    private static final PreEncodedHttpField ETAG = new PreEncodedHttpField(HttpHeader.ETAG, "W/\"12345\"");
+
+    @Test
+    public void testOf()
+    {
+        PreEncodedHttpFields block = PreEncodedHttpFields.of(LAST_MODIFIED, CONTENT_TYPE, null, ETAG);
+        assertNotNull(block);
+        assertEquals(3, block.size());
+        assertTrue(block.hasContentType());
+        assertSame(block, ((PreEncodedHttpField)block.getField(0)).getBlock());
+        assertEquals(LAST_MODIFIED, block.getField(0));
+        assertSame(CONTENT_TYPE, block.getField(1));
+        assertSame(ETAG, block.getField(2));
+
+        assertNull(PreEncodedHttpFields.of(null, null));
+        assertNull(PreEncodedHttpFields.of(LAST_MODIFIED, new HttpField(HttpHeader.ETAG, "W/\"12345\"")));
+        assertNull(PreEncodedHttpFields.of(LAST_MODIFIED, new PreEncodedHttpField(HttpHeader.CONTENT_LENGTH, "10")));
+        assertThrows(IllegalArgumentException.class, () -> new PreEncodedHttpFields(LAST_MODIFIED, new PreEncodedHttpField(HttpHeader.CONNECTION, "close")));
+    }
+
+    @Test
+    public void testGenerateBlock() throws Exception
+    {
+        PreEncodedHttpFields block = PreEncodedHttpFields.of(LAST_MODIFIED, CONTENT_TYPE, ETAG);
+        assertNotNull(block);
+
+        HttpFields.Mutable fields = HttpFields.build();
+        fields.add(HttpHeader.CACHE_CONTROL, "no-cache");
+        for (HttpField field : block)
+        {
+            fields.put(field);
+        }
+        assertTrue(block.isAt(fields, 1));
+
+        HttpFields.Mutable expected = HttpFields.build();
+        expected.add(HttpHeader.CACHE_CONTROL, "no-cache");
+        expected.add(LAST_MODIFIED);
+        expected.add(CONTENT_TYPE);
+        expected.add(ETAG);
+
+        String response = generate(fields);
+        assertEquals(generate(expected), response);
+        assertThat(response, containsString("Last-Modified: Thu, 01 Jan 1970 00:00:00 GMT\r\nContent-Type: text/plain\r\nETag: W/\"12345\"\r\n"));
+        assertThat(response, containsString("Content-Length: 10\r\n"));
+    }
+
+    @Test
+    public void testGenerateBrokenBlock() throws Exception
+    {
+        PreEncodedHttpFields block = PreEncodedHttpFields.of(LAST_MODIFIED, CONTENT_TYPE, ETAG);
+        assertNotNull(block);
+
+        HttpFields.Mutable fields = HttpFields.build();
+        for (HttpField field : block)
+        {
+            fields.put(field);
+        }
+        // Replacing a field of the block generates the fields one by one.
+        fields.put(HttpHeader.CONTENT_TYPE, "text/html");
+        assertFalse(block.isAt(fields, 0));
+
+        String response = generate(fields);
+        assertThat(response, containsString("Last-Modified: Thu, 01 Jan 1970 00:00:00 GMT\r\nContent-Type: text/html\r\nETag: W/\"12345\"\r\n"));
+        assertThat(response, containsString("Content-Length: 10\r\n"));
+    }
+
+    private static String generate(HttpFields fields) throws Exception
+    {
+        ByteBuffer header = BufferUtil.allocate(8096);
+        ByteBuffer content = BufferUtil.toBuffer("0123456789");
+
+        HttpGenerator gen = new HttpGenerator();
+        MetaData.Response info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, null, fields, 10);
+        HttpGenerator.Result result = gen.generateResponse(info, false, header, null, content, true);
+        assertEquals(HttpGenerator.Result.FLUSH, result);
+        return BufferUtil.toString(header);
+    }
+}
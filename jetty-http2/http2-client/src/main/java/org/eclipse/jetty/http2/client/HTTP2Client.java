@@ -42,6 +42,7 @@ import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.statistic.Metrics;
 import org.eclipse.jetty.util.thread.Scheduler;
 
 /**
@@ -104,7 +105,7 @@ import org.eclipse.jetty.util.thread.Scheduler;
  * </pre>
  */
 @ManagedObject
-public class HTTP2Client extends ContainerLifeCycle
+public class HTTP2Client extends ContainerLifeCycle implements Metrics.Publisher
 {
     private final ClientConnector connector;
     private int inputBufferSize = 8192;
@@ -118,6 +119,7 @@ public class HTTP2Client extends ContainerLifeCycle
     private long streamIdleTimeout;
     private boolean useInputDirectByteBuffers = true;
     private boolean useOutputDirectByteBuffers = true;
+    private volatile Metrics metrics = Metrics.NOOP;
 
     public HTTP2Client()
     {
@@ -140,6 +142,20 @@ public class HTTP2Client extends ContainerLifeCycle
         return connector.getExecutor();
     }
 
+    /**
+     * @return the metrics the sessions of this client publish to
+     */
+    public Metrics getMetrics()
+    {
+        return metrics;
+    }
+
+    @Override
+    public void publish(Metrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
     public void setExecutor(Executor executor)
     {
         connector.setExecutor(executor);
@@ -28,6 +28,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.jetty.http2.frames.DataFrame;
 import org.eclipse.jetty.http2.parser.Parser;
 import org.eclipse.jetty.io.AbstractConnection;
+import org.eclipse.jetty.io.AdaptiveBufferSize;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
@@ -57,7 +58,6 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
     private final ByteBufferPool byteBufferPool;
     private final Parser parser;
     private final ISession session;
-    private final int bufferSize;
     private final ExecutionStrategy strategy;
     private boolean useInputDirectByteBuffers;
     private boolean useOutputDirectByteBuffers;
@@ -68,7 +68,7 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
         this.byteBufferPool = byteBufferPool;
         this.parser = parser;
         this.session = session;
-        this.bufferSize = bufferSize;
+        setInputBufferSize(bufferSize);
         if (PEC_MODE)
             executor = new TryExecutor.NoTryExecutor(executor);
         this.strategy = new EatWhatYouKill(producer, executor);
@@ -243,7 +243,8 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
 
         private void setInputBuffer(ByteBuffer byteBuffer)
         {
-            acquireNetworkBuffer();
+            if (networkBuffer == null)
+                networkBuffer = new NetworkBuffer(Math.max(getFillBufferSize(), byteBuffer.remaining()));
             // TODO handle buffer overflow?
             networkBuffer.put(byteBuffer);
         }
@@ -290,7 +291,10 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
 
                     // Here we know that this.networkBuffer is not retained by
                     // application code: either it has been released, or it's a new one.
-                    int filled = fill(getEndPoint(), networkBuffer.getBuffer());
+                    ByteBuffer buffer = networkBuffer.getBuffer();
+                    int space = AdaptiveBufferSize.fillSpace(buffer);
+                    int filled = fill(getEndPoint(), buffer);
+                    onFilled(filled, space);
                     if (LOG.isDebugEnabled())
                         LOG.debug("Filled {} bytes in {}", filled, networkBuffer);
 
@@ -416,7 +420,12 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
     {
         private NetworkBuffer()
         {
-            super(byteBufferPool, bufferSize, isUseInputDirectByteBuffers());
+            this(getFillBufferSize());
+        }
+
+        private NetworkBuffer(int size)
+        {
+            super(byteBufferPool, size, isUseInputDirectByteBuffers());
         }
 
         private void put(ByteBuffer source)
@@ -73,13 +73,14 @@ import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.DumpableCollection;
+import org.eclipse.jetty.util.statistic.Metrics;
 import org.eclipse.jetty.util.thread.AutoLock;
 import org.eclipse.jetty.util.thread.Scheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @ManagedObject
-public abstract class HTTP2Session extends ContainerLifeCycle implements ISession, Parser.Listener
+public abstract class HTTP2Session extends ContainerLifeCycle implements ISession, Parser.Listener, Metrics.Publisher
 {
     private static final Logger LOG = LoggerFactory.getLogger(HTTP2Session.class);
 
@@ -110,6 +111,8 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     private long idleTime;
     private GoAwayFrame closeFrame;
     private Callback.Completable shutdownCallback;
+    private Metrics.Counter openedStreams = Metrics.Counter.NOOP;
+    private Metrics.Counter receivedResets = Metrics.Counter.NOOP;
 
     public HTTP2Session(Scheduler scheduler, EndPoint endPoint, Generator generator, Session.Listener listener, FlowControlStrategy flowControl, int initialStreamId)
     {
@@ -196,6 +199,13 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         this.streamIdleTimeout = streamIdleTimeout;
     }
 
+    @Override
+    public void publish(Metrics metrics)
+    {
+        openedStreams = metrics.counter("jetty_http2_streams_opened_total", "number of HTTP/2 streams opened");
+        receivedResets = metrics.counter("jetty_http2_resets_received_total", "number of HTTP/2 RST_STREAM frames received");
+    }
+
     @ManagedAttribute("The initial size of session's flow control receive window")
     public int getInitialSessionRecvWindow()
     {
@@ -310,6 +320,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         if (LOG.isDebugEnabled())
             LOG.debug("Received {} on {}", frame, this);
 
+        receivedResets.increment();
         int streamId = frame.getStreamId();
         IStream stream = getStream(streamId);
         if (stream != null)
@@ -1087,6 +1098,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 
     protected void onStreamOpened(IStream stream)
     {
+        openedStreams.increment();
         streamCount.addAndGetLo(1);
     }
 
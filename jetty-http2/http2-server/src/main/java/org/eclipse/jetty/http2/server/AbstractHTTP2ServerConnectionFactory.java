@@ -51,9 +51,10 @@ import org.eclipse.jetty.util.annotation.Name;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.Graceful;
 import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.statistic.Metrics;
 
 @ManagedObject
-public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConnectionFactory
+public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConnectionFactory implements Metrics.Publisher
 {
     private final HTTP2SessionContainer sessionContainer = new HTTP2SessionContainer();
     private final HttpConfiguration httpConfiguration;
@@ -70,6 +71,7 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
     private long streamIdleTimeout;
     private boolean useInputDirectByteBuffers;
     private boolean useOutputDirectByteBuffers;
+    private volatile Metrics metrics = Metrics.NOOP;
 
     public AbstractHTTP2ServerConnectionFactory(@Name("config") HttpConfiguration httpConfiguration)
     {
@@ -279,6 +281,7 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         session.setInitialSessionRecvWindow(getInitialSessionRecvWindow());
         session.setWriteThreshold(getHttpConfiguration().getOutputBufferSize());
         session.setConnectProtocolEnabled(isConnectProtocolEnabled());
+        session.publish(metrics);
 
         ServerParser parser = newServerParser(connector, session, getRateControlFactory().newRateControl(endPoint));
         parser.setMaxFrameLength(getMaxFrameLength());
@@ -292,6 +295,13 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         return configure(connection, connector, endPoint);
     }
 
+    @Override
+    public void publish(Metrics metrics)
+    {
+        this.metrics = metrics;
+        metrics.gauge("jetty_http2_sessions", "number of HTTP/2 sessions", sessionContainer::getSize);
+    }
+
     protected abstract ServerSessionListener newSessionListener(Connector connector, EndPoint endPoint);
 
     protected ServerParser newServerParser(Connector connector, ServerParser.Listener listener, RateControl rateControl)
@@ -19,8 +19,13 @@
 module org.eclipse.jetty.io
 {
     exports org.eclipse.jetty.io;
+    exports org.eclipse.jetty.io.jmx to org.eclipse.jetty.jmx;
     exports org.eclipse.jetty.io.ssl;
 
     requires transitive org.eclipse.jetty.util;
     requires org.slf4j;
+
+    // Only required if using JMX.
+    requires static java.management;
+    requires static org.eclipse.jetty.jmx;
 }
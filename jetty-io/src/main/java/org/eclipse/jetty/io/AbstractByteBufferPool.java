@@ -73,7 +73,7 @@ abstract class AbstractByteBufferPool implements ByteBufferPool
 
     protected void releaseExcessMemory(boolean direct, Consumer<Boolean> clearFn)
     {
-        long maxMemory = direct ? _maxDirectMemory : _maxHeapMemory;
+        long maxMemory = getMaxMemory(direct);
         if (maxMemory > 0)
         {
             while (getMemory(direct) > maxMemory)
@@ -83,6 +83,15 @@ abstract class AbstractByteBufferPool implements ByteBufferPool
         }
     }
 
+    /**
+     * @param direct whether to return the limit of direct or heap memory
+     * @return the max bytes retained by ByteBuffers, or a non positive value for no limit
+     */
+    protected long getMaxMemory(boolean direct)
+    {
+        return direct ? _maxDirectMemory : _maxHeapMemory;
+    }
+
     @ManagedAttribute("The bytes retained by direct ByteBuffers")
     public long getDirectMemory()
     {
@@ -47,6 +47,7 @@ public abstract class AbstractConnection implements Connection
     private final Executor _executor;
     private final Callback _readCallback;
     private int _inputBufferSize = 2048;
+    private AdaptiveBufferSize _adaptiveInputBufferSize;
 
     protected AbstractConnection(EndPoint endp, Executor executor)
     {
@@ -78,6 +79,70 @@ public abstract class AbstractConnection implements Connection
     public void setInputBufferSize(int inputBufferSize)
     {
         _inputBufferSize = inputBufferSize;
+        if (_adaptiveInputBufferSize != null)
+            setAdaptiveInputBufferSize(true);
+    }
+
+    /**
+     * @return whether the size of the buffers used to fill adapts to the sizes of the recent fills
+     * @see #setAdaptiveInputBufferSize(boolean)
+     */
+    public boolean isAdaptiveInputBufferSize()
+    {
+        return _adaptiveInputBufferSize != null;
+    }
+
+    /**
+     * <p>Sets whether the size of the buffers used to fill adapts to the sizes of the recent fills.</p>
+     * <p>When enabled, the buffers start small and grow up to {@link #getInputBufferSize()}
+     * when the fills fill them, and shrink back when the fills are small,
+     * so that mostly idle connections do not pin large buffers.</p>
+     *
+     * @param adaptive whether the input buffer size is adaptive
+     * @see #getFillBufferSize()
+     * @see #onFilled(int, int)
+     */
+    public void setAdaptiveInputBufferSize(boolean adaptive)
+    {
+        if (adaptive)
+        {
+            int maxSize = getInputBufferSize();
+            _adaptiveInputBufferSize = new AdaptiveBufferSize(Math.min(AdaptiveBufferSize.DEFAULT_MIN_SIZE, maxSize), maxSize);
+        }
+        else
+        {
+            _adaptiveInputBufferSize = null;
+        }
+    }
+
+    /**
+     * @return the adaptive input buffer size, or null if the input buffer size is not adaptive
+     */
+    public AdaptiveBufferSize getAdaptiveInputBufferSize()
+    {
+        return _adaptiveInputBufferSize;
+    }
+
+    /**
+     * @return the size of the next buffer to fill from the network
+     */
+    protected int getFillBufferSize()
+    {
+        AdaptiveBufferSize adaptive = _adaptiveInputBufferSize;
+        return adaptive == null ? getInputBufferSize() : adaptive.getSize();
+    }
+
+    /**
+     * <p>Records the result of a fill, to adapt the size of the next buffer to fill.</p>
+     *
+     * @param filled the number of bytes filled, or -1 at EOF
+     * @param space the space that was available in the buffer before the fill
+     */
+    protected void onFilled(int filled, int space)
+    {
+        AdaptiveBufferSize adaptive = _adaptiveInputBufferSize;
+        if (adaptive != null)
+            adaptive.filled(filled, space);
     }
 
     protected Executor getExecutor()
@@ -36,6 +36,7 @@ public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint
     private final AtomicReference<State> _state = new AtomicReference<>(State.OPEN);
     private final long _created = System.currentTimeMillis();
     private volatile Connection _connection;
+    private volatile WriteCoalescer _writeCoalescer;
 
     private final FillInterest _fillInterest = new FillInterest()
     {
@@ -121,6 +122,10 @@ public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint
     {
         if (LOG.isDebugEnabled())
             LOG.debug("shutdownOutput {}", this);
+        // Shutdown the output after the coalesced writes have been flushed.
+        WriteCoalescer coalescer = _writeCoalescer;
+        if (coalescer != null && coalescer.flush(this::shutdownOutput))
+            return;
         while (true)
         {
             State s = _state.get();
@@ -185,6 +190,11 @@ public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint
     {
         if (LOG.isDebugEnabled())
             LOG.debug("close({}) {}", failure, this);
+        // Close after the coalesced writes have been flushed, as they have
+        // already been reported as written; a failure closes immediately.
+        WriteCoalescer coalescer = _writeCoalescer;
+        if (failure == null && coalescer != null && coalescer.flush(this::close))
+            return;
         while (true)
         {
             State s = _state.get();
@@ -353,6 +363,9 @@ public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint
     public void onClose(Throwable failure)
     {
         super.onClose();
+        WriteCoalescer coalescer = _writeCoalescer;
+        if (coalescer != null)
+            coalescer.onClose(failure);
         if (failure == null)
         {
             _writeFlusher.onClose();
@@ -369,6 +382,7 @@ public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint
     public void fillInterested(Callback callback)
     {
         notIdle();
+        flushCoalescedWrites();
         _fillInterest.register(callback);
     }
 
@@ -376,6 +390,7 @@ public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint
     public boolean tryFillInterested(Callback callback)
     {
         notIdle();
+        flushCoalescedWrites();
         return _fillInterest.tryRegister(callback);
     }
 
@@ -388,7 +403,104 @@ public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint
     @Override
     public void write(Callback callback, ByteBuffer... buffers) throws IllegalStateException
     {
-        _writeFlusher.write(callback, buffers);
+        WriteCoalescer coalescer = _writeCoalescer;
+        if (coalescer == null)
+            _writeFlusher.write(callback, buffers);
+        else
+            coalescer.write(callback, buffers);
+    }
+
+    /**
+     * <p>Enables or disables the coalescing of small writes.</p>
+     * <p>When enabled, writes whose bytes fit in a buffer of the given size are copied
+     * and completed immediately; the coalesced bytes are written when a write does not fit,
+     * when fill interest is registered, when the output is shutdown, or at the latest after
+     * the given delay. This trades a bounded latency for fewer and larger network writes,
+     * which is beneficial when an application writes and flushes many small chunks.</p>
+     * <p>This method must be called before the first write.</p>
+     *
+     * @param size the size in bytes of the coalescing buffer, or 0 to disable write coalescing
+     * @param delay the max time in milliseconds that coalesced bytes may wait before being written
+     * @see #setWriteCoalescing(int, long, Scheduler)
+     */
+    public void setWriteCoalescing(int size, long delay)
+    {
+        setWriteCoalescing(size, delay, getScheduler());
+    }
+
+    /**
+     * <p>Enables or disables the coalescing of small writes, using the given scheduler
+     * to write the coalesced bytes after the given delay.</p>
+     *
+     * @param size the size in bytes of the coalescing buffer, or 0 to disable write coalescing
+     * @param delay the max time in milliseconds that coalesced bytes may wait before being written
+     * @param scheduler the scheduler used to write the coalesced bytes after the delay
+     * @see #setWriteCoalescing(int, long)
+     */
+    public void setWriteCoalescing(int size, long delay, Scheduler scheduler)
+    {
+        setWriteCoalescing(size, delay, scheduler, null);
+    }
+
+    /**
+     * <p>Enables or disables the coalescing of small writes, using the given scheduler
+     * to write the coalesced bytes after the given delay, and the given pool for the
+     * coalescing buffer.</p>
+     *
+     * @param size the size in bytes of the coalescing buffer, or 0 to disable write coalescing
+     * @param delay the max time in milliseconds that coalesced bytes may wait before being written
+     * @param scheduler the scheduler used to write the coalesced bytes after the delay
+     * @param bufferPool the pool of the coalescing buffer, or null to allocate it
+     * @see #setWriteCoalescing(int, long)
+     */
+    public void setWriteCoalescing(int size, long delay, Scheduler scheduler, ByteBufferPool bufferPool)
+    {
+        _writeCoalescer = size > 0 ? new WriteCoalescer(this, scheduler, bufferPool, size, delay) : null;
+    }
+
+    /**
+     * @return the size in bytes of the write coalescing buffer, or 0 if writes are not coalesced
+     * @see #setWriteCoalescing(int, long)
+     */
+    public int getWriteCoalescingSize()
+    {
+        WriteCoalescer coalescer = _writeCoalescer;
+        return coalescer == null ? 0 : coalescer.getMaxSize();
+    }
+
+    /**
+     * @return the max time in milliseconds that coalesced bytes may wait before being written
+     * @see #setWriteCoalescing(int, long)
+     */
+    public long getWriteCoalescingDelay()
+    {
+        WriteCoalescer coalescer = _writeCoalescer;
+        return coalescer == null ? 0 : coalescer.getMaxDelay();
+    }
+
+    /**
+     * @return the number of writes that have been coalesced
+     */
+    public long getCoalescedWrites()
+    {
+        WriteCoalescer coalescer = _writeCoalescer;
+        return coalescer == null ? 0 : coalescer.getCoalescedWrites();
+    }
+
+    /**
+     * @return the number of network writes that have been saved by coalescing writes
+     */
+    public long getSavedWrites()
+    {
+        WriteCoalescer coalescer = _writeCoalescer;
+        return coalescer == null ? 0 : coalescer.getSavedWrites();
+    }
+
+    private void flushCoalescedWrites()
+    {
+        WriteCoalescer coalescer = _writeCoalescer;
+        if (coalescer != null)
+            coalescer.flush();
     }
 
     protected abstract void onIncompleteFlush();
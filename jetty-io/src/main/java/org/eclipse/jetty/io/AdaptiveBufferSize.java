@@ -0,0 +1,152 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.util.BufferUtil;
+
+/**
+ * <p>Computes the size of the buffers used by a connection to fill from the network,
+ * adapting it to the sizes of the recent fills.</p>
+ * <p>The size starts at {@code minSize}; when a fill fills all the space available
+ * in the buffer, the size is doubled (up to {@code maxSize}) as more bytes are likely
+ * to be available; otherwise the size slowly decays towards the power of two that
+ * fits the largest recent fill.</p>
+ * <p>This class is not thread safe: {@link #filled(int, int)} must be called by the
+ * thread that filled, and fills of a connection do not happen concurrently.</p>
+ */
+public class AdaptiveBufferSize
+{
+    /**
+     * The default minimum buffer size.
+     */
+    public static final int DEFAULT_MIN_SIZE = 256;
+
+    private final int _minSize;
+    private final int _maxSize;
+    private volatile int _size;
+    private int _peak;
+    private volatile long _grows;
+    private volatile long _shrinks;
+
+    public AdaptiveBufferSize(int maxSize)
+    {
+        this(DEFAULT_MIN_SIZE, maxSize);
+    }
+
+    public AdaptiveBufferSize(int minSize, int maxSize)
+    {
+        if (minSize <= 0 || maxSize < minSize)
+            throw new IllegalArgumentException("Invalid buffer sizes " + minSize + "/" + maxSize);
+        _minSize = minSize;
+        _maxSize = maxSize;
+        _size = minSize;
+    }
+
+    /**
+     * @return the size of the next buffer to fill
+     */
+    public int getSize()
+    {
+        return _size;
+    }
+
+    public int getMinSize()
+    {
+        return _minSize;
+    }
+
+    public int getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    /**
+     * @return the number of times the buffer size has been increased
+     */
+    public long getGrows()
+    {
+        return _grows;
+    }
+
+    /**
+     * @return the number of times the buffer size has been decreased
+     */
+    public long getShrinks()
+    {
+        return _shrinks;
+    }
+
+    /**
+     * <p>Returns the space that a fill into the given buffer can use.</p>
+     * <p>The buffer may be reused across fills: the bytes that have already been consumed
+     * are reclaimed by the fill, so the space is measured as the fill sees it.</p>
+     *
+     * @param buffer the buffer to fill, in flush mode
+     * @return the space available to a fill
+     */
+    public static int fillSpace(ByteBuffer buffer)
+    {
+        int position = BufferUtil.flipToFill(buffer);
+        int space = buffer.remaining();
+        BufferUtil.flipToFlush(buffer, position);
+        return space;
+    }
+
+    /**
+     * <p>Records the result of a fill.</p>
+     *
+     * @param filled the number of bytes filled, or -1 at EOF
+     * @param space the space that was available in the buffer before the fill
+     */
+    public void filled(int filled, int space)
+    {
+        if (filled < 0)
+            return;
+
+        int size = _size;
+        if (filled > 0 && filled >= space)
+        {
+            // The buffer was too small, grow it.
+            if (size < _maxSize)
+            {
+                _size = (int)Math.min(_maxSize, Math.max(2L * size, 2L * space));
+                ++_grows;
+            }
+            _peak = _size;
+            return;
+        }
+
+        // Decay the peak by 1/8 for every fill that did not fill the buffer.
+        _peak = Math.max(filled, _peak - (_peak >>> 3));
+        int target = _peak <= _minSize ? _minSize : Math.min(_maxSize, Integer.highestOneBit(_peak - 1) << 1);
+        if (target < size)
+        {
+            _size = target;
+            ++_shrinks;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d,min=%d,max=%d,grows=%d,shrinks=%d}", getClass().getSimpleName(), hashCode(), getSize(), getMinSize(), getMaxSize(), getGrows(), getShrinks());
+    }
+}
@@ -26,6 +26,7 @@ import java.util.function.IntFunction;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.statistic.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,7 +37,7 @@ import org.slf4j.LoggerFactory;
  * 2048, and so on.</p>
  */
 @ManagedObject
-public class ArrayByteBufferPool extends AbstractByteBufferPool
+public class ArrayByteBufferPool extends AbstractByteBufferPool implements Metrics.Publisher
 {
     private static final Logger LOG = LoggerFactory.getLogger(MappedByteBufferPool.class);
 
@@ -225,6 +226,17 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool
         return getByteBufferCount(false);
     }
 
+    @Override
+    public void publish(Metrics metrics)
+    {
+        Metrics direct = metrics.withLabel("type", "direct");
+        direct.gauge("jetty_bufferpool_buffers", "number of pooled ByteBuffers", this::getDirectByteBufferCount);
+        direct.gauge("jetty_bufferpool_bytes", "bytes retained by pooled ByteBuffers", this::getDirectMemory);
+        Metrics heap = metrics.withLabel("type", "heap");
+        heap.gauge("jetty_bufferpool_buffers", "number of pooled ByteBuffers", this::getHeapByteBufferCount);
+        heap.gauge("jetty_bufferpool_bytes", "bytes retained by pooled ByteBuffers", this::getHeapMemory);
+    }
+
     private long getByteBufferCount(boolean direct)
     {
         return Arrays.stream(bucketsFor(direct))
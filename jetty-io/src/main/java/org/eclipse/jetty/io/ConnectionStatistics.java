@@ -19,6 +19,7 @@
 package org.eclipse.jetty.io;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
@@ -29,6 +30,8 @@ import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.statistic.CounterStatistic;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+import org.eclipse.jetty.util.statistic.Metrics;
 import org.eclipse.jetty.util.statistic.SampleStatistic;
 
 /**
@@ -39,10 +42,12 @@ import org.eclipse.jetty.util.statistic.SampleStatistic;
  * by the server Connector or by HttpClient.</p>
  */
 @ManagedObject("Tracks statistics on connections")
-public class ConnectionStatistics extends AbstractLifeCycle implements Connection.Listener, Dumpable
+public class ConnectionStatistics extends AbstractLifeCycle implements Connection.Listener, Dumpable, Metrics.Publisher
 {
     private final CounterStatistic _connections = new CounterStatistic();
-    private final SampleStatistic _connectionsDuration = new SampleStatistic();
+    private final HistogramStatistic _connectionsDuration = new HistogramStatistic(TimeUnit.DAYS.toMillis(1));
+    private final HistogramStatistic _connectionRcvdBytes = new HistogramStatistic(Long.MAX_VALUE);
+    private final HistogramStatistic _connectionSentBytes = new HistogramStatistic(Long.MAX_VALUE);
     private final LongAdder _rcvdBytes = new LongAdder();
     private final AtomicLong _bytesInStamp = new AtomicLong();
     private final LongAdder _sentBytes = new LongAdder();
@@ -51,12 +56,19 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
     private final AtomicLong _messagesInStamp = new AtomicLong();
     private final LongAdder _messagesOut = new LongAdder();
     private final AtomicLong _messagesOutStamp = new AtomicLong();
+    private final SampleStatistic _inputBufferSizes = new SampleStatistic();
+    private final LongAdder _inputBufferGrows = new LongAdder();
+    private final LongAdder _inputBufferShrinks = new LongAdder();
+    private final LongAdder _coalescedWrites = new LongAdder();
+    private final LongAdder _savedWrites = new LongAdder();
 
     @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
     public void reset()
     {
         _connections.reset();
         _connectionsDuration.reset();
+        _connectionRcvdBytes.reset();
+        _connectionSentBytes.reset();
         _rcvdBytes.reset();
         _bytesInStamp.set(System.nanoTime());
         _sentBytes.reset();
@@ -65,6 +77,11 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
         _messagesInStamp.set(System.nanoTime());
         _messagesOut.reset();
         _messagesOutStamp.set(System.nanoTime());
+        _inputBufferSizes.reset();
+        _inputBufferGrows.reset();
+        _inputBufferShrinks.reset();
+        _coalescedWrites.reset();
+        _savedWrites.reset();
     }
 
     @Override
@@ -96,9 +113,11 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
         long bytesIn = connection.getBytesIn();
         if (bytesIn > 0)
             _rcvdBytes.add(bytesIn);
+        _connectionRcvdBytes.record(bytesIn);
         long bytesOut = connection.getBytesOut();
         if (bytesOut > 0)
             _sentBytes.add(bytesOut);
+        _connectionSentBytes.record(bytesOut);
 
         long messagesIn = connection.getMessagesIn();
         if (messagesIn > 0)
@@ -106,6 +125,25 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
         long messagesOut = connection.getMessagesOut();
         if (messagesOut > 0)
             _messagesOut.add(messagesOut);
+
+        if (connection instanceof AbstractConnection)
+        {
+            AdaptiveBufferSize adaptive = ((AbstractConnection)connection).getAdaptiveInputBufferSize();
+            if (adaptive != null)
+            {
+                _inputBufferSizes.record(adaptive.getSize());
+                _inputBufferGrows.add(adaptive.getGrows());
+                _inputBufferShrinks.add(adaptive.getShrinks());
+            }
+        }
+
+        EndPoint endPoint = connection.getEndPoint();
+        if (endPoint instanceof AbstractEndPoint)
+        {
+            AbstractEndPoint abstractEndPoint = (AbstractEndPoint)endPoint;
+            _coalescedWrites.add(abstractEndPoint.getCoalescedWrites());
+            _savedWrites.add(abstractEndPoint.getSavedWrites());
+        }
     }
 
     @ManagedAttribute("Total number of bytes received by tracked connections")
@@ -156,6 +194,48 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
         return _connectionsDuration.getStdDev();
     }
 
+    @ManagedAttribute("The percentiles of the duration of a connection in ms")
+    public Map<String, Long> getConnectionDurationPercentiles()
+    {
+        return _connectionsDuration.getPercentiles();
+    }
+
+    @ManagedAttribute("The percentiles of the number of bytes received by a connection")
+    public Map<String, Long> getConnectionReceivedBytesPercentiles()
+    {
+        return _connectionRcvdBytes.getPercentiles();
+    }
+
+    @ManagedAttribute("The percentiles of the number of bytes sent by a connection")
+    public Map<String, Long> getConnectionSentBytesPercentiles()
+    {
+        return _connectionSentBytes.getPercentiles();
+    }
+
+    /**
+     * @return the histogram of the duration of closed connections in ms
+     */
+    public HistogramStatistic getConnectionDurationHistogram()
+    {
+        return _connectionsDuration;
+    }
+
+    /**
+     * @return the histogram of the number of bytes received by closed connections
+     */
+    public HistogramStatistic getConnectionReceivedBytesHistogram()
+    {
+        return _connectionRcvdBytes;
+    }
+
+    /**
+     * @return the histogram of the number of bytes sent by closed connections
+     */
+    public HistogramStatistic getConnectionSentBytesHistogram()
+    {
+        return _connectionSentBytes;
+    }
+
     @ManagedAttribute("The total number of connections opened")
     public long getConnectionsTotal()
     {
@@ -204,6 +284,56 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
         return elapsed == 0 ? 0 : getSentMessages() * 1000 / elapsed;
     }
 
+    @ManagedAttribute("The max adaptive input buffer size of closed connections")
+    public long getInputBufferSizeMax()
+    {
+        return _inputBufferSizes.getMax();
+    }
+
+    @ManagedAttribute("The mean adaptive input buffer size of closed connections")
+    public double getInputBufferSizeMean()
+    {
+        return _inputBufferSizes.getMean();
+    }
+
+    @ManagedAttribute("The total number of times the adaptive input buffer size of closed connections was increased")
+    public long getInputBufferGrows()
+    {
+        return _inputBufferGrows.sum();
+    }
+
+    @ManagedAttribute("The total number of times the adaptive input buffer size of closed connections was decreased")
+    public long getInputBufferShrinks()
+    {
+        return _inputBufferShrinks.sum();
+    }
+
+    @ManagedAttribute("The total number of coalesced writes of closed connections")
+    public long getCoalescedWrites()
+    {
+        return _coalescedWrites.sum();
+    }
+
+    @ManagedAttribute("The total number of network writes saved by write coalescing of closed connections")
+    public long getSavedWrites()
+    {
+        return _savedWrites.sum();
+    }
+
+    @Override
+    public void publish(Metrics metrics)
+    {
+        metrics.gauge("jetty_connections", "current number of open connections", this::getConnections);
+        metrics.counter("jetty_connections_opened_total", "total number of connections opened", this::getConnectionsTotal);
+        metrics.counter("jetty_connections_received_bytes_total", "total number of bytes received by closed connections", this::getReceivedBytes);
+        metrics.counter("jetty_connections_sent_bytes_total", "total number of bytes sent by closed connections", this::getSentBytes);
+        metrics.counter("jetty_connections_received_messages_total", "total number of messages received by closed connections", this::getReceivedMessages);
+        metrics.counter("jetty_connections_sent_messages_total", "total number of messages sent by closed connections", this::getSentMessages);
+        metrics.timer("jetty_connections_duration_seconds", "duration of closed connections", _connectionsDuration, TimeUnit.MILLISECONDS);
+        metrics.histogram("jetty_connections_received_bytes", "bytes received per closed connection", _connectionRcvdBytes);
+        metrics.histogram("jetty_connections_sent_bytes", "bytes sent per closed connection", _connectionSentBytes);
+    }
+
     @Override
     public String dump()
     {
@@ -217,7 +347,11 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
             String.format("connections=%s", _connections),
             String.format("durations=%s", _connectionsDuration),
             String.format("bytes in/out=%s/%s", getReceivedBytes(), getSentBytes()),
-            String.format("messages in/out=%s/%s", getReceivedMessages(), getSentMessages()));
+            String.format("bytes in per connection=%s", _connectionRcvdBytes),
+            String.format("bytes out per connection=%s", _connectionSentBytes),
+            String.format("messages in/out=%s/%s", getReceivedMessages(), getSentMessages()),
+            String.format("input buffer sizes=%s", _inputBufferSizes),
+            String.format("coalesced/saved writes=%d/%d", getCoalescedWrites(), getSavedWrites()));
     }
 
     @Override
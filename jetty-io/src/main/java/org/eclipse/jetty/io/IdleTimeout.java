@@ -41,6 +41,7 @@ public abstract class IdleTimeout
     private final AtomicReference<Scheduler.Task> _timeout = new AtomicReference<>();
     private volatile long _idleTimeout;
     private volatile long _idleTimestamp = System.nanoTime();
+    private volatile boolean _swept;
 
     /**
      * @param scheduler A scheduler used to schedule checks for the idle timeout.
@@ -100,6 +101,29 @@ public abstract class IdleTimeout
             activate();
     }
 
+    /**
+     * @return whether the idle timeout is checked by an external sweeper
+     * @see #setSwept(boolean)
+     */
+    public boolean isSwept()
+    {
+        return _swept;
+    }
+
+    /**
+     * <p>Sets whether the idle timeout is checked by periodic calls to {@link #checkIdleTimeout()}
+     * from an external sweeper, rather than by tasks scheduled with the {@link #getScheduler() scheduler}.</p>
+     * <p>A swept idle timeout may expire later than its idle timeout, by at most the sweep period.</p>
+     *
+     * @param swept whether the idle timeout is checked by an external sweeper
+     */
+    public void setSwept(boolean swept)
+    {
+        _swept = swept;
+        if (swept)
+            deactivate();
+    }
+
     /**
      * This method should be called when non-idle activity has taken place.
      */
@@ -118,7 +142,7 @@ public abstract class IdleTimeout
     private void scheduleIdleTimeout(long delay)
     {
         Scheduler.Task newTimeout = null;
-        if (isOpen() && delay > 0 && _scheduler != null)
+        if (isOpen() && delay > 0 && _scheduler != null && !_swept)
             newTimeout = _scheduler.schedule(this::idleCheck, delay, TimeUnit.MILLISECONDS);
         Scheduler.Task oldTimeout = _timeout.getAndSet(newTimeout);
         if (oldTimeout != null)
@@ -38,6 +38,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
@@ -87,6 +88,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     private final int _id;
     private final ExecutionStrategy _strategy;
     private Selector _selector;
+    private volatile IdleSweeper _idleSweeper;
+    private SelectorWatchdog.Probe _probe;
+    // Only accessed by the selector thread.
+    private long _selectedNanoTime;
     private Deque<SelectorUpdate> _updates = new ArrayDeque<>();
     private Deque<SelectorUpdate> _updateable = new ArrayDeque<>();
 
@@ -112,6 +117,16 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
         _selector = _selectorManager.newSelector();
 
+        long idleSweepPeriod = _selectorManager.getIdleSweepPeriod();
+        if (idleSweepPeriod > 0)
+        {
+            _idleSweeper = new IdleSweeper(idleSweepPeriod);
+            _idleSweeper.schedule();
+        }
+
+        SelectorWatchdog watchdog = _selectorManager.getBean(SelectorWatchdog.class);
+        _probe = watchdog == null ? null : watchdog.newProbe(this);
+
         // The producer used by the strategies will never
         // be idle (either produces a task or blocks).
 
@@ -143,6 +158,15 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
             stopSelector._stopped.await();
         }
 
+        IdleSweeper idleSweeper = _idleSweeper;
+        _idleSweeper = null;
+        if (idleSweeper != null)
+            idleSweeper.cancel();
+
+        SelectorWatchdog.Probe probe = _probe;
+        if (probe != null)
+            probe.remove();
+
         super.doStop();
     }
 
@@ -238,6 +262,17 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         return keys.size();
     }
 
+    /**
+     * <p>Must be called by the selector thread, typically from {@link Selectable#onSelected()}.</p>
+     *
+     * @return the {@link System#nanoTime()} at which the last select returned,
+     * or 0 if it is not {@link SelectorManager#isSelectedNanoTimeRecorded() recorded}
+     */
+    public long getSelectedNanoTime()
+    {
+        return _selectedNanoTime;
+    }
+
     /**
      * Submit an {@link SelectorUpdate} to be acted on between calls to {@link Selector#select()}
      *
@@ -354,6 +389,9 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         Object context = selectionKey.attachment();
         Connection connection = _selectorManager.newConnection(channel, endPoint, context);
         endPoint.setConnection(connection);
+        IdleSweeper idleSweeper = _idleSweeper;
+        if (idleSweeper != null)
+            idleSweeper.add(endPoint);
         submit(selector ->
         {
             SelectionKey key = selectionKey;
@@ -499,6 +537,9 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         @Override
         public Runnable produce()
         {
+            SelectorWatchdog.Probe probe = _probe;
+            if (probe != null)
+                probe.onProduce();
             while (true)
             {
                 Runnable task = processSelected();
@@ -534,7 +575,17 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                 {
                     if (LOG.isDebugEnabled())
                         LOG.debug("update {}", update);
-                    update.update(_selector);
+                    SelectorWatchdog.Probe probe = _probe;
+                    if (probe == null)
+                    {
+                        update.update(_selector);
+                    }
+                    else
+                    {
+                        long begin = System.nanoTime();
+                        update.update(_selector);
+                        probe.onUpdated(update, begin);
+                    }
                 }
                 catch (Throwable x)
                 {
@@ -572,7 +623,22 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                 {
                     if (LOG.isDebugEnabled())
                         LOG.debug("Selector {} waiting with {} keys", selector, selector.keys().size());
+                    SelectorWatchdog.Probe probe = _probe;
+                    if (probe != null)
+                        probe.onSelecting();
                     int selected = ManagedSelector.this.select(selector);
+                    boolean recorded = _selectorManager.isSelectedNanoTimeRecorded();
+                    if (recorded || probe != null)
+                    {
+                        long now = System.nanoTime();
+                        _selectedNanoTime = recorded ? now : 0;
+                        if (probe != null)
+                            probe.onSelected(now);
+                    }
+                    else
+                    {
+                        _selectedNanoTime = 0;
+                    }
                     // The selector may have been recreated.
                     selector = _selector;
                     if (selector != null)
@@ -1048,6 +1114,71 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         }
     }
 
+    /**
+     * <p>Periodically checks the idle timeout of the endpoints of this selector,
+     * so that endpoints do not schedule their own idle timeout tasks.</p>
+     */
+    private class IdleSweeper implements Runnable
+    {
+        private final Set<IdleTimeout> _endPoints = ConcurrentHashMap.newKeySet();
+        private final long _period;
+        private volatile Scheduler.Task _task;
+
+        private IdleSweeper(long period)
+        {
+            _period = period;
+        }
+
+        private void add(EndPoint endPoint)
+        {
+            if (endPoint instanceof IdleTimeout)
+            {
+                IdleTimeout idleTimeout = (IdleTimeout)endPoint;
+                idleTimeout.setSwept(true);
+                _endPoints.add(idleTimeout);
+            }
+        }
+
+        private void remove(EndPoint endPoint)
+        {
+            if (endPoint instanceof IdleTimeout)
+                _endPoints.remove(endPoint);
+        }
+
+        private void schedule()
+        {
+            _task = _selectorManager.getScheduler().schedule(this, _period, TimeUnit.MILLISECONDS);
+        }
+
+        private void cancel()
+        {
+            Scheduler.Task task = _task;
+            if (task != null)
+                task.cancel();
+        }
+
+        @Override
+        public void run()
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Sweeping {} endpoints for idle timeouts on {}", _endPoints.size(), ManagedSelector.this);
+            for (IdleTimeout idleTimeout : _endPoints)
+            {
+                try
+                {
+                    if (idleTimeout.checkIdleTimeout() < 0)
+                        _endPoints.remove(idleTimeout);
+                }
+                catch (Throwable x)
+                {
+                    LOG.warn("Failed idle timeout check of {}", idleTimeout, x);
+                }
+            }
+            if (_idleSweeper == this)
+                schedule();
+        }
+    }
+
     private class DestroyEndPoint implements Runnable, Closeable
     {
         private final EndPoint endPoint;
@@ -1067,6 +1198,9 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
             Connection connection = endPoint.getConnection();
             if (connection != null)
                 _selectorManager.connectionClosed(connection, cause);
+            IdleSweeper idleSweeper = _idleSweeper;
+            if (idleSweeper != null)
+                idleSweeper.remove(endPoint);
             ManagedSelector.this.endPointClosed(endPoint);
         }
 
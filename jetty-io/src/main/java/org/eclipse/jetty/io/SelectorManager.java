@@ -67,6 +67,8 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     private final IntUnaryOperator _selectorIndexUpdate;
     private final List<AcceptListener> _acceptListeners = new ArrayList<>();
     private long _connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private long _idleSweepPeriod;
+    private volatile boolean _selectedNanoTimeRecorded;
     private ThreadPoolBudget.Lease _lease;
 
     private static int defaultSelectors(Executor executor)
@@ -134,6 +136,53 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         _connectTimeout = milliseconds;
     }
 
+    /**
+     * @return the period in milliseconds of the idle timeout sweep of each selector,
+     * or zero if each endpoint schedules its own idle timeout checks
+     * @see #setIdleSweepPeriod(long)
+     */
+    @ManagedAttribute("The period of the idle timeout sweep of each selector (ms), or 0 if each endpoint schedules its own idle timeout checks")
+    public long getIdleSweepPeriod()
+    {
+        return _idleSweepPeriod;
+    }
+
+    /**
+     * <p>Sets the period of the idle timeout sweep of each selector.</p>
+     * <p>When positive, each {@link ManagedSelector} checks the idle timeout of all its
+     * endpoints with a single periodic task, instead of each endpoint scheduling its own
+     * idle timeout checks; the idle timeout of an endpoint may then expire later by
+     * at most this period.</p>
+     * <p>This setting takes effect when the selectors are started.</p>
+     *
+     * @param idleSweepPeriod the idle timeout sweep period in milliseconds, or zero to disable the sweep
+     * @see IdleTimeout#setSwept(boolean)
+     */
+    public void setIdleSweepPeriod(long idleSweepPeriod)
+    {
+        _idleSweepPeriod = idleSweepPeriod;
+    }
+
+    /**
+     * @return whether the selectors record the time at which they wake up
+     * @see #setSelectedNanoTimeRecorded(boolean)
+     */
+    public boolean isSelectedNanoTimeRecorded()
+    {
+        return _selectedNanoTimeRecorded;
+    }
+
+    /**
+     * <p>Sets whether the selectors record the {@link System#nanoTime()} at which they wake up,
+     * so that it is available from {@link ManagedSelector#getSelectedNanoTime()}.</p>
+     *
+     * @param selectedNanoTimeRecorded whether the selectors record the time at which they wake up
+     */
+    public void setSelectedNanoTimeRecorded(boolean selectedNanoTimeRecorded)
+    {
+        _selectedNanoTimeRecorded = selectedNanoTimeRecorded;
+    }
+
     /**
      * Executes the given task in a different thread.
      *
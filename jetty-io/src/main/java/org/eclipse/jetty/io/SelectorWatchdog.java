@@ -0,0 +1,393 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.util.EventListener;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+import org.eclipse.jetty.util.statistic.Metrics;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Monitors the {@link ManagedSelector}s of the {@link SelectorManager}s it is a bean of,
+ * detecting selectors that do not return to select because they are stuck in a slow task,
+ * for example a blocking callback.</p>
+ * <p>Each selector records in a preallocated {@link Probe} the time it spends between two selects,
+ * and the time spent in each {@link ManagedSelector.SelectorUpdate}. These times are kept in
+ * histograms, and updates slower than the stall threshold are logged.</p>
+ * <p>A dedicated scheduler thread periodically checks the selectors: when a selector has not
+ * returned to select for longer than the stall threshold, the stack trace of the thread that
+ * produces for the selector is logged and {@link Listener}s are notified, once per stall.</p>
+ * <p>When used with a {@code ServerConnector}, this watchdog should be added as a bean of the connector.</p>
+ */
+@ManagedObject("Detects stalled selectors")
+public class SelectorWatchdog extends ContainerLifeCycle implements Metrics.Publisher
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SelectorWatchdog.class);
+
+    private final List<Probe> _probes = new CopyOnWriteArrayList<>();
+    private final HistogramStatistic _selectLoopTimes = new HistogramStatistic(TimeUnit.HOURS.toMicros(1));
+    private final HistogramStatistic _updateTimes = new HistogramStatistic(TimeUnit.HOURS.toMicros(1));
+    private final LongAdder _stalls = new LongAdder();
+    private final LongAdder _slowUpdates = new LongAdder();
+    private final Runnable _check = this::check;
+    private long _stallThreshold = 1000;
+    private volatile Scheduler _scheduler;
+    private volatile Scheduler.Task _task;
+
+    /**
+     * @return the time in ms after which a selector that has not returned to select is stalled
+     */
+    @ManagedAttribute("The time in ms after which a selector that has not returned to select is stalled")
+    public long getStallThreshold()
+    {
+        return _stallThreshold;
+    }
+
+    /**
+     * @param stallThreshold the time in ms after which a selector that has not returned to select is stalled
+     */
+    public void setStallThreshold(long stallThreshold)
+    {
+        if (stallThreshold <= 0)
+            throw new IllegalArgumentException("Invalid stall threshold " + stallThreshold);
+        _stallThreshold = stallThreshold;
+    }
+
+    @ManagedAttribute(value = "The number of selector stalls detected", readonly = true)
+    public long getStalls()
+    {
+        return _stalls.sum();
+    }
+
+    @ManagedAttribute(value = "The number of selector updates slower than the stall threshold", readonly = true)
+    public long getSlowUpdates()
+    {
+        return _slowUpdates.sum();
+    }
+
+    @ManagedAttribute(value = "The number of selectors monitored", readonly = true)
+    public int getSelectors()
+    {
+        return _probes.size();
+    }
+
+    /**
+     * @return the histogram of the times in microseconds selectors spent between two selects
+     */
+    public HistogramStatistic getSelectLoopTimeHistogram()
+    {
+        return _selectLoopTimes;
+    }
+
+    @ManagedAttribute(value = "The percentiles of the times in microseconds selectors spent between two selects", readonly = true)
+    public Map<String, Long> getSelectLoopTimePercentiles()
+    {
+        return _selectLoopTimes.getPercentiles();
+    }
+
+    /**
+     * @return the histogram of the times in microseconds spent in selector updates
+     */
+    public HistogramStatistic getUpdateTimeHistogram()
+    {
+        return _updateTimes;
+    }
+
+    @ManagedAttribute(value = "The percentiles of the times in microseconds spent in selector updates", readonly = true)
+    public Map<String, Long> getUpdateTimePercentiles()
+    {
+        return _updateTimes.getPercentiles();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void reset()
+    {
+        _selectLoopTimes.reset();
+        _updateTimes.reset();
+        _stalls.reset();
+        _slowUpdates.reset();
+    }
+
+    @Override
+    public void publish(Metrics metrics)
+    {
+        metrics.timer("jetty_selector_loop_seconds", "The time selectors spent between two selects", _selectLoopTimes, TimeUnit.MICROSECONDS);
+        metrics.timer("jetty_selector_update_seconds", "The time spent in selector updates", _updateTimes, TimeUnit.MICROSECONDS);
+        metrics.counter("jetty_selector_stalls_total", "The number of selector stalls detected", _stalls::sum);
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        _scheduler = new ScheduledExecutorScheduler(String.format("SelectorWatchdog@%x", hashCode()), true);
+        addBean(_scheduler, true);
+        super.doStart();
+        schedule();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        Scheduler.Task task = _task;
+        if (task != null)
+            task.cancel();
+        super.doStop();
+        removeBean(_scheduler);
+        _scheduler = null;
+    }
+
+    /**
+     * <p>Called by a {@link ManagedSelector} when it starts, to obtain the probe it records its activity in.</p>
+     *
+     * @param selector the selector to monitor
+     * @return the probe of the selector
+     */
+    Probe newProbe(ManagedSelector selector)
+    {
+        Probe probe = new Probe(selector);
+        _probes.add(probe);
+        return probe;
+    }
+
+    private void schedule()
+    {
+        Scheduler scheduler = _scheduler;
+        if (isRunning() && scheduler != null)
+            _task = scheduler.schedule(_check, Math.max(1, _stallThreshold / 4), TimeUnit.MILLISECONDS);
+    }
+
+    private void check()
+    {
+        try
+        {
+            long now = System.nanoTime();
+            long threshold = TimeUnit.MILLISECONDS.toNanos(_stallThreshold);
+            for (Probe probe : _probes)
+            {
+                probe.check(now, threshold);
+            }
+        }
+        catch (Throwable x)
+        {
+            LOG.warn("Could not check selectors", x);
+        }
+        finally
+        {
+            schedule();
+        }
+    }
+
+    private void onStall(ManagedSelector selector, long stall, Thread thread, StackTraceElement[] stackTrace)
+    {
+        _stalls.increment();
+        if (LOG.isWarnEnabled())
+        {
+            StringBuilder builder = new StringBuilder();
+            for (StackTraceElement element : stackTrace)
+            {
+                builder.append(System.lineSeparator()).append("\tat ").append(element);
+            }
+            LOG.warn("Selector {} stalled for {} ms in {}{}", selector, TimeUnit.NANOSECONDS.toMillis(stall), thread, builder);
+        }
+        for (EventListener listener : getEventListeners())
+        {
+            if (listener instanceof Listener)
+            {
+                try
+                {
+                    ((Listener)listener).onStall(selector, stall, thread, stackTrace);
+                }
+                catch (Throwable x)
+                {
+                    LOG.info("Failure while notifying listener {}", listener, x);
+                }
+            }
+        }
+    }
+
+    private void onSlowUpdate(ManagedSelector selector, ManagedSelector.SelectorUpdate update, long time)
+    {
+        _slowUpdates.increment();
+        LOG.warn("Selector {} spent {} ms in update {}", selector, TimeUnit.NANOSECONDS.toMillis(time), update);
+        for (EventListener listener : getEventListeners())
+        {
+            if (listener instanceof Listener)
+            {
+                try
+                {
+                    ((Listener)listener).onSlowUpdate(selector, update, time);
+                }
+                catch (Throwable x)
+                {
+                    LOG.info("Failure while notifying listener {}", listener, x);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        Dumpable.dumpObjects(out, indent, this,
+            "stalls=" + getStalls(),
+            "slowUpdates=" + getSlowUpdates(),
+            "selectLoopTimes(us)=" + getSelectLoopTimePercentiles(),
+            "updateTimes(us)=" + getUpdateTimePercentiles());
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,threshold=%dms,selectors=%d}", getClass().getSimpleName(), hashCode(), getState(), _stallThreshold, _probes.size());
+    }
+
+    /**
+     * <p>Listener for the events detected by a {@link SelectorWatchdog}.</p>
+     * <p>Listeners are added with {@link SelectorWatchdog#addEventListener(EventListener)}.</p>
+     */
+    public interface Listener extends EventListener
+    {
+        /**
+         * <p>Callback method invoked, by the watchdog thread, when a selector has not returned to select
+         * for longer than the stall threshold.</p>
+         *
+         * @param selector the stalled selector
+         * @param stall the time in ns since the selector last returned from select
+         * @param thread the thread producing for the selector
+         * @param stackTrace the stack trace of the thread
+         */
+        default void onStall(ManagedSelector selector, long stall, Thread thread, StackTraceElement[] stackTrace)
+        {
+        }
+
+        /**
+         * <p>Callback method invoked, by the selector thread, when a selector update took longer than the stall threshold.</p>
+         *
+         * @param selector the selector
+         * @param update the slow update
+         * @param time the time in ns spent in the update
+         */
+        default void onSlowUpdate(ManagedSelector selector, ManagedSelector.SelectorUpdate update, long time)
+        {
+        }
+    }
+
+    /**
+     * <p>The activity of a {@link ManagedSelector}, recorded by its producing thread
+     * and checked by the watchdog thread.</p>
+     */
+    class Probe
+    {
+        private final ManagedSelector _selector;
+        // The nanoTime at which the selector returned from select, or 0 while selecting.
+        private volatile long _busySince;
+        private volatile Thread _thread;
+        // Only accessed by the watchdog thread.
+        private long _reported;
+
+        private Probe(ManagedSelector selector)
+        {
+            _selector = selector;
+        }
+
+        /**
+         * <p>Called when the selector produces, to record the producing thread.</p>
+         */
+        void onProduce()
+        {
+            Thread thread = Thread.currentThread();
+            if (_thread != thread)
+                _thread = thread;
+        }
+
+        /**
+         * <p>Called before the selector selects.</p>
+         */
+        void onSelecting()
+        {
+            long busySince = _busySince;
+            if (busySince != 0)
+            {
+                _busySince = 0;
+                _selectLoopTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - busySince));
+            }
+        }
+
+        /**
+         * <p>Called after the selector returned from select.</p>
+         *
+         * @param nanoTime the time the selector returned from select
+         */
+        void onSelected(long nanoTime)
+        {
+            _busySince = nanoTime;
+        }
+
+        /**
+         * <p>Called after a selector update.</p>
+         *
+         * @param update the update
+         * @param begin the time the update began
+         */
+        void onUpdated(ManagedSelector.SelectorUpdate update, long begin)
+        {
+            long time = System.nanoTime() - begin;
+            _updateTimes.record(TimeUnit.NANOSECONDS.toMicros(time));
+            if (time > TimeUnit.MILLISECONDS.toNanos(_stallThreshold))
+                onSlowUpdate(_selector, update, time);
+        }
+
+        /**
+         * <p>Called when the selector stops.</p>
+         */
+        void remove()
+        {
+            _probes.remove(this);
+        }
+
+        private void check(long now, long threshold)
+        {
+            long busySince = _busySince;
+            if (busySince == 0 || busySince == _reported)
+                return;
+            long stall = now - busySince;
+            if (stall > threshold)
+            {
+                _reported = busySince;
+                Thread thread = _thread;
+                onStall(_selector, stall, thread, thread == null ? new StackTraceElement[0] : thread.getStackTrace());
+            }
+        }
+    }
+}
@@ -0,0 +1,445 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.ProcessorUtils;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A ByteBuffer pool where ByteBuffers are held in several independent shards,
+ * to reduce the contention on the buckets when many threads acquire and release
+ * ByteBuffers concurrently.</p>
+ * <p>Each thread is assigned a shard the first time it uses the pool, and uses it
+ * for both acquire and release; when the shard has no ByteBuffer of the requested
+ * capacity, the other shards are searched (work stealing) before a new ByteBuffer
+ * is allocated.</p>
+ * <p>In front of the shards each thread has a small cache of the most recently
+ * released ByteBuffers, so that a thread that releases and then acquires a
+ * ByteBuffer (a very common pattern) does not touch the shared buckets at all.
+ * The thread caches are bounded by {@code threadCacheSize}, and the ByteBuffers
+ * they hold are not accounted in the heap and direct memory: they are discarded
+ * with their thread, so accounting them would leak when pool threads die.</p>
+ * <p>The {@code maxHeapMemory} and {@code maxDirectMemory} limits are enforced
+ * across all the shards: a thread that releases a ByteBuffer beyond a limit clears
+ * the oldest bucket of any shard. The memory retained by the pool may exceed a
+ * limit by at most {@code threadCacheSize} ByteBuffers per thread.</p>
+ * <p>Within a shard, ByteBuffers are held in buckets in the same way as
+ * {@link ArrayByteBufferPool}: given a capacity {@code factor} of 1024, the
+ * first bucket holds ByteBuffers each of capacity 1024, the second bucket holds
+ * ByteBuffers each of capacity 2048, and so on.</p>
+ */
+@ManagedObject
+public class ShardedByteBufferPool extends AbstractByteBufferPool
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedByteBufferPool.class);
+
+    private final ThreadLocal<Local> _local = ThreadLocal.withInitial(this::newLocal);
+    private final AtomicInteger _nextShard = new AtomicInteger();
+    private final LongAdder _steals = new LongAdder();
+    private final int _minCapacity;
+    private final int _threadCacheSize;
+    private final Shard[] _shards;
+    private volatile int _generation;
+
+    /**
+     * Creates a new ShardedByteBufferPool with a default configuration.
+     */
+    public ShardedByteBufferPool()
+    {
+        this(-1, -1, -1);
+    }
+
+    /**
+     * Creates a new ShardedByteBufferPool with the given configuration.
+     *
+     * @param minCapacity the minimum ByteBuffer capacity
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum ByteBuffer capacity
+     */
+    public ShardedByteBufferPool(int minCapacity, int factor, int maxCapacity)
+    {
+        this(minCapacity, factor, maxCapacity, -1, -1, -1, -1, -1);
+    }
+
+    /**
+     * Creates a new ShardedByteBufferPool with the given configuration.
+     *
+     * @param minCapacity the minimum ByteBuffer capacity
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum ByteBuffer capacity
+     * @param maxQueueLength the maximum ByteBuffer queue length of each bucket of each shard
+     * @param maxHeapMemory the max heap memory in bytes
+     * @param maxDirectMemory the max direct memory in bytes
+     * @param shards the number of shards, or -1 for a default based on the number of processors
+     * @param threadCacheSize the max number of ByteBuffers cached per thread, or -1 for a default value
+     */
+    public ShardedByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxQueueLength, long maxHeapMemory, long maxDirectMemory, int shards, int threadCacheSize)
+    {
+        super(factor, maxQueueLength, maxHeapMemory, maxDirectMemory);
+
+        factor = getCapacityFactor();
+        if (minCapacity <= 0)
+            minCapacity = 0;
+        if (maxCapacity <= 0)
+            maxCapacity = 64 * 1024;
+        if ((maxCapacity % factor) != 0 || factor >= maxCapacity)
+            throw new IllegalArgumentException("The capacity factor must be a divisor of maxCapacity");
+        if (shards <= 0)
+            shards = ProcessorUtils.availableProcessors();
+        if (threadCacheSize < 0)
+            threadCacheSize = 4;
+        _minCapacity = minCapacity;
+        _threadCacheSize = threadCacheSize;
+
+        int length = maxCapacity / factor;
+        _shards = new Shard[shards];
+        for (int i = 0; i < shards; ++i)
+        {
+            _shards[i] = new Shard(length);
+        }
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        int capacity = size < _minCapacity ? size : (bucketFor(size) + 1) * getCapacityFactor();
+        if (size < _minCapacity || bucketFor(size) >= bucketCount())
+            return newByteBuffer(capacity, direct);
+
+        Local local = local();
+        ByteBuffer buffer = local.acquire(capacity, direct);
+        if (buffer != null)
+            return buffer;
+
+        int b = bucketFor(size);
+        int shard = local._shard;
+        for (int i = 0; i < _shards.length; ++i)
+        {
+            Bucket bucket = _shards[(shard + i) % _shards.length].bucketsFor(direct)[b];
+            if (bucket == null)
+                continue;
+            buffer = bucket.acquire();
+            if (buffer != null)
+            {
+                if (i > 0)
+                    _steals.increment();
+                decrementMemory(buffer);
+                return buffer;
+            }
+        }
+        return newByteBuffer(capacity, direct);
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+
+        int capacity = buffer.capacity();
+        // Validate that this buffer is from this pool.
+        if ((capacity % getCapacityFactor()) != 0)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("ByteBuffer {} does not belong to this pool, discarding it", BufferUtil.toDetailString(buffer));
+            return;
+        }
+
+        if (capacity < _minCapacity)
+            return;
+        int b = bucketFor(capacity);
+        if (b >= bucketCount())
+            return;
+
+        Local local = local();
+        // Only the buffers released to the shards are accounted,
+        // either the given buffer or the one evicted from the cache.
+        buffer = local.release(buffer);
+        if (buffer != null)
+        {
+            boolean direct = buffer.isDirect();
+            // An evicted buffer may have another capacity.
+            b = bucketFor(buffer.capacity());
+            Shard shard = _shards[local._shard];
+            Bucket bucket = shard.bucketFor(b, direct, getMaxQueueLength(), getCapacityFactor());
+            incrementMemory(buffer);
+            bucket.release(buffer);
+            releaseExcessMemory(direct);
+        }
+    }
+
+    private void releaseExcessMemory(boolean direct)
+    {
+        long maxMemory = getMaxMemory(direct);
+        if (maxMemory > 0)
+        {
+            while (getMemory(direct) > maxMemory)
+            {
+                if (!clearOldestBucket(direct))
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        // Invalidates the thread caches, that are
+        // discarded the next time they are used.
+        ++_generation;
+        for (Shard shard : _shards)
+        {
+            shard.clear();
+        }
+    }
+
+    private boolean clearOldestBucket(boolean direct)
+    {
+        long oldest = Long.MAX_VALUE;
+        Bucket[] buckets = null;
+        int index = -1;
+        for (Shard shard : _shards)
+        {
+            Bucket[] shardBuckets = shard.bucketsFor(direct);
+            for (int i = 0; i < shardBuckets.length; ++i)
+            {
+                Bucket bucket = shardBuckets[i];
+                if (bucket == null)
+                    continue;
+                long lastUpdate = bucket.getLastUpdate();
+                if (lastUpdate < oldest)
+                {
+                    oldest = lastUpdate;
+                    buckets = shardBuckets;
+                    index = i;
+                }
+            }
+        }
+        if (index >= 0)
+        {
+            Bucket bucket = buckets[index];
+            buckets[index] = null;
+            // The same bucket may be concurrently
+            // removed, so we need this null guard.
+            if (bucket != null)
+                bucket.clear(this::decrementMemory);
+            return true;
+        }
+        return false;
+    }
+
+    private Local local()
+    {
+        Local local = _local.get();
+        if (local._generation != _generation)
+            local.clear(_generation);
+        return local;
+    }
+
+    private Local newLocal()
+    {
+        int shard = (_nextShard.getAndIncrement() & Integer.MAX_VALUE) % _shards.length;
+        return new Local(shard, _threadCacheSize, _generation);
+    }
+
+    private int bucketFor(int capacity)
+    {
+        return (capacity - 1) / getCapacityFactor();
+    }
+
+    private int bucketCount()
+    {
+        return _shards[0]._direct.length;
+    }
+
+    @ManagedAttribute("The number of shards")
+    public int getShards()
+    {
+        return _shards.length;
+    }
+
+    @ManagedAttribute("The max number of ByteBuffers cached per thread")
+    public int getThreadCacheSize()
+    {
+        return _threadCacheSize;
+    }
+
+    @ManagedAttribute("The number of ByteBuffers acquired from a shard other than the thread's own")
+    public long getStealCount()
+    {
+        return _steals.sum();
+    }
+
+    @ManagedAttribute("The number of pooled direct ByteBuffers")
+    public long getDirectByteBufferCount()
+    {
+        return getByteBufferCount(true);
+    }
+
+    @ManagedAttribute("The number of pooled heap ByteBuffers")
+    public long getHeapByteBufferCount()
+    {
+        return getByteBufferCount(false);
+    }
+
+    private long getByteBufferCount(boolean direct)
+    {
+        long count = 0;
+        for (Shard shard : _shards)
+        {
+            for (Bucket bucket : shard.bucketsFor(direct))
+            {
+                if (bucket != null)
+                    count += bucket.size();
+            }
+        }
+        return count;
+    }
+
+    // Package local for testing
+    Bucket[] bucketsFor(int shard, boolean direct)
+    {
+        return _shards[shard].bucketsFor(direct);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{shards=%d,threadCache=%d,steals=%d}", getClass().getSimpleName(), hashCode(), getShards(), getThreadCacheSize(), getStealCount());
+    }
+
+    private static class Shard
+    {
+        private final Bucket[] _direct;
+        private final Bucket[] _indirect;
+
+        private Shard(int length)
+        {
+            _direct = new Bucket[length];
+            _indirect = new Bucket[length];
+        }
+
+        private Bucket[] bucketsFor(boolean direct)
+        {
+            return direct ? _direct : _indirect;
+        }
+
+        private Bucket bucketFor(int b, boolean direct, int maxQueueLength, int factor)
+        {
+            Bucket[] buckets = bucketsFor(direct);
+            Bucket bucket = buckets[b];
+            if (bucket == null)
+                buckets[b] = bucket = new Bucket((b + 1) * factor, maxQueueLength);
+            return bucket;
+        }
+
+        private void clear()
+        {
+            for (int i = 0; i < _direct.length; ++i)
+            {
+                Bucket bucket = _direct[i];
+                if (bucket != null)
+                    bucket.clear();
+                _direct[i] = null;
+                bucket = _indirect[i];
+                if (bucket != null)
+                    bucket.clear();
+                _indirect[i] = null;
+            }
+        }
+    }
+
+    /**
+     * <p>The per-thread state: the shard assigned to the thread
+     * and a small LIFO cache of recently released ByteBuffers.</p>
+     * <p>This class is only accessed by its own thread.</p>
+     */
+    private static class Local
+    {
+        private final int _shard;
+        private final ByteBuffer[] _cache;
+        private int _size;
+        private int _generation;
+
+        private Local(int shard, int cacheSize, int generation)
+        {
+            _shard = shard;
+            _cache = new ByteBuffer[cacheSize];
+            _generation = generation;
+        }
+
+        private ByteBuffer acquire(int capacity, boolean direct)
+        {
+            for (int i = _size - 1; i >= 0; --i)
+            {
+                ByteBuffer buffer = _cache[i];
+                if (buffer.capacity() == capacity && buffer.isDirect() == direct)
+                    return remove(i);
+            }
+            return null;
+        }
+
+        private ByteBuffer remove(int index)
+        {
+            ByteBuffer buffer = _cache[index];
+            --_size;
+            System.arraycopy(_cache, index + 1, _cache, index, _size - index);
+            _cache[_size] = null;
+            return buffer;
+        }
+
+        /**
+         * @param buffer the buffer to cache
+         * @return the buffer evicted from the cache, possibly the given buffer itself, or null
+         */
+        private ByteBuffer release(ByteBuffer buffer)
+        {
+            if (_cache.length == 0)
+                return buffer;
+            BufferUtil.clear(buffer);
+            ByteBuffer evicted = null;
+            if (_size == _cache.length)
+            {
+                evicted = _cache[0];
+                System.arraycopy(_cache, 1, _cache, 0, --_size);
+            }
+            _cache[_size++] = buffer;
+            return evicted;
+        }
+
+        private void clear(int generation)
+        {
+            for (int i = 0; i < _size; ++i)
+            {
+                _cache[i] = null;
+            }
+            _size = 0;
+            _generation = generation;
+        }
+    }
+}
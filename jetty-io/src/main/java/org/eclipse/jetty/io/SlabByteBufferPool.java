@@ -0,0 +1,633 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A ByteBuffer pool where direct ByteBuffers are fixed-size slices carved out of
+ * a few large direct ByteBuffers (slabs).</p>
+ * <p>Given a capacity {@code factor} of 1024, the slabs of the first size class are
+ * divided in slices of capacity 1024, the slabs of the second size class are divided
+ * in slices of capacity 2048, and so on.
+ * Each slab tracks its free slices with a bitmap, so that acquiring and releasing a
+ * slice is a lock-free bit flip, and no native memory is allocated (nor freed via
+ * the JDK Cleaner) after a slab has been created.</p>
+ * <p>New slabs are allocated on demand, up to {@code maxDirectMemory}; beyond that
+ * limit, or for sizes larger than {@code maxCapacity}, direct ByteBuffers are
+ * allocated and discarded as usual.
+ * Heap ByteBuffers are pooled by an {@link ArrayByteBufferPool} with the same
+ * capacity factor.</p>
+ * <p>In leak detection mode a new slice view is returned by each acquire, and the
+ * pool only keeps weak references to the views it has handed out.
+ * A view that is garbage collected without having been released is reported as
+ * leaked and its slice is returned to the slab.
+ * This mode is slower, but can be used together with {@link LeakTrackingByteBufferPool}
+ * since the views are not strongly retained by the pool.</p>
+ */
+@ManagedObject
+public class SlabByteBufferPool implements ByteBufferPool, Dumpable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SlabByteBufferPool.class);
+
+    private final int _factor;
+    private final int _slabSize;
+    private final long _maxDirectMemory;
+    private final boolean _leakDetection;
+    private final SizeClass[] _sizeClasses;
+    private final ArrayByteBufferPool _heap;
+    private final AtomicLong _slabMemory = new AtomicLong();
+    private final LongAdder _unpooled = new LongAdder();
+    private final LongAdder _invalidReleases = new LongAdder();
+    private final LongAdder _leaks = new LongAdder();
+    private final ReferenceQueue<ByteBuffer> _leakQueue = new ReferenceQueue<>();
+    private final Map<Integer, Tracked> _tracked = new ConcurrentHashMap<>();
+    private volatile Index _index = new Index(0);
+
+    /**
+     * Creates a new SlabByteBufferPool with a default configuration.
+     */
+    public SlabByteBufferPool()
+    {
+        this(-1, -1, -1, -1, false);
+    }
+
+    /**
+     * Creates a new SlabByteBufferPool with the given configuration.
+     *
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum ByteBuffer capacity
+     * @param slabSize the size in bytes of each slab
+     * @param maxDirectMemory the max direct memory in bytes that can be allocated to slabs
+     * @param leakDetection whether the leak detection mode is enabled
+     */
+    public SlabByteBufferPool(int factor, int maxCapacity, int slabSize, long maxDirectMemory, boolean leakDetection)
+    {
+        if (factor <= 0)
+            factor = 1024;
+        if (maxCapacity <= 0)
+            maxCapacity = 64 * 1024;
+        if (slabSize <= 0)
+            slabSize = 1024 * 1024;
+        if ((maxCapacity % factor) != 0 || factor >= maxCapacity)
+            throw new IllegalArgumentException("The capacity factor must be a divisor of maxCapacity");
+        _factor = factor;
+        _slabSize = slabSize;
+        _maxDirectMemory = maxDirectMemory;
+        _leakDetection = leakDetection;
+        _sizeClasses = new SizeClass[maxCapacity / factor];
+        for (int i = 0; i < _sizeClasses.length; ++i)
+        {
+            _sizeClasses[i] = new SizeClass((i + 1) * factor);
+        }
+        _heap = new ArrayByteBufferPool(0, factor, maxCapacity);
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        if (!direct)
+            return _heap.acquire(size, false);
+
+        int b = size <= 0 ? 0 : (size - 1) / _factor;
+        if (b >= _sizeClasses.length)
+        {
+            _unpooled.increment();
+            return newByteBuffer(size, true);
+        }
+
+        if (_leakDetection)
+            reclaimLeaks();
+
+        SizeClass sizeClass = _sizeClasses[b];
+        ByteBuffer buffer = sizeClass.acquire();
+        if (buffer == null)
+        {
+            _unpooled.increment();
+            return newByteBuffer(sizeClass._capacity, true);
+        }
+        BufferUtil.clear(buffer);
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+
+        if (!buffer.isDirect())
+        {
+            _heap.release(buffer);
+            return;
+        }
+
+        if (_leakDetection)
+        {
+            Tracked tracked = untrack(buffer);
+            if (tracked == null)
+                invalidRelease(buffer);
+            else if (!tracked._slab.release(tracked._slot))
+                invalidRelease(buffer);
+            return;
+        }
+
+        Index index = _index;
+        int i = index.find(buffer);
+        if (i < 0 || !index._slabs[i].release(index._slots[i]))
+            invalidRelease(buffer);
+    }
+
+    @Override
+    public void remove(ByteBuffer buffer)
+    {
+        // Slices cannot be removed from their slab; just make them available again.
+        release(buffer);
+    }
+
+    private void invalidRelease(ByteBuffer buffer)
+    {
+        // Either a buffer not allocated from a slab, a buffer
+        // from a cleared slab, or a buffer released twice.
+        _invalidReleases.increment();
+        if (LOG.isDebugEnabled())
+            LOG.debug("ByteBuffer {} is not an acquired slice of this pool, discarding it", BufferUtil.toDetailString(buffer));
+    }
+
+    private Slab newSlab(SizeClass sizeClass)
+    {
+        int slices = Math.max(1, _slabSize / sizeClass._capacity);
+        long size = (long)slices * sizeClass._capacity;
+        while (true)
+        {
+            long memory = _slabMemory.get();
+            if (_maxDirectMemory > 0 && memory + size > _maxDirectMemory)
+                return null;
+            if (_slabMemory.compareAndSet(memory, memory + size))
+                break;
+        }
+        Slab slab = new Slab(sizeClass._capacity, slices, !_leakDetection);
+        if (!_leakDetection)
+            addToIndex(slab);
+        return slab;
+    }
+
+    private synchronized void addToIndex(Slab slab)
+    {
+        Index index = _index;
+        Index newIndex = new Index(index._size + slab._slices.length);
+        index.copyTo(newIndex);
+        for (int i = 0; i < slab._slices.length; ++i)
+        {
+            newIndex.put(slab._slices[i], slab, i);
+        }
+        _index = newIndex;
+    }
+
+    private ByteBuffer track(Slab slab, int slot)
+    {
+        ByteBuffer buffer = slab.newSlice(slot);
+        Tracked tracked = new Tracked(buffer, _leakQueue, slab, slot);
+        _tracked.compute(tracked._id, (k, v) ->
+        {
+            tracked._next = v;
+            return tracked;
+        });
+        return buffer;
+    }
+
+    private Tracked untrack(ByteBuffer buffer)
+    {
+        Tracked[] result = new Tracked[1];
+        _tracked.computeIfPresent(System.identityHashCode(buffer), (k, v) ->
+        {
+            Tracked head = v;
+            Tracked previous = null;
+            for (Tracked t = v; t != null; previous = t, t = t._next)
+            {
+                if (t.get() == buffer)
+                {
+                    result[0] = t;
+                    if (previous == null)
+                        head = t._next;
+                    else
+                        previous._next = t._next;
+                    break;
+                }
+            }
+            return head;
+        });
+        return result[0];
+    }
+
+    private void reclaimLeaks()
+    {
+        while (true)
+        {
+            Tracked leaked = (Tracked)_leakQueue.poll();
+            if (leaked == null)
+                return;
+            _tracked.computeIfPresent(leaked._id, (k, v) ->
+            {
+                Tracked head = v;
+                Tracked previous = null;
+                for (Tracked t = v; t != null; previous = t, t = t._next)
+                {
+                    if (t == leaked)
+                    {
+                        if (previous == null)
+                            head = t._next;
+                        else
+                            previous._next = t._next;
+                        break;
+                    }
+                }
+                return head;
+            });
+            _leaks.increment();
+            LOG.warn("ByteBuffer slice {}#{} leaked, reclaiming it", leaked._slab, leaked._slot);
+            leaked._slab.release(leaked._slot);
+        }
+    }
+
+    /**
+     * <p>Discards all the slabs.</p>
+     * <p>Slices that are still in use remain valid, but are not returned to the pool when released.</p>
+     */
+    @ManagedOperation(value = "Clears this ByteBufferPool", impact = "ACTION")
+    public void clear()
+    {
+        synchronized (this)
+        {
+            for (SizeClass sizeClass : _sizeClasses)
+            {
+                sizeClass.clear();
+            }
+            _index = new Index(0);
+            _tracked.clear();
+            _slabMemory.set(0);
+        }
+        _heap.clear();
+    }
+
+    @ManagedAttribute("Whether the leak detection mode is enabled")
+    public boolean isLeakDetection()
+    {
+        return _leakDetection;
+    }
+
+    @ManagedAttribute("The size in bytes of each slab")
+    public int getSlabSize()
+    {
+        return _slabSize;
+    }
+
+    @ManagedAttribute("The number of slabs")
+    public int getSlabCount()
+    {
+        return Arrays.stream(_sizeClasses).mapToInt(c -> c._slabs.length).sum();
+    }
+
+    @ManagedAttribute("The bytes of direct memory allocated to slabs")
+    public long getSlabMemory()
+    {
+        return _slabMemory.get();
+    }
+
+    @ManagedAttribute("The bytes of slab memory in use by acquired slices")
+    public long getUsedMemory()
+    {
+        long used = 0;
+        for (SizeClass sizeClass : _sizeClasses)
+        {
+            for (Slab slab : sizeClass._slabs)
+            {
+                used += (long)slab.getUsed() * slab._capacity;
+            }
+        }
+        return used;
+    }
+
+    @ManagedAttribute("The ratio of slab memory in use by acquired slices")
+    public double getOccupancy()
+    {
+        long total = getSlabMemory();
+        return total == 0 ? 0.0D : (double)getUsedMemory() / total;
+    }
+
+    /**
+     * <p>Returns the ratio of free slab memory that is held by partially used slabs.</p>
+     * <p>Free memory in a partially used slab can only be used for slices of that slab's
+     * capacity and cannot be given back, so a value close to 1 means that the free memory
+     * is scattered across many slabs.</p>
+     *
+     * @return the ratio of free slab memory held by partially used slabs
+     */
+    @ManagedAttribute("The ratio of free slab memory held by partially used slabs")
+    public double getFragmentation()
+    {
+        long free = 0;
+        long scattered = 0;
+        for (SizeClass sizeClass : _sizeClasses)
+        {
+            for (Slab slab : sizeClass._slabs)
+            {
+                int used = slab.getUsed();
+                long slabFree = (long)(slab.getSlices() - used) * slab._capacity;
+                free += slabFree;
+                if (used > 0)
+                    scattered += slabFree;
+            }
+        }
+        return free == 0 ? 0.0D : (double)scattered / free;
+    }
+
+    @ManagedAttribute("The number of direct ByteBuffers allocated outside the slabs")
+    public long getUnpooledCount()
+    {
+        return _unpooled.sum();
+    }
+
+    @ManagedAttribute("The number of releases of ByteBuffers that were not acquired slices")
+    public long getInvalidReleaseCount()
+    {
+        return _invalidReleases.sum();
+    }
+
+    @ManagedAttribute("The number of slices leaked and reclaimed in leak detection mode")
+    public long getLeakCount()
+    {
+        return _leaks.sum();
+    }
+
+    @ManagedAttribute("The number of pooled heap ByteBuffers")
+    public long getHeapByteBufferCount()
+    {
+        return _heap.getHeapByteBufferCount();
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        List<Slab> slabs = new ArrayList<>();
+        for (SizeClass sizeClass : _sizeClasses)
+        {
+            slabs.addAll(Arrays.asList(sizeClass._slabs));
+        }
+        Dumpable.dumpObjects(out, indent, this, slabs.toArray());
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{slabs=%d,memory=%d,occupancy=%.2f,fragmentation=%.2f}",
+            getClass().getSimpleName(),
+            hashCode(),
+            getSlabCount(),
+            getSlabMemory(),
+            getOccupancy(),
+            getFragmentation());
+    }
+
+    private class SizeClass
+    {
+        private final int _capacity;
+        private volatile Slab[] _slabs = new Slab[0];
+
+        private SizeClass(int capacity)
+        {
+            _capacity = capacity;
+        }
+
+        private ByteBuffer acquire()
+        {
+            while (true)
+            {
+                Slab[] slabs = _slabs;
+                for (Slab slab : slabs)
+                {
+                    int slot = slab.acquire();
+                    if (slot >= 0)
+                        return _leakDetection ? track(slab, slot) : slab._slices[slot];
+                }
+
+                synchronized (SlabByteBufferPool.this)
+                {
+                    // Another thread may have added a slab
+                    // while we were scanning the old array.
+                    if (_slabs != slabs)
+                        continue;
+                    Slab slab = newSlab(this);
+                    if (slab == null)
+                        return null;
+                    Slab[] newSlabs = Arrays.copyOf(slabs, slabs.length + 1);
+                    newSlabs[slabs.length] = slab;
+                    _slabs = newSlabs;
+                }
+            }
+        }
+
+        private void clear()
+        {
+            _slabs = new Slab[0];
+        }
+    }
+
+    private static class Slab
+    {
+        private final int _capacity;
+        private final ByteBuffer _region;
+        private final ByteBuffer[] _slices;
+        private final AtomicLongArray _bitmap;
+        private final int _count;
+        private final AtomicInteger _used = new AtomicInteger();
+
+        private Slab(int capacity, int count, boolean preallocateSlices)
+        {
+            _capacity = capacity;
+            _count = count;
+            _region = ByteBuffer.allocateDirect(capacity * count);
+            _bitmap = new AtomicLongArray((count + 63) / 64);
+            _slices = new ByteBuffer[preallocateSlices ? count : 0];
+            for (int i = 0; i < _slices.length; ++i)
+            {
+                _slices[i] = newSlice(i);
+            }
+        }
+
+        private ByteBuffer newSlice(int slot)
+        {
+            ByteBuffer duplicate = _region.duplicate();
+            duplicate.limit((slot + 1) * _capacity);
+            duplicate.position(slot * _capacity);
+            return duplicate.slice();
+        }
+
+        private int acquire()
+        {
+            if (_used.get() == _count)
+                return -1;
+            for (int w = 0; w < _bitmap.length(); ++w)
+            {
+                while (true)
+                {
+                    long bits = _bitmap.get(w);
+                    if (bits == -1L)
+                        break;
+                    int bit = Long.numberOfTrailingZeros(~bits);
+                    int slot = w * 64 + bit;
+                    if (slot >= _count)
+                        break;
+                    if (_bitmap.compareAndSet(w, bits, bits | (1L << bit)))
+                    {
+                        _used.incrementAndGet();
+                        return slot;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private boolean release(int slot)
+        {
+            int w = slot / 64;
+            long mask = 1L << (slot % 64);
+            while (true)
+            {
+                long bits = _bitmap.get(w);
+                if ((bits & mask) == 0)
+                    return false;
+                if (_bitmap.compareAndSet(w, bits, bits & ~mask))
+                {
+                    _used.decrementAndGet();
+                    return true;
+                }
+            }
+        }
+
+        private int getUsed()
+        {
+            return _used.get();
+        }
+
+        private int getSlices()
+        {
+            return _count;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%d/%d@%d}", getClass().getSimpleName(), hashCode(), getUsed(), getSlices(), _capacity);
+        }
+    }
+
+    /**
+     * <p>An immutable, open addressing, identity table from slice views to their slab and slot.</p>
+     */
+    private static class Index
+    {
+        private final ByteBuffer[] _keys;
+        private final Slab[] _slabs;
+        private final int[] _slots;
+        private final int _mask;
+        private int _size;
+
+        private Index(int size)
+        {
+            int length = Integer.highestOneBit(Math.max(1, size * 2 - 1)) << 1;
+            _keys = new ByteBuffer[length];
+            _slabs = new Slab[length];
+            _slots = new int[length];
+            _mask = length - 1;
+        }
+
+        private void put(ByteBuffer key, Slab slab, int slot)
+        {
+            int i = System.identityHashCode(key) & _mask;
+            while (_keys[i] != null)
+            {
+                i = (i + 1) & _mask;
+            }
+            _keys[i] = key;
+            _slabs[i] = slab;
+            _slots[i] = slot;
+            ++_size;
+        }
+
+        private int find(ByteBuffer key)
+        {
+            int i = System.identityHashCode(key) & _mask;
+            while (true)
+            {
+                ByteBuffer k = _keys[i];
+                if (k == key)
+                    return i;
+                if (k == null)
+                    return -1;
+                i = (i + 1) & _mask;
+            }
+        }
+
+        private void copyTo(Index index)
+        {
+            for (int i = 0; i < _keys.length; ++i)
+            {
+                if (_keys[i] != null)
+                    index.put(_keys[i], _slabs[i], _slots[i]);
+            }
+        }
+    }
+
+    private static class Tracked extends WeakReference<ByteBuffer>
+    {
+        private final int _id;
+        private final Slab _slab;
+        private final int _slot;
+        private Tracked _next;
+
+        private Tracked(ByteBuffer buffer, ReferenceQueue<ByteBuffer> queue, Slab slab, int slot)
+        {
+            super(buffer, queue);
+            _id = System.identityHashCode(buffer);
+            _slab = slab;
+            _slot = slot;
+        }
+    }
+}
@@ -52,6 +52,7 @@ public class SocketChannelEndPoint extends AbstractEndPoint implements ManagedSe
     private int _currentInterestOps;
     // The desired value for interestOps.
     private int _desiredInterestOps;
+    private volatile long _selectedNanoTime;
 
     private abstract class RunnableTask implements Runnable, Invocable
     {
@@ -310,6 +311,15 @@ public class SocketChannelEndPoint extends AbstractEndPoint implements ManagedSe
         changeInterests(SelectionKey.OP_WRITE);
     }
 
+    /**
+     * @return the {@link System#nanoTime()} at which the selector last woke up
+     * with this endpoint selected for reading, or 0 if it never did
+     */
+    public long getSelectedNanoTime()
+    {
+        return _selectedNanoTime;
+    }
+
     @Override
     public Runnable onSelected()
     {
@@ -329,6 +339,13 @@ public class SocketChannelEndPoint extends AbstractEndPoint implements ManagedSe
         }
 
         boolean fillable = (readyOps & SelectionKey.OP_READ) != 0;
+        if (fillable && _selector != null)
+        {
+            // Avoid the volatile write when the selector does not record its wakeup time.
+            long selectedNanoTime = _selector.getSelectedNanoTime();
+            if (selectedNanoTime != 0)
+                _selectedNanoTime = selectedNanoTime;
+        }
         boolean flushable = (readyOps & SelectionKey.OP_WRITE) != 0;
 
         if (LOG.isDebugEnabled())
@@ -0,0 +1,405 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritePendingException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.thread.AutoLock;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Coalesces small writes to an {@link AbstractEndPoint}.</p>
+ * <p>Writes whose bytes fit in the aggregate buffer are copied and their callbacks are
+ * succeeded immediately. The aggregated bytes are flushed when a write does not fit
+ * (gathered together with the bytes of that write), when the endpoint registers fill
+ * interest, shuts down its output or is closed without a failure, or at the latest after
+ * the configured delay.</p>
+ * <p>The aggregate buffer is acquired from the {@link ByteBufferPool}, if any, when a write
+ * is coalesced, and released once the aggregated bytes have been written, or when the
+ * endpoint is closed.</p>
+ * <p>As the callbacks of coalesced writes have already been succeeded, a failure to flush
+ * the aggregated bytes closes the endpoint with that failure, so that the connection does
+ * not continue as if the bytes had been written.</p>
+ * <p>The caller must not issue a write before the callback of the previous write has
+ * been completed, as for {@link EndPoint#write(Callback, ByteBuffer...)}.</p>
+ */
+class WriteCoalescer
+{
+    private static final Logger LOG = LoggerFactory.getLogger(WriteCoalescer.class);
+
+    private final AutoLock _lock = new AutoLock();
+    private final Callback _flushCallback = new FlushCallback();
+    private final AbstractEndPoint _endPoint;
+    private final Scheduler _scheduler;
+    private final ByteBufferPool _bufferPool;
+    private final int _maxSize;
+    private final long _maxDelay;
+    private ByteBuffer _aggregate;
+    // Number of writes whose bytes are in the aggregate buffer.
+    private int _aggregated;
+    // Whether the aggregate buffer has been gathered into a write of the caller.
+    private boolean _gathered;
+    // Whether the aggregate buffer is being flushed on its own.
+    private boolean _flushing;
+    private Scheduler.Task _task;
+    private Callback _queuedCallback;
+    private ByteBuffer[] _queuedBuffers;
+    private Runnable _afterFlush;
+    private boolean _closed;
+    private long _coalescedWrites;
+    private long _savedWrites;
+
+    WriteCoalescer(AbstractEndPoint endPoint, Scheduler scheduler, ByteBufferPool bufferPool, int maxSize, long maxDelay)
+    {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Invalid write coalescing size " + maxSize);
+        _endPoint = endPoint;
+        _scheduler = Objects.requireNonNull(scheduler);
+        _bufferPool = bufferPool;
+        _maxSize = maxSize;
+        _maxDelay = Math.max(0, maxDelay);
+    }
+
+    int getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    long getMaxDelay()
+    {
+        return _maxDelay;
+    }
+
+    /**
+     * @return the number of writes that have been copied into the aggregate buffer
+     */
+    long getCoalescedWrites()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _coalescedWrites;
+        }
+    }
+
+    /**
+     * @return the number of writes to the endpoint that have been avoided by coalescing
+     */
+    long getSavedWrites()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _savedWrites;
+        }
+    }
+
+    void write(Callback callback, ByteBuffer... buffers)
+    {
+        boolean coalesced = false;
+        try (AutoLock l = _lock.lock())
+        {
+            if (_flushing && !_closed)
+            {
+                // Write after the aggregated bytes have been flushed.
+                if (_queuedCallback != null)
+                    throw new WritePendingException();
+                _queuedCallback = callback;
+                _queuedBuffers = buffers;
+                return;
+            }
+
+            long length = BufferUtil.remaining(buffers);
+            int aggregated = BufferUtil.length(_aggregate);
+            // Once closed, the write flusher fails the writes.
+            if (!_closed && !_gathered && (length > 0 || aggregated > 0))
+            {
+                if (length <= _maxSize - aggregated)
+                {
+                    if (_aggregate == null)
+                        _aggregate = acquire();
+                    for (ByteBuffer buffer : buffers)
+                    {
+                        BufferUtil.append(_aggregate, buffer);
+                    }
+                    if (length > 0)
+                    {
+                        ++_aggregated;
+                        ++_coalescedWrites;
+                    }
+                    if (_task == null)
+                        _task = _scheduler.schedule(this::flush, _maxDelay, TimeUnit.MILLISECONDS);
+                    coalesced = true;
+                }
+                else if (aggregated > 0)
+                {
+                    // Gather the aggregated bytes in front of this write.
+                    ByteBuffer[] gathered = new ByteBuffer[buffers.length + 1];
+                    gathered[0] = _aggregate;
+                    System.arraycopy(buffers, 0, gathered, 1, buffers.length);
+                    buffers = gathered;
+                    callback = new GatheredCallback(callback);
+                    _gathered = true;
+                    _savedWrites += _aggregated;
+                    _aggregated = 0;
+                    cancelTask();
+                }
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("write coalesced={} {} on {}", coalesced, BufferUtil.toDetailString(buffers), _endPoint);
+
+        if (coalesced)
+            callback.succeeded();
+        else
+            _endPoint.getWriteFlusher().write(callback, buffers);
+    }
+
+    /**
+     * <p>Flushes the aggregated bytes, if any.</p>
+     */
+    void flush()
+    {
+        flush(null);
+    }
+
+    /**
+     * <p>Flushes the aggregated bytes, if any, then runs the given task.</p>
+     *
+     * @param then the task to run after the aggregated bytes have been flushed, or null
+     * @return true if the task will be run after the flush, false if there was nothing to flush
+     */
+    boolean flush(Runnable then)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            cancelTask();
+            if (_flushing)
+            {
+                if (then != null)
+                {
+                    Runnable first = _afterFlush;
+                    _afterFlush = first == null ? then : () ->
+                    {
+                        first.run();
+                        then.run();
+                    };
+                }
+                return then != null;
+            }
+            if (_gathered || BufferUtil.isEmpty(_aggregate))
+                return false;
+            _flushing = true;
+            _afterFlush = then;
+            _savedWrites += _aggregated - 1;
+            _aggregated = 0;
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("flush {} on {}", BufferUtil.toDetailString(_aggregate), _endPoint);
+
+        _endPoint.getWriteFlusher().write(_flushCallback, _aggregate);
+        return then != null;
+    }
+
+    void onClose(Throwable failure)
+    {
+        Callback queued;
+        ByteBuffer discarded = null;
+        try (AutoLock l = _lock.lock())
+        {
+            cancelTask();
+            _closed = true;
+            // Only a close with a failure, or a close that raced with a write,
+            // can discard aggregated bytes: other closes flush them first.
+            // An aggregate buffer being written is released by the write callback.
+            if (!_flushing && !_gathered)
+            {
+                discarded = _aggregate;
+                _aggregate = null;
+            }
+            _aggregated = 0;
+            _afterFlush = null;
+            queued = _queuedCallback;
+            _queuedCallback = null;
+            _queuedBuffers = null;
+        }
+        if (BufferUtil.hasContent(discarded) && LOG.isDebugEnabled())
+            LOG.debug("Discarded {} coalesced bytes on close of {}", discarded.remaining(), _endPoint, failure);
+        release(discarded);
+        if (queued != null)
+            queued.failed(failure == null ? new ClosedChannelException() : failure);
+    }
+
+    private ByteBuffer acquire()
+    {
+        return _bufferPool == null ? BufferUtil.allocate(_maxSize) : _bufferPool.acquire(_maxSize, false);
+    }
+
+    private void release(ByteBuffer buffer)
+    {
+        if (buffer != null && _bufferPool != null)
+            _bufferPool.release(buffer);
+    }
+
+    /**
+     * @return the aggregate buffer, that is no longer used, or null
+     */
+    private ByteBuffer takeAggregate()
+    {
+        assert _lock.isHeldByCurrentThread();
+        ByteBuffer aggregate = _aggregate;
+        _aggregate = null;
+        return aggregate;
+    }
+
+    private void cancelTask()
+    {
+        Scheduler.Task task = _task;
+        _task = null;
+        if (task != null)
+            task.cancel();
+    }
+
+    @Override
+    public String toString()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return String.format("%s@%x{size=%d/%d,delay=%d,coalesced=%d,saved=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                BufferUtil.length(_aggregate),
+                _maxSize,
+                _maxDelay,
+                _coalescedWrites,
+                _savedWrites);
+        }
+    }
+
+    private class FlushCallback implements Callback
+    {
+        @Override
+        public void succeeded()
+        {
+            complete(null);
+        }
+
+        @Override
+        public void failed(Throwable x)
+        {
+            complete(x);
+        }
+
+        private void complete(Throwable failure)
+        {
+            Callback queuedCallback;
+            ByteBuffer[] queuedBuffers;
+            Runnable afterFlush;
+            ByteBuffer aggregate;
+            try (AutoLock l = _lock.lock())
+            {
+                aggregate = takeAggregate();
+                _flushing = false;
+                queuedCallback = _queuedCallback;
+                queuedBuffers = _queuedBuffers;
+                _queuedCallback = null;
+                _queuedBuffers = null;
+                afterFlush = _afterFlush;
+                _afterFlush = null;
+            }
+            release(aggregate);
+
+            if (failure != null)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Failed to flush coalesced writes on {}", _endPoint, failure);
+                if (queuedCallback != null)
+                    queuedCallback.failed(failure);
+                // The coalesced writes have been reported as written, so the
+                // endpoint cannot be used any more, nor gracefully shutdown.
+                _endPoint.close(failure);
+                return;
+            }
+
+            if (queuedCallback != null)
+                write(queuedCallback, queuedBuffers);
+            if (afterFlush != null)
+                afterFlush.run();
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            // The queued write may complete its callback.
+            try (AutoLock l = _lock.lock())
+            {
+                return _queuedCallback == null ? InvocationType.NON_BLOCKING : _queuedCallback.getInvocationType();
+            }
+        }
+    }
+
+    private class GatheredCallback implements Callback
+    {
+        private final Callback _callback;
+
+        private GatheredCallback(Callback callback)
+        {
+            _callback = callback;
+        }
+
+        @Override
+        public void succeeded()
+        {
+            release();
+            _callback.succeeded();
+        }
+
+        @Override
+        public void failed(Throwable x)
+        {
+            release();
+            _callback.failed(x);
+        }
+
+        private void release()
+        {
+            ByteBuffer aggregate;
+            try (AutoLock l = _lock.lock())
+            {
+                aggregate = takeAggregate();
+                _gathered = false;
+            }
+            WriteCoalescer.this.release(aggregate);
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return _callback.getInvocationType();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io.jmx;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+
+import org.eclipse.jetty.io.ManagedSelector;
+import org.eclipse.jetty.io.SelectorWatchdog;
+import org.eclipse.jetty.jmx.ObjectMBean;
+
+/**
+ * <p>The MBean of a {@link SelectorWatchdog}, that emits a JMX notification
+ * for each selector stall and each slow selector update.</p>
+ * <p>The user data of a notification is the name of the thread producing for the selector,
+ * and its message reports the selector, the time in ms and, for stalls, the stack trace.</p>
+ */
+public class SelectorWatchdogMBean extends ObjectMBean implements NotificationEmitter
+{
+    public static final String STALL = "org.eclipse.jetty.io.selector.stall";
+    public static final String SLOW_UPDATE = "org.eclipse.jetty.io.selector.slowUpdate";
+
+    private static final MBeanNotificationInfo[] NOTIFICATIONS = new MBeanNotificationInfo[]{
+        new MBeanNotificationInfo(new String[]{STALL, SLOW_UPDATE}, Notification.class.getName(), "Selector stalls and slow selector updates")
+    };
+
+    private final AtomicLong _sequence = new AtomicLong();
+    private final NotificationBroadcasterSupport _broadcaster = new NotificationBroadcasterSupport(NOTIFICATIONS);
+
+    public SelectorWatchdogMBean(Object managedObject)
+    {
+        super(managedObject);
+        ((SelectorWatchdog)managedObject).addEventListener(new SelectorWatchdog.Listener()
+        {
+            @Override
+            public void onStall(ManagedSelector selector, long stall, Thread thread, StackTraceElement[] stackTrace)
+            {
+                String message = String.format("Selector %s stalled for %d ms %s", selector, TimeUnit.NANOSECONDS.toMillis(stall), Arrays.toString(stackTrace));
+                notify(STALL, message, thread);
+            }
+
+            @Override
+            public void onSlowUpdate(ManagedSelector selector, ManagedSelector.SelectorUpdate update, long time)
+            {
+                String message = String.format("Selector %s spent %d ms in update %s", selector, TimeUnit.NANOSECONDS.toMillis(time), update);
+                notify(SLOW_UPDATE, message, Thread.currentThread());
+            }
+
+            private void notify(String type, String message, Thread thread)
+            {
+                Notification notification = new Notification(type, SelectorWatchdogMBean.this, _sequence.incrementAndGet(), System.currentTimeMillis(), message);
+                notification.setUserData(thread == null ? null : thread.getName());
+                _broadcaster.sendNotification(notification);
+            }
+        });
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo()
+    {
+        MBeanInfo info = super.getMBeanInfo();
+        return new MBeanInfo(info.getClassName(), info.getDescription(), info.getAttributes(), info.getConstructors(), info.getOperations(), getNotificationInfo());
+    }
+
+    @Override
+    public void addNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback)
+    {
+        _broadcaster.addNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener) throws ListenerNotFoundException
+    {
+        _broadcaster.removeNotificationListener(listener);
+    }
+
+    @Override
+    public void removeNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) throws ListenerNotFoundException
+    {
+        _broadcaster.removeNotificationListener(listener, filter, handback);
+    }
+
+    @Override
+    public MBeanNotificationInfo[] getNotificationInfo()
+    {
+        return NOTIFICATIONS.clone();
+    }
+}
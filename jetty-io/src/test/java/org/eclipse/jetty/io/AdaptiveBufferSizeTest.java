@@ -0,0 +1,147 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdaptiveBufferSizeTest
+{
+    @Test
+    public void testStartsSmall()
+    {
+        AdaptiveBufferSize adaptive = new AdaptiveBufferSize(8192);
+        assertEquals(AdaptiveBufferSize.DEFAULT_MIN_SIZE, adaptive.getSize());
+
+        // Small fills do not change the size.
+        for (int i = 0; i < 10; ++i)
+        {
+            adaptive.filled(200, adaptive.getSize());
+        }
+        assertEquals(AdaptiveBufferSize.DEFAULT_MIN_SIZE, adaptive.getSize());
+        assertEquals(0, adaptive.getGrows());
+        assertEquals(0, adaptive.getShrinks());
+    }
+
+    @Test
+    public void testGrowsWhenFull()
+    {
+        AdaptiveBufferSize adaptive = new AdaptiveBufferSize(256, 8192);
+
+        adaptive.filled(256, 256);
+        assertEquals(512, adaptive.getSize());
+        adaptive.filled(512, 512);
+        adaptive.filled(1024, 1024);
+        adaptive.filled(2048, 2048);
+        adaptive.filled(4096, 4096);
+        assertEquals(8192, adaptive.getSize());
+        assertEquals(5, adaptive.getGrows());
+
+        // Cannot grow beyond the max size.
+        adaptive.filled(8192, 8192);
+        assertEquals(8192, adaptive.getSize());
+        assertEquals(5, adaptive.getGrows());
+    }
+
+    @Test
+    public void testGrowsToFitLargerBuffers()
+    {
+        AdaptiveBufferSize adaptive = new AdaptiveBufferSize(256, 16384);
+
+        // The pool returned a buffer larger than requested, and it was filled.
+        adaptive.filled(1024, 1024);
+        assertEquals(2048, adaptive.getSize());
+    }
+
+    @Test
+    public void testShrinksWhenIdle()
+    {
+        AdaptiveBufferSize adaptive = new AdaptiveBufferSize(256, 8192);
+        while (adaptive.getSize() < 8192)
+        {
+            adaptive.filled(adaptive.getSize(), adaptive.getSize());
+        }
+
+        // One small fill does not shrink the buffer much.
+        adaptive.filled(300, 8192);
+        assertThat(adaptive.getSize(), greaterThan(4096));
+
+        // Many small fills shrink the buffer.
+        for (int i = 0; i < 64; ++i)
+        {
+            adaptive.filled(300, adaptive.getSize());
+        }
+        assertEquals(512, adaptive.getSize());
+        assertThat(adaptive.getShrinks(), greaterThan(0L));
+
+        // EOF is ignored.
+        adaptive.filled(-1, adaptive.getSize());
+        assertThat(adaptive.getSize(), lessThanOrEqualTo(512));
+    }
+
+    @Test
+    public void testBufferReusedAcrossFills() throws Exception
+    {
+        AdaptiveBufferSize adaptive = new AdaptiveBufferSize(256, 8192);
+        ByteBuffer buffer = BufferUtil.allocate(1024);
+        try (ByteArrayEndPoint endPoint = new ByteArrayEndPoint())
+        {
+            // A fill that fills the buffer grows the size.
+            endPoint.addInput("x".repeat(1024));
+            int space = AdaptiveBufferSize.fillSpace(buffer);
+            assertEquals(1024, space);
+            adaptive.filled(endPoint.fill(buffer), space);
+            assertEquals(1, adaptive.getGrows());
+            buffer.position(buffer.limit());
+
+            // Small fills into the consumed buffer do not grow the size.
+            for (int i = 0; i < 20; ++i)
+            {
+                endPoint.addInput("x".repeat(100));
+                space = AdaptiveBufferSize.fillSpace(buffer);
+                assertEquals(1024, space);
+                adaptive.filled(endPoint.fill(buffer), space);
+                buffer.position(buffer.limit());
+            }
+            assertEquals(1, adaptive.getGrows());
+
+            // Unconsumed bytes reduce the space available to the next fill.
+            endPoint.addInput("x".repeat(1024));
+            endPoint.fill(buffer);
+            buffer.position(buffer.position() + 1000);
+            assertEquals(1000, AdaptiveBufferSize.fillSpace(buffer));
+            assertEquals(24, buffer.remaining());
+        }
+    }
+
+    @Test
+    public void testInvalidSizes()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveBufferSize(0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveBufferSize(2048, 1024));
+    }
+}
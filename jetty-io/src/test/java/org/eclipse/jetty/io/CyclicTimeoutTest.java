@@ -23,6 +23,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -34,13 +35,14 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 public class CyclicTimeoutTest
 {
     private volatile boolean _expired;
-    private ScheduledExecutorScheduler _timer = new ScheduledExecutorScheduler();
+    private Scheduler _timer;
     private CyclicTimeout _timeout;
 
     @BeforeEach
     public void before() throws Exception
     {
         _expired = false;
+        _timer = newScheduler();
         _timer.start();
 
         _timeout = new CyclicTimeout(_timer)
@@ -55,6 +57,11 @@ public class CyclicTimeoutTest
         _timeout.schedule(1000, TimeUnit.MILLISECONDS);
     }
 
+    protected Scheduler newScheduler()
+    {
+        return new ScheduledExecutorScheduler();
+    }
+
     @AfterEach
     public void after() throws Exception
     {
@@ -21,6 +21,7 @@ package org.eclipse.jetty.io;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import org.eclipse.jetty.util.thread.Scheduler;
 import org.eclipse.jetty.util.thread.TimerScheduler;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,7 +35,7 @@ public class IdleTimeoutTest
     volatile boolean _open;
     volatile TimeoutException _expired;
 
-    TimerScheduler _timer;
+    Scheduler _timer;
     IdleTimeout _timeout;
 
     @BeforeEach
@@ -42,7 +43,7 @@ public class IdleTimeoutTest
     {
         _open = true;
         _expired = null;
-        _timer = new TimerScheduler();
+        _timer = newScheduler();
         _timer.start();
         _timeout = new IdleTimeout(_timer)
         {
@@ -61,6 +62,11 @@ public class IdleTimeoutTest
         _timeout.setIdleTimeout(1000);
     }
 
+    protected Scheduler newScheduler()
+    {
+        return new TimerScheduler();
+    }
+
     @AfterEach
     public void tearDown() throws Exception
     {
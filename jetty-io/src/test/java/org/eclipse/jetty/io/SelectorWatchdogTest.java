@@ -0,0 +1,181 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.Notification;
+import javax.management.ObjectName;
+
+import org.eclipse.jetty.io.jmx.SelectorWatchdogMBean;
+import org.eclipse.jetty.jmx.MBeanContainer;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.TimerScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SelectorWatchdogTest
+{
+    private final QueuedThreadPool executor = new QueuedThreadPool();
+    private final TimerScheduler scheduler = new TimerScheduler();
+    private SelectorManager selectorManager;
+    private SelectorWatchdog watchdog;
+
+    @BeforeEach
+    public void prepare() throws Exception
+    {
+        executor.start();
+        scheduler.start();
+        selectorManager = new SelectorManager(executor, scheduler, 1)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        watchdog = new SelectorWatchdog();
+        watchdog.setStallThreshold(100);
+        selectorManager.addBean(watchdog);
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        selectorManager.stop();
+        scheduler.stop();
+        executor.stop();
+    }
+
+    private ManagedSelector selector()
+    {
+        return selectorManager.getBean(ManagedSelector.class);
+    }
+
+    @Test
+    public void testSelectLoopTimes() throws Exception
+    {
+        selectorManager.start();
+        assertThat(watchdog.getSelectors(), is(1));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        selector().submit(selector -> latch.countDown());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // Submit another update, to complete the loop of the previous one.
+        CountDownLatch latch2 = new CountDownLatch(1);
+        selector().submit(selector -> latch2.countDown());
+        assertTrue(latch2.await(5, TimeUnit.SECONDS));
+
+        assertThat(watchdog.getUpdateTimeHistogram().getCount(), greaterThan(0L));
+        assertThat(watchdog.getSelectLoopTimeHistogram().getCount(), greaterThan(0L));
+        assertThat(watchdog.getStalls(), is(0L));
+        assertThat(watchdog.getSlowUpdates(), is(0L));
+
+        selectorManager.stop();
+        assertThat(watchdog.getSelectors(), is(0));
+    }
+
+    @Test
+    public void testStall() throws Exception
+    {
+        BlockingQueue<StackTraceElement[]> stalls = new LinkedBlockingQueue<>();
+        CountDownLatch slowUpdate = new CountDownLatch(1);
+        watchdog.addEventListener(new SelectorWatchdog.Listener()
+        {
+            @Override
+            public void onStall(ManagedSelector selector, long stall, Thread thread, StackTraceElement[] stackTrace)
+            {
+                stalls.offer(stackTrace);
+            }
+
+            @Override
+            public void onSlowUpdate(ManagedSelector selector, ManagedSelector.SelectorUpdate update, long time)
+            {
+                slowUpdate.countDown();
+            }
+        });
+        selectorManager.start();
+
+        selector().submit(selector -> sleep(1000));
+
+        StackTraceElement[] stackTrace = stalls.poll(5, TimeUnit.SECONDS);
+        assertThat(stackTrace, notNullValue());
+        assertThat(Arrays.toString(stackTrace), containsString(SelectorWatchdogTest.class.getName()));
+        assertTrue(slowUpdate.await(5, TimeUnit.SECONDS));
+        // The stall is only reported once.
+        assertThat(stalls.size(), is(0));
+        assertThat(watchdog.getStalls(), is(1L));
+        assertThat(watchdog.getSlowUpdates(), is(1L));
+    }
+
+    @Test
+    public void testStallNotification() throws Exception
+    {
+        MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+        MBeanContainer mbeanContainer = new MBeanContainer(mbeanServer);
+        selectorManager.addBean(mbeanContainer);
+        selectorManager.start();
+
+        ObjectName objectName = mbeanContainer.findMBean(watchdog);
+        assertThat(objectName, notNullValue());
+        BlockingQueue<Notification> notifications = new LinkedBlockingQueue<>();
+        mbeanServer.addNotificationListener(objectName, (notification, handback) -> notifications.offer(notification), null, null);
+
+        selector().submit(selector -> sleep(500));
+
+        Notification notification = notifications.poll(5, TimeUnit.SECONDS);
+        assertThat(notification, notNullValue());
+        assertThat(notification.getType(), is(SelectorWatchdogMBean.STALL));
+        assertThat(notification.getSource(), is(objectName));
+        assertThat(notification.getMessage(), containsString("stalled"));
+    }
+
+    private static void sleep(long ms)
+    {
+        try
+        {
+            Thread.sleep(ms);
+        }
+        catch (InterruptedException x)
+        {
+            throw new RuntimeException(x);
+        }
+    }
+}
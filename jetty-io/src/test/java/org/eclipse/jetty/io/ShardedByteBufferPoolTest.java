@@ -0,0 +1,208 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.util.StringUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedByteBufferPoolTest
+{
+    @Test
+    public void testMinimumRelease()
+    {
+        ShardedByteBufferPool bufferPool = new ShardedByteBufferPool(10, 100, 1000, -1, -1, -1, 1, 0);
+
+        for (int size = 1; size <= 9; size++)
+        {
+            ByteBuffer buffer = bufferPool.acquire(size, true);
+            assertTrue(buffer.isDirect());
+            assertEquals(size, buffer.capacity());
+            bufferPool.release(buffer);
+            assertEquals(0, bufferPool.getDirectByteBufferCount());
+        }
+    }
+
+    @Test
+    public void testAcquireReleaseAcquire()
+    {
+        ShardedByteBufferPool bufferPool = new ShardedByteBufferPool(10, 100, 1000, -1, -1, -1, 2, 0);
+
+        for (int size = 390; size <= 510; size++)
+        {
+            bufferPool.clear();
+            ByteBuffer buffer1 = bufferPool.acquire(size, true);
+            assertThat(buffer1.capacity(), greaterThanOrEqualTo(size));
+            bufferPool.release(buffer1);
+            ByteBuffer buffer2 = bufferPool.acquire(size, true);
+            bufferPool.release(buffer2);
+            ByteBuffer buffer3 = bufferPool.acquire(size, false);
+            bufferPool.release(buffer3);
+
+            assertEquals(1, bufferPool.getDirectByteBufferCount());
+            assertEquals(1, bufferPool.getHeapByteBufferCount());
+            assertSame(buffer1, buffer2);
+            assertNotSame(buffer1, buffer3);
+        }
+    }
+
+    @Test
+    public void testThreadCache()
+    {
+        ShardedByteBufferPool bufferPool = new ShardedByteBufferPool(-1, 1024, 8192, -1, -1, -1, 1, 2);
+
+        ByteBuffer buffer1 = bufferPool.acquire(1024, true);
+        ByteBuffer buffer2 = bufferPool.acquire(2048, true);
+        ByteBuffer buffer3 = bufferPool.acquire(1024, true);
+
+        // The first two buffers stay in the thread cache, and are not accounted.
+        bufferPool.release(buffer1);
+        bufferPool.release(buffer2);
+        assertEquals(0, bufferPool.getDirectByteBufferCount());
+        assertEquals(0, bufferPool.getDirectMemory());
+
+        // The oldest cached buffer is evicted to the shard.
+        bufferPool.release(buffer3);
+        assertEquals(1, bufferPool.getDirectByteBufferCount());
+        assertEquals(1024, bufferPool.getDirectMemory());
+
+        // The most recently released buffer is returned first.
+        assertSame(buffer3, bufferPool.acquire(1000, true));
+        assertSame(buffer2, bufferPool.acquire(2000, true));
+        assertSame(buffer1, bufferPool.acquire(1024, true));
+        assertEquals(0, bufferPool.getDirectMemory());
+
+        // Clearing the pool invalidates the thread cache.
+        bufferPool.release(buffer1);
+        bufferPool.clear();
+        assertNotSame(buffer1, bufferPool.acquire(1024, true));
+    }
+
+    @Test
+    public void testThreadCacheOfShortLivedThreads() throws Exception
+    {
+        int maxMemory = 4096;
+        ShardedByteBufferPool bufferPool = new ShardedByteBufferPool(-1, 1024, 8192, -1, -1, maxMemory, 1, 4);
+
+        // Each thread dies with a full cache.
+        for (int t = 0; t < 8; ++t)
+        {
+            Thread thread = new Thread(() ->
+            {
+                List<ByteBuffer> buffers = new ArrayList<>();
+                for (int i = 0; i < 4; ++i)
+                {
+                    buffers.add(bufferPool.acquire(1024, true));
+                }
+                buffers.forEach(bufferPool::release);
+            });
+            thread.start();
+            thread.join();
+        }
+        assertEquals(0, bufferPool.getDirectMemory());
+
+        // The caches of the dead threads do not count against the max memory.
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 8; ++i)
+        {
+            buffers.add(bufferPool.acquire(1024, true));
+        }
+        buffers.forEach(bufferPool::release);
+        assertEquals(4, bufferPool.getDirectByteBufferCount());
+        assertEquals(maxMemory, bufferPool.getDirectMemory());
+    }
+
+    @Test
+    public void testWorkStealing() throws Exception
+    {
+        ShardedByteBufferPool bufferPool = new ShardedByteBufferPool(-1, 1024, 8192, -1, -1, -1, 2, 0);
+
+        // The first thread is assigned shard 0.
+        ByteBuffer buffer = bufferPool.acquire(1024, true);
+        bufferPool.release(buffer);
+        assertEquals(1, bufferPool.bucketsFor(0, true)[0].size());
+
+        // The second thread is assigned shard 1, which is empty.
+        AtomicReference<ByteBuffer> stolen = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        new Thread(() ->
+        {
+            stolen.set(bufferPool.acquire(1024, true));
+            latch.countDown();
+        }).start();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertSame(buffer, stolen.get());
+        assertEquals(1, bufferPool.getStealCount());
+        assertEquals(0, bufferPool.getDirectByteBufferCount());
+    }
+
+    @Test
+    public void testReleaseNonPooledBuffer()
+    {
+        ShardedByteBufferPool bufferPool = new ShardedByteBufferPool();
+
+        // Release a few small non-pool buffers
+        bufferPool.release(ByteBuffer.wrap(StringUtil.getUtf8Bytes("Hello")));
+
+        assertEquals(0, bufferPool.getHeapByteBufferCount());
+    }
+
+    @Test
+    public void testMaxMemoryAcrossShards() throws Exception
+    {
+        int factor = 1024;
+        int maxMemory = 11 * 1024;
+        ShardedByteBufferPool bufferPool = new ShardedByteBufferPool(-1, factor, -1, -1, -1, maxMemory, 4, 0);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; ++t)
+        {
+            Thread thread = new Thread(() ->
+            {
+                for (int i = 1; i <= 4; ++i)
+                {
+                    bufferPool.release(bufferPool.newByteBuffer(i * factor, true));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertThat(bufferPool.getMemory(true), lessThanOrEqualTo((long)maxMemory));
+    }
+}
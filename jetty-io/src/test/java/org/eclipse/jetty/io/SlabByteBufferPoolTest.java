@@ -0,0 +1,207 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlabByteBufferPoolTest
+{
+    @Test
+    public void testAcquireReleaseAcquire()
+    {
+        SlabByteBufferPool bufferPool = new SlabByteBufferPool(1024, 8192, 4096, -1, false);
+
+        ByteBuffer buffer1 = bufferPool.acquire(1000, true);
+        assertTrue(buffer1.isDirect());
+        assertEquals(1024, buffer1.capacity());
+        assertEquals(0, buffer1.remaining());
+        assertEquals(1, bufferPool.getSlabCount());
+        assertEquals(4096, bufferPool.getSlabMemory());
+        assertEquals(1024, bufferPool.getUsedMemory());
+
+        BufferUtil.append(buffer1, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        bufferPool.release(buffer1);
+        assertEquals(0, bufferPool.getUsedMemory());
+
+        ByteBuffer buffer2 = bufferPool.acquire(1024, true);
+        assertSame(buffer1, buffer2);
+        assertEquals(0, buffer2.remaining());
+    }
+
+    @Test
+    public void testSlicesDoNotOverlap()
+    {
+        SlabByteBufferPool bufferPool = new SlabByteBufferPool(1024, 8192, 4096, -1, false);
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 6; ++i)
+        {
+            ByteBuffer buffer = bufferPool.acquire(1024, true);
+            BufferUtil.clearToFill(buffer);
+            while (buffer.hasRemaining())
+            {
+                buffer.put((byte)i);
+            }
+            buffers.add(buffer);
+        }
+
+        // 4 slices per slab.
+        assertEquals(2, bufferPool.getSlabCount());
+        for (int i = 0; i < buffers.size(); ++i)
+        {
+            ByteBuffer buffer = buffers.get(i);
+            for (int j = 0; j < buffer.capacity(); ++j)
+            {
+                assertEquals(i, buffer.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void testOccupancyAndFragmentation()
+    {
+        SlabByteBufferPool bufferPool = new SlabByteBufferPool(1024, 8192, 4096, -1, false);
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 8; ++i)
+        {
+            buffers.add(bufferPool.acquire(1024, true));
+        }
+        assertEquals(1.0D, bufferPool.getOccupancy());
+        assertEquals(0.0D, bufferPool.getFragmentation());
+
+        // Free one slice in each slab: all the free memory is scattered.
+        bufferPool.release(buffers.get(0));
+        bufferPool.release(buffers.get(4));
+        assertEquals(0.75D, bufferPool.getOccupancy());
+        assertEquals(1.0D, bufferPool.getFragmentation());
+
+        // Free the rest of the second slab.
+        for (int i = 5; i < 8; ++i)
+        {
+            bufferPool.release(buffers.get(i));
+        }
+        assertEquals(0.375D, bufferPool.getOccupancy());
+        assertEquals(0.2D, bufferPool.getFragmentation());
+    }
+
+    @Test
+    public void testMaxDirectMemory()
+    {
+        SlabByteBufferPool bufferPool = new SlabByteBufferPool(1024, 8192, 4096, 4096, false);
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 4; ++i)
+        {
+            buffers.add(bufferPool.acquire(1024, true));
+        }
+        assertEquals(0, bufferPool.getUnpooledCount());
+
+        // The slab memory is exhausted.
+        ByteBuffer unpooled = bufferPool.acquire(1024, true);
+        assertEquals(1024, unpooled.capacity());
+        assertEquals(1, bufferPool.getSlabCount());
+        assertEquals(1, bufferPool.getUnpooledCount());
+
+        bufferPool.release(unpooled);
+        assertEquals(1, bufferPool.getInvalidReleaseCount());
+
+        bufferPool.release(buffers.get(0));
+        assertSame(buffers.get(0), bufferPool.acquire(1024, true));
+    }
+
+    @Test
+    public void testDoubleRelease()
+    {
+        SlabByteBufferPool bufferPool = new SlabByteBufferPool();
+
+        ByteBuffer buffer = bufferPool.acquire(512, true);
+        bufferPool.release(buffer);
+        bufferPool.release(buffer);
+
+        assertEquals(1, bufferPool.getInvalidReleaseCount());
+        assertEquals(0, bufferPool.getUsedMemory());
+    }
+
+    @Test
+    public void testHeapBuffers()
+    {
+        SlabByteBufferPool bufferPool = new SlabByteBufferPool();
+
+        ByteBuffer buffer = bufferPool.acquire(512, false);
+        assertFalse(buffer.isDirect());
+        bufferPool.release(buffer);
+
+        assertEquals(0, bufferPool.getSlabCount());
+        assertEquals(1, bufferPool.getHeapByteBufferCount());
+    }
+
+    @Test
+    public void testLeakDetectionReclaimsLeakedSlices() throws Exception
+    {
+        SlabByteBufferPool bufferPool = new SlabByteBufferPool(1024, 8192, 1024, 1024, true);
+
+        ByteBuffer buffer1 = bufferPool.acquire(1024, true);
+        bufferPool.release(buffer1);
+        ByteBuffer buffer2 = bufferPool.acquire(1024, true);
+        // In leak detection mode each acquire returns a new view.
+        assertNotSame(buffer1, buffer2);
+
+        // Leak the only slice.
+        buffer1 = null;
+        buffer2 = null;
+
+        for (int i = 0; i < 50 && bufferPool.getLeakCount() == 0; ++i)
+        {
+            System.gc();
+            Thread.sleep(100);
+            bufferPool.release(bufferPool.acquire(1024, true));
+        }
+        assertEquals(1, bufferPool.getLeakCount());
+        assertEquals(0, bufferPool.getUsedMemory());
+        assertEquals(1, bufferPool.getSlabCount());
+    }
+
+    @Test
+    public void testWithLeakTrackingByteBufferPool()
+    {
+        SlabByteBufferPool slabPool = new SlabByteBufferPool(1024, 8192, 4096, -1, true);
+        LeakTrackingByteBufferPool bufferPool = new LeakTrackingByteBufferPool(slabPool);
+
+        ByteBuffer buffer = bufferPool.acquire(1024, true);
+        bufferPool.release(buffer);
+        buffer = bufferPool.acquire(1024, true);
+        bufferPool.release(buffer);
+
+        assertEquals(0, bufferPool.getLeakedAcquires());
+        assertEquals(0, bufferPool.getLeakedReleases());
+        assertEquals(0, slabPool.getInvalidReleaseCount());
+    }
+}
@@ -0,0 +1,219 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FutureCallback;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.TimerScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteCoalescerTest
+{
+    private Scheduler _scheduler;
+    private ByteArrayEndPoint _endPoint;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        _scheduler = new TimerScheduler();
+        _scheduler.start();
+        _endPoint = new ByteArrayEndPoint(_scheduler, 5000);
+        _endPoint.setGrowOutput(true);
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        _endPoint.close();
+        _scheduler.stop();
+    }
+
+    @Test
+    public void testSmallWritesAreCoalescedUntilFillInterest() throws Exception
+    {
+        _endPoint.setWriteCoalescing(1024, 60000);
+
+        for (String chunk : new String[]{"one", "two", "three"})
+        {
+            FutureCallback callback = new FutureCallback();
+            _endPoint.write(callback, BufferUtil.toBuffer(chunk));
+            assertTrue(callback.isDone());
+        }
+        assertEquals("", _endPoint.takeOutputString());
+
+        _endPoint.fillInterested(Callback.NOOP);
+        assertEquals("onetwothree", _endPoint.takeOutputString());
+        assertEquals(3, _endPoint.getCoalescedWrites());
+        assertEquals(2, _endPoint.getSavedWrites());
+    }
+
+    @Test
+    public void testLargeWriteGathersCoalescedBytes() throws Exception
+    {
+        _endPoint.setWriteCoalescing(8, 60000);
+
+        FutureCallback callback = new FutureCallback();
+        _endPoint.write(callback, BufferUtil.toBuffer("small"));
+        assertTrue(callback.isDone());
+
+        callback = new FutureCallback();
+        _endPoint.write(callback, BufferUtil.toBuffer("-larger than the buffer"));
+        callback.get(5, TimeUnit.SECONDS);
+
+        assertEquals("small-larger than the buffer", _endPoint.takeOutputString());
+        assertEquals(1, _endPoint.getCoalescedWrites());
+        assertEquals(1, _endPoint.getSavedWrites());
+
+        // The aggregate buffer can be used again.
+        callback = new FutureCallback();
+        _endPoint.write(callback, BufferUtil.toBuffer("again"));
+        assertTrue(callback.isDone());
+        assertEquals("", _endPoint.takeOutputString());
+        _endPoint.tryFillInterested(Callback.NOOP);
+        assertEquals("again", _endPoint.takeOutputString());
+    }
+
+    @Test
+    public void testAggregateBufferReturnedToPool() throws Exception
+    {
+        AtomicInteger outstanding = new AtomicInteger();
+        ByteBufferPool bufferPool = new ArrayByteBufferPool()
+        {
+            @Override
+            public ByteBuffer acquire(int size, boolean direct)
+            {
+                outstanding.incrementAndGet();
+                return super.acquire(size, direct);
+            }
+
+            @Override
+            public void release(ByteBuffer buffer)
+            {
+                outstanding.decrementAndGet();
+                super.release(buffer);
+            }
+        };
+        _endPoint.setWriteCoalescing(8, 60000, _scheduler, bufferPool);
+
+        // Released when the coalesced bytes have been flushed.
+        _endPoint.write(Callback.NOOP, BufferUtil.toBuffer("one"));
+        assertEquals(1, outstanding.get());
+        _endPoint.fillInterested(Callback.NOOP);
+        assertEquals("one", _endPoint.takeOutputString());
+        assertEquals(0, outstanding.get());
+
+        // Released when the coalesced bytes have been gathered into a larger write.
+        _endPoint.write(Callback.NOOP, BufferUtil.toBuffer("two"));
+        FutureCallback callback = new FutureCallback();
+        _endPoint.write(callback, BufferUtil.toBuffer("-larger than the buffer"));
+        callback.get(5, TimeUnit.SECONDS);
+        assertEquals("two-larger than the buffer", _endPoint.takeOutputString());
+        assertEquals(0, outstanding.get());
+
+        // Released when the endpoint is closed with a failure.
+        _endPoint.write(Callback.NOOP, BufferUtil.toBuffer("three"));
+        assertEquals(1, outstanding.get());
+        _endPoint.close(new IOException("test"));
+        assertEquals(0, outstanding.get());
+    }
+
+    @Test
+    public void testCoalescedBytesWrittenAfterDelay() throws Exception
+    {
+        _endPoint.setWriteCoalescing(1024, 100);
+
+        _endPoint.write(Callback.NOOP, BufferUtil.toBuffer("one"));
+        _endPoint.write(Callback.NOOP, BufferUtil.toBuffer("two"));
+
+        ByteBuffer output = _endPoint.waitForOutput(5, TimeUnit.SECONDS);
+        assertEquals("onetwo", BufferUtil.toString(output, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testShutdownOutputWritesCoalescedBytes() throws Exception
+    {
+        _endPoint.setWriteCoalescing(1024, 60000);
+
+        _endPoint.write(Callback.NOOP, BufferUtil.toBuffer("last"));
+        _endPoint.shutdownOutput();
+
+        assertTrue(_endPoint.isOutputShutdown());
+        assertEquals("last", BufferUtil.toString(_endPoint.takeOutput(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCloseWritesCoalescedBytes() throws Exception
+    {
+        _endPoint.setWriteCoalescing(1024, 60000);
+
+        FutureCallback callback = new FutureCallback();
+        _endPoint.write(callback, BufferUtil.toBuffer("last"));
+        assertTrue(callback.isDone());
+        _endPoint.close();
+
+        assertFalse(_endPoint.isOpen());
+        assertEquals("last", BufferUtil.toString(_endPoint.takeOutput(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFailedFlushClosesEndPoint() throws Exception
+    {
+        AtomicBoolean shutdown = new AtomicBoolean();
+        _endPoint = new ByteArrayEndPoint(_scheduler, 5000)
+        {
+            @Override
+            public boolean flush(ByteBuffer... buffers) throws IOException
+            {
+                throw new IOException("test");
+            }
+
+            @Override
+            public void doShutdownOutput()
+            {
+                shutdown.set(true);
+                super.doShutdownOutput();
+            }
+        };
+        _endPoint.setWriteCoalescing(1024, 60000);
+
+        FutureCallback callback = new FutureCallback();
+        _endPoint.write(callback, BufferUtil.toBuffer("lost"));
+        assertTrue(callback.isDone());
+        _endPoint.shutdownOutput();
+
+        // The output is not gracefully shutdown after the coalesced bytes have been lost.
+        assertFalse(_endPoint.isOpen());
+        assertFalse(shutdown.get());
+    }
+}
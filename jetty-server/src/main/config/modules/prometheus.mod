@@ -0,0 +1,28 @@
+# DO NOT EDIT - See: https://www.eclipse.org/jetty/documentation/current/startup-modules.html
+
+[description]
+Enables the export of the server metrics in the Prometheus text format.
+Enable the stats module to also export the request and connection metrics.
+The metrics are not authenticated and, unless jetty.prometheus.connectorName
+is set, they are exported on every connector and virtual host.
+
+[tags]
+server
+handler
+
+[depend]
+server
+
+[optional]
+stats
+
+[xml]
+etc/jetty-prometheus.xml
+
+[ini-template]
+## The path of the requests answered with the metrics
+# jetty.prometheus.path=/metrics
+
+## The name of the connector whose requests are answered with the metrics.
+## If not set, the metrics are answered to any client of any connector.
+# jetty.prometheus.connectorName=
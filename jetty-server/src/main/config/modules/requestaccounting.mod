@@ -0,0 +1,13 @@
+# DO NOT EDIT - See: https://www.eclipse.org/jetty/documentation/current/startup-modules.html
+
+[description]
+Enable accounting of the CPU time, allocated bytes and wait times of requests.
+
+[tags]
+server
+
+[depend]
+server
+
+[xml]
+etc/jetty-requestaccounting.xml
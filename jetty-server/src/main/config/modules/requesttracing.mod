@@ -0,0 +1,25 @@
+# DO NOT EDIT - See: https://www.eclipse.org/jetty/documentation/current/startup-modules.html
+
+[description]
+Enables the tracing of the phases of a sample of requests.
+The most recent traces are available via JMX and at the configured path.
+
+[tags]
+server
+handler
+
+[depend]
+server
+
+[xml]
+etc/jetty-requesttracing.xml
+
+[ini-template]
+## One request out of this many is traced
+# jetty.requesttracing.sampleRate=100
+
+## The number of most recent traces kept
+# jetty.requesttracing.capacity=1024
+
+## The path of the requests answered with the traces
+# jetty.requesttracing.path=/traces
@@ -0,0 +1,19 @@
+# DO NOT EDIT - See: https://www.eclipse.org/jetty/documentation/current/startup-modules.html
+
+[description]
+Enables the detection of stalled selectors on all connectors.
+Stalls are logged with the stack trace of the stalled thread,
+and are notified via JMX if the jmx module is enabled.
+
+[tags]
+server
+
+[depend]
+server
+
+[xml]
+etc/jetty-selectorwatchdog.xml
+
+[ini-template]
+## The time in ms after which a selector that has not returned to select is stalled
+# jetty.selectorwatchdog.stallThreshold=1000
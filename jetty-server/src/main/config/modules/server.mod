@@ -53,6 +53,15 @@ etc/jetty.xml
 ## Max per-connection header cache size (in nodes)
 # jetty.httpConfig.headerCacheSize=1024
 
+## Shared per-connector header cache size (in nodes), 0 to disable
+# jetty.httpConfig.sharedHeaderCacheSize=0
+
+## Whether HTTP/1 request header values are only converted to Strings when accessed
+# jetty.httpConfig.lazyRequestFieldValues=false
+
+## Whether HTTP/1 connections release their request buffer while waiting to be fillable
+# jetty.httpConfig.releaseRequestBufferWhenIdle=false
+
 ## Whether, for requests with content, delay dispatch until some content has arrived
 # jetty.httpConfig.delayDispatchUntilContent=true
 
@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.jetty.io.AbstractConnection;
+import org.eclipse.jetty.io.AbstractEndPoint;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.util.ArrayUtil;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
@@ -40,6 +41,9 @@ public abstract class AbstractConnectionFactory extends ContainerLifeCycle imple
     private final String _protocol;
     private final List<String> _protocols;
     private int _inputbufferSize = 8192;
+    private boolean _adaptiveInputBufferSize;
+    private int _writeCoalescingSize;
+    private long _writeCoalescingDelay = 1;
 
     protected AbstractConnectionFactory(String protocol)
     {
@@ -77,6 +81,67 @@ public abstract class AbstractConnectionFactory extends ContainerLifeCycle imple
         _inputbufferSize = size;
     }
 
+    /**
+     * @return whether the connections adapt the size of the buffers used to read from the network
+     * @see AbstractConnection#setAdaptiveInputBufferSize(boolean)
+     */
+    @ManagedAttribute("Whether the buffer size used to read from the network adapts to the read sizes")
+    public boolean isAdaptiveInputBufferSize()
+    {
+        return _adaptiveInputBufferSize;
+    }
+
+    /**
+     * <p>Sets whether the connections adapt the size of the buffers used to read from the network,
+     * starting small and growing up to {@link #getInputBufferSize()} when needed.</p>
+     *
+     * @param adaptive whether the input buffer size is adaptive
+     */
+    public void setAdaptiveInputBufferSize(boolean adaptive)
+    {
+        _adaptiveInputBufferSize = adaptive;
+    }
+
+    /**
+     * @return the size in bytes of the buffer used to coalesce small writes, or 0 if writes are not coalesced
+     * @see AbstractEndPoint#setWriteCoalescing(int, long)
+     */
+    @ManagedAttribute("The buffer size used to coalesce small writes to the network, or 0 if writes are not coalesced")
+    public int getWriteCoalescingSize()
+    {
+        return _writeCoalescingSize;
+    }
+
+    /**
+     * <p>Sets the size of the buffer used to coalesce small writes to the network.</p>
+     * <p>Write coalescing reduces the number of network writes of applications that
+     * write and flush many small chunks, at the cost of delaying them up to
+     * {@link #getWriteCoalescingDelay()}.</p>
+     *
+     * @param size the size in bytes of the write coalescing buffer, or 0 to disable write coalescing
+     */
+    public void setWriteCoalescingSize(int size)
+    {
+        _writeCoalescingSize = size;
+    }
+
+    /**
+     * @return the max time in milliseconds that coalesced writes may wait before being written to the network
+     */
+    @ManagedAttribute("The max time in ms that coalesced writes may wait before being written to the network")
+    public long getWriteCoalescingDelay()
+    {
+        return _writeCoalescingDelay;
+    }
+
+    /**
+     * @param delay the max time in milliseconds that coalesced writes may wait before being written to the network
+     */
+    public void setWriteCoalescingDelay(long delay)
+    {
+        _writeCoalescingDelay = delay;
+    }
+
     protected String findNextProtocol(Connector connector)
     {
         return findNextProtocol(connector, getProtocol());
@@ -100,6 +165,9 @@ public abstract class AbstractConnectionFactory extends ContainerLifeCycle imple
     protected AbstractConnection configure(AbstractConnection connection, Connector connector, EndPoint endPoint)
     {
         connection.setInputBufferSize(getInputBufferSize());
+        connection.setAdaptiveInputBufferSize(isAdaptiveInputBufferSize());
+        if (getWriteCoalescingSize() > 0 && endPoint instanceof AbstractEndPoint)
+            ((AbstractEndPoint)endPoint).setWriteCoalescing(getWriteCoalescingSize(), getWriteCoalescingDelay(), connector.getScheduler(), connector.getByteBufferPool());
 
         // Add Connection.Listeners from Connector
         connector.getEventListeners().forEach(connection::addEventListener);
@@ -155,6 +155,7 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
     private final Set<EndPoint> _immutableEndPoints = Collections.unmodifiableSet(_endpoints);
     private Shutdown _shutdown;
     private HttpChannel.Listener _httpChannelListeners = HttpChannel.NOOP_LISTENER;
+    private RequestTracer _requestTracer;
     private long _idleTimeout = 30000;
     private long _shutdownIdleTimeout = 1000L;
     private String _defaultProtocol;
@@ -201,6 +202,8 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
             {
                 if (bean instanceof HttpChannel.Listener)
                     _httpChannelListeners = new HttpChannelListeners(getBeans(HttpChannel.Listener.class));
+                if (bean instanceof RequestTracer)
+                    _requestTracer = getBean(RequestTracer.class);
             }
 
             @Override
@@ -208,6 +211,8 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
             {
                 if (bean instanceof HttpChannel.Listener)
                     _httpChannelListeners = new HttpChannelListeners(getBeans(HttpChannel.Listener.class));
+                if (bean instanceof RequestTracer)
+                    _requestTracer = getBean(RequestTracer.class);
             }
         });
 
@@ -242,6 +247,14 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
         return _httpChannelListeners;
     }
 
+    /**
+     * @return the {@link RequestTracer} added to the connector, or null if requests are not traced
+     */
+    public RequestTracer getRequestTracer()
+    {
+        return _requestTracer;
+    }
+
     @Override
     public Server getServer()
     {
@@ -41,6 +41,7 @@ import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.http.MimeTypes.Type;
 import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http.PreEncodedHttpFields;
 import org.eclipse.jetty.http.PrecompressedHttpContent;
 import org.eclipse.jetty.http.ResourceHttpContent;
 import org.eclipse.jetty.util.BufferUtil;
@@ -391,6 +392,8 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         private final HttpField _lastModified;
         private final long _lastModifiedValue;
         private final HttpField _etag;
+        private final PreEncodedHttpFields _preEncodedFields;
+        private final PreEncodedHttpFields _preEncodedETagFields;
         private final Map<CompressedContentFormat, CachedPrecompressedHttpContent> _precompressed;
         private final AtomicReference<ByteBuffer> _indirectBuffer = new AtomicReference<>();
         private final AtomicReference<ByteBuffer> _directBuffer = new AtomicReference<>();
@@ -422,6 +425,9 @@ public class CachedContentFactory implements HttpContent.ContentFactory
 
             _etag = CachedContentFactory.this._etags ? new PreEncodedHttpField(HttpHeader.ETAG, resource.getWeakETag()) : null;
 
+            _preEncodedFields = PreEncodedHttpFields.of(_lastModified, _contentType);
+            _preEncodedETagFields = _etag == null ? _preEncodedFields : PreEncodedHttpFields.of(_lastModified, _contentType, _etag);
+
             if (precompressedResources != null)
             {
                 _precompressed = new HashMap<>(precompressedResources.size());
@@ -523,6 +529,12 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             return null;
         }
 
+        @Override
+        public PreEncodedHttpFields getPreEncodedFields(boolean etag)
+        {
+            return etag ? _preEncodedETagFields : _preEncodedFields;
+        }
+
         @Override
         public String getContentEncodingValue()
         {
@@ -680,6 +692,8 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         private final CachedHttpContent _content;
         private final CachedHttpContent _precompressedContent;
         private final HttpField _etag;
+        private final PreEncodedHttpFields _preEncodedFields;
+        private final PreEncodedHttpFields _preEncodedETagFields;
 
         CachedPrecompressedHttpContent(CachedHttpContent content, CachedHttpContent precompressedContent, CompressedContentFormat format)
         {
@@ -688,6 +702,9 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             _precompressedContent = precompressedContent;
 
             _etag = (CachedContentFactory.this._etags) ? new PreEncodedHttpField(HttpHeader.ETAG, _content.getResource().getWeakETag(format._etag)) : null;
+
+            _preEncodedFields = PreEncodedHttpFields.of(getLastModified(), getContentType(), getContentEncoding());
+            _preEncodedETagFields = _etag == null ? null : PreEncodedHttpFields.of(getLastModified(), getContentType(), getContentEncoding(), _etag);
         }
 
         public boolean isValid()
@@ -711,6 +728,12 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             return super.getETagValue();
         }
 
+        @Override
+        public PreEncodedHttpFields getPreEncodedFields(boolean etag)
+        {
+            return etag ? _preEncodedETagFields : _preEncodedFields;
+        }
+
         @Override
         public String toString()
         {
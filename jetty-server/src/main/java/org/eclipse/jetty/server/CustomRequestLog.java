@@ -259,6 +259,20 @@ import static java.lang.invoke.MethodType.methodType;
  * </tr>
  *
  * <tr>
+ * <td valign="top">%{USAGE}Z</td>
+ * <td>
+ * The resources used by the request, as measured by {@link RequestAccounting}, or '-' if the request
+ * was not accounted. USAGE is one of:
+ * <pre>
+ * cpu     - the CPU time of the threads that dispatched the request, in microseconds
+ * alloc   - the bytes allocated by the threads that dispatched the request
+ * wait    - the time the request waited to be dispatched, in microseconds
+ * blocked - the time the request was blocked reading or writing content, in microseconds
+ * handle  - the time spent in the handlers, in microseconds</pre>
+ * </td>
+ * </tr>
+ *
+ * <tr>
  * <td valign="top">%{VARNAME}^ti</td>
  * <td>The contents of VARNAME: trailer line(s) in the request sent to the server.</td>
  * </tr>
@@ -886,6 +900,37 @@ public class CustomRequestLog extends ContainerLifeCycle implements RequestLog
                 break;
             }
 
+            case "Z":
+            {
+                if (StringUtil.isEmpty(arg))
+                    throw new IllegalArgumentException("No arg for %Z");
+
+                String method;
+                switch (arg)
+                {
+                    case "cpu":
+                        method = "logUsageCpuTime";
+                        break;
+                    case "alloc":
+                        method = "logUsageAllocatedBytes";
+                        break;
+                    case "wait":
+                        method = "logUsageWaitTime";
+                        break;
+                    case "blocked":
+                        method = "logUsageBlockedTime";
+                        break;
+                    case "handle":
+                        method = "logUsageHandleTime";
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid arg for %Z: " + arg);
+                }
+
+                specificHandle = lookup.findStatic(CustomRequestLog.class, method, logType);
+                break;
+            }
+
             case "ti":
             {
                 if (StringUtil.isEmpty(arg))
@@ -1172,6 +1217,56 @@ public class CustomRequestLog extends ContainerLifeCycle implements RequestLog
         b.append(']');
     }
 
+    @SuppressWarnings("unused")
+    private static void logUsageCpuTime(StringBuilder b, Request request, Response response)
+    {
+        RequestAccounting.Usage usage = RequestAccounting.getUsage(request);
+        if (usage == null)
+            b.append('-');
+        else
+            b.append(TimeUnit.NANOSECONDS.toMicros(usage.getCpuTime()));
+    }
+
+    @SuppressWarnings("unused")
+    private static void logUsageAllocatedBytes(StringBuilder b, Request request, Response response)
+    {
+        RequestAccounting.Usage usage = RequestAccounting.getUsage(request);
+        if (usage == null)
+            b.append('-');
+        else
+            b.append(usage.getAllocatedBytes());
+    }
+
+    @SuppressWarnings("unused")
+    private static void logUsageWaitTime(StringBuilder b, Request request, Response response)
+    {
+        RequestAccounting.Usage usage = RequestAccounting.getUsage(request);
+        if (usage == null)
+            b.append('-');
+        else
+            b.append(TimeUnit.NANOSECONDS.toMicros(usage.getWaitTime()));
+    }
+
+    @SuppressWarnings("unused")
+    private static void logUsageBlockedTime(StringBuilder b, Request request, Response response)
+    {
+        // The request is logged before the accounting completes, so read the channel total.
+        if (RequestAccounting.getUsage(request) == null)
+            b.append('-');
+        else
+            b.append(TimeUnit.NANOSECONDS.toMicros(request.getHttpChannel().getBlockedNanos()));
+    }
+
+    @SuppressWarnings("unused")
+    private static void logUsageHandleTime(StringBuilder b, Request request, Response response)
+    {
+        RequestAccounting.Usage usage = RequestAccounting.getUsage(request);
+        if (usage == null)
+            b.append('-');
+        else
+            b.append(TimeUnit.NANOSECONDS.toMicros(usage.getHandleTime()));
+    }
+
     @SuppressWarnings("unused")
     private static void logLatencyMicroseconds(StringBuilder b, Request request, Response response)
     {
@@ -51,6 +51,7 @@ import org.eclipse.jetty.server.handler.ErrorHandler;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.SharedBlockingCallback.Blocker;
+import org.eclipse.jetty.util.thread.Invocable;
 import org.eclipse.jetty.util.thread.Scheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,7 +65,7 @@ import org.slf4j.LoggerFactory;
  * HttpParser.RequestHandler callbacks.   The completion of the active phase is signalled by a call to
  * HttpTransport.completed().
  */
-public class HttpChannel implements Runnable, HttpOutput.Interceptor
+public class HttpChannel implements Runnable, HttpOutput.Interceptor, Invocable
 {
     public static Listener NOOP_LISTENER = new Listener() {};
     private static final Logger LOG = LoggerFactory.getLogger(HttpChannel.class);
@@ -79,6 +80,7 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
     private final Request _request;
     private final Response _response;
     private final HttpChannel.Listener _combinedListener;
+    private final RequestTracer.Trace _trace;
     @Deprecated
     private final List<Listener> _transientListeners = new ArrayList<>();
     private MetaData.Response _committedMetaData;
@@ -89,6 +91,10 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
      * Bytes written after interception (eg after compression)
      */
     private long _written;
+    /**
+     * Time spent blocked reading request content or writing response content
+     */
+    private volatile long _blocked;
 
     public HttpChannel(Connector connector, HttpConfiguration configuration, EndPoint endPoint, HttpTransport transport)
     {
@@ -105,6 +111,10 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         _combinedListener = (connector instanceof AbstractConnector)
             ? ((AbstractConnector)connector).getHttpChannelListeners()
             : NOOP_LISTENER;
+        RequestTracer tracer = (connector instanceof AbstractConnector)
+            ? ((AbstractConnector)connector).getRequestTracer()
+            : null;
+        _trace = tracer == null ? null : tracer.newTrace();
 
         if (LOG.isDebugEnabled())
             LOG.debug("new {} -> {},{},{}",
@@ -114,6 +124,20 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
                 _state);
     }
 
+    /**
+     * @return the trace of the requests of this channel, or null if requests are not traced
+     */
+    public RequestTracer.Trace getTrace()
+    {
+        return _trace;
+    }
+
+    private void trace(RequestTracer.Phase phase)
+    {
+        if (_trace != null)
+            _trace.stamp(phase);
+    }
+
     public boolean isSendError()
     {
         return _state.isSendError();
@@ -167,6 +191,27 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         return _written;
     }
 
+    /**
+     * @return the time, in nanoseconds, spent by the current request blocked waiting
+     * for request content to be read or for response content to be written
+     */
+    public long getBlockedNanos()
+    {
+        return _blocked;
+    }
+
+    /**
+     * <p>Invoked when a thread has been blocked reading request
+     * content or writing response content.</p>
+     *
+     * @param nanos the time the thread was blocked, in nanoseconds
+     */
+    public void onBlocked(long nanos)
+    {
+        // Only one thread at a time may block on the request input or response output.
+        _blocked += nanos;
+    }
+
     /**
      * @return the number of requests handled by this connection
      */
@@ -299,6 +344,7 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         _committedMetaData = null;
         _requestLog = _connector == null ? null : _connector.getServer().getRequestLog();
         _written = 0;
+        _blocked = 0;
         _oldIdleTimeout = 0;
         _transientListeners.clear();
     }
@@ -322,6 +368,13 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         handle();
     }
 
+    @Override
+    public InvocationType getInvocationType()
+    {
+        // Handling calls the application, which may block.
+        return InvocationType.BLOCKING;
+    }
+
     /**
      * @return True if the channel is ready to continue handling (ie it is not suspended)
      */
@@ -330,6 +383,7 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         if (LOG.isDebugEnabled())
             LOG.debug("handle {} {} ", _request.getHttpURI(), this);
 
+        trace(RequestTracer.Phase.DISPATCH);
         HttpChannelState.Action action = _state.handling();
 
         // Loop here to handle async request redispatches.
@@ -361,6 +415,7 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
 
                         dispatch(DispatcherType.REQUEST, () ->
                         {
+                            trace(RequestTracer.Phase.HANDLE_START);
                             for (HttpConfiguration.Customizer customizer : _configuration.getCustomizers())
                             {
                                 customizer.customize(getConnector(), _configuration, _request);
@@ -369,6 +424,7 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
                             }
                             getServer().handle(HttpChannel.this);
                         });
+                        trace(RequestTracer.Phase.HANDLE_END);
 
                         break;
                     }
@@ -692,6 +748,8 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
             setIdleTimeout(idleTO);
 
         _request.setMetaData(request);
+        if (_trace != null)
+            _trace.onParsed();
 
         _combinedListener.onRequestBegin(_request);
 
@@ -761,6 +819,8 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
             setIdleTimeout(_oldIdleTimeout);
 
         _request.onCompleted();
+        if (_trace != null)
+            _trace.onCompleted(_request);
         _combinedListener.onComplete(_request);
         _transport.onCompleted();
     }
@@ -827,6 +887,7 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
 
     protected boolean sendResponse(MetaData.Response response, ByteBuffer content, boolean complete, final Callback callback)
     {
+        trace(RequestTracer.Phase.FIRST_WRITE);
         boolean committing = _state.commitResponse();
 
         if (LOG.isDebugEnabled())
@@ -1233,7 +1294,10 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         {
             _written += _length;
             if (_commit)
+            {
+                trace(RequestTracer.Phase.COMMIT);
                 _combinedListener.onResponseCommit(_request);
+            }
             if (_length > 0)
                 _combinedListener.onResponseContent(_request, _content);
             if (_complete && _state.completeResponse())
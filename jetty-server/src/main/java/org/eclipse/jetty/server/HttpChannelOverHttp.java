@@ -348,7 +348,6 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
     public void parsedHeader(HttpField field)
     {
         HttpHeader header = field.getHeader();
-        String value = field.getValue();
         if (header != null)
         {
             switch (header)
@@ -358,15 +357,18 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
                     break;
 
                 case HOST:
+                {
+                    String value = field.getValue();
                     if (!(field instanceof HostPortHttpField) && value != null && !value.isEmpty())
                         field = new HostPortHttpField(value);
                     break;
+                }
 
                 case EXPECT:
                 {
                     if (HttpVersion.HTTP_1_1.equals(_requestBuilder.version()))
                     {
-                        HttpHeaderValue expect = HttpHeaderValue.CACHE.get(value);
+                        HttpHeaderValue expect = HttpHeaderValue.CACHE.get(field.getValue());
                         switch (expect == null ? HttpHeaderValue.UNKNOWN : expect)
                         {
                             case CONTINUE:
@@ -415,6 +417,12 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
         _requestBuilder.getFields().add(field);
     }
 
+    @Override
+    public void referenceBuffer(ByteBuffer buffer)
+    {
+        _httpConnection.retainRequestBuffer(buffer);
+    }
+
     @Override
     public void parsedTrailer(HttpField field)
     {
@@ -58,6 +58,9 @@ public class HttpConfiguration implements Dumpable
     private int _responseHeaderSize = 8 * 1024;
     private int _headerCacheSize = 1024;
     private boolean _headerCacheCaseSensitive = false;
+    private int _sharedHeaderCacheSize;
+    private boolean _lazyRequestFieldValues;
+    private boolean _releaseRequestBufferWhenIdle;
     private int _securePort;
     private long _idleTimeout = -1;
     private String _secureScheme = HttpScheme.HTTPS.asString();
@@ -127,6 +130,9 @@ public class HttpConfiguration implements Dumpable
         _responseHeaderSize = config._responseHeaderSize;
         _headerCacheSize = config._headerCacheSize;
         _headerCacheCaseSensitive = config._headerCacheCaseSensitive;
+        _sharedHeaderCacheSize = config._sharedHeaderCacheSize;
+        _lazyRequestFieldValues = config._lazyRequestFieldValues;
+        _releaseRequestBufferWhenIdle = config._releaseRequestBufferWhenIdle;
         _secureScheme = config._secureScheme;
         _securePort = config._securePort;
         _idleTimeout = config._idleTimeout;
@@ -211,6 +217,24 @@ public class HttpConfiguration implements Dumpable
         return _headerCacheCaseSensitive;
     }
 
+    @ManagedAttribute("The size in nodes of the header field cache shared by the connections of a connector")
+    public int getSharedHeaderCacheSize()
+    {
+        return _sharedHeaderCacheSize;
+    }
+
+    @ManagedAttribute("True if the values of HTTP/1 request header fields are parsed lazily")
+    public boolean isLazyRequestFieldValues()
+    {
+        return _lazyRequestFieldValues;
+    }
+
+    @ManagedAttribute("True if HTTP/1 connections release their request buffer while waiting to be fillable")
+    public boolean isReleaseRequestBufferWhenIdle()
+    {
+        return _releaseRequestBufferWhenIdle;
+    }
+
     @ManagedAttribute("The port to which Integral or Confidential security constraints are redirected")
     public int getSecurePort()
     {
@@ -435,6 +459,48 @@ public class HttpConfiguration implements Dumpable
         this._headerCacheCaseSensitive = headerCacheCaseSensitive;
     }
 
+    /**
+     * <p>Sets the size of the header field cache shared by the HTTP/1 connections of a connector.</p>
+     * <p>The shared cache learns the header fields that are frequently repeated across
+     * connections, such as {@code User-Agent} or {@code Authorization}, so that they are
+     * parsed without allocating. The cache is created when the connection factory is started.</p>
+     *
+     * @param sharedHeaderCacheSize the size in nodes of the shared header field cache, or 0 to not use a shared cache
+     * @see org.eclipse.jetty.http.HttpFieldCache
+     */
+    public void setSharedHeaderCacheSize(int sharedHeaderCacheSize)
+    {
+        _sharedHeaderCacheSize = sharedHeaderCacheSize;
+    }
+
+    /**
+     * <p>Sets whether the values of HTTP/1 request header fields are parsed lazily.</p>
+     * <p>A lazy field value is only converted to a {@code String} when it is accessed,
+     * which saves the allocations for the fields that the application does not read,
+     * for example when proxying requests. The request buffer is retained until the
+     * request is completed, so the request fields must not be accessed after completion.</p>
+     *
+     * @param lazyRequestFieldValues whether the values of request header fields are parsed lazily
+     * @see org.eclipse.jetty.http.HttpParser#setLazyFieldValues(boolean)
+     */
+    public void setLazyRequestFieldValues(boolean lazyRequestFieldValues)
+    {
+        _lazyRequestFieldValues = lazyRequestFieldValues;
+    }
+
+    /**
+     * <p>Sets whether HTTP/1 connections release their request buffer before waiting to be fillable.</p>
+     * <p>When enabled, a connection that waits for the next request, or for more request content,
+     * holds no pooled buffer and acquires a new one when it becomes fillable. This reduces the memory
+     * held by many idle persistent connections, at the cost of a pool release and acquire per wait.</p>
+     *
+     * @param releaseRequestBufferWhenIdle whether to release the request buffer before waiting to be fillable
+     */
+    public void setReleaseRequestBufferWhenIdle(boolean releaseRequestBufferWhenIdle)
+    {
+        _releaseRequestBufferWhenIdle = releaseRequestBufferWhenIdle;
+    }
+
     /**
      * <p>Sets the TCP/IP port used for CONFIDENTIAL and INTEGRAL redirections.</p>
      *
@@ -657,6 +723,9 @@ public class HttpConfiguration implements Dumpable
             "requestHeaderSize=" + _requestHeaderSize,
             "responseHeaderSize=" + _responseHeaderSize,
             "headerCacheSize=" + _headerCacheSize,
+            "sharedHeaderCacheSize=" + _sharedHeaderCacheSize,
+            "lazyRequestFieldValues=" + _lazyRequestFieldValues,
+            "releaseRequestBufferWhenIdle=" + _releaseRequestBufferWhenIdle,
             "secureScheme=" + _secureScheme,
             "securePort=" + _securePort,
             "idleTimeout=" + _idleTimeout,
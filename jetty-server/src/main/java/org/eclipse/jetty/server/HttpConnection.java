@@ -21,13 +21,15 @@ package org.eclipse.jetty.server;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritePendingException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.http.BadMessageException;
 import org.eclipse.jetty.http.HttpCompliance;
 import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpGenerator;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpHeaderValue;
@@ -37,10 +39,12 @@ import org.eclipse.jetty.http.HttpParser.RequestHandler;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.io.AbstractConnection;
+import org.eclipse.jetty.io.AdaptiveBufferSize;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.EofException;
+import org.eclipse.jetty.io.RetainableByteBuffer;
 import org.eclipse.jetty.io.WriteFlusher;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
@@ -66,8 +70,9 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     private final HttpGenerator _generator;
     private final HttpChannelOverHttp _channel;
     private final HttpParser _parser;
-    private final AtomicInteger _contentBufferReferences = new AtomicInteger();
-    private volatile ByteBuffer _requestBuffer = null;
+    private final RequestTracer.Trace _trace;
+    private volatile RetainableByteBuffer _retainableByteBuffer;
+    private final List<RetainableByteBuffer> _retainedRequestBuffers = new ArrayList<>(2);
     private final BlockingReadCallback _blockingReadCallback = new BlockingReadCallback();
     private final AsyncReadCallback _asyncReadCallback = new AsyncReadCallback();
     private final SendCallback _sendCallback = new SendCallback();
@@ -106,6 +111,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         _generator = newHttpGenerator();
         _channel = newHttpChannel();
         _input = _channel.getRequest().getHttpInput();
+        _trace = _channel.getTrace();
         _parser = newHttpParser(config.getHttpCompliance());
         _recordHttpComplianceViolations = recordComplianceViolations;
         if (LOG.isDebugEnabled())
@@ -137,6 +143,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         HttpParser parser = new HttpParser(newRequestHandler(), getHttpConfiguration().getRequestHeaderSize(), compliance);
         parser.setHeaderCacheSize(getHttpConfiguration().getHeaderCacheSize());
         parser.setHeaderCacheCaseSensitive(getHttpConfiguration().isHeaderCacheCaseSensitive());
+        parser.setLazyFieldValues(getHttpConfiguration().isLazyRequestFieldValues());
         return parser;
     }
 
@@ -205,10 +212,10 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     @Override
     public ByteBuffer onUpgradeFrom()
     {
-        if (BufferUtil.hasContent(_requestBuffer))
+        if (!isRequestBufferEmpty())
         {
-            ByteBuffer unconsumed = ByteBuffer.allocateDirect(_requestBuffer.remaining());
-            unconsumed.put(_requestBuffer);
+            ByteBuffer unconsumed = ByteBuffer.allocateDirect(_retainableByteBuffer.remaining());
+            unconsumed.put(_retainableByteBuffer.getBuffer());
             unconsumed.flip();
             releaseRequestBuffer();
             return unconsumed;
@@ -219,6 +226,8 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     @Override
     public void onUpgradeTo(ByteBuffer buffer)
     {
+        if (_retainableByteBuffer == null)
+            _retainableByteBuffer = new RetainableByteBuffer(_bufferPool, Math.max(getFillBufferSize(), buffer.remaining()), isUseInputDirectByteBuffers());
         BufferUtil.append(getRequestBuffer(), buffer);
     }
 
@@ -230,38 +239,109 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         _channel.getResponse().getHttpOutput().onFlushed(bytes);
     }
 
+    /**
+     * <p>Releases the reference that this connection holds on the request buffer, if the buffer is empty.</p>
+     * <p>The buffer is returned to the pool when the request content that references it,
+     * if any, has also been consumed.</p>
+     * <p>When {@link HttpConfiguration#isReleaseRequestBufferWhenIdle()} is enabled, this method
+     * is also called before registering fill interest, so that idle connections do not hold
+     * a pooled buffer: a new one is acquired when the connection is fillable.</p>
+     */
     void releaseRequestBuffer()
     {
-        if (_requestBuffer != null && !_requestBuffer.hasRemaining())
+        RetainableByteBuffer buffer = _retainableByteBuffer;
+        if (buffer != null && buffer.isEmpty())
         {
             if (LOG.isDebugEnabled())
                 LOG.debug("releaseRequestBuffer {}", this);
-            ByteBuffer buffer = _requestBuffer;
-            _requestBuffer = null;
-            _bufferPool.release(buffer);
+            _retainableByteBuffer = null;
+            buffer.release();
         }
     }
 
-    public ByteBuffer getRequestBuffer()
+    /**
+     * <p>Retains the request buffer, if it is the given buffer, until the request is completed.</p>
+     * <p>This method is called when lazy request field values reference the bytes of the
+     * request buffer: as a retained buffer is not filled again, they remain valid.</p>
+     *
+     * @param buffer the buffer referenced by the request field values
+     */
+    void retainRequestBuffer(ByteBuffer buffer)
+    {
+        RetainableByteBuffer requestBuffer = _retainableByteBuffer;
+        if (requestBuffer != null && requestBuffer.getBuffer() == buffer)
+        {
+            requestBuffer.retain();
+            synchronized (_retainedRequestBuffers)
+            {
+                _retainedRequestBuffers.add(requestBuffer);
+            }
+        }
+    }
+
+    private void releaseRetainedRequestBuffers()
+    {
+        // Called by onCompleted(), possibly by a thread other than the parsing one.
+        synchronized (_retainedRequestBuffers)
+        {
+            for (int i = 0; i < _retainedRequestBuffers.size(); i++)
+            {
+                _retainedRequestBuffers.get(i).release();
+            }
+            _retainedRequestBuffers.clear();
+        }
+    }
+
+    /**
+     * <p>Converts the lazy values of the request fields, if any, to Strings, so that
+     * the fields remain valid after the retained request buffers are released.</p>
+     */
+    private void resolveLazyFieldValues()
     {
-        if (_requestBuffer == null)
+        synchronized (_retainedRequestBuffers)
+        {
+            if (_retainedRequestBuffers.isEmpty())
+                return;
+        }
+        HttpFields fields = _channel.getRequest().getHttpFields();
+        if (fields != null)
         {
-            boolean useDirectByteBuffers = isUseInputDirectByteBuffers();
-            _requestBuffer = _bufferPool.acquire(getInputBufferSize(), useDirectByteBuffers);
+            for (HttpField field : fields)
+            {
+                field.getValue();
+            }
         }
-        return _requestBuffer;
+    }
+
+    public ByteBuffer getRequestBuffer()
+    {
+        if (_retainableByteBuffer == null)
+            _retainableByteBuffer = newRequestBuffer();
+        return _retainableByteBuffer.getBuffer();
+    }
+
+    private RetainableByteBuffer newRequestBuffer()
+    {
+        return new RetainableByteBuffer(_bufferPool, getFillBufferSize(), isUseInputDirectByteBuffers());
     }
 
     public boolean isRequestBufferEmpty()
     {
-        return BufferUtil.isEmpty(_requestBuffer);
+        RetainableByteBuffer buffer = _retainableByteBuffer;
+        return buffer == null || buffer.isEmpty();
+    }
+
+    private String requestBufferToDetailString()
+    {
+        RetainableByteBuffer buffer = _retainableByteBuffer;
+        return buffer == null ? "null" : buffer.toString();
     }
 
     @Override
     public void onFillable()
     {
         if (LOG.isDebugEnabled())
-            LOG.debug("{} onFillable enter {} {}", this, _channel.getState(), BufferUtil.toDetailString(_requestBuffer));
+            LOG.debug("{} onFillable enter {} {}", this, _channel.getState(), requestBufferToDetailString());
 
         HttpConnection last = setCurrentConnection(this);
         try
@@ -311,7 +391,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         {
             setCurrentConnection(last);
             if (LOG.isDebugEnabled())
-                LOG.debug("{} onFillable exit {} {}", this, _channel.getState(), BufferUtil.toDetailString(_requestBuffer));
+                LOG.debug("{} onFillable exit {} {}", this, _channel.getState(), requestBufferToDetailString());
         }
     }
 
@@ -335,32 +415,43 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
     private int fillRequestBuffer()
     {
-        if (_contentBufferReferences.get() > 0)
+        if (isRequestBufferEmpty())
         {
-            LOG.warn("{} fill with unconsumed content!", this);
-            return 0;
-        }
+            // If the buffer is still referenced by unconsumed content, don't
+            // fill into it as that would overwrite the content: release our
+            // reference and fill a new buffer; the old one is returned to the
+            // pool when the application has consumed the content.
+            RetainableByteBuffer current = _retainableByteBuffer;
+            if (current != null && current.getReferences() > 1)
+            {
+                _retainableByteBuffer = null;
+                current.release();
+                if (LOG.isDebugEnabled())
+                    LOG.debug("{} released retained {}", this, current);
+            }
 
-        if (BufferUtil.isEmpty(_requestBuffer))
-        {
             // Get a buffer
             // We are not in a race here for the request buffer as we have not yet received a request,
             // so there are not an possible legal threads calling #parseContent or #completed.
-            _requestBuffer = getRequestBuffer();
+            ByteBuffer requestBuffer = getRequestBuffer();
+            int space = AdaptiveBufferSize.fillSpace(requestBuffer);
 
             // fill
             try
             {
-                int filled = getEndPoint().fill(_requestBuffer);
+                int filled = getEndPoint().fill(requestBuffer);
                 if (filled == 0) // Do a retry on fill 0 (optimization for SSL connections)
-                    filled = getEndPoint().fill(_requestBuffer);
+                    filled = getEndPoint().fill(requestBuffer);
+                onFilled(filled, space);
+                if (filled > 0 && _trace != null)
+                    _trace.onFill(getEndPoint());
 
                 // tell parser
                 if (filled < 0)
                     _parser.atEOF();
 
                 if (LOG.isDebugEnabled())
-                    LOG.debug("{} filled {} {}", this, filled, BufferUtil.toDetailString(_requestBuffer));
+                    LOG.debug("{} filled {} {}", this, filled, requestBufferToDetailString());
 
                 return filled;
             }
@@ -377,16 +468,17 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     private boolean parseRequestBuffer()
     {
         if (LOG.isDebugEnabled())
-            LOG.debug("{} parse {}", this, BufferUtil.toDetailString(_requestBuffer));
+            LOG.debug("{} parse {}", this, requestBufferToDetailString());
 
-        boolean handle = _parser.parseNext(_requestBuffer == null ? BufferUtil.EMPTY_BUFFER : _requestBuffer);
+        RetainableByteBuffer buffer = _retainableByteBuffer;
+        boolean handle = _parser.parseNext(buffer == null ? BufferUtil.EMPTY_BUFFER : buffer.getBuffer());
 
         if (LOG.isDebugEnabled())
             LOG.debug("{} parsed {} {}", this, handle, _parser);
 
-        // recycle buffer ?
-        if (_contentBufferReferences.get() == 0)
-            releaseRequestBuffer();
+        // Release our reference to the buffer if it has been fully parsed,
+        // the content may still retain it until it has been consumed.
+        releaseRequestBuffer();
 
         return handle;
     }
@@ -399,21 +491,17 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
         if (LOG.isDebugEnabled())
             LOG.debug("Upgrade from {} to {}", this, connection);
+        // The new connection may use the request, for example to
+        // handle it over HTTP/2, after the request buffers are released.
+        resolveLazyFieldValues();
         _channel.getState().upgrade();
         getEndPoint().upgrade(connection);
         _channel.recycle();
         _parser.reset();
         _generator.reset();
-        if (_contentBufferReferences.get() == 0)
-        {
-            releaseRequestBuffer();
-        }
-        else
-        {
-            LOG.warn("{} lingering content references?!?!", this);
-            _requestBuffer = null; // Not returned to pool!
-            _contentBufferReferences.set(0);
-        }
+        // Lingering content, if any, still retains the buffer
+        // and will return it to the pool when it is consumed.
+        releaseRequestBuffer();
         return true;
     }
 
@@ -422,7 +510,10 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     {
         // Handle connection upgrades.
         if (upgrade())
+        {
+            releaseRetainedRequestBuffers();
             return;
+        }
 
         // Finish consuming the request
         // If we are still expecting
@@ -457,6 +548,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
         // Reset the channel, parsers and generator
         _channel.recycle();
+        releaseRetainedRequestBuffers();
         if (!_parser.isClosed())
         {
             if (_generator.isPersistent())
@@ -474,7 +566,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             if (_parser.isStart())
             {
                 // if the buffer is empty
-                if (BufferUtil.isEmpty(_requestBuffer))
+                if (isRequestBufferEmpty())
                 {
                     // look for more data
                     fillInterested();
@@ -573,7 +665,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
     HttpInput.Content newContent(ByteBuffer c)
     {
-        return new Content(c);
+        return new Content(c, _retainableByteBuffer);
     }
 
     @Override
@@ -598,8 +690,16 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         LOG.debug("ignore push in {}", this);
     }
 
+    @Override
+    public void fillInterested()
+    {
+        releaseRequestBufferWhenIdle();
+        super.fillInterested();
+    }
+
     public void asyncReadFillInterested()
     {
+        releaseRequestBufferWhenIdle();
         getEndPoint().fillInterested(_asyncReadCallback);
     }
 
@@ -613,9 +713,16 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         // Thus the loop needs to register fill interest again.  However if 
         // the loop is woken up spuriously, then the register interest again
         // can result in a pending read exception, unless we use tryFillInterested.
+        releaseRequestBufferWhenIdle();
         getEndPoint().tryFillInterested(_blockingReadCallback);
     }
 
+    private void releaseRequestBufferWhenIdle()
+    {
+        if (_config.isReleaseRequestBufferWhenIdle())
+            releaseRequestBuffer();
+    }
+
     public void blockingReadFailure(Throwable e)
     {
         _blockingReadCallback.failed(e);
@@ -644,19 +751,27 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             _channel);
     }
 
-    private class Content extends HttpInput.Content
+    /**
+     * <p>Request content that retains the request buffer it is a slice of,
+     * and releases it when the content has been consumed.</p>
+     */
+    private static class Content extends HttpInput.Content
     {
-        public Content(ByteBuffer content)
+        private final RetainableByteBuffer _buffer;
+
+        public Content(ByteBuffer content, RetainableByteBuffer buffer)
         {
             super(content);
-            _contentBufferReferences.incrementAndGet();
+            _buffer = buffer;
+            if (buffer != null)
+                buffer.retain();
         }
 
         @Override
         public void succeeded()
         {
-            if (_contentBufferReferences.decrementAndGet() == 0)
-                releaseRequestBuffer();
+            if (_buffer != null)
+                _buffer.release();
         }
 
         @Override
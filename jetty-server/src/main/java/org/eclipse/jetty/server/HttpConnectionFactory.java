@@ -20,6 +20,7 @@ package org.eclipse.jetty.server;
 
 import java.util.Objects;
 
+import org.eclipse.jetty.http.HttpFieldCache;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
@@ -37,6 +38,7 @@ public class HttpConnectionFactory extends AbstractConnectionFactory implements
     private boolean _recordHttpComplianceViolations;
     private boolean _useInputDirectByteBuffers;
     private boolean _useOutputDirectByteBuffers;
+    private HttpFieldCache _sharedFieldCache;
 
     public HttpConnectionFactory()
     {
@@ -88,12 +90,42 @@ public class HttpConnectionFactory extends AbstractConnectionFactory implements
         _useOutputDirectByteBuffers = useOutputDirectByteBuffers;
     }
 
+    /**
+     * @return the header field cache shared by the connections of this factory, or null
+     * @see HttpConfiguration#setSharedHeaderCacheSize(int)
+     */
+    public HttpFieldCache getSharedFieldCache()
+    {
+        return _sharedFieldCache;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        int sharedHeaderCacheSize = _config.getSharedHeaderCacheSize();
+        if (sharedHeaderCacheSize > 0)
+        {
+            _sharedFieldCache = new HttpFieldCache(sharedHeaderCacheSize);
+            addBean(_sharedFieldCache);
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        removeBean(_sharedFieldCache);
+        _sharedFieldCache = null;
+    }
+
     @Override
     public Connection newConnection(Connector connector, EndPoint endPoint)
     {
         HttpConnection connection = new HttpConnection(_config, connector, endPoint, isRecordHttpComplianceViolations());
         connection.setUseInputDirectByteBuffers(isUseInputDirectByteBuffers());
         connection.setUseOutputDirectByteBuffers(isUseOutputDirectByteBuffers());
+        connection.getParser().setSharedFieldCache(_sharedFieldCache);
         return configure(connection, connector, endPoint);
     }
 }
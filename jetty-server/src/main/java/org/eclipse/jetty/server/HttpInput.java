@@ -541,10 +541,12 @@ public class HttpInput extends ServletInputStream implements Runnable
 
                 if (LOG.isDebugEnabled())
                     LOG.debug("{} blocking for content timeout={}", this, timeout);
+                long begin = System.nanoTime();
                 if (timeout > 0)
                     _lock.await(timeout, TimeUnit.MILLISECONDS);
                 else
                     _lock.await();
+                _channelState.getHttpChannel().onBlocked(System.nanoTime() - begin);
 
                 loop = true;
             }
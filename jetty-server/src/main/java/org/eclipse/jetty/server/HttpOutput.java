@@ -1828,6 +1828,12 @@ public class HttpOutput extends ServletOutputStream implements Runnable
         {
             _channel = channel;
         }
+
+        @Override
+        protected void onBlocked(long nanos)
+        {
+            _channel.onBlocked(nanos);
+        }
     }
 
     private class WriteCompleteCB implements Callback
@@ -204,6 +204,8 @@ public class Request implements HttpServletRequest
     private String _method;
     private String _pathInContext;
     private ServletPathMapping _servletPathMapping;
+    private ServletPathMapping _lastServletPathMapping;
+    private RequestAccounting.Usage _usage;
     private boolean _secure;
     private String _asyncNotSupportedSource = null;
     private boolean _newContext;
@@ -232,6 +234,7 @@ public class Request implements HttpServletRequest
     private HttpSession _session;
     private SessionHandler _sessionHandler;
     private long _timeStamp;
+    private long _asyncSuspendedTimeStamp;
     private MultiPartFormInputStream _multiParts; //if the request is a multi-part mime
     private AsyncContextState _async;
     private List<Session> _sessions; //list of sessions used during lifetime of request
@@ -1537,6 +1540,16 @@ public class Request implements HttpServletRequest
         return _timeStamp;
     }
 
+    /**
+     * @return the time at which the request was suspended by the end of its initial
+     * asynchronous dispatch, or zero if it was not recorded
+     * @see #setAsyncSuspendedTimeStamp(long)
+     */
+    public long getAsyncSuspendedTimeStamp()
+    {
+        return _asyncSuspendedTimeStamp;
+    }
+
     public HttpURI getHttpURI()
     {
         return _uri;
@@ -1806,7 +1819,10 @@ public class Request implements HttpServletRequest
         _session = null;
         _sessionHandler = null;
         _scope = null;
+        _lastServletPathMapping = null;
+        _usage = null;
         _timeStamp = 0;
+        _asyncSuspendedTimeStamp = 0;
         _queryParameters = null;
         _contentParameters = null;
         _parameters = null;
@@ -2130,6 +2146,17 @@ public class Request implements HttpServletRequest
         _timeStamp = ts;
     }
 
+    /**
+     * <p>Records the time at which the request was suspended, so that handlers
+     * measuring the time spent suspended need not keep it per request.</p>
+     *
+     * @param ts the time in milliseconds at which the request was suspended
+     */
+    public void setAsyncSuspendedTimeStamp(long ts)
+    {
+        _asyncSuspendedTimeStamp = ts;
+    }
+
     public void setUserIdentityScope(UserIdentity.Scope scope)
     {
         _scope = scope;
@@ -2382,6 +2409,27 @@ public class Request implements HttpServletRequest
     public void setServletPathMapping(ServletPathMapping servletPathMapping)
     {
         _servletPathMapping = servletPathMapping;
+        if (servletPathMapping != null)
+            _lastServletPathMapping = servletPathMapping;
+    }
+
+    /**
+     * @return The last non null mapping set on this request, that is the mapping of the last servlet
+     * that handled the request, also after the request has left the servlet.
+     */
+    public ServletPathMapping getLastServletPathMapping()
+    {
+        return _lastServletPathMapping;
+    }
+
+    RequestAccounting.Usage getUsage()
+    {
+        return _usage;
+    }
+
+    void setUsage(RequestAccounting.Usage usage)
+    {
+        _usage = usage;
     }
 
     /**
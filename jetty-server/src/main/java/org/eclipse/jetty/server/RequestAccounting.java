@@ -0,0 +1,512 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A {@link HttpChannel.Listener} that accounts for the resources used by each request.</p>
+ * <p>For each request, the following {@link Usage} is measured:</p>
+ * <ul>
+ * <li>the CPU time of the threads that dispatched the request to the application</li>
+ * <li>the bytes allocated by the threads that dispatched the request to the application</li>
+ * <li>the time the request waited, after its headers were parsed, to be first dispatched</li>
+ * <li>the time the request was blocked reading request content or writing response content</li>
+ * <li>the time spent in the handlers</li>
+ * </ul>
+ * <p>CPU time and allocated bytes are measured with the {@link ThreadMXBean} of the JVM,
+ * and are only available if the JVM supports them; measuring them adds the cost of
+ * a few system calls to each dispatch.</p>
+ * <p>The usage of completed requests is recorded in histograms, aggregated per
+ * {@link ContextHandler context} and per servlet, that are exposed via JMX as {@link Account}s.
+ * The usage of each request may also be logged by {@link CustomRequestLog}.</p>
+ * <p><b>Usage:</b></p>
+ * <pre>
+ *   Server server = new Server();
+ *   server.addBean(new RequestAccounting(server));
+ *   ...
+ *   server.start();
+ * </pre>
+ */
+@ManagedObject("Accounts for the resources used by requests")
+public class RequestAccounting extends ContainerLifeCycle implements HttpChannel.Listener
+{
+    private static final Logger LOG = LoggerFactory.getLogger(RequestAccounting.class);
+
+    private final ConcurrentMap<String, Account> _contexts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Account> _servlets = new ConcurrentHashMap<>();
+    private final List<AbstractConnector> _connectors = new ArrayList<>();
+    private final Server _server;
+    private ThreadMXBean _threadMXBean;
+    private boolean _cpuTime;
+    private boolean _allocatedBytes;
+
+    public RequestAccounting(@Name("server") Server server)
+    {
+        _server = server;
+    }
+
+    public RequestAccounting(@Name("connectors") Connector... connectors)
+    {
+        this((Server)null);
+        for (Connector c : connectors)
+        {
+            if (c instanceof AbstractConnector)
+                _connectors.add((AbstractConnector)c);
+            else
+                LOG.warn("Connector {} is not an AbstractConnector. Requests not accounted", c);
+        }
+    }
+
+    /**
+     * @param request the request
+     * @return the usage of the given request, or null if the request is not accounted
+     */
+    public static Usage getUsage(Request request)
+    {
+        return request.getUsage();
+    }
+
+    @ManagedAttribute(value = "Whether the thread CPU time is measured", readonly = true)
+    public boolean isCpuTimeMeasured()
+    {
+        return _cpuTime;
+    }
+
+    @ManagedAttribute(value = "Whether the thread allocated bytes are measured", readonly = true)
+    public boolean isAllocatedBytesMeasured()
+    {
+        return _allocatedBytes;
+    }
+
+    /**
+     * @return the accounts of the contexts, indexed by context path
+     */
+    public Map<String, Account> getContextAccounts()
+    {
+        return Collections.unmodifiableMap(_contexts);
+    }
+
+    /**
+     * @return the accounts of the servlets, indexed by {@code servletName@contextPath}
+     */
+    public Map<String, Account> getServletAccounts()
+    {
+        return Collections.unmodifiableMap(_servlets);
+    }
+
+    @ManagedOperation(value = "Resets the accounts", impact = "ACTION")
+    public void reset()
+    {
+        _contexts.values().forEach(Account::reset);
+        _servlets.values().forEach(Account::reset);
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        _threadMXBean = ManagementFactory.getThreadMXBean();
+        _cpuTime = enableCpuTime(_threadMXBean);
+        _allocatedBytes = enableAllocatedBytes(_threadMXBean);
+        if (LOG.isDebugEnabled())
+            LOG.debug("{} cpuTime={} allocatedBytes={}", this, _cpuTime, _allocatedBytes);
+
+        if (_server != null)
+        {
+            for (Connector c : _server.getConnectors())
+            {
+                if (c instanceof AbstractConnector)
+                    _connectors.add((AbstractConnector)c);
+                else
+                    LOG.warn("Connector {} is not an AbstractConnector. Requests not accounted", c);
+            }
+        }
+        for (AbstractConnector c : _connectors)
+        {
+            c.addBean(this);
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        for (AbstractConnector c : _connectors)
+        {
+            c.removeBean(this);
+        }
+        if (_server != null)
+            _connectors.clear();
+    }
+
+    private static boolean enableCpuTime(ThreadMXBean threadMXBean)
+    {
+        try
+        {
+            if (!threadMXBean.isCurrentThreadCpuTimeSupported())
+                return false;
+            if (!threadMXBean.isThreadCpuTimeEnabled())
+                threadMXBean.setThreadCpuTimeEnabled(true);
+            return true;
+        }
+        catch (Throwable x)
+        {
+            LOG.warn("Cannot enable thread CPU time", x);
+            return false;
+        }
+    }
+
+    private static boolean enableAllocatedBytes(ThreadMXBean threadMXBean)
+    {
+        try
+        {
+            // Only available in JVMs that provide the jdk.management module.
+            if (!(threadMXBean instanceof com.sun.management.ThreadMXBean))
+                return false;
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean)threadMXBean;
+            if (!sunThreadMXBean.isThreadAllocatedMemorySupported())
+                return false;
+            if (!sunThreadMXBean.isThreadAllocatedMemoryEnabled())
+                sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+            return true;
+        }
+        catch (Throwable x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Cannot enable thread allocated bytes", x);
+            return false;
+        }
+    }
+
+    private long cpuTime()
+    {
+        return _cpuTime ? _threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long allocatedBytes()
+    {
+        return _allocatedBytes ? ((com.sun.management.ThreadMXBean)_threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    @Override
+    public void onRequestBegin(Request request)
+    {
+        request.setUsage(new Usage(System.nanoTime()));
+    }
+
+    @Override
+    public void onBeforeDispatch(Request request)
+    {
+        Usage usage = getUsage(request);
+        if (usage != null)
+            usage.beginDispatch(System.nanoTime(), cpuTime(), allocatedBytes());
+    }
+
+    @Override
+    public void onAfterDispatch(Request request)
+    {
+        Usage usage = getUsage(request);
+        if (usage != null)
+            usage.endDispatch(System.nanoTime(), cpuTime(), allocatedBytes(), request.getHttpChannel().getBlockedNanos());
+    }
+
+    @Override
+    public void onComplete(Request request)
+    {
+        Usage usage = getUsage(request);
+        if (usage == null)
+            return;
+        usage._blocked = request.getHttpChannel().getBlockedNanos();
+
+        ContextHandler.Context context = request.getErrorContext();
+        if (context == null)
+            return;
+        String contextPath = context.getContextHandler().getContextPath();
+        account(_contexts, contextPath).record(usage);
+
+        ServletPathMapping mapping = request.getLastServletPathMapping();
+        if (mapping != null && mapping.getServletName() != null)
+            account(_servlets, mapping.getServletName() + "@" + contextPath).record(usage);
+    }
+
+    private Account account(ConcurrentMap<String, Account> accounts, String name)
+    {
+        Account account = accounts.get(name);
+        if (account == null)
+        {
+            account = new Account(name);
+            Account existing = accounts.putIfAbsent(name, account);
+            if (existing != null)
+                return existing;
+            addBean(account);
+        }
+        return account;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,contexts=%d,servlets=%d}",
+            getClass().getSimpleName(),
+            hashCode(),
+            getState(),
+            _contexts.size(),
+            _servlets.size());
+    }
+
+    /**
+     * <p>The resources used by a request.</p>
+     * <p>Times are in nanoseconds; the CPU time and the allocated bytes are zero
+     * if the JVM does not support measuring them.</p>
+     */
+    public static class Usage
+    {
+        private final long _begin;
+        private long _wait = -1;
+        private long _handle;
+        private long _cpu;
+        private long _allocated;
+        private long _blocked;
+        private long _dispatchBegin;
+        private long _dispatchCpu;
+        private long _dispatchAllocated;
+
+        private Usage(long begin)
+        {
+            _begin = begin;
+        }
+
+        private void beginDispatch(long now, long cpu, long allocated)
+        {
+            if (_wait < 0)
+                _wait = now - _begin;
+            _dispatchBegin = now;
+            _dispatchCpu = cpu;
+            _dispatchAllocated = allocated;
+        }
+
+        private void endDispatch(long now, long cpu, long allocated, long blocked)
+        {
+            _handle += now - _dispatchBegin;
+            _cpu += cpu - _dispatchCpu;
+            _allocated += allocated - _dispatchAllocated;
+            _blocked = blocked;
+        }
+
+        /**
+         * @return the CPU time of the threads that dispatched the request
+         */
+        public long getCpuTime()
+        {
+            return _cpu;
+        }
+
+        /**
+         * @return the bytes allocated by the threads that dispatched the request
+         */
+        public long getAllocatedBytes()
+        {
+            return _allocated;
+        }
+
+        /**
+         * @return the time between the parsing of the request headers and the first dispatch
+         */
+        public long getWaitTime()
+        {
+            return Math.max(0, _wait);
+        }
+
+        /**
+         * @return the time blocked reading request content or writing response content
+         */
+        public long getBlockedTime()
+        {
+            return _blocked;
+        }
+
+        /**
+         * @return the time spent in the handlers
+         */
+        public long getHandleTime()
+        {
+            return _handle;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{cpu=%d,allocated=%d,wait=%d,blocked=%d,handle=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getCpuTime(),
+                getAllocatedBytes(),
+                getWaitTime(),
+                getBlockedTime(),
+                getHandleTime());
+        }
+    }
+
+    /**
+     * <p>The histograms of the resources used by the requests of a context or a servlet.</p>
+     * <p>Times are reported in microseconds.</p>
+     */
+    @ManagedObject("The resources used by the requests of a context or a servlet")
+    public static class Account
+    {
+        private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+
+        private final String _name;
+        private final HistogramStatistic _cpuTime = new HistogramStatistic(MAX_MICROS);
+        private final HistogramStatistic _allocatedBytes = new HistogramStatistic(Long.MAX_VALUE);
+        private final HistogramStatistic _waitTime = new HistogramStatistic(MAX_MICROS);
+        private final HistogramStatistic _blockedTime = new HistogramStatistic(MAX_MICROS);
+        private final HistogramStatistic _handleTime = new HistogramStatistic(MAX_MICROS);
+
+        private Account(String name)
+        {
+            _name = name;
+        }
+
+        private void record(Usage usage)
+        {
+            _cpuTime.record(TimeUnit.NANOSECONDS.toMicros(usage.getCpuTime()));
+            _allocatedBytes.record(usage.getAllocatedBytes());
+            _waitTime.record(TimeUnit.NANOSECONDS.toMicros(usage.getWaitTime()));
+            _blockedTime.record(TimeUnit.NANOSECONDS.toMicros(usage.getBlockedTime()));
+            _handleTime.record(TimeUnit.NANOSECONDS.toMicros(usage.getHandleTime()));
+        }
+
+        private void reset()
+        {
+            _cpuTime.reset();
+            _allocatedBytes.reset();
+            _waitTime.reset();
+            _blockedTime.reset();
+            _handleTime.reset();
+        }
+
+        @ManagedAttribute("The context path or the servletName@contextPath of this account")
+        public String getName()
+        {
+            return _name;
+        }
+
+        @ManagedAttribute("The number of requests accounted")
+        public long getRequests()
+        {
+            return _handleTime.getCount();
+        }
+
+        /**
+         * @return the histogram of the CPU time per request, in microseconds
+         */
+        public HistogramStatistic getCpuTimeHistogram()
+        {
+            return _cpuTime;
+        }
+
+        /**
+         * @return the histogram of the allocated bytes per request
+         */
+        public HistogramStatistic getAllocatedBytesHistogram()
+        {
+            return _allocatedBytes;
+        }
+
+        /**
+         * @return the histogram of the wait time per request, in microseconds
+         */
+        public HistogramStatistic getWaitTimeHistogram()
+        {
+            return _waitTime;
+        }
+
+        /**
+         * @return the histogram of the blocked time per request, in microseconds
+         */
+        public HistogramStatistic getBlockedTimeHistogram()
+        {
+            return _blockedTime;
+        }
+
+        /**
+         * @return the histogram of the handle time per request, in microseconds
+         */
+        public HistogramStatistic getHandleTimeHistogram()
+        {
+            return _handleTime;
+        }
+
+        @ManagedAttribute("The CPU time per request in microseconds")
+        public Map<String, Long> getCpuTime()
+        {
+            return _cpuTime.getPercentiles();
+        }
+
+        @ManagedAttribute("The bytes allocated per request")
+        public Map<String, Long> getAllocatedBytes()
+        {
+            return _allocatedBytes.getPercentiles();
+        }
+
+        @ManagedAttribute("The time waited before dispatch per request in microseconds")
+        public Map<String, Long> getWaitTime()
+        {
+            return _waitTime.getPercentiles();
+        }
+
+        @ManagedAttribute("The time blocked reading or writing content per request in microseconds")
+        public Map<String, Long> getBlockedTime()
+        {
+            return _blockedTime.getPercentiles();
+        }
+
+        @ManagedAttribute("The time spent in handlers per request in microseconds")
+        public Map<String, Long> getHandleTime()
+        {
+            return _handleTime.getPercentiles();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s,requests=%d}", getClass().getSimpleName(), hashCode(), _name, getRequests());
+        }
+    }
+}
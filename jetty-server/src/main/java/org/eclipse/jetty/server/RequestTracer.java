@@ -0,0 +1,421 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Traces a sample of requests, recording the time at which they reach each {@link Phase}.</p>
+ * <p>Each {@link HttpChannel} of the connectors this tracer is added to preallocates a {@link Trace},
+ * so that recording the phases of a request does not allocate. When the request headers are parsed,
+ * the request is sampled with a probability of {@code 1/sampleRate}; only the phases of sampled
+ * requests are timestamped.</p>
+ * <p>When a sampled request completes, its trace is copied to a preallocated ring buffer,
+ * that is written without locks and keeps the most recent traces. The traces can be
+ * dumped via JMX, or by a {@link org.eclipse.jetty.server.handler.RequestTraceHandler}.</p>
+ * <p>The selector wakeup phase is only available for connectors with {@link SocketChannelEndPoint}s,
+ * such as {@link ServerConnector}s, whose selectors only record their wakeup time when a tracer is
+ * added to the connector before it is started.</p>
+ * <p><b>Usage:</b></p>
+ * <pre>
+ *   Server server = new Server();
+ *   server.addBean(new RequestTracer(server));
+ *   ...
+ *   server.start();
+ * </pre>
+ */
+@ManagedObject("Traces the phases of a sample of requests")
+public class RequestTracer extends ContainerLifeCycle
+{
+    private static final Logger LOG = LoggerFactory.getLogger(RequestTracer.class);
+    private static final Phase[] PHASES = Phase.values();
+
+    /**
+     * <p>The phases of a request, in their usual order.</p>
+     */
+    public enum Phase
+    {
+        /**
+         * The selector woke up with the connection selected for reading.
+         */
+        WAKEUP,
+        /**
+         * The bytes that completed the request headers were read.
+         */
+        FILL,
+        /**
+         * The request headers were parsed.
+         */
+        PARSED,
+        /**
+         * A thread started handling the request.
+         */
+        DISPATCH,
+        /**
+         * The request was passed to the handlers.
+         */
+        HANDLE_START,
+        /**
+         * The handlers returned.
+         */
+        HANDLE_END,
+        /**
+         * The first response bytes were passed to the transport.
+         */
+        FIRST_WRITE,
+        /**
+         * The response headers were written.
+         */
+        COMMIT,
+        /**
+         * The request completed.
+         */
+        COMPLETE
+    }
+
+    private final AtomicLong _sequence = new AtomicLong();
+    private final LongAdder _sampled = new LongAdder();
+    private final LongAdder _dropped = new LongAdder();
+    private final List<AbstractConnector> _connectors = new ArrayList<>();
+    private final Server _server;
+    private volatile int _sampleRate = 100;
+    private int _capacity = 1024;
+    private Slot[] _slots;
+
+    public RequestTracer(@Name("server") Server server)
+    {
+        _server = server;
+    }
+
+    public RequestTracer(@Name("connectors") Connector... connectors)
+    {
+        this((Server)null);
+        for (Connector c : connectors)
+        {
+            if (c instanceof AbstractConnector)
+                _connectors.add((AbstractConnector)c);
+            else
+                LOG.warn("Connector {} is not an AbstractConnector. Requests not traced", c);
+        }
+    }
+
+    /**
+     * @return the rate at which requests are sampled: one request out of this many is traced
+     */
+    @ManagedAttribute("One request out of this many is traced")
+    public int getSampleRate()
+    {
+        return _sampleRate;
+    }
+
+    /**
+     * @param sampleRate the rate at which requests are sampled: one request out of this many is traced
+     */
+    public void setSampleRate(int sampleRate)
+    {
+        if (sampleRate <= 0)
+            throw new IllegalArgumentException("Invalid sample rate " + sampleRate);
+        _sampleRate = sampleRate;
+    }
+
+    /**
+     * @return the number of most recent traces kept
+     */
+    @ManagedAttribute("The number of most recent traces kept")
+    public int getCapacity()
+    {
+        return _capacity;
+    }
+
+    /**
+     * @param capacity the number of most recent traces kept, rounded up to a power of 2
+     */
+    public void setCapacity(int capacity)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        int highest = Integer.highestOneBit(capacity);
+        _capacity = highest == capacity ? capacity : highest << 1;
+    }
+
+    @ManagedAttribute(value = "The number of requests traced", readonly = true)
+    public long getSampled()
+    {
+        return _sampled.sum();
+    }
+
+    @ManagedAttribute(value = "The number of traces dropped because their slot was being written", readonly = true)
+    public long getDropped()
+    {
+        return _dropped.sum();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        Slot[] slots = new Slot[_capacity];
+        for (int i = 0; i < slots.length; ++i)
+        {
+            slots[i] = new Slot();
+        }
+        _slots = slots;
+
+        if (_server != null)
+        {
+            for (Connector c : _server.getConnectors())
+            {
+                if (c instanceof AbstractConnector)
+                    _connectors.add((AbstractConnector)c);
+                else
+                    LOG.warn("Connector {} is not an AbstractConnector. Requests not traced", c);
+            }
+        }
+        for (AbstractConnector c : _connectors)
+        {
+            c.addBean(this);
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        for (AbstractConnector c : _connectors)
+        {
+            c.removeBean(this);
+        }
+        if (_server != null)
+            _connectors.clear();
+    }
+
+    /**
+     * @return a new trace, to be reused for the requests of a {@link HttpChannel}
+     */
+    public Trace newTrace()
+    {
+        return new Trace();
+    }
+
+    /**
+     * @return the most recent traces, oldest first, one per line
+     */
+    @ManagedOperation(value = "Dumps the most recent traces", impact = "INFO")
+    public String dumpTraces()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (String trace : getTraces())
+        {
+            builder.append(trace).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * <p>Returns the most recent traces, oldest first.</p>
+     * <p>Each trace reports the request method, URI and response status, followed by
+     * the phases the request reached, with the time since the first phase in microseconds.</p>
+     *
+     * @return the most recent traces
+     */
+    public List<String> getTraces()
+    {
+        Slot[] slots = _slots;
+        if (slots == null)
+            return List.of();
+        long last = _sequence.get();
+        long first = Math.max(0, last - slots.length);
+        List<String> traces = new ArrayList<>();
+        long[] stamps = new long[PHASES.length];
+        for (long sequence = first; sequence < last; ++sequence)
+        {
+            String trace = slots[(int)(sequence & (slots.length - 1))].read(sequence, stamps);
+            if (trace != null)
+                traces.add(trace);
+        }
+        return traces;
+    }
+
+    private void record(Trace trace, Request request)
+    {
+        _sampled.increment();
+        Slot[] slots = _slots;
+        if (slots == null)
+            return;
+        long sequence = _sequence.getAndIncrement();
+        if (!slots[(int)(sequence & (slots.length - 1))].write(sequence, trace, request))
+            _dropped.increment();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,rate=%d,capacity=%d}", getClass().getSimpleName(), hashCode(), getState(), _sampleRate, _capacity);
+    }
+
+    /**
+     * <p>The timestamps of the phases of the requests of a {@link HttpChannel}.</p>
+     * <p>A trace is only used by one request at a time, and its methods are called
+     * by the threads that process the request, in sequence.</p>
+     */
+    public class Trace
+    {
+        private final long[] _stamps = new long[PHASES.length];
+        private long _wakeup;
+        private long _fill;
+        private boolean _sampled;
+
+        private Trace()
+        {
+        }
+
+        /**
+         * <p>Records the time bytes were read, in case they complete the headers of a request.</p>
+         *
+         * @param endPoint the endpoint bytes were read from
+         */
+        public void onFill(EndPoint endPoint)
+        {
+            _wakeup = endPoint instanceof SocketChannelEndPoint ? ((SocketChannelEndPoint)endPoint).getSelectedNanoTime() : 0;
+            _fill = System.nanoTime();
+        }
+
+        /**
+         * <p>Decides whether to sample the request whose headers were just parsed.</p>
+         */
+        void onParsed()
+        {
+            _sampled = ThreadLocalRandom.current().nextInt(_sampleRate) == 0;
+            if (_sampled)
+            {
+                _stamps[Phase.WAKEUP.ordinal()] = _wakeup;
+                _stamps[Phase.FILL.ordinal()] = _fill;
+                _stamps[Phase.PARSED.ordinal()] = System.nanoTime();
+            }
+        }
+
+        /**
+         * <p>Records the time the request first reached the given phase, if it is sampled.</p>
+         *
+         * @param phase the phase reached
+         */
+        void stamp(Phase phase)
+        {
+            if (_sampled && _stamps[phase.ordinal()] == 0)
+                _stamps[phase.ordinal()] = System.nanoTime();
+        }
+
+        /**
+         * <p>Records the trace of the completed request, if it is sampled, and resets this trace.</p>
+         *
+         * @param request the completed request
+         */
+        void onCompleted(Request request)
+        {
+            if (_sampled)
+            {
+                stamp(Phase.COMPLETE);
+                record(this, request);
+                _sampled = false;
+                Arrays.fill(_stamps, 0);
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{sampled=%b}", getClass().getSimpleName(), hashCode(), _sampled);
+        }
+    }
+
+    private static class Slot
+    {
+        // The sequence of the trace in this slot, or -1 while it is written, or MIN_VALUE if empty.
+        private final AtomicLong _sequence = new AtomicLong(Long.MIN_VALUE);
+        private final long[] _stamps = new long[PHASES.length];
+        private String _method;
+        private String _uri;
+        private int _status;
+
+        private boolean write(long sequence, Trace trace, Request request)
+        {
+            long previous = _sequence.get();
+            if (previous == -1 || !_sequence.compareAndSet(previous, -1))
+                return false;
+            System.arraycopy(trace._stamps, 0, _stamps, 0, _stamps.length);
+            _method = request.getMethod();
+            _uri = request.getRequestURI();
+            _status = request.getResponse().getStatus();
+            _sequence.set(sequence);
+            return true;
+        }
+
+        private String read(long sequence, long[] stamps)
+        {
+            if (_sequence.get() != sequence)
+                return null;
+            System.arraycopy(_stamps, 0, stamps, 0, stamps.length);
+            String method = _method;
+            String uri = _uri;
+            int status = _status;
+            // Order the reads above before the validation below.
+            VarHandle.acquireFence();
+            if (_sequence.get() != sequence)
+                return null;
+
+            long origin = Long.MAX_VALUE;
+            for (long stamp : stamps)
+            {
+                if (stamp != 0)
+                    origin = Math.min(origin, stamp);
+            }
+            StringBuilder builder = new StringBuilder();
+            builder.append('#').append(sequence).append(' ')
+                .append(method).append(' ')
+                .append(uri).append(' ')
+                .append(status);
+            for (Phase phase : PHASES)
+            {
+                long stamp = stamps[phase.ordinal()];
+                if (stamp != 0)
+                    builder.append(' ').append(phase).append('=').append(TimeUnit.NANOSECONDS.toMicros(stamp - origin));
+            }
+            return builder.toString();
+        }
+    }
+}
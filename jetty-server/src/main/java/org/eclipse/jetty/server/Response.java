@@ -55,6 +55,7 @@ import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http.PreEncodedHttpFields;
 import org.eclipse.jetty.io.RuntimeIOException;
 import org.eclipse.jetty.server.handler.ContextHandler.Context;
 import org.eclipse.jetty.server.session.SessionHandler;
@@ -1337,28 +1338,41 @@ public class Response implements HttpServletResponse
 
     public void putHeaders(HttpContent content, long contentLength, boolean etag)
     {
+        HttpField ct = content.getContentType();
+        boolean explicitCharset = ct != null &&
+            _characterEncoding != null &&
+            content.getCharacterEncoding() == null &&
+            content.getContentTypeValue() != null &&
+            __explicitCharset.contains(_encodingFrom);
+
+        // The fields of cached content may be pre-encoded together, in which
+        // case they are put in sequence so that they are generated as one block.
+        PreEncodedHttpFields block = explicitCharset ? null : content.getPreEncodedFields(etag);
+        if (block != null)
+        {
+            for (HttpField field : block)
+            {
+                _fields.put(field);
+            }
+            if (ct != null)
+            {
+                _contentType = ct.getValue();
+                _characterEncoding = content.getCharacterEncoding();
+                _mimeType = content.getMimeType();
+            }
+            putContentLength(content, contentLength);
+            return;
+        }
+
         HttpField lm = content.getLastModified();
         if (lm != null)
             _fields.put(lm);
 
-        if (contentLength == USE_KNOWN_CONTENT_LENGTH)
-        {
-            _fields.put(content.getContentLength());
-            _contentLength = content.getContentLengthValue();
-        }
-        else if (contentLength > NO_CONTENT_LENGTH)
-        {
-            _fields.putLongField(HttpHeader.CONTENT_LENGTH, contentLength);
-            _contentLength = contentLength;
-        }
+        putContentLength(content, contentLength);
 
-        HttpField ct = content.getContentType();
         if (ct != null)
         {
-            if (_characterEncoding != null &&
-                content.getCharacterEncoding() == null &&
-                content.getContentTypeValue() != null &&
-                __explicitCharset.contains(_encodingFrom))
+            if (explicitCharset)
             {
                 setContentType(MimeTypes.getContentTypeWithoutCharset(content.getContentTypeValue()));
             }
@@ -1383,6 +1397,20 @@ public class Response implements HttpServletResponse
         }
     }
 
+    private void putContentLength(HttpContent content, long contentLength)
+    {
+        if (contentLength == USE_KNOWN_CONTENT_LENGTH)
+        {
+            _fields.put(content.getContentLength());
+            _contentLength = content.getContentLengthValue();
+        }
+        else if (contentLength > NO_CONTENT_LENGTH)
+        {
+            _fields.putLongField(HttpHeader.CONTENT_LENGTH, contentLength);
+            _contentLength = contentLength;
+        }
+    }
+
     public static void putHeaders(HttpServletResponse response, HttpContent content, long contentLength, boolean etag)
     {
         long lml = content.getResource().lastModified();
@@ -39,6 +39,7 @@ import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.ManagedSelector;
 import org.eclipse.jetty.io.SelectorManager;
+import org.eclipse.jetty.io.SelectorWatchdog;
 import org.eclipse.jetty.io.SocketChannelEndPoint;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -227,6 +228,10 @@ public class ServerConnector extends AbstractNetworkConnector
     {
         for (EventListener l : getBeans(SelectorManager.SelectorManagerListener.class))
             _manager.addEventListener(l);
+        SelectorWatchdog watchdog = getBean(SelectorWatchdog.class);
+        if (watchdog != null)
+            _manager.addBean(watchdog, false);
+        _manager.setSelectedNanoTimeRecorded(getRequestTracer() != null);
 
         super.doStart();
 
@@ -245,6 +250,9 @@ public class ServerConnector extends AbstractNetworkConnector
         {
             _manager.removeEventListener(l);
         }
+        SelectorWatchdog watchdog = getBean(SelectorWatchdog.class);
+        if (watchdog != null)
+            _manager.removeBean(watchdog);
     }
 
     @Override
@@ -433,10 +441,31 @@ public class ServerConnector extends AbstractNetworkConnector
     protected SocketChannelEndPoint newEndPoint(SocketChannel channel, ManagedSelector selectSet, SelectionKey key) throws IOException
     {
         SocketChannelEndPoint endpoint = new SocketChannelEndPoint(channel, selectSet, key, getScheduler());
+        endpoint.setSwept(_manager.getIdleSweepPeriod() > 0);
         endpoint.setIdleTimeout(getIdleTimeout());
         return endpoint;
     }
 
+    /**
+     * @return the period in milliseconds of the idle timeout sweep of each selector
+     * @see SelectorManager#getIdleSweepPeriod()
+     */
+    @ManagedAttribute("The period of the idle timeout sweep of each selector (ms)")
+    public long getIdleSweepPeriod()
+    {
+        return _manager.getIdleSweepPeriod();
+    }
+
+    /**
+     * @param idleSweepPeriod the period in milliseconds of the idle timeout sweep of each selector,
+     * or zero if each endpoint schedules its own idle timeout checks
+     * @see SelectorManager#setIdleSweepPeriod(long)
+     */
+    public void setIdleSweepPeriod(long idleSweepPeriod)
+    {
+        _manager.setIdleSweepPeriod(idleSweepPeriod);
+    }
+
     /**
      * @return the accept queue size
      */
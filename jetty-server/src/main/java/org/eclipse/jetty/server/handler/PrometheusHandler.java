@@ -0,0 +1,312 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.handler;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+import org.eclipse.jetty.util.statistic.Metrics;
+import org.eclipse.jetty.util.statistic.MetricsRegistry;
+import org.eclipse.jetty.util.thread.AutoLock;
+
+/**
+ * <p>A {@link HandlerWrapper} that exports metrics in the
+ * <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus text format</a>.</p>
+ * <p>When started, this handler publishes the {@link Metrics.Publisher} components of the server
+ * to its {@link MetricsRegistry}: the components of each connector, unless they are also
+ * beans of the server, are qualified by a {@code connector} label, whose value is the
+ * connector name or its index.
+ * Requests for the configured path, by default {@code /metrics}, are answered with
+ * the metrics of the registry, while other requests are handled by the wrapped handler.</p>
+ * <p>The metrics are not authenticated: unless a {@link #setConnectorName(String) connector name}
+ * is configured, they are answered to any client of any connector and virtual host, so it is
+ * recommended to export them on a connector that is only reachable from the monitoring systems.</p>
+ * <p>Histograms and timers are exported as summaries with the 0.5, 0.9, 0.99 and 0.999 quantiles.
+ * The sum and count of a summary are cumulative, while its quantiles are those of the last
+ * {@link #setQuantilesPeriod(long) period}: the histograms are {@link HistogramStatistic#roll() rolled}
+ * by the first request for the metrics after the end of each period, and their quantiles are
+ * {@code NaN} if no sample was recorded in the last period.</p>
+ */
+@ManagedObject("Exports metrics in the Prometheus text format")
+public class PrometheusHandler extends HandlerWrapper
+{
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final MetricsRegistry _registry;
+    private String _path = "/metrics";
+    private String _connectorName;
+    private final AutoLock _lock = new AutoLock();
+    private long _quantilesPeriod = TimeUnit.MINUTES.toMillis(1);
+    private long _rolledNanoTime;
+
+    public PrometheusHandler()
+    {
+        this(new MetricsRegistry());
+    }
+
+    public PrometheusHandler(MetricsRegistry registry)
+    {
+        _registry = registry;
+        addBean(registry);
+    }
+
+    public MetricsRegistry getRegistry()
+    {
+        return _registry;
+    }
+
+    /**
+     * @return the path of the requests answered with the metrics
+     */
+    @ManagedAttribute("The path of the requests answered with the metrics")
+    public String getPath()
+    {
+        return _path;
+    }
+
+    /**
+     * @param path the path of the requests answered with the metrics
+     */
+    public void setPath(String path)
+    {
+        _path = path;
+    }
+
+    /**
+     * @return the name of the connector whose requests are answered with the metrics,
+     * or null if the requests of all connectors are
+     */
+    @ManagedAttribute("The name of the connector whose requests are answered with the metrics")
+    public String getConnectorName()
+    {
+        return _connectorName;
+    }
+
+    /**
+     * @param connectorName the name of the connector whose requests are answered with the metrics,
+     * or null to answer the requests of all connectors
+     */
+    public void setConnectorName(String connectorName)
+    {
+        _connectorName = connectorName;
+    }
+
+    /**
+     * @return the period in milliseconds of the intervals whose quantiles are exported
+     */
+    @ManagedAttribute("The period in ms of the intervals whose quantiles are exported")
+    public long getQuantilesPeriod()
+    {
+        return _quantilesPeriod;
+    }
+
+    /**
+     * @param quantilesPeriod the period in milliseconds of the intervals whose quantiles
+     * are exported, or zero to export those of the interval since the previous request
+     * for the metrics
+     */
+    public void setQuantilesPeriod(long quantilesPeriod)
+    {
+        _quantilesPeriod = quantilesPeriod;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        Server server = getServer();
+        if (server != null)
+            publish(server);
+        super.doStart();
+        try (AutoLock l = _lock.lock())
+        {
+            roll(System.nanoTime());
+        }
+    }
+
+    private void publish(Server server)
+    {
+        Set<Metrics.Publisher> published = Collections.newSetFromMap(new IdentityHashMap<>());
+        // The beans of the server, such as the thread pool, may be shared by the connectors.
+        for (Metrics.Publisher publisher : server.getBeans(Metrics.Publisher.class))
+        {
+            if (published.add(publisher))
+                publisher.publish(_registry);
+        }
+        Connector[] connectors = server.getConnectors();
+        for (int i = 0; i < connectors.length; ++i)
+        {
+            Connector connector = connectors[i];
+            String name = connector.getName() == null ? String.valueOf(i) : connector.getName();
+            Metrics metrics = _registry.withLabel("connector", name);
+            for (Metrics.Publisher publisher : connector.getContainedBeans(Metrics.Publisher.class))
+            {
+                if (published.add(publisher))
+                    publisher.publish(metrics);
+            }
+        }
+        for (Metrics.Publisher publisher : server.getContainedBeans(Metrics.Publisher.class))
+        {
+            if (published.add(publisher))
+                publisher.publish(_registry);
+        }
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+    {
+        if (!_path.equals(target) || !isExportedTo(baseRequest))
+        {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+
+        baseRequest.setHandled(true);
+        response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        PrintWriter writer = response.getWriter();
+        try (AutoLock l = _lock.lock())
+        {
+            long now = System.nanoTime();
+            if (now - _rolledNanoTime >= TimeUnit.MILLISECONDS.toNanos(_quantilesPeriod))
+                roll(now);
+        }
+        for (MetricsRegistry.Family family : _registry.getFamilies())
+        {
+            write(writer, family);
+        }
+    }
+
+    private void roll(long now)
+    {
+        assert _lock.isHeldByCurrentThread();
+        _rolledNanoTime = now;
+        // The same histogram may be published more than once.
+        Set<HistogramStatistic> rolled = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (MetricsRegistry.Family family : _registry.getFamilies())
+        {
+            for (MetricsRegistry.Sample sample : family.getSamples())
+            {
+                HistogramStatistic histogram = sample.getHistogram();
+                if (histogram != null && rolled.add(histogram))
+                    histogram.roll();
+            }
+        }
+    }
+
+    private boolean isExportedTo(Request baseRequest)
+    {
+        if (_connectorName == null)
+            return true;
+        Connector connector = baseRequest.getHttpChannel().getConnector();
+        return connector != null && _connectorName.equals(connector.getName());
+    }
+
+    private void write(PrintWriter writer, MetricsRegistry.Family family)
+    {
+        String name = family.getName();
+        writer.append("# HELP ").append(name).append(' ').append(escape(family.getHelp(), false)).append('\n');
+        writer.append("# TYPE ").append(name).append(' ').append(StringUtil.asciiToLowerCase(family.getType().name())).append('\n');
+        for (MetricsRegistry.Sample sample : family.getSamples())
+        {
+            Map<String, String> labels = sample.getLabels();
+            HistogramStatistic histogram = sample.getHistogram();
+            if (histogram == null)
+            {
+                writeSample(writer, name, labels, null, String.valueOf(sample.getValue()));
+            }
+            else
+            {
+                double scale = sample.getScale();
+                HistogramStatistic.Interval interval = histogram.getLastInterval();
+                boolean empty = interval.getCount() == 0;
+                for (double quantile : QUANTILES)
+                {
+                    String value = empty ? "NaN" : format(interval.getValueAtPercentile(quantile * 100) * scale);
+                    writeSample(writer, name, labels, String.valueOf(quantile), value);
+                }
+                writeSample(writer, name + "_sum", labels, null, format(histogram.getTotal() * scale));
+                writeSample(writer, name + "_count", labels, null, String.valueOf(histogram.getCount()));
+            }
+        }
+    }
+
+    private void writeSample(PrintWriter writer, String name, Map<String, String> labels, String quantile, String value)
+    {
+        writer.append(name);
+        if (!labels.isEmpty() || quantile != null)
+        {
+            writer.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> label : labels.entrySet())
+            {
+                if (!first)
+                    writer.append(',');
+                first = false;
+                writer.append(label.getKey()).append("=\"").append(escape(label.getValue(), true)).append('"');
+            }
+            if (quantile != null)
+            {
+                if (!first)
+                    writer.append(',');
+                writer.append("quantile=\"").append(quantile).append('"');
+            }
+            writer.append('}');
+        }
+        writer.append(' ').append(value).append('\n');
+    }
+
+    private static String format(double value)
+    {
+        return value == Math.rint(value) ? String.valueOf((long)value) : String.valueOf(value);
+    }
+
+    private static String escape(String value, boolean quotes)
+    {
+        if (value == null)
+            return "";
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ++i)
+        {
+            char c = value.charAt(i);
+            if (c == '\\')
+                builder.append("\\\\");
+            else if (c == '\n')
+                builder.append("\\n");
+            else if (c == '"' && quotes)
+                builder.append("\\\"");
+            else
+                builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,87 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.handler;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.RequestTracer;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>A {@link HandlerWrapper} that dumps the most recent traces of a {@link RequestTracer}.</p>
+ * <p>Requests for the configured path, by default {@code /traces}, are answered with
+ * the traces in plain text, one per line, while other requests are handled by the wrapped handler.</p>
+ */
+@ManagedObject("Dumps the most recent request traces")
+public class RequestTraceHandler extends HandlerWrapper
+{
+    private final RequestTracer _tracer;
+    private String _path = "/traces";
+
+    public RequestTraceHandler(RequestTracer tracer)
+    {
+        _tracer = tracer;
+    }
+
+    public RequestTracer getRequestTracer()
+    {
+        return _tracer;
+    }
+
+    /**
+     * @return the path of the requests answered with the traces
+     */
+    @ManagedAttribute("The path of the requests answered with the traces")
+    public String getPath()
+    {
+        return _path;
+    }
+
+    /**
+     * @param path the path of the requests answered with the traces
+     */
+    public void setPath(String path)
+    {
+        _path = path;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+    {
+        if (!_path.equals(target))
+        {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+
+        baseRequest.setHandled(true);
+        response.setContentType("text/plain; charset=utf-8");
+        PrintWriter writer = response.getWriter();
+        for (String trace : _tracer.getTraces())
+        {
+            writer.append(trace).append('\n');
+        }
+    }
+}
@@ -19,7 +19,9 @@
 package org.eclipse.jetty.server.handler;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import javax.servlet.AsyncEvent;
@@ -39,22 +41,24 @@ import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.component.Graceful;
 import org.eclipse.jetty.util.statistic.CounterStatistic;
-import org.eclipse.jetty.util.statistic.SampleStatistic;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+import org.eclipse.jetty.util.statistic.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @ManagedObject("Request Statistics Gathering")
-public class StatisticsHandler extends HandlerWrapper implements Graceful
+public class StatisticsHandler extends HandlerWrapper implements Graceful, Metrics.Publisher
 {
     private static final Logger LOG = LoggerFactory.getLogger(StatisticsHandler.class);
     private final AtomicLong _statsStartedAt = new AtomicLong();
     private volatile Shutdown _shutdown;
 
     private final CounterStatistic _requestStats = new CounterStatistic();
-    private final SampleStatistic _requestTimeStats = new SampleStatistic();
+    private final HistogramStatistic _requestTimeStats = new HistogramStatistic();
     private final CounterStatistic _dispatchedStats = new CounterStatistic();
-    private final SampleStatistic _dispatchedTimeStats = new SampleStatistic();
+    private final HistogramStatistic _dispatchedTimeStats = new HistogramStatistic();
     private final CounterStatistic _asyncWaitStats = new CounterStatistic();
+    private final HistogramStatistic _asyncSuspendTimeStats = new HistogramStatistic();
 
     private final LongAdder _asyncDispatches = new LongAdder();
     private final LongAdder _expires = new LongAdder();
@@ -95,10 +99,12 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
             HttpChannelState state = ((AsyncContextEvent)event).getHttpChannelState();
 
             Request request = state.getBaseRequest();
-            final long elapsed = System.currentTimeMillis() - request.getTimeStamp();
+            final long now = System.currentTimeMillis();
+            final long elapsed = now - request.getTimeStamp();
 
             long numRequests = _requestStats.decrement();
             _requestTimeStats.record(elapsed);
+            _asyncSuspendTimeStats.record(now - request.getAsyncSuspendedTimeStamp());
 
             updateResponse(request);
 
@@ -126,6 +132,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         _dispatchedStats.reset();
         _dispatchedTimeStats.reset();
         _asyncWaitStats.reset();
+        _asyncSuspendTimeStats.reset();
 
         _asyncDispatches.reset();
         _expires.reset();
@@ -182,6 +189,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
             {
                 if (state.isAsyncStarted())
                 {
+                    baseRequest.setAsyncSuspendedTimeStamp(now);
                     state.addListener(_onCompletion);
                     _asyncWaitStats.increment();
                 }
@@ -361,6 +369,26 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         return _requestTimeStats.getStdDev();
     }
 
+    /**
+     * @return the count, mean, max and percentiles of the time (in milliseconds) of request handling
+     * since {@link #statsReset()} was last called.
+     * @see #getRequestTimeHistogram()
+     */
+    @ManagedAttribute("percentiles of the time spent handling requests (in ms)")
+    public Map<String, Long> getRequestTimePercentiles()
+    {
+        return _requestTimeStats.getPercentiles();
+    }
+
+    /**
+     * @return the histogram of the time (in milliseconds) of request handling,
+     * whose intervals can be rolled to report recent percentiles
+     */
+    public HistogramStatistic getRequestTimeHistogram()
+    {
+        return _requestTimeStats;
+    }
+
     /**
      * @return the number of dispatches seen by this handler
      * since {@link #statsReset()} was last called, excluding
@@ -438,6 +466,26 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         return _dispatchedTimeStats.getStdDev();
     }
 
+    /**
+     * @return the count, mean, max and percentiles of the time (in milliseconds) of request dispatch
+     * since {@link #statsReset()} was last called.
+     * @see #getDispatchedTimeHistogram()
+     */
+    @ManagedAttribute("percentiles of the time spent in dispatch handling (in ms)")
+    public Map<String, Long> getDispatchedTimePercentiles()
+    {
+        return _dispatchedTimeStats.getPercentiles();
+    }
+
+    /**
+     * @return the histogram of the time (in milliseconds) of request dispatch,
+     * whose intervals can be rolled to report recent percentiles
+     */
+    public HistogramStatistic getDispatchedTimeHistogram()
+    {
+        return _dispatchedTimeStats;
+    }
+
     /**
      * @return the number of requests handled by this handler
      * since {@link #statsReset()} was last called, including
@@ -470,6 +518,27 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         return (int)_asyncWaitStats.getMax();
     }
 
+    /**
+     * @return the count, mean, max and percentiles of the time (in milliseconds) async requests
+     * waited from the end of their initial dispatch until completion,
+     * since {@link #statsReset()} was last called.
+     * @see #getAsyncSuspendTimeHistogram()
+     */
+    @ManagedAttribute("percentiles of the time async requests waited to complete (in ms)")
+    public Map<String, Long> getAsyncSuspendTimePercentiles()
+    {
+        return _asyncSuspendTimeStats.getPercentiles();
+    }
+
+    /**
+     * @return the histogram of the time (in milliseconds) async requests waited
+     * from the end of their initial dispatch until completion
+     */
+    public HistogramStatistic getAsyncSuspendTimeHistogram()
+    {
+        return _asyncSuspendTimeStats;
+    }
+
     /**
      * @return the number of requests that have been asynchronously dispatched
      */
@@ -567,6 +636,29 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         return _responsesTotalBytes.longValue();
     }
 
+    @Override
+    public void publish(Metrics metrics)
+    {
+        metrics.counter("jetty_requests_total", "number of requests", this::getRequests);
+        metrics.gauge("jetty_requests_active", "number of requests currently active", this::getRequestsActive);
+        metrics.timer("jetty_request_time_seconds", "time spent handling requests", _requestTimeStats, TimeUnit.MILLISECONDS);
+        metrics.counter("jetty_dispatched_total", "number of dispatches", this::getDispatched);
+        metrics.gauge("jetty_dispatched_active", "number of dispatches currently active", this::getDispatchedActive);
+        metrics.timer("jetty_dispatched_time_seconds", "time spent in dispatch handling", _dispatchedTimeStats, TimeUnit.MILLISECONDS);
+        metrics.counter("jetty_async_requests_total", "number of async requests", this::getAsyncRequests);
+        metrics.gauge("jetty_async_requests_waiting", "number of async requests currently waiting", this::getAsyncRequestsWaiting);
+        metrics.timer("jetty_async_suspend_time_seconds", "time async requests waited to complete", _asyncSuspendTimeStats, TimeUnit.MILLISECONDS);
+        metrics.counter("jetty_async_dispatches_total", "number of requests asynchronously dispatched", this::getAsyncDispatches);
+        metrics.counter("jetty_expires_total", "number of async requests that expired", this::getExpires);
+        metrics.counter("jetty_errors_total", "number of async errors", this::getErrors);
+        metrics.withLabel("code", "1xx").counter("jetty_responses_total", "number of responses by status code", this::getResponses1xx);
+        metrics.withLabel("code", "2xx").counter("jetty_responses_total", "number of responses by status code", this::getResponses2xx);
+        metrics.withLabel("code", "3xx").counter("jetty_responses_total", "number of responses by status code", this::getResponses3xx);
+        metrics.withLabel("code", "4xx").counter("jetty_responses_total", "number of responses by status code", this::getResponses4xx);
+        metrics.withLabel("code", "5xx").counter("jetty_responses_total", "number of responses by status code", this::getResponses5xx);
+        metrics.counter("jetty_responses_bytes_total", "number of bytes across all responses", this::getResponsesBytesTotal);
+    }
+
     public String toStatsHTML()
     {
         StringBuilder sb = new StringBuilder();
@@ -582,6 +674,7 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         sb.append("Mean request time: ").append(getRequestTimeMean()).append("<br />\n");
         sb.append("Max request time: ").append(getRequestTimeMax()).append("<br />\n");
         sb.append("Request time standard deviation: ").append(getRequestTimeStdDev()).append("<br />\n");
+        sb.append("Request time percentiles: ").append(getRequestTimePercentiles()).append("<br />\n");
 
         sb.append("<h2>Dispatches:</h2>\n");
         sb.append("Total dispatched: ").append(getDispatched()).append("<br />\n");
@@ -591,10 +684,12 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         sb.append("Mean dispatched time: ").append(getDispatchedTimeMean()).append("<br />\n");
         sb.append("Max dispatched time: ").append(getDispatchedTimeMax()).append("<br />\n");
         sb.append("Dispatched time standard deviation: ").append(getDispatchedTimeStdDev()).append("<br />\n");
+        sb.append("Dispatched time percentiles: ").append(getDispatchedTimePercentiles()).append("<br />\n");
 
         sb.append("Total requests suspended: ").append(getAsyncRequests()).append("<br />\n");
         sb.append("Total requests expired: ").append(getExpires()).append("<br />\n");
         sb.append("Total requests resumed: ").append(getAsyncDispatches()).append("<br />\n");
+        sb.append("Async suspend time percentiles: ").append(getAsyncSuspendTimePercentiles()).append("<br />\n");
 
         sb.append("<h2>Responses:</h2>\n");
         sb.append("1xx responses: ").append(getResponses1xx()).append("<br />\n");
@@ -30,28 +30,41 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.http.HttpCompliance;
+import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpParser;
 import org.eclipse.jetty.http.MimeTypes;
 import org.eclipse.jetty.http.tools.HttpTester;
+import org.eclipse.jetty.io.AbstractConnection;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.logging.StacklessLogging;
 import org.eclipse.jetty.server.LocalConnector.LocalEndPoint;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.eclipse.jetty.server.handler.ErrorHandler;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.IO;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -59,11 +72,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.LoggerFactory;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
@@ -1382,6 +1397,426 @@ public class HttpConnectionTest
         }
     }
 
+    @Test
+    public void testRequestBufferReleasedWhenContentConsumedAsynchronously() throws Exception
+    {
+        CountingByteBufferPool bufferPool = new CountingByteBufferPool();
+
+        server.stop();
+        server = new Server();
+        connector = new LocalConnector(server, null, null, bufferPool, -1, new HttpConnectionFactory());
+        server.addConnector(connector);
+        CountDownLatch handleLatch = new CountDownLatch(1);
+        CountDownLatch contentLatch = new CountDownLatch(1);
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            {
+                baseRequest.setHandled(true);
+                AsyncContext asyncContext = request.startAsync();
+                handleLatch.countDown();
+                new Thread(() ->
+                {
+                    try
+                    {
+                        // The request buffer is retained by the
+                        // content until the application reads it.
+                        assertTrue(contentLatch.await(5, TimeUnit.SECONDS));
+                        String content = IO.toString(request.getInputStream());
+                        response.getWriter().print(content);
+                    }
+                    catch (Throwable x)
+                    {
+                        response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    }
+                    finally
+                    {
+                        asyncContext.complete();
+                    }
+                }).start();
+            }
+        });
+        server.start();
+
+        LocalEndPoint endPoint = connector.executeRequest("POST / HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Content-Length: 5\r\n" +
+            "Connection: close\r\n" +
+            "\r\n" +
+            "12345");
+        // The content has not been read by the application yet.
+        assertTrue(handleLatch.await(5, TimeUnit.SECONDS));
+        assertThat(bufferPool.getOutstanding(), greaterThan(0));
+        contentLatch.countDown();
+
+        String response = endPoint.getResponse();
+        assertThat(response, containsString("200 OK"));
+        assertThat(response, containsString("12345"));
+        endPoint.waitUntilClosed();
+        assertTrue(bufferPool.awaitReleased(0));
+    }
+
+    @Test
+    public void testIdlePersistentConnectionHoldsNoBuffer() throws Exception
+    {
+        CountingByteBufferPool bufferPool = new CountingByteBufferPool();
+        // The number of outstanding buffers each time the connection waits for fill interest.
+        BlockingQueue<Integer> fillInterests = new LinkedBlockingQueue<>();
+
+        server.stop();
+        server = new Server();
+        HttpConfiguration config = new HttpConfiguration();
+        config.setReleaseRequestBufferWhenIdle(true);
+        connector = new LocalConnector(server, null, null, bufferPool, -1, new HttpConnectionFactory(config)
+        {
+            @Override
+            public Connection newConnection(Connector connector, EndPoint endPoint)
+            {
+                return configure(new HttpConnection(getHttpConfiguration(), connector, endPoint, isRecordHttpComplianceViolations())
+                {
+                    @Override
+                    public void fillInterested()
+                    {
+                        super.fillInterested();
+                        fillInterests.offer(bufferPool.getOutstanding());
+                    }
+                }, connector, endPoint);
+            }
+        });
+        server.addConnector(connector);
+        server.setHandler(new DumpHandler());
+        server.start();
+
+        LocalEndPoint endPoint = connector.connect();
+        assertThat(fillInterests.poll(5, TimeUnit.SECONDS), is(0));
+
+        endPoint.addInputAndExecute(BufferUtil.toBuffer("POST /R1 HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Content-Length: 5\r\n" +
+            "\r\n" +
+            "12345"));
+        String response = endPoint.getResponse();
+        assertThat(response, containsString("200 OK"));
+
+        // The connection is open and waiting for the next request.
+        assertThat(fillInterests.poll(5, TimeUnit.SECONDS), is(0));
+        assertTrue(endPoint.isOpen());
+
+        // A partial request is parsed and the buffer released while waiting for the rest.
+        endPoint.addInputAndExecute(BufferUtil.toBuffer("GET /R2 HTTP/1.1\r\nHost: local"));
+        assertThat(fillInterests.poll(5, TimeUnit.SECONDS), is(0));
+
+        endPoint.addInputAndExecute(BufferUtil.toBuffer("host\r\nConnection: close\r\n\r\n"));
+        response = endPoint.getResponse();
+        assertThat(response, containsString("200 OK"));
+        endPoint.waitUntilClosed();
+        assertTrue(bufferPool.awaitReleased(0));
+    }
+
+    @Test
+    public void testAdaptiveInputBufferSize() throws Exception
+    {
+        connector.getConnectionFactory(HttpConnectionFactory.class).setAdaptiveInputBufferSize(true);
+        ConnectionStatistics statistics = new ConnectionStatistics();
+        connector.addBean(statistics);
+        statistics.start();
+
+        // Headers and content larger than the initial buffer size.
+        String value = "x".repeat(600);
+        String content = "y".repeat(3000);
+        LocalEndPoint endPoint = connector.executeRequest("POST /R1 HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Large: " + value + "\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "Content-Length: " + content.length() + "\r\n" +
+            "\r\n" +
+            content);
+        String response = endPoint.getResponse();
+        assertThat(response, containsString("200 OK"));
+        assertThat(response, containsString(value));
+        assertThat(response, containsString(content));
+
+        endPoint.addInputAndExecute(BufferUtil.toBuffer("GET /R2 HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Connection: close\r\n" +
+            "\r\n"));
+        response = endPoint.getResponse();
+        assertThat(response, containsString("200 OK"));
+        endPoint.waitUntilClosed();
+
+        assertThat(statistics.getInputBufferGrows(), greaterThan(0L));
+        assertThat(statistics.getInputBufferSizeMax(), lessThanOrEqualTo(8192L));
+    }
+
+    @Test
+    public void testWriteCoalescing() throws Exception
+    {
+        connector.getConnectionFactory(HttpConnectionFactory.class).setWriteCoalescingSize(1024);
+        server.stop();
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                OutputStream output = response.getOutputStream();
+                for (int i = 0; i < 10; ++i)
+                {
+                    output.write(("chunk" + i + ";").getBytes(StandardCharsets.US_ASCII));
+                    output.flush();
+                }
+            }
+        });
+        server.start();
+
+        LocalEndPoint endPoint = connector.executeRequest("GET / HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "Connection: close\r\n" +
+            "\r\n");
+        HttpTester.Response response = HttpTester.parseResponse(endPoint.getResponse());
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.getContent(), is("chunk0;chunk1;chunk2;chunk3;chunk4;chunk5;chunk6;chunk7;chunk8;chunk9;"));
+        endPoint.waitUntilClosed();
+
+        assertThat(endPoint.getCoalescedWrites(), greaterThan(0L));
+        assertThat(endPoint.getSavedWrites(), greaterThan(0L));
+    }
+
+    @Test
+    public void testLazyFieldValuesPipelined() throws Exception
+    {
+        CountingByteBufferPool bufferPool = new CountingByteBufferPool();
+        startLazyFieldValues(bufferPool, true, new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.getWriter().print("value=" + request.getHeader("X-Value"));
+            }
+        });
+
+        LocalEndPoint endPoint = connector.executeRequest("GET /one HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Value: one\r\n" +
+            "\r\n" +
+            "GET /two HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Value: two\r\n" +
+            "\r\n" +
+            "GET /three HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Value: three\r\n" +
+            "Connection: close\r\n" +
+            "\r\n");
+        assertThat(endPoint.getResponse(), containsString("value=one"));
+        assertThat(endPoint.getResponse(), containsString("value=two"));
+        assertThat(endPoint.getResponse(), containsString("value=three"));
+        endPoint.waitUntilClosed();
+        // The last retained buffer is released when the request completes, after the close.
+        assertTrue(bufferPool.awaitReleased(0));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testLazyFieldValuesWithAsyncContentRead(boolean delayDispatchUntilContent) throws Exception
+    {
+        CountingByteBufferPool bufferPool = new CountingByteBufferPool();
+        CountDownLatch handleLatch = new CountDownLatch(1);
+        startLazyFieldValues(bufferPool, delayDispatchUntilContent, new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            {
+                baseRequest.setHandled(true);
+                AsyncContext asyncContext = request.startAsync();
+                handleLatch.countDown();
+                new Thread(() ->
+                {
+                    try
+                    {
+                        String content = IO.toString(request.getInputStream());
+                        response.getWriter().print("value=" + request.getHeader("X-Value") + ",content=" + content);
+                    }
+                    catch (Throwable x)
+                    {
+                        response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    }
+                    finally
+                    {
+                        asyncContext.complete();
+                    }
+                }).start();
+            }
+        });
+
+        LocalEndPoint endPoint = connector.executeRequest("POST / HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Value: lazy\r\n" +
+            "Content-Length: 5\r\n" +
+            "Connection: close\r\n" +
+            "\r\n");
+        // The content arrives in another buffer, after the one that the lazy field values reference.
+        if (delayDispatchUntilContent)
+        {
+            // The handler is only called when the content arrives: wait for the
+            // connection to release the empty buffer it filled after the headers.
+            assertTrue(bufferPool.awaitReleased(1, 1));
+        }
+        else
+        {
+            assertTrue(handleLatch.await(5, TimeUnit.SECONDS));
+        }
+        endPoint.addInput("12345");
+
+        String response = endPoint.getResponse();
+        assertThat(response, containsString("200 OK"));
+        assertThat(response, containsString("value=lazy,content=12345"));
+        endPoint.waitUntilClosed();
+        assertTrue(bufferPool.awaitReleased(0));
+    }
+
+    @Test
+    public void testLazyFieldValuesWithUpgrade() throws Exception
+    {
+        CountingByteBufferPool bufferPool = new CountingByteBufferPool();
+        AtomicReference<HttpFields> upgradeFields = new AtomicReference<>();
+        startLazyFieldValues(bufferPool, true, new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            {
+                baseRequest.setHandled(true);
+                if (!"/upgrade".equals(target))
+                    return;
+                // The upgraded connection keeps using the request fields.
+                upgradeFields.set(baseRequest.getHttpFields());
+                response.setStatus(HttpServletResponse.SC_SWITCHING_PROTOCOLS);
+                EndPoint endPoint = baseRequest.getHttpChannel().getEndPoint();
+                request.setAttribute(HttpTransport.UPGRADE_CONNECTION_ATTRIBUTE, new AbstractConnection(endPoint, connector.getExecutor())
+                {
+                    @Override
+                    public void onFillable()
+                    {
+                    }
+                });
+            }
+        });
+
+        LocalEndPoint endPoint = connector.executeRequest("GET /upgrade HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Value: AAAAA\r\n" +
+            "\r\n");
+        assertThat(endPoint.getResponse(), containsString("101 Switching Protocols"));
+
+        // Reuse the released request buffer for a request with the same layout.
+        String response = connector.getResponse("GET /regular HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Value: BBBBB\r\n" +
+            "Connection: close\r\n" +
+            "\r\n");
+        assertThat(response, containsString("200 OK"));
+        assertThat(upgradeFields.get().get("X-Value"), is("AAAAA"));
+
+        endPoint.close();
+        endPoint.waitUntilClosed();
+        assertTrue(bufferPool.awaitReleased(0));
+    }
+
+    private void startLazyFieldValues(ByteBufferPool bufferPool, boolean delayDispatchUntilContent, Handler handler) throws Exception
+    {
+        server.stop();
+        server = new Server();
+        HttpConfiguration config = new HttpConfiguration();
+        config.setLazyRequestFieldValues(true);
+        config.setDelayDispatchUntilContent(delayDispatchUntilContent);
+        connector = new LocalConnector(server, null, null, bufferPool, -1, new HttpConnectionFactory(config));
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+    }
+
+    /**
+     * <p>A pool that counts the buffers that have been acquired and not yet released.</p>
+     * <p>Buffers may be released by other threads after a response has been received,
+     * so tests wait for the releases rather than sampling the count.</p>
+     */
+    private static class CountingByteBufferPool extends ArrayByteBufferPool
+    {
+        private final Object _lock = new Object();
+        private int _outstanding;
+        private int _released;
+
+        @Override
+        public ByteBuffer acquire(int size, boolean direct)
+        {
+            synchronized (_lock)
+            {
+                _outstanding++;
+            }
+            return super.acquire(size, direct);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer)
+        {
+            super.release(buffer);
+            synchronized (_lock)
+            {
+                _outstanding--;
+                _released++;
+                _lock.notifyAll();
+            }
+        }
+
+        public int getOutstanding()
+        {
+            synchronized (_lock)
+            {
+                return _outstanding;
+            }
+        }
+
+        public int getReleased()
+        {
+            synchronized (_lock)
+            {
+                return _released;
+            }
+        }
+
+        /**
+         * @param outstanding the maximum number of outstanding buffers to wait for
+         * @return whether at most the given number of buffers were outstanding within 5 seconds
+         */
+        public boolean awaitReleased(int outstanding) throws InterruptedException
+        {
+            return awaitReleased(outstanding, 0);
+        }
+
+        /**
+         * @param outstanding the maximum number of outstanding buffers to wait for
+         * @param released the minimum number of releases to wait for
+         * @return whether both conditions were met within 5 seconds
+         */
+        public boolean awaitReleased(int outstanding, int released) throws InterruptedException
+        {
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            synchronized (_lock)
+            {
+                while (_outstanding > outstanding || _released < released)
+                {
+                    long wait = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+                    if (wait <= 0)
+                        return false;
+                    _lock.wait(wait);
+                }
+                return true;
+            }
+        }
+    }
+
     private int checkContains(String s, int offset, String c)
     {
         assertThat(s.substring(offset), Matchers.containsString(c));
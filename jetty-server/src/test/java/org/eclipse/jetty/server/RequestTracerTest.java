@@ -0,0 +1,146 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.tools.HttpTester;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.RequestTraceHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestTracerTest
+{
+    private Server _server;
+    private LocalConnector _connector;
+    private RequestTracer _tracer;
+    private final Semaphore _completed = new Semaphore(0);
+
+    @BeforeEach
+    public void init() throws Exception
+    {
+        _server = new Server();
+        _connector = new LocalConnector(_server);
+        // The request completes after the response is sent.
+        _connector.addBean(new HttpChannel.Listener()
+        {
+            @Override
+            public void onComplete(Request request)
+            {
+                _completed.release();
+            }
+        });
+        _server.addConnector(_connector);
+        _tracer = new RequestTracer(_server);
+        _tracer.setSampleRate(1);
+        _tracer.setCapacity(3);
+        _server.addBean(_tracer);
+
+        RequestTraceHandler traceHandler = new RequestTraceHandler(_tracer);
+        traceHandler.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.getWriter().print("hello");
+            }
+        });
+        _server.setHandler(traceHandler);
+        _server.start();
+    }
+
+    @AfterEach
+    public void destroy() throws Exception
+    {
+        _server.stop();
+    }
+
+    @Test
+    public void testCapacityRoundedUp()
+    {
+        assertThat(_tracer.getCapacity(), is(4));
+    }
+
+    @Test
+    public void testTrace() throws Exception
+    {
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse("GET /path?q=1 HTTP/1.0\r\n\r\n"));
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertTrue(_completed.tryAcquire(5, TimeUnit.SECONDS));
+
+        List<String> traces = _tracer.getTraces();
+        assertThat(traces.size(), is(1));
+        String trace = traces.get(0);
+        assertThat(trace, startsWith("#0 GET /path 200 "));
+        for (RequestTracer.Phase phase : RequestTracer.Phase.values())
+        {
+            // The local connector has no selector.
+            if (phase != RequestTracer.Phase.WAKEUP)
+                assertThat(trace, containsString(" " + phase + "="));
+        }
+        assertThat(_tracer.getSampled(), is(1L));
+    }
+
+    @Test
+    public void testMostRecentTracesKept() throws Exception
+    {
+        for (int i = 0; i < 6; ++i)
+        {
+            HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse("GET /" + i + " HTTP/1.0\r\n\r\n"));
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+        }
+        assertTrue(_completed.tryAcquire(6, 5, TimeUnit.SECONDS));
+
+        List<String> traces = _tracer.getTraces();
+        assertThat(traces.size(), is(4));
+        // Requests may complete out of order, so only the sequence is checked.
+        for (int i = 0; i < 4; ++i)
+        {
+            assertThat(traces.get(i), startsWith("#" + (i + 2) + " GET /"));
+        }
+    }
+
+    @Test
+    public void testTraceHandler() throws Exception
+    {
+        _connector.getResponse("GET /path HTTP/1.0\r\n\r\n");
+        assertTrue(_completed.tryAcquire(5, TimeUnit.SECONDS));
+
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse("GET /traces HTTP/1.0\r\n\r\n"));
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertThat(response.get("Content-Type"), startsWith("text/plain"));
+        assertThat(response.getContent(), startsWith("#0 GET /path 200 "));
+    }
+}
@@ -32,12 +32,14 @@ import java.net.URISyntaxException;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.SelectorWatchdog;
 import org.eclipse.jetty.io.SocketChannelEndPoint;
 import org.eclipse.jetty.logging.StacklessLogging;
 import org.eclipse.jetty.server.handler.AbstractHandler;
@@ -51,8 +53,10 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
@@ -118,6 +122,32 @@ public class ServerConnectorTest
         }
     }
 
+    @Test
+    public void testSelectorWatchdog() throws Exception
+    {
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server, 1, 2);
+        connector.setPort(0);
+        SelectorWatchdog watchdog = new SelectorWatchdog();
+        connector.addBean(watchdog);
+        server.addConnector(connector);
+        server.setHandler(new HandlerList(new ReuseInfoHandler(), new DefaultHandler()));
+
+        try
+        {
+            server.start();
+            assertThat(watchdog.getSelectors(), is(2));
+
+            getResponse(toServerURI(connector));
+            assertThat(watchdog.getSelectLoopTimeHistogram().getCount(), greaterThan(0L));
+        }
+        finally
+        {
+            server.stop();
+        }
+        assertThat(watchdog.getSelectors(), is(0));
+    }
+
     @Test
     public void testReuseAddressDefault() throws Exception
     {
@@ -307,4 +337,39 @@ public class ServerConnectorTest
             assertThat(x.getMessage(), containsString("0.0.0.0:" + port));
         }
     }
+
+    @Test
+    public void testIdleSweep() throws Exception
+    {
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setIdleTimeout(500);
+        connector.setIdleSweepPeriod(100);
+        server.addConnector(connector);
+        server.start();
+        try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+        {
+            socket.setSoTimeout(5000);
+            InputStream input = socket.getInputStream();
+
+            long start = System.nanoTime();
+            while (connector.getConnectedEndPoints().isEmpty())
+            {
+                assertThat(System.nanoTime() - start, lessThan(TimeUnit.SECONDS.toNanos(5)));
+                Thread.sleep(10);
+            }
+            EndPoint endPoint = connector.getConnectedEndPoints().iterator().next();
+            assertTrue(((SocketChannelEndPoint)endPoint).isSwept());
+
+            // The idle connection is closed by the sweep.
+            assertEquals(-1, input.read());
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertThat(elapsed, greaterThanOrEqualTo(500L));
+            assertThat(elapsed, lessThan(2500L));
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
 }
@@ -0,0 +1,142 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.handler;
+
+import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.tools.HttpTester;
+import org.eclipse.jetty.io.ConnectionStatistics;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PrometheusHandlerTest
+{
+    private Server _server;
+    private LocalConnector _connector;
+    private PrometheusHandler _prometheusHandler;
+
+    @BeforeEach
+    public void init() throws Exception
+    {
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        threadPool.setName("qtp");
+        _server = new Server(threadPool);
+        _connector = new LocalConnector(_server);
+        _connector.setName("local");
+        _connector.addBean(new ConnectionStatistics());
+        _server.addConnector(_connector);
+
+        StatisticsHandler statisticsHandler = new StatisticsHandler();
+        statisticsHandler.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.setStatus(HttpStatus.NO_CONTENT_204);
+            }
+        });
+        _prometheusHandler = new PrometheusHandler();
+        _prometheusHandler.setHandler(statisticsHandler);
+        _server.setHandler(_prometheusHandler);
+        _server.start();
+    }
+
+    @AfterEach
+    public void destroy() throws Exception
+    {
+        _server.stop();
+    }
+
+    @Test
+    public void testMetrics() throws Exception
+    {
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse("GET / HTTP/1.0\r\n\r\n"));
+        assertEquals(HttpStatus.NO_CONTENT_204, response.getStatus());
+
+        response = HttpTester.parseResponse(_connector.getResponse("GET /metrics HTTP/1.0\r\n\r\n"));
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertThat(response.get("Content-Type"), startsWith("text/plain; version=0.0.4"));
+
+        String content = response.getContent();
+        assertThat(content, containsString("# TYPE jetty_requests_total counter\n"));
+        assertThat(content, containsString("\njetty_requests_total 1\n"));
+        assertThat(content, containsString("\njetty_responses_total{code=\"2xx\"} 1\n"));
+        assertThat(content, containsString("# TYPE jetty_request_time_seconds summary\n"));
+        assertThat(content, containsString("\njetty_request_time_seconds{quantile=\"0.99\"} "));
+        assertThat(content, containsString("\njetty_request_time_seconds_count 1\n"));
+        assertThat(content, containsString("\njetty_threadpool_threads_max{pool=\"qtp\"} " + ((QueuedThreadPool)_server.getThreadPool()).getMaxThreads() + "\n"));
+        assertThat(content, containsString("\njetty_connections{connector=\"local\"} "));
+        assertThat(content, containsString("\njetty_connections_opened_total{connector=\"local\"} "));
+        assertThat(content, containsString("\njetty_bufferpool_buffers{connector=\"local\",type=\"direct\"} "));
+    }
+
+    @Test
+    public void testQuantilesOfLastPeriod() throws Exception
+    {
+        _prometheusHandler.setQuantilesPeriod(0);
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse("GET / HTTP/1.0\r\n\r\n"));
+        assertEquals(HttpStatus.NO_CONTENT_204, response.getStatus());
+
+        response = HttpTester.parseResponse(_connector.getResponse("GET /metrics HTTP/1.0\r\n\r\n"));
+        String content = response.getContent();
+        assertThat(content, containsString("\njetty_request_time_seconds{quantile=\"0.99\"} "));
+        assertThat(content, not(containsString("\njetty_request_time_seconds{quantile=\"0.99\"} NaN\n")));
+        assertThat(content, containsString("\njetty_request_time_seconds_count 1\n"));
+
+        // No request in the last period, but the count is cumulative.
+        response = HttpTester.parseResponse(_connector.getResponse("GET /metrics HTTP/1.0\r\n\r\n"));
+        content = response.getContent();
+        assertThat(content, containsString("\njetty_request_time_seconds{quantile=\"0.99\"} NaN\n"));
+        assertThat(content, containsString("\njetty_request_time_seconds_count 1\n"));
+    }
+
+    @Test
+    public void testOtherPath() throws Exception
+    {
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse("GET /other HTTP/1.0\r\n\r\n"));
+        assertEquals(HttpStatus.NO_CONTENT_204, response.getStatus());
+    }
+
+    @Test
+    public void testConnectorName() throws Exception
+    {
+        _prometheusHandler.setConnectorName("other");
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse("GET /metrics HTTP/1.0\r\n\r\n"));
+        assertEquals(HttpStatus.NO_CONTENT_204, response.getStatus());
+
+        _prometheusHandler.setConnectorName("local");
+        response = HttpTester.parseResponse(_connector.getResponse("GET /metrics HTTP/1.0\r\n\r\n"));
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+    }
+}
@@ -646,6 +646,10 @@ public class StatisticsHandlerTest
         assertEquals(_statsHandler.getRequestTimeTotal(), _statsHandler.getRequestTimeMean(), 0.01);
 
         assertThat(_statsHandler.getDispatchedTimeTotal(), greaterThanOrEqualTo(dispatchTime * 3 / 4));
+
+        assertEquals(1, _statsHandler.getAsyncSuspendTimeHistogram().getCount());
+        assertThat(_statsHandler.getAsyncSuspendTimeHistogram().getMax(), greaterThanOrEqualTo(timeout * 3 / 4));
+        assertEquals(_statsHandler.getRequestTimeMax(), (long)_statsHandler.getRequestTimePercentiles().get("p99"));
     }
 
     @Test
@@ -30,6 +30,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.server.CustomRequestLog;
 import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.RequestAccounting;
 import org.eclipse.jetty.server.RequestLog;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.util.BlockingArrayQueue;
@@ -99,6 +100,42 @@ public class CustomRequestLogTest
         assertThat(log, Matchers.containsString("TestServlet"));
     }
 
+    @Test
+    public void testLogRequestUsage() throws Exception
+    {
+        RequestAccounting accounting = new RequestAccounting(_server);
+        _server.addBean(accounting);
+        testHandlerServerStart("Usage: %{cpu}Z %{alloc}Z %{wait}Z %{blocked}Z %{handle}Z");
+
+        _connector.getResponse("GET /context/servlet/info HTTP/1.0\n\n");
+        String log = _entries.poll(5, TimeUnit.SECONDS);
+        assertThat(log, Matchers.matchesPattern("Usage: \\d+ \\d+ \\d+ \\d+ \\d+"));
+
+        RequestAccounting.Account context = accounting.getContextAccounts().get("/context");
+        long start = System.nanoTime();
+        while (context == null || context.getRequests() < 1)
+        {
+            assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5, is(true));
+            Thread.sleep(10);
+            context = accounting.getContextAccounts().get("/context");
+        }
+        assertThat(context.getHandleTimeHistogram().getCount(), is(1L));
+        assertThat(accounting.getServletAccounts().size(), is(1));
+        String servlet = accounting.getServletAccounts().keySet().iterator().next();
+        assertThat(servlet, Matchers.endsWith("@/context"));
+        assertThat(accounting.getServletAccounts().get(servlet).getRequests(), is(1L));
+    }
+
+    @Test
+    public void testLogRequestUsageNotAccounted() throws Exception
+    {
+        testHandlerServerStart("Usage: %{cpu}Z");
+
+        _connector.getResponse("GET /context/servlet/info HTTP/1.0\n\n");
+        String log = _entries.poll(5, TimeUnit.SECONDS);
+        assertThat(log, is("Usage: -"));
+    }
+
     class TestRequestLogWriter implements RequestLog.Writer
     {
         @Override
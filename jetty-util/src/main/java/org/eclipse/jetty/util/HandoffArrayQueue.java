@@ -0,0 +1,461 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A lock-free, bounded {@link BlockingQueue} backed by a circular array, that
+ * hands off elements directly to parked consumers.</p>
+ * <p>Elements are stored in a multi-producer multi-consumer array where producers
+ * and consumers claim slots by CAS on the tail and head indexes, so that neither
+ * {@link #offer(Object)} nor {@link #poll()} ever take a lock.</p>
+ * <p>Consumers that find the queue empty in {@link #take()} or {@link #poll(long, TimeUnit)}
+ * push themselves on a stack of waiters and park. {@link #offer(Object)} first tries to pop
+ * a waiter and pass it the element directly, unparking its thread, and only stores the
+ * element in the array if there are no waiters. Waiters are popped in LIFO order, so that
+ * the most recently active consumer threads are reused while the others may time out.</p>
+ * <p>Because of the direct handoff, elements are not guaranteed to be consumed in strict
+ * FIFO order while consumers are being woken up.</p>
+ * <p>The capacity is rounded up to a power of two; {@link #offer(Object)} returns false when
+ * the queue is full. Iteration is weakly consistent and the iterator does not support removal.</p>
+ * <p>This queue is suitable as the job queue of a {@link org.eclipse.jetty.util.thread.QueuedThreadPool}.</p>
+ *
+ * @param <E> The element type
+ */
+public class HandoffArrayQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    /**
+     * The head offset in the {@link #_indexes} array, displaced to avoid false sharing with the array length.
+     */
+    private static final int HEAD_OFFSET = MemoryUtils.getLongsPerCacheLine() - 1;
+    /**
+     * The tail offset in the {@link #_indexes} array, displaced by a cache line from the head to avoid false sharing with it.
+     */
+    private static final int TAIL_OFFSET = HEAD_OFFSET + MemoryUtils.getLongsPerCacheLine();
+    /**
+     * Handed to a waiter to wake it up without an element, so that it polls the array again.
+     */
+    private static final Object WAKEUP = new Object();
+    /**
+     * Set on a waiter that gave up waiting, so that no element is handed to it.
+     */
+    private static final Object CANCELLED = new Object();
+
+    private final AtomicLongArray _indexes = new AtomicLongArray(TAIL_OFFSET + 1);
+    private final AtomicReference<Waiter> _waiters = new AtomicReference<>();
+    private final LongAdder _handoffs = new LongAdder();
+    private final int _mask;
+    private final AtomicReferenceArray<E> _elements;
+    private final AtomicLongArray _sequences;
+
+    /**
+     * @param capacity the capacity of the queue, rounded up to a power of two
+     */
+    public HandoffArrayQueue(int capacity)
+    {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        _mask = size - 1;
+        _elements = new AtomicReferenceArray<>(size);
+        _sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i)
+        {
+            _sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return the capacity of this queue
+     */
+    public int getCapacity()
+    {
+        return _mask + 1;
+    }
+
+    /**
+     * @return the number of elements that have been handed off directly to a waiting consumer
+     */
+    public long getHandoffs()
+    {
+        return _handoffs.sum();
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        Objects.requireNonNull(e);
+        if (handoff(e))
+        {
+            _handoffs.increment();
+            return true;
+        }
+        if (!enqueue(e))
+            return false;
+        // A consumer may have started to wait after we looked for waiters,
+        // but before the element was stored: make sure it polls again.
+        handoff(WAKEUP);
+        return true;
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long nanos = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + nanos;
+        while (!offer(e))
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            nanos = deadline - System.nanoTime();
+            if (nanos <= 0)
+                return false;
+            LockSupport.parkNanos(this, Math.min(nanos, TimeUnit.MICROSECONDS.toNanos(100)));
+        }
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException
+    {
+        while (!offer(e))
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    @Override
+    public E poll()
+    {
+        return dequeue();
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return await(true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public E take() throws InterruptedException
+    {
+        return await(false, 0);
+    }
+
+    @Override
+    public E peek()
+    {
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = Math.min(_indexes.get(TAIL_OFFSET), head + getCapacity());
+        for (long index = head; index < tail; ++index)
+        {
+            E e = _elements.get(slot(index));
+            if (e != null)
+                return e;
+        }
+        return null;
+    }
+
+    @Override
+    public int size()
+    {
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = _indexes.get(TAIL_OFFSET);
+        return (int)Math.max(0, Math.min(tail - head, getCapacity()));
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        return getCapacity() - size();
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = Math.min(_indexes.get(TAIL_OFFSET), head + getCapacity());
+        List<E> elements = new ArrayList<>();
+        for (long index = head; index < tail; ++index)
+        {
+            E e = _elements.get(slot(index));
+            if (e != null)
+                elements.add(e);
+        }
+        return Collections.unmodifiableList(elements).iterator();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        int drained = 0;
+        while (drained < maxElements)
+        {
+            E e = dequeue();
+            if (e == null)
+                break;
+            c.add(e);
+            ++drained;
+        }
+        return drained;
+    }
+
+    private int slot(long index)
+    {
+        return (int)(index & _mask);
+    }
+
+    private boolean enqueue(E e)
+    {
+        long tail = _indexes.get(TAIL_OFFSET);
+        while (true)
+        {
+            int slot = slot(tail);
+            long delta = _sequences.get(slot) - tail;
+            if (delta == 0)
+            {
+                if (_indexes.compareAndSet(TAIL_OFFSET, tail, tail + 1))
+                {
+                    _elements.lazySet(slot, e);
+                    _sequences.set(slot, tail + 1);
+                    return true;
+                }
+            }
+            else if (delta < 0)
+            {
+                // The slot has not been consumed yet, the queue is full.
+                return false;
+            }
+            tail = _indexes.get(TAIL_OFFSET);
+        }
+    }
+
+    private E dequeue()
+    {
+        long head = _indexes.get(HEAD_OFFSET);
+        while (true)
+        {
+            int slot = slot(head);
+            long delta = _sequences.get(slot) - (head + 1);
+            if (delta == 0)
+            {
+                if (_indexes.compareAndSet(HEAD_OFFSET, head, head + 1))
+                {
+                    E e = _elements.get(slot);
+                    _elements.lazySet(slot, null);
+                    _sequences.set(slot, head + _mask + 1);
+                    return e;
+                }
+            }
+            else if (delta < 0)
+            {
+                // The slot has not been produced yet, the queue is empty.
+                return null;
+            }
+            head = _indexes.get(HEAD_OFFSET);
+        }
+    }
+
+    private boolean handoff(Object item)
+    {
+        while (true)
+        {
+            Waiter waiter = pop();
+            if (waiter == null)
+                return false;
+            if (waiter.compareAndSet(null, item))
+            {
+                LockSupport.unpark(waiter._thread);
+                return true;
+            }
+            // The waiter was cancelled, try the next one.
+        }
+    }
+
+    private Waiter pop()
+    {
+        while (true)
+        {
+            Waiter head = _waiters.get();
+            if (head == null)
+                return null;
+            if (_waiters.compareAndSet(head, head._next))
+                return head;
+        }
+    }
+
+    private void push(Waiter waiter)
+    {
+        while (true)
+        {
+            Waiter head = _waiters.get();
+            if (head != null && head.get() == CANCELLED)
+            {
+                // Discard cancelled waiters on the way.
+                _waiters.compareAndSet(head, head._next);
+                continue;
+            }
+            waiter._next = head;
+            if (_waiters.compareAndSet(head, waiter))
+                return;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private E await(boolean timed, long nanos) throws InterruptedException
+    {
+        long deadline = timed ? System.nanoTime() + nanos : 0;
+        while (true)
+        {
+            E e = dequeue();
+            if (e != null)
+                return e;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (timed && nanos <= 0)
+                return null;
+
+            Waiter waiter = new Waiter(Thread.currentThread());
+            push(waiter);
+
+            // An element may have been stored before we were pushed.
+            e = dequeue();
+            if (e != null)
+            {
+                cancel(waiter);
+                return e;
+            }
+
+            while (true)
+            {
+                Object item = waiter.get();
+                if (item == WAKEUP)
+                    break;
+                if (item != null)
+                    return (E)item;
+
+                if (timed)
+                {
+                    nanos = deadline - System.nanoTime();
+                    if (nanos <= 0)
+                    {
+                        // If the cancel fails, take what was handed to us.
+                        if (waiter.compareAndSet(null, CANCELLED))
+                        {
+                            _waiters.compareAndSet(waiter, waiter._next);
+                            return null;
+                        }
+                        continue;
+                    }
+                    LockSupport.parkNanos(this, nanos);
+                }
+                else
+                {
+                    LockSupport.park(this);
+                }
+
+                if (Thread.interrupted())
+                {
+                    cancel(waiter);
+                    throw new InterruptedException();
+                }
+            }
+
+            if (timed)
+                nanos = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * <p>Cancels the given waiter, passing on anything that was handed to it.</p>
+     *
+     * @param waiter the waiter to cancel
+     */
+    @SuppressWarnings("unchecked")
+    private void cancel(Waiter waiter)
+    {
+        if (waiter.compareAndSet(null, CANCELLED))
+        {
+            _waiters.compareAndSet(waiter, waiter._next);
+            return;
+        }
+
+        Object item = waiter.get();
+        if (item == WAKEUP)
+        {
+            if (!isEmpty())
+                handoff(WAKEUP);
+        }
+        else
+        {
+            // An element was handed to us but will not be returned, offer it again.
+            _handoffs.decrement();
+            while (!offer((E)item))
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d/%d,handoffs=%d}",
+            getClass().getSimpleName(),
+            hashCode(),
+            size(),
+            getCapacity(),
+            getHandoffs());
+    }
+
+    private static class Waiter extends AtomicReference<Object>
+    {
+        private final Thread _thread;
+        private Waiter _next;
+
+        private Waiter(Thread thread)
+        {
+            _thread = thread;
+        }
+    }
+}
@@ -88,6 +88,15 @@ public class SharedBlockingCallback
             LOG.debug("Blocker not complete stacktrace", new Throwable());
     }
 
+    /**
+     * <p>Invoked by {@link Blocker#block()} after a thread had to wait for the callback to complete.</p>
+     *
+     * @param nanos the time the thread waited, in nanoseconds
+     */
+    protected void onBlocked(long nanos)
+    {
+    }
+
     /**
      * A Closeable Callback.
      * Uses the auto close mechanism to check block has been called OK.
@@ -183,9 +192,14 @@ public class SharedBlockingCallback
             _lock.lock();
             try
             {
-                while (_state == null)
+                if (_state == null)
                 {
-                    _complete.await();
+                    long begin = System.nanoTime();
+                    while (_state == null)
+                    {
+                        _complete.await();
+                    }
+                    onBlocked(System.nanoTime() - begin);
                 }
 
                 if (_state == SUCCEEDED)
@@ -0,0 +1,501 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.thread.AutoLock;
+
+/**
+ * <p>Statistics on a sampled value, recorded in a histogram.</p>
+ * <p>Provides count, total, mean, max, standard deviation and the value at any percentile
+ * of a sequence of non negative samples, since the last {@link #reset()}.</p>
+ * <p>Samples are counted in log-linear buckets, in the style of
+ * <a href="http://hdrhistogram.org/">HdrHistogram</a>: values below 128 have a bucket each,
+ * and each further power of two is divided in 64 buckets of equal width, so that
+ * the value reported for a percentile is within 1/64 (about 1.6%) of the exact value.</p>
+ * <p>Samples are recorded in the histogram of the current interval, which is ended by
+ * {@link #roll()}: the histogram of the ended interval is then available until the next
+ * roll, while a recycled histogram becomes current, so that rolling does not allocate.
+ * Like the {@code Recorder} of HdrHistogram, recording and rolling coordinate with a
+ * writer-reader phaser, so that recording a sample is lock-free and does not allocate,
+ * while rolling waits for the samples being recorded in the ended interval.</p>
+ * <p>The statistics computed while samples are recorded are weakly consistent with them.</p>
+ */
+public class HistogramStatistic
+{
+    /**
+     * The default max value, one hour in milliseconds, the unit of most latencies recorded by Jetty.
+     */
+    public static final long DEFAULT_MAX_VALUE = TimeUnit.HOURS.toMillis(1);
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AutoLock _lock = new AutoLock();
+    private final AtomicLong _startEpoch = new AtomicLong();
+    private final AtomicLong _evenEndEpoch = new AtomicLong();
+    private final AtomicLong _oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+    private final long _maxValue;
+    // The sum of the ended intervals since the last reset.
+    private final Interval _ended;
+    private volatile Interval _current;
+    private Interval _last;
+
+    /**
+     * <p>Creates a histogram for samples up to {@link #DEFAULT_MAX_VALUE}.</p>
+     */
+    public HistogramStatistic()
+    {
+        this(DEFAULT_MAX_VALUE);
+    }
+
+    /**
+     * <p>The number of buckets, and so the memory used and the time taken to compute
+     * percentiles, grows with the logarithm of the max value, by 64 buckets for each power of two.</p>
+     *
+     * @param maxValue the max value that can be recorded; larger samples are counted as this value
+     */
+    public HistogramStatistic(long maxValue)
+    {
+        if (maxValue <= 0)
+            throw new IllegalArgumentException("Invalid max value " + maxValue);
+        _maxValue = maxValue;
+        int buckets = index(maxValue) + 1;
+        _ended = new Interval(buckets);
+        _current = new Interval(buckets);
+        _last = new Interval(buckets);
+    }
+
+    /**
+     * @param value a value
+     * @return the index of the bucket counting the value
+     */
+    private static int index(long value)
+    {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int)(value >>> shift);
+    }
+
+    /**
+     * @param index a bucket index
+     * @return the lowest value counted by the bucket
+     */
+    private static long lowestValue(int index)
+    {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = index - (shift << SUB_BUCKET_BITS);
+        return subBucket << shift;
+    }
+
+    /**
+     * @param index a bucket index
+     * @return the highest value counted by the bucket
+     */
+    private static long highestValue(int index)
+    {
+        if (index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = index - (shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Resets the statistics, including the last ended interval.
+     */
+    public void reset()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            roll();
+            _ended.clear();
+            _last.clear();
+        }
+    }
+
+    /**
+     * Records a sample value.
+     *
+     * @param sample the value to record, negative values being recorded as 0.
+     */
+    public void record(long sample)
+    {
+        long value = Math.min(Math.max(0, sample), _maxValue);
+        long epoch = _startEpoch.getAndIncrement();
+        try
+        {
+            _current.record(value);
+        }
+        finally
+        {
+            (epoch < 0 ? _oddEndEpoch : _evenEndEpoch).getAndIncrement();
+        }
+    }
+
+    /**
+     * <p>Ends the current interval and starts a new one.</p>
+     * <p>The returned histogram is not modified until the next call to this method,
+     * when it is recycled as the histogram of the current interval.</p>
+     *
+     * @return the histogram of the interval just ended
+     */
+    public Interval roll()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            Interval ended = _current;
+            Interval next = _last;
+            next.clear();
+            _current = next;
+            flipPhase();
+            _ended.add(ended);
+            _last = ended;
+            return ended;
+        }
+    }
+
+    /**
+     * @return the histogram of the last interval ended by {@link #roll()}
+     */
+    public Interval getLastInterval()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _last;
+        }
+    }
+
+    /**
+     * <p>Waits for the samples being recorded in the current interval to be recorded,
+     * after having made the next interval current.</p>
+     */
+    private void flipPhase()
+    {
+        boolean nextPhaseIsEven = _startEpoch.get() < 0;
+        long initialEpoch = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+        (nextPhaseIsEven ? _evenEndEpoch : _oddEndEpoch).set(initialEpoch);
+        long startEpochAtFlip = _startEpoch.getAndSet(initialEpoch);
+        AtomicLong endEpoch = nextPhaseIsEven ? _oddEndEpoch : _evenEndEpoch;
+        while (endEpoch.get() != startEpochAtFlip)
+        {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return the max value of the recorded samples
+     */
+    public long getMax()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return Math.max(_ended.getMax(), _current.getMax());
+        }
+    }
+
+    /**
+     * @return the sum of all the recorded samples
+     */
+    public long getTotal()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _ended.getTotal() + _current.getTotal();
+        }
+    }
+
+    /**
+     * @return the number of samples recorded
+     */
+    public long getCount()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return _ended.getCount() + _current.getCount();
+        }
+    }
+
+    /**
+     * @return the average value of the samples recorded, or zero if there are no samples
+     */
+    public double getMean()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return mean(getTotal(), getCount());
+        }
+    }
+
+    /**
+     * @return the standard deviation of the samples recorded, computed from the buckets,
+     * or zero if there are less than 2 samples
+     */
+    public double getStdDev()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return stdDev(getMean(), _ended._buckets, _current._buckets);
+        }
+    }
+
+    /**
+     * <p>Returns the value below which the given percentage of the recorded samples fall.</p>
+     * <p>The value returned is the highest value counted by the bucket of that sample,
+     * but never larger than the max recorded sample.</p>
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the given percentile, or zero if there are no samples
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return valueAtPercentile(percentile, getMax(), _ended._buckets, _current._buckets);
+        }
+    }
+
+    /**
+     * @return the count, mean, max and the values at the 50th, 90th, 99th
+     * and 99.9th percentiles of the samples recorded, for reporting
+     */
+    public Map<String, Long> getPercentiles()
+    {
+        try (AutoLock l = _lock.lock())
+        {
+            return percentiles(getCount(), getMean(), getMax(), this::getValueAtPercentile);
+        }
+    }
+
+    private static double mean(long total, long count)
+    {
+        return count > 0 ? (double)total / count : 0.0D;
+    }
+
+    private static double stdDev(double mean, AtomicLongArray... buckets)
+    {
+        int length = buckets[0].length();
+        long count = 0;
+        double squares = 0;
+        for (int i = 0; i < length; ++i)
+        {
+            long n = 0;
+            for (AtomicLongArray b : buckets)
+            {
+                n += b.get(i);
+            }
+            if (n == 0)
+                continue;
+            count += n;
+            double delta = (lowestValue(i) + highestValue(i)) / 2.0D - mean;
+            squares += n * delta * delta;
+        }
+        return count > 1 ? Math.sqrt(squares / (count - 1)) : 0.0D;
+    }
+
+    private static long valueAtPercentile(double percentile, long max, AtomicLongArray... buckets)
+    {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Invalid percentile " + percentile);
+
+        int length = buckets[0].length();
+        long count = 0;
+        for (int i = 0; i < length; ++i)
+        {
+            for (AtomicLongArray b : buckets)
+            {
+                count += b.get(i);
+            }
+        }
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long)Math.ceil(count * percentile / 100.0D));
+        long seen = 0;
+        for (int i = 0; i < length; ++i)
+        {
+            for (AtomicLongArray b : buckets)
+            {
+                seen += b.get(i);
+            }
+            if (seen >= rank)
+                return Math.min(highestValue(i), max);
+        }
+        return max;
+    }
+
+    private static Map<String, Long> percentiles(long count, double mean, long max, Percentiles percentiles)
+    {
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("count", count);
+        result.put("mean", Math.round(mean));
+        result.put("p50", percentiles.getValueAtPercentile(50));
+        result.put("p90", percentiles.getValueAtPercentile(90));
+        result.put("p99", percentiles.getValueAtPercentile(99));
+        result.put("p999", percentiles.getValueAtPercentile(99.9));
+        result.put("max", max);
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{count=%d,mean=%.2f,p50=%d,p99=%d,max=%d}",
+            getClass().getSimpleName(),
+            hashCode(),
+            getCount(),
+            getMean(),
+            getValueAtPercentile(50),
+            getValueAtPercentile(99),
+            getMax());
+    }
+
+    private interface Percentiles
+    {
+        long getValueAtPercentile(double percentile);
+    }
+
+    /**
+     * <p>The histogram of the samples recorded during an interval.</p>
+     */
+    public static class Interval
+    {
+        private final LongAccumulator _max = new LongAccumulator(Math::max, 0L);
+        private final LongAdder _total = new LongAdder();
+        private final LongAdder _count = new LongAdder();
+        private final AtomicLongArray _buckets;
+
+        private Interval(int buckets)
+        {
+            _buckets = new AtomicLongArray(buckets);
+        }
+
+        private void record(long value)
+        {
+            _buckets.incrementAndGet(index(value));
+            _total.add(value);
+            _count.increment();
+            _max.accumulate(value);
+        }
+
+        private void add(Interval interval)
+        {
+            for (int i = 0; i < _buckets.length(); ++i)
+            {
+                long count = interval._buckets.get(i);
+                if (count > 0)
+                    _buckets.addAndGet(i, count);
+            }
+            _total.add(interval.getTotal());
+            _count.add(interval.getCount());
+            _max.accumulate(interval.getMax());
+        }
+
+        private void clear()
+        {
+            _max.reset();
+            _total.reset();
+            _count.reset();
+            for (int i = 0; i < _buckets.length(); ++i)
+            {
+                _buckets.set(i, 0);
+            }
+        }
+
+        /**
+         * @return the max value of the samples recorded in this interval
+         */
+        public long getMax()
+        {
+            return _max.get();
+        }
+
+        /**
+         * @return the sum of the samples recorded in this interval
+         */
+        public long getTotal()
+        {
+            return _total.sum();
+        }
+
+        /**
+         * @return the number of samples recorded in this interval
+         */
+        public long getCount()
+        {
+            return _count.sum();
+        }
+
+        /**
+         * @return the average value of the samples recorded in this interval, or zero if there are no samples
+         */
+        public double getMean()
+        {
+            return mean(getTotal(), getCount());
+        }
+
+        /**
+         * @return the standard deviation of the samples recorded in this interval
+         */
+        public double getStdDev()
+        {
+            return stdDev(getMean(), _buckets);
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100
+         * @return the value at the given percentile of the samples recorded in this interval
+         * @see HistogramStatistic#getValueAtPercentile(double)
+         */
+        public long getValueAtPercentile(double percentile)
+        {
+            return valueAtPercentile(percentile, getMax(), _buckets);
+        }
+
+        /**
+         * @return the count, mean, max and the values at the 50th, 90th, 99th
+         * and 99.9th percentiles of the samples recorded in this interval
+         */
+        public Map<String, Long> getPercentiles()
+        {
+            return percentiles(getCount(), getMean(), getMax(), this::getValueAtPercentile);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{count=%d,mean=%.2f,p50=%d,p99=%d,max=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getCount(),
+                getMean(),
+                getValueAtPercentile(50),
+                getValueAtPercentile(99),
+                getMax());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>A service provider interface for components to publish their metrics.</p>
+ * <p>Components that implement {@link Publisher} are given a {@code Metrics}
+ * instance, from which they obtain the instruments they update, and to which they
+ * register the values they already track, that are read only when the metrics are
+ * collected.</p>
+ * <p>Metrics have a name and a help text, and may be qualified by labels, see
+ * {@link #withLabel(String, String)}. Instruments obtained with the same name
+ * and labels are shared.</p>
+ * <p>Components hold the no-op implementations of the instruments, {@link #NOOP},
+ * until they are given another {@code Metrics} instance, so that when metrics are
+ * not collected, the calls to the instruments are inlined and eliminated by the JIT.</p>
+ *
+ * @see MetricsRegistry
+ */
+public interface Metrics
+{
+    /**
+     * The {@code Metrics} that does not collect metrics, and whose instruments do nothing.
+     */
+    Metrics NOOP = new Metrics()
+    {
+        @Override
+        public String toString()
+        {
+            return "Metrics.NOOP";
+        }
+    };
+
+    /**
+     * @param name the label name
+     * @param value the label value
+     * @return a {@code Metrics} that qualifies the metrics with the given label
+     */
+    default Metrics withLabel(String name, String value)
+    {
+        return this;
+    }
+
+    /**
+     * @param name the metric name
+     * @param help the metric help text
+     * @return a counter of events
+     */
+    default Counter counter(String name, String help)
+    {
+        return Counter.NOOP;
+    }
+
+    /**
+     * @param name the metric name
+     * @param help the metric help text
+     * @param count the supplier of a count of events, that only increases
+     */
+    default void counter(String name, String help, LongSupplier count)
+    {
+    }
+
+    /**
+     * @param name the metric name
+     * @param help the metric help text
+     * @param value the supplier of a value that may increase or decrease
+     */
+    default void gauge(String name, String help, LongSupplier value)
+    {
+    }
+
+    /**
+     * @param name the metric name
+     * @param help the metric help text
+     * @return a histogram of values
+     */
+    default Histogram histogram(String name, String help)
+    {
+        return Histogram.NOOP;
+    }
+
+    /**
+     * @param name the metric name
+     * @param help the metric help text
+     * @param histogram a histogram of values
+     */
+    default void histogram(String name, String help, HistogramStatistic histogram)
+    {
+    }
+
+    /**
+     * @param name the metric name
+     * @param help the metric help text
+     * @return a histogram of durations
+     */
+    default Timer timer(String name, String help)
+    {
+        return Timer.NOOP;
+    }
+
+    /**
+     * @param name the metric name
+     * @param help the metric help text
+     * @param histogram a histogram of durations
+     * @param unit the unit of the durations
+     */
+    default void timer(String name, String help, HistogramStatistic histogram, TimeUnit unit)
+    {
+    }
+
+    /**
+     * <p>A component that publishes its metrics.</p>
+     */
+    interface Publisher
+    {
+        /**
+         * <p>Publishes the metrics of this component.</p>
+         * <p>Instruments previously obtained from another {@code Metrics} are replaced.</p>
+         *
+         * @param metrics the metrics to publish to
+         */
+        void publish(Metrics metrics);
+    }
+
+    /**
+     * <p>A count of events.</p>
+     */
+    interface Counter
+    {
+        Counter NOOP = delta ->
+        {
+        };
+
+        default void increment()
+        {
+            add(1);
+        }
+
+        void add(long delta);
+    }
+
+    /**
+     * <p>A distribution of values.</p>
+     */
+    interface Histogram
+    {
+        Histogram NOOP = value ->
+        {
+        };
+
+        void record(long value);
+    }
+
+    /**
+     * <p>A distribution of durations.</p>
+     */
+    interface Timer
+    {
+        Timer NOOP = nanos ->
+        {
+        };
+
+        /**
+         * @param nanos the duration in nanoseconds
+         */
+        void record(long nanos);
+    }
+}
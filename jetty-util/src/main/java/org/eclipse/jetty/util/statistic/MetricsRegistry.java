@@ -0,0 +1,309 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jetty.util.component.Container;
+
+/**
+ * <p>A {@link Metrics} implementation that keeps the metrics in memory,
+ * so that they can be collected, for example to be exported.</p>
+ * <p>Counters are backed by {@link LongAdder}s, and histograms and timers by
+ * {@link HistogramStatistic}s; timers are reported in seconds.</p>
+ * <p>Registering a metric with the name and labels of an existing one replaces it,
+ * while obtaining an instrument with the name and labels of an existing one returns it.
+ * Registering a metric with the name of an existing metric of a different type fails,
+ * and so does obtaining an instrument with the name and labels of a registered metric
+ * that is not an instrument of the same kind.</p>
+ */
+public class MetricsRegistry implements Metrics
+{
+    private final ConcurrentMap<String, Family> _families = new ConcurrentHashMap<>();
+    private final Map<String, String> _labels;
+    private final MetricsRegistry _registry;
+
+    public MetricsRegistry()
+    {
+        this(null, Collections.emptyMap());
+    }
+
+    private MetricsRegistry(MetricsRegistry registry, Map<String, String> labels)
+    {
+        _registry = registry == null ? this : registry;
+        _labels = labels;
+    }
+
+    /**
+     * <p>Calls {@link Publisher#publish(Metrics)} with this registry on the given
+     * container and on all its contained beans that are {@link Publisher}s.</p>
+     *
+     * @param container the container of the components to publish
+     */
+    public void publish(Container container)
+    {
+        if (container instanceof Publisher)
+            ((Publisher)container).publish(this);
+        for (Publisher publisher : container.getContainedBeans(Publisher.class))
+        {
+            publisher.publish(this);
+        }
+    }
+
+    @Override
+    public Metrics withLabel(String name, String value)
+    {
+        Map<String, String> labels = new LinkedHashMap<>(_labels);
+        labels.put(name, value);
+        return new MetricsRegistry(_registry, Collections.unmodifiableMap(labels));
+    }
+
+    @Override
+    public Counter counter(String name, String help)
+    {
+        Sample sample = family(name, help, Type.COUNTER)._samples.computeIfAbsent(key(), k -> new CounterSample(_labels));
+        if (!(sample instanceof CounterSample))
+            throw new IllegalArgumentException("Metric " + name + _labels + " is not a counter instrument");
+        return (CounterSample)sample;
+    }
+
+    @Override
+    public void counter(String name, String help, LongSupplier count)
+    {
+        family(name, help, Type.COUNTER)._samples.put(key(), new Sample(_labels, count, null, 1.0D));
+    }
+
+    @Override
+    public void gauge(String name, String help, LongSupplier value)
+    {
+        family(name, help, Type.GAUGE)._samples.put(key(), new Sample(_labels, value, null, 1.0D));
+    }
+
+    @Override
+    public Histogram histogram(String name, String help)
+    {
+        return histogramSample(name, help, 1.0D, Long.MAX_VALUE);
+    }
+
+    @Override
+    public void histogram(String name, String help, HistogramStatistic histogram)
+    {
+        family(name, help, Type.SUMMARY)._samples.put(key(), new Sample(_labels, null, histogram, 1.0D));
+    }
+
+    @Override
+    public Timer timer(String name, String help)
+    {
+        return histogramSample(name, help, 1.0D / TimeUnit.SECONDS.toNanos(1), TimeUnit.HOURS.toNanos(1));
+    }
+
+    @Override
+    public void timer(String name, String help, HistogramStatistic histogram, TimeUnit unit)
+    {
+        double scale = 1.0D / unit.convert(1, TimeUnit.SECONDS);
+        family(name, help, Type.SUMMARY)._samples.put(key(), new Sample(_labels, null, histogram, scale));
+    }
+
+    /**
+     * @return the metric families, sorted by name
+     */
+    public List<Family> getFamilies()
+    {
+        return new ArrayList<>(new TreeMap<>(_registry._families).values());
+    }
+
+    private HistogramSample histogramSample(String name, String help, double scale, long maxValue)
+    {
+        Sample sample = family(name, help, Type.SUMMARY)._samples.computeIfAbsent(key(), k -> new HistogramSample(_labels, scale, maxValue));
+        // Histograms and timers are told apart by their scale.
+        if (!(sample instanceof HistogramSample) || sample.getScale() != scale)
+            throw new IllegalArgumentException("Metric " + name + _labels + " is not a " + (scale == 1.0D ? "histogram" : "timer") + " instrument");
+        return (HistogramSample)sample;
+    }
+
+    private Family family(String name, String help, Type type)
+    {
+        Family family = _registry._families.computeIfAbsent(name, n -> new Family(name, help, type));
+        if (family.getType() != type)
+            throw new IllegalArgumentException("Metric " + name + " is a " + family.getType());
+        return family;
+    }
+
+    private String key()
+    {
+        return _labels.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{labels=%s,families=%d}", getClass().getSimpleName(), hashCode(), _labels, _registry._families.size());
+    }
+
+    public enum Type
+    {
+        COUNTER, GAUGE, SUMMARY
+    }
+
+    /**
+     * <p>The metrics with the same name, each with different labels.</p>
+     */
+    public static class Family
+    {
+        private final ConcurrentMap<String, Sample> _samples = new ConcurrentHashMap<>();
+        private final String _name;
+        private final String _help;
+        private final Type _type;
+
+        private Family(String name, String help, Type type)
+        {
+            _name = name;
+            _help = help;
+            _type = type;
+        }
+
+        public String getName()
+        {
+            return _name;
+        }
+
+        public String getHelp()
+        {
+            return _help;
+        }
+
+        public Type getType()
+        {
+            return _type;
+        }
+
+        public Collection<Sample> getSamples()
+        {
+            return new TreeMap<>(_samples).values();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s,%s,samples=%d}", getClass().getSimpleName(), hashCode(), _name, _type, _samples.size());
+        }
+    }
+
+    /**
+     * <p>A metric with its labels, whose value is either a number,
+     * for counters and gauges, or a histogram, for summaries.</p>
+     */
+    public static class Sample
+    {
+        private final Map<String, String> _labels;
+        private final LongSupplier _value;
+        private final HistogramStatistic _histogram;
+        private final double _scale;
+
+        private Sample(Map<String, String> labels, LongSupplier value, HistogramStatistic histogram, double scale)
+        {
+            _labels = labels;
+            _value = value;
+            _histogram = histogram;
+            _scale = scale;
+        }
+
+        public Map<String, String> getLabels()
+        {
+            return _labels;
+        }
+
+        /**
+         * @return the value of a counter or gauge
+         */
+        public long getValue()
+        {
+            return _value == null ? 0 : _value.getAsLong();
+        }
+
+        /**
+         * @return the histogram of a summary, or null for counters and gauges
+         */
+        public HistogramStatistic getHistogram()
+        {
+            return _histogram;
+        }
+
+        /**
+         * @return the factor to multiply the values of the histogram by to convert them to the base unit
+         */
+        public double getScale()
+        {
+            return _scale;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s}", getClass().getSimpleName(), hashCode(), _labels);
+        }
+    }
+
+    private static class CounterSample extends Sample implements Counter
+    {
+        private final LongAdder _count;
+
+        private CounterSample(Map<String, String> labels)
+        {
+            this(labels, new LongAdder());
+        }
+
+        private CounterSample(Map<String, String> labels, LongAdder count)
+        {
+            super(labels, count::sum, null, 1.0D);
+            _count = count;
+        }
+
+        @Override
+        public void add(long delta)
+        {
+            _count.add(delta);
+        }
+    }
+
+    private static class HistogramSample extends Sample implements Histogram, Timer
+    {
+        private HistogramSample(Map<String, String> labels, double scale, long maxValue)
+        {
+            super(labels, null, new HistogramStatistic(maxValue), scale);
+        }
+
+        @Override
+        public void record(long value)
+        {
+            getHistogram().record(value);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -32,6 +33,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jetty.util.AtomicBiInteger;
 import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.HandoffArrayQueue;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -40,12 +42,26 @@ import org.eclipse.jetty.util.annotation.Name;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.DumpableCollection;
+import org.eclipse.jetty.util.statistic.Metrics;
 import org.eclipse.jetty.util.thread.ThreadPool.SizedThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * <p>A thread pool with a job queue, that grows and shrinks between a minimum and
+ * a maximum number of threads.</p>
+ * <p>When {@link #setUseVirtualThreads(boolean) configured} to use virtual threads and
+ * the JVM supports them, tasks that are {@link Invocable} with
+ * {@link Invocable.InvocationType#BLOCKING BLOCKING} invocation type are run in
+ * virtual threads, while all other tasks (for example selector and acceptor loops,
+ * non-blocking tasks and reserved threads) are run by the pooled platform threads.</p>
+ * <p>The job queue defaults to a {@link BlockingArrayQueue}. A {@link HandoffArrayQueue}
+ * may be passed to the constructors instead, so that jobs are queued without locks and
+ * handed off directly to parked idle threads; its capacity bounds the queue size in the
+ * same way.</p>
+ */
 @ManagedObject("A thread pool")
-public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactory, SizedThreadPool, Dumpable, TryExecutor
+public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactory, SizedThreadPool, Dumpable, TryExecutor, VirtualThreads.Configurable, Metrics.Publisher
 {
     private static final Logger LOG = LoggerFactory.getLogger(QueuedThreadPool.class);
     private static Runnable NOOP = () ->
@@ -73,6 +89,7 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     private int _maxThreads;
     private int _minThreads;
     private int _reservedThreads = -1;
+    private boolean _elasticReservedThreads;
     private TryExecutor _tryExecutor = TryExecutor.NO_TRY;
     private int _priority = Thread.NORM_PRIORITY;
     private boolean _daemon = false;
@@ -80,6 +97,9 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     private int _lowThreadsThreshold = 1;
     private ThreadPoolBudget _budget;
     private long _stopTimeout;
+    private boolean _useVirtualThreads;
+    private Executor _virtualThreadsExecutor;
+    private volatile Executor _virtualExecutor;
 
     public QueuedThreadPool()
     {
@@ -180,10 +200,24 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         {
             ReservedThreadExecutor reserved = new ReservedThreadExecutor(this, _reservedThreads);
             reserved.setIdleTimeout(_idleTimeout, TimeUnit.MILLISECONDS);
+            reserved.setElastic(_elasticReservedThreads);
             _tryExecutor = reserved;
         }
         addBean(_tryExecutor);
 
+        if (_useVirtualThreads)
+        {
+            Executor virtualExecutor = _virtualThreadsExecutor;
+            if (virtualExecutor == null)
+                virtualExecutor = VirtualThreads.getDefaultVirtualThreadsExecutor();
+            if (virtualExecutor == null)
+            {
+                LOG.warn("Virtual threads not supported, using platform threads for {}", this);
+                _useVirtualThreads = false;
+            }
+            _virtualExecutor = virtualExecutor;
+        }
+
         _lastShrink.set(System.nanoTime());
 
         super.doStart();
@@ -198,6 +232,8 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         if (LOG.isDebugEnabled())
             LOG.debug("Stopping {}", this);
 
+        _virtualExecutor = null;
+
         super.doStop();
 
         removeBean(_tryExecutor);
@@ -369,6 +405,30 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         _reservedThreads = reservedThreads;
     }
 
+    /**
+     * @return whether the number of reserved threads adapts to their usage
+     * @see #setElasticReservedThreads(boolean)
+     */
+    @ManagedAttribute("whether the number of reserved threads adapts to their usage")
+    public boolean isElasticReservedThreads()
+    {
+        return _elasticReservedThreads;
+    }
+
+    /**
+     * <p>Sets whether the number of reserved threads adapts to their usage,
+     * up to the number of {@link #getReservedThreads() reserved threads}.</p>
+     *
+     * @param elasticReservedThreads whether the number of reserved threads adapts to their usage
+     * @see ReservedThreadExecutor#setElastic(boolean)
+     */
+    public void setElasticReservedThreads(boolean elasticReservedThreads)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _elasticReservedThreads = elasticReservedThreads;
+    }
+
     /**
      * @param name Name of this thread pool to use when naming threads.
      */
@@ -499,6 +559,52 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         _detailedDump = detailedDump;
     }
 
+    /**
+     * @return whether blocking tasks are run in virtual threads
+     * @see #setUseVirtualThreads(boolean)
+     */
+    @Override
+    @ManagedAttribute("whether blocking tasks are run in virtual threads")
+    public boolean isUseVirtualThreads()
+    {
+        return _useVirtualThreads;
+    }
+
+    /**
+     * <p>Sets whether {@link Invocable} tasks with {@link Invocable.InvocationType#BLOCKING BLOCKING}
+     * invocation type are run in virtual threads.</p>
+     * <p>If the JVM does not support virtual threads and no
+     * {@link #setVirtualThreadsExecutor(Executor) virtual threads executor} has been
+     * configured, this setting is reset to false when this pool is started.</p>
+     *
+     * @param useVirtualThreads whether blocking tasks are run in virtual threads
+     */
+    @Override
+    public void setUseVirtualThreads(boolean useVirtualThreads)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * @return the executor used to run tasks in virtual threads, or null to use the JVM default
+     */
+    public Executor getVirtualThreadsExecutor()
+    {
+        return _virtualThreadsExecutor;
+    }
+
+    /**
+     * @param executor the executor used to run tasks in virtual threads, or null to use the JVM default
+     */
+    public void setVirtualThreadsExecutor(Executor executor)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _virtualThreadsExecutor = executor;
+    }
+
     @ManagedAttribute("threshold at which the pool is low on threads")
     public int getLowThreadsThreshold()
     {
@@ -513,6 +619,15 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     @Override
     public void execute(Runnable job)
     {
+        Executor virtualExecutor = _virtualExecutor;
+        if (virtualExecutor != null && VirtualThreads.isVirtualThreadTask(job))
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("execute virtual {}", job);
+            virtualExecutor.execute(job);
+            return;
+        }
+
         // Determine if we need to start a thread, use and idle thread or just queue this job
         int startThread;
         while (true)
@@ -560,6 +675,14 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
     @Override
     public boolean tryExecute(Runnable task)
     {
+        // A virtual thread is always available.
+        Executor virtualExecutor = _virtualExecutor;
+        if (virtualExecutor != null && VirtualThreads.isVirtualThreadTask(task))
+        {
+            virtualExecutor.execute(task);
+            return true;
+        }
+
         TryExecutor tryExecutor = _tryExecutor;
         return tryExecutor != null && tryExecutor.tryExecute(task);
     }
@@ -633,6 +756,17 @@ public class QueuedThreadPool extends ContainerLifeCycle implements ThreadFactor
         return getMaxThreads() - getThreads() + getIdleThreads() - getQueueSize() <= getLowThreadsThreshold();
     }
 
+    @Override
+    public void publish(Metrics metrics)
+    {
+        Metrics pool = metrics.withLabel("pool", getName());
+        pool.gauge("jetty_threadpool_threads", "number of threads in the pool", this::getThreads);
+        pool.gauge("jetty_threadpool_threads_idle", "number of idle threads in the pool", this::getIdleThreads);
+        pool.gauge("jetty_threadpool_threads_busy", "number of busy threads in the pool", this::getBusyThreads);
+        pool.gauge("jetty_threadpool_threads_max", "maximum number of threads in the pool", this::getMaxThreads);
+        pool.gauge("jetty_threadpool_queue_size", "size of the job queue", this::getQueueSize);
+    }
+
     private void ensureThreads()
     {
         while (true)
@@ -24,10 +24,13 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.eclipse.jetty.util.AtomicBiInteger;
 import org.eclipse.jetty.util.ProcessorUtils;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +44,13 @@ import org.slf4j.LoggerFactory;
  * wrapped {@link Executor} when an execution fails.  If the {@link #setIdleTimeout(long, TimeUnit)}
  * is set to non zero (default 1 minute), then the reserved thread pool will shrink by 1 thread
  * whenever it has been idle for that period.
+ * <p>If {@link #setElastic(boolean) elastic}, the number of threads that may be reserved
+ * starts at 1 and adapts to the hit rate of {@link #tryExecute(Runnable)}: it doubles, up to
+ * the capacity, when more than 1 in 8 calls fail over a window of 64 calls, and it
+ * decreases by 1, releasing an idle reserved thread, when no calls fail over a window.
+ * When the wrapped executor is a {@link ThreadPool} that is
+ * {@link ThreadPool#isLowOnThreads() low on threads}, reservations are given up: no new
+ * thread is reserved and the idle reserved threads are released back to the executor.
  */
 @ManagedObject("A pool for reserved threads")
 public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExecutor
@@ -60,13 +70,22 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExec
         }
     };
 
+    private static final int WINDOW = 64;
+    private static final int MISS_RATIO = 8;
+
     private final Executor _executor;
     private final int _capacity;
     private final ConcurrentLinkedDeque<ReservedThread> _stack;
     private final AtomicInteger _size = new AtomicInteger();
     private final AtomicInteger _pending = new AtomicInteger();
+    // The hits (hi) and misses (lo) of tryExecute() in the current window.
+    private final AtomicBiInteger _window = new AtomicBiInteger();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
 
     private ThreadPoolBudget.Lease _lease;
+    private boolean _elastic;
+    private volatile int _target;
     private long _idleTime = 1L;
     private TimeUnit _idleTimeUnit = TimeUnit.MINUTES;
 
@@ -117,6 +136,16 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExec
         return _capacity;
     }
 
+    /**
+     * @return the current max number of reserved threads, which adapts between 1
+     * and the capacity if elastic, or the capacity otherwise
+     */
+    @ManagedAttribute(value = "current max number of reserved threads", readonly = true)
+    public int getTargetCapacity()
+    {
+        return _target;
+    }
+
     @ManagedAttribute(value = "available reserved threads", readonly = true)
     public int getAvailable()
     {
@@ -129,6 +158,42 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExec
         return _pending.get();
     }
 
+    @ManagedAttribute(value = "number of tasks executed by a reserved thread", readonly = true)
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute(value = "number of tasks that could not be executed by a reserved thread", readonly = true)
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedOperation(value = "resets the hit and miss counts", impact = "ACTION")
+    public void reset()
+    {
+        _hits.reset();
+        _misses.reset();
+    }
+
+    @ManagedAttribute(value = "whether the number of reserved threads adapts to the hit rate", readonly = true)
+    public boolean isElastic()
+    {
+        return _elastic;
+    }
+
+    /**
+     * @param elastic whether the number of reserved threads adapts to the hit rate
+     * of {@link #tryExecute(Runnable)}, up to the capacity
+     */
+    public void setElastic(boolean elastic)
+    {
+        if (isRunning())
+            throw new IllegalStateException();
+        _elastic = elastic;
+    }
+
     @ManagedAttribute(value = "idletimeout in MS", readonly = true)
     public long getIdleTimeoutMs()
     {
@@ -156,6 +221,8 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExec
     {
         _lease = ThreadPoolBudget.leaseFrom(getExecutor(), this, _capacity);
         _size.set(0);
+        _window.set(0, 0);
+        _target = _elastic ? Math.min(1, _capacity) : _capacity;
         super.doStart();
     }
 
@@ -212,7 +279,10 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExec
         if (thread == null)
         {
             if (task != STOP)
+            {
+                sample(false);
                 startReservedThread();
+            }
             return false;
         }
 
@@ -220,14 +290,95 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExec
         if (!thread.offer(task))
             return false;
 
-        if (size == 0 && task != STOP)
-            startReservedThread();
+        if (task != STOP)
+        {
+            sample(true);
+            if (size == 0)
+                startReservedThread();
+        }
 
         return true;
     }
 
+    private void sample(boolean hit)
+    {
+        if (hit)
+            _hits.increment();
+        else
+            _misses.increment();
+
+        if (!_elastic)
+            return;
+
+        while (true)
+        {
+            long encoded = _window.get();
+            int hits = AtomicBiInteger.getHi(encoded) + (hit ? 1 : 0);
+            int misses = AtomicBiInteger.getLo(encoded) + (hit ? 0 : 1);
+            if (hits + misses < WINDOW)
+            {
+                if (_window.compareAndSet(encoded, hits, misses))
+                    return;
+            }
+            else if (_window.compareAndSet(encoded, 0, 0))
+            {
+                // Only the thread that closes the window adapts the target.
+                adapt(hits, misses);
+                return;
+            }
+        }
+    }
+
+    private void adapt(int hits, int misses)
+    {
+        if (isLowOnThreads())
+            return;
+        int target = _target;
+        if (misses * MISS_RATIO > hits + misses)
+        {
+            _target = Math.min(_capacity, Math.max(1, target * 2));
+        }
+        else if (misses == 0 && target > 1)
+        {
+            _target = target - 1;
+            releaseReservedThreads();
+        }
+        if (LOG.isDebugEnabled())
+            LOG.debug("{} adapted hits={} misses={} target={}->{}", this, hits, misses, target, _target);
+    }
+
+    /**
+     * @return whether the wrapped executor is low on threads, in which case
+     * the reserved threads are released if elastic
+     */
+    private boolean isLowOnThreads()
+    {
+        if (!_elastic || !(_executor instanceof ThreadPool) || !((ThreadPool)_executor).isLowOnThreads())
+            return false;
+        if (LOG.isDebugEnabled())
+            LOG.debug("{} low on threads", this);
+        _target = Math.min(1, _capacity);
+        releaseReservedThreads();
+        return true;
+    }
+
+    private void releaseReservedThreads()
+    {
+        while (_size.get() > _target)
+        {
+            // Release the least recently used reserved thread.
+            ReservedThread thread = _stack.pollLast();
+            if (thread == null)
+                return;
+            _size.decrementAndGet();
+            thread.stop();
+        }
+    }
+
     private void startReservedThread()
     {
+        if (isLowOnThreads())
+            return;
         try
         {
             while (true)
@@ -235,7 +386,7 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExec
                 // Not atomic, but there is a re-check in ReservedThread.run().
                 int pending = _pending.get();
                 int size = _size.get();
-                if (pending + size >= _capacity)
+                if (pending + size >= _target)
                     return;
                 if (_pending.compareAndSet(pending, pending + 1))
                 {
@@ -255,10 +406,11 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExec
     @Override
     public String toString()
     {
-        return String.format("%s@%x{s=%d/%d,p=%d}",
+        return String.format("%s@%x{s=%d/%d/%d,p=%d}",
             getClass().getSimpleName(),
             hashCode(),
             _size.get(),
+            _target,
             _capacity,
             _pending.get());
     }
@@ -336,10 +488,11 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements TryExec
                     return;
 
                 // Are we surplus to capacity?
-                if (size >= _capacity)
+                int target = _target;
+                if (size >= target)
                 {
                     if (LOG.isDebugEnabled())
-                        LOG.debug("{} size {} > capacity {}", this, size, _capacity);
+                        LOG.debug("{} size {} > capacity {}", this, size, target);
                     if (_starting)
                         _pending.decrementAndGet();
                     return;
@@ -0,0 +1,375 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Implementation of {@link Scheduler} based on hierarchical hashed timing wheels.</p>
+ * <p>Time is divided in ticks of configurable duration. Each wheel has a number of
+ * levels of 512 slots each: a slot of the first level spans one tick, and
+ * a slot of each next level spans all the slots of the previous level. A task is
+ * stored in the slot of the lowest level that can hold its deadline, and is moved to
+ * a lower level when the wheel reaches the slot of the higher level.</p>
+ * <p>Scheduling a task pushes it on a lock-free stack that the wheel thread drains at
+ * every tick, and cancelling it only clears its reference to the {@link Runnable}, so
+ * that both operations are O(1) and never contend on a lock; cancelled tasks are
+ * discarded when the wheel reaches their slot.</p>
+ * <p>Tasks are run by the wheel thread at the first tick after their deadline, so the
+ * timing precision is the tick duration. Tasks must be quick and not block, as is the
+ * case for idle timeouts and {@code CyclicTimeout} expirations.</p>
+ * <p>Multiple wheels, each with its own thread, may be configured: tasks are assigned
+ * to a wheel depending on the thread that schedules them, so that for example the
+ * timeouts scheduled by a selector thread all go to the same wheel.</p>
+ */
+@ManagedObject("A scheduler based on timing wheels")
+public class TimingWheelScheduler extends AbstractLifeCycle implements Scheduler, Dumpable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TimingWheelScheduler.class);
+    private static final int BITS = 9;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_TICKS = (1L << (BITS * LEVELS)) - 1;
+
+    private final String _name;
+    private final boolean _daemon;
+    private final long _tickNanos;
+    private final int _wheelCount;
+    private volatile Wheel[] _wheels;
+
+    public TimingWheelScheduler()
+    {
+        this(null, false, 10, 1);
+    }
+
+    /**
+     * @param name the name of the wheel threads, or null for an automatic name
+     * @param daemon whether the wheel threads are daemon
+     * @param tick the tick duration in milliseconds
+     * @param wheels the number of wheels, each with its own thread
+     */
+    public TimingWheelScheduler(@Name("name") String name, @Name("daemon") boolean daemon, @Name("tick") long tick, @Name("wheels") int wheels)
+    {
+        if (tick <= 0)
+            throw new IllegalArgumentException("Invalid tick " + tick);
+        if (wheels <= 0)
+            throw new IllegalArgumentException("Invalid wheels " + wheels);
+        _name = StringUtil.isBlank(name) ? "Scheduler-" + hashCode() : name;
+        _daemon = daemon;
+        _tickNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+        _wheelCount = wheels;
+    }
+
+    /**
+     * @return the tick duration in milliseconds
+     */
+    @ManagedAttribute("The tick duration in milliseconds")
+    public long getTick()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_tickNanos);
+    }
+
+    /**
+     * @return the number of wheels
+     */
+    @ManagedAttribute("The number of wheels")
+    public int getWheels()
+    {
+        return _wheelCount;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        Wheel[] wheels = new Wheel[_wheelCount];
+        for (int i = 0; i < wheels.length; ++i)
+        {
+            wheels[i] = new Wheel(_name + "-" + i);
+        }
+        for (Wheel wheel : wheels)
+        {
+            wheel._thread.start();
+        }
+        _wheels = wheels;
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        Wheel[] wheels = _wheels;
+        _wheels = null;
+        if (wheels != null)
+        {
+            for (Wheel wheel : wheels)
+            {
+                wheel.stop();
+            }
+            for (Wheel wheel : wheels)
+            {
+                if (wheel._thread != Thread.currentThread())
+                    wheel._thread.join(TimeUnit.NANOSECONDS.toMillis(_tickNanos) + 1000);
+            }
+        }
+        super.doStop();
+    }
+
+    @Override
+    public Task schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        Wheel[] wheels = _wheels;
+        if (wheels == null)
+            return () -> false;
+        Wheel wheel = wheels[(int)(Thread.currentThread().getId() % wheels.length)];
+        WheelTask wheelTask = new WheelTask(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)));
+        wheel.push(wheelTask);
+        return wheelTask;
+    }
+
+    @Override
+    public String dump()
+    {
+        return Dumpable.dump(this);
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        Wheel[] wheels = _wheels;
+        if (wheels == null)
+            Dumpable.dumpObject(out, this);
+        else
+            Dumpable.dumpObjects(out, indent, this, (Object[])wheels);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,tick=%dms,wheels=%d}",
+            getClass().getSimpleName(),
+            hashCode(),
+            getState(),
+            getTick(),
+            _wheelCount);
+    }
+
+    private class Wheel implements Runnable
+    {
+        private final AtomicReference<WheelTask> _pending = new AtomicReference<>();
+        private final WheelTask[][] _slots = new WheelTask[LEVELS][SLOTS];
+        private final Thread _thread;
+        private final long _start = System.nanoTime();
+        private volatile boolean _running = true;
+        // The last processed tick, only accessed by the wheel thread.
+        private long _tick;
+
+        private Wheel(String name)
+        {
+            _thread = new Thread(this, name);
+            _thread.setDaemon(_daemon);
+        }
+
+        private void push(WheelTask task)
+        {
+            while (true)
+            {
+                WheelTask head = _pending.get();
+                task._next = head;
+                if (_pending.compareAndSet(head, task))
+                    return;
+            }
+        }
+
+        private void stop()
+        {
+            _running = false;
+            LockSupport.unpark(_thread);
+        }
+
+        @Override
+        public void run()
+        {
+            while (_running)
+            {
+                long now = System.nanoTime();
+                long target = (now - _start) / _tickNanos;
+                drain();
+                while (_tick < target)
+                {
+                    advance(++_tick);
+                }
+                long next = _start + (_tick + 1) * _tickNanos;
+                LockSupport.parkNanos(this, next - System.nanoTime());
+            }
+        }
+
+        private void drain()
+        {
+            WheelTask task = _pending.getAndSet(null);
+            while (task != null)
+            {
+                WheelTask next = task._next;
+                insert(task);
+                task = next;
+            }
+        }
+
+        private void insert(WheelTask task)
+        {
+            if (task.isCancelled())
+                return;
+            long deadline = task._deadline - _start;
+            long tick = deadline <= 0 ? 0 : (deadline + _tickNanos - 1) / _tickNanos;
+            long delta = Math.min(tick - _tick, MAX_TICKS);
+            if (delta <= 0)
+            {
+                task.run();
+                return;
+            }
+            tick = _tick + delta;
+            int level = 0;
+            while (delta >= 1L << (BITS * (level + 1)))
+            {
+                ++level;
+            }
+            task._tick = tick;
+            int slot = (int)(tick >>> (BITS * level)) & MASK;
+            task._next = _slots[level][slot];
+            _slots[level][slot] = task;
+        }
+
+        private void advance(long tick)
+        {
+            // Move the tasks of the higher levels that are due
+            // in the next slots of the lower levels, from the top.
+            for (int level = LEVELS - 1; level > 0; --level)
+            {
+                if ((tick & ((1L << (BITS * level)) - 1)) == 0)
+                    cascade(level, (int)(tick >>> (BITS * level)) & MASK);
+            }
+
+            int slot = (int)tick & MASK;
+            WheelTask task = _slots[0][slot];
+            _slots[0][slot] = null;
+            while (task != null)
+            {
+                WheelTask next = task._next;
+                task._next = null;
+                task.run();
+                task = next;
+            }
+        }
+
+        private void cascade(int level, int slot)
+        {
+            WheelTask task = _slots[level][slot];
+            _slots[level][slot] = null;
+            while (task != null)
+            {
+                WheelTask next = task._next;
+                task._next = null;
+                // Reinsert with the rounded deadline, that is at or after the current tick.
+                if (!task.isCancelled())
+                {
+                    long delta = task._tick - _tick;
+                    if (delta <= 0)
+                    {
+                        task.run();
+                    }
+                    else
+                    {
+                        int lower = 0;
+                        while (delta >= 1L << (BITS * (lower + 1)))
+                        {
+                            ++lower;
+                        }
+                        int index = (int)(task._tick >>> (BITS * lower)) & MASK;
+                        task._next = _slots[lower][index];
+                        _slots[lower][index] = task;
+                    }
+                }
+                task = next;
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s,tick=%d}", getClass().getSimpleName(), hashCode(), _thread.getName(), _tick);
+        }
+    }
+
+    private static class WheelTask extends AtomicReference<Runnable> implements Task
+    {
+        private final long _deadline;
+        private long _tick;
+        private WheelTask _next;
+
+        private WheelTask(Runnable task, long deadline)
+        {
+            super(task);
+            _deadline = deadline;
+        }
+
+        private boolean isCancelled()
+        {
+            return get() == null;
+        }
+
+        @Override
+        public boolean cancel()
+        {
+            return getAndSet(null) != null;
+        }
+
+        private void run()
+        {
+            Runnable task = getAndSet(null);
+            if (task == null)
+                return;
+            try
+            {
+                task.run();
+            }
+            catch (Throwable x)
+            {
+                LOG.warn("Exception while executing task {}", task, x);
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x[%s]", getClass().getSimpleName(), hashCode(), get());
+        }
+    }
+}
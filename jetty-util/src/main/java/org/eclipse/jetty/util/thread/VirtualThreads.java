@@ -0,0 +1,145 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Utility class to use virtual threads, if they are supported by the JVM.</p>
+ * <p>Virtual threads are accessed via reflection, so that this class can be
+ * compiled and run with JDKs that do not support them.</p>
+ */
+public class VirtualThreads
+{
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+    private static final Executor executor = probeVirtualThreadExecutor();
+    private static final Method isVirtualThread = probeIsVirtualThread();
+
+    private static Executor probeVirtualThreadExecutor()
+    {
+        try
+        {
+            return (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (Throwable x)
+        {
+            // Not supported by this JVM, or preview features are not enabled.
+            if (LOG.isDebugEnabled())
+                LOG.debug("Virtual threads not supported", x);
+            return null;
+        }
+    }
+
+    private static Method probeIsVirtualThread()
+    {
+        try
+        {
+            return Thread.class.getMethod("isVirtual");
+        }
+        catch (Throwable x)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the JVM supports virtual threads
+     */
+    public static boolean areSupported()
+    {
+        return executor != null;
+    }
+
+    /**
+     * @return a default executor that runs each task in a new virtual thread,
+     * or null if virtual threads are not supported
+     */
+    public static Executor getDefaultVirtualThreadsExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * @return whether the current thread is a virtual thread
+     */
+    public static boolean isVirtualThread()
+    {
+        if (isVirtualThread == null)
+            return false;
+        try
+        {
+            return (Boolean)isVirtualThread.invoke(Thread.currentThread());
+        }
+        catch (Throwable x)
+        {
+            LOG.warn("Cannot determine whether the current thread is virtual", x);
+            return false;
+        }
+    }
+
+    /**
+     * @param executor the executor to test
+     * @return whether the given executor runs blocking tasks in virtual threads
+     */
+    public static boolean isUseVirtualThreads(Executor executor)
+    {
+        return executor instanceof Configurable && ((Configurable)executor).isUseVirtualThreads();
+    }
+
+    /**
+     * <p>Returns whether the given task must be run in a virtual thread, that is
+     * whether it is an {@link Invocable} that declares to be
+     * {@link Invocable.InvocationType#BLOCKING blocking}.</p>
+     * <p>Tasks that are not {@link Invocable}, such as selector or acceptor loops,
+     * are never run in virtual threads.</p>
+     *
+     * @param task the task to test
+     * @return whether the task must be run in a virtual thread
+     */
+    public static boolean isVirtualThreadTask(Runnable task)
+    {
+        return task instanceof Invocable && ((Invocable)task).getInvocationType() == Invocable.InvocationType.BLOCKING;
+    }
+
+    /**
+     * <p>Implementations of this interface can be configured to run
+     * blocking tasks in virtual threads.</p>
+     */
+    public interface Configurable
+    {
+        /**
+         * @return whether blocking tasks are run in virtual threads
+         */
+        boolean isUseVirtualThreads();
+
+        /**
+         * @param useVirtualThreads whether blocking tasks are run in virtual threads
+         */
+        void setUseVirtualThreads(boolean useVirtualThreads);
+    }
+
+    private VirtualThreads()
+    {
+    }
+}
@@ -33,6 +33,7 @@ import org.eclipse.jetty.util.thread.AutoLock;
 import org.eclipse.jetty.util.thread.ExecutionStrategy;
 import org.eclipse.jetty.util.thread.Invocable;
 import org.eclipse.jetty.util.thread.TryExecutor;
+import org.eclipse.jetty.util.thread.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -239,9 +240,15 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
                 case BLOCKING:
                     // The task is blocking, so PC is not an option. Thus we choose
                     // between EPC and PEC based on the availability of a reserved thread.
+                    // If the executor runs blocking tasks in virtual threads, we always
+                    // choose PEC so that this producing thread does not run the task.
                     try (AutoLock l = _lock.lock())
                     {
-                        if (_pending)
+                        if (VirtualThreads.isUseVirtualThreads(_executor))
+                        {
+                            mode = Mode.PRODUCE_EXECUTE_CONSUME;
+                        }
+                        else if (_pending)
                         {
                             _state = State.IDLE;
                             mode = Mode.EXECUTE_PRODUCE_CONSUME;
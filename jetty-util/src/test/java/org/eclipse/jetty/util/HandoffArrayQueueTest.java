@@ -0,0 +1,233 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HandoffArrayQueueTest
+{
+    @Test
+    public void testOfferPollWrap()
+    {
+        HandoffArrayQueue<String> queue = new HandoffArrayQueue<>(3);
+        assertEquals(4, queue.getCapacity());
+
+        for (int i = 0; i < 10; ++i)
+        {
+            assertTrue(queue.offer("one"));
+            assertTrue(queue.offer("two"));
+            assertTrue(queue.offer("three"));
+            assertTrue(queue.offer("four"));
+            assertFalse(queue.offer("five"));
+            assertEquals(4, queue.size());
+            assertEquals(0, queue.remainingCapacity());
+            assertEquals("one", queue.peek());
+
+            List<String> list = new ArrayList<>();
+            queue.forEach(list::add);
+            assertThat(list, contains("one", "two", "three", "four"));
+
+            assertEquals("one", queue.poll());
+            assertEquals("two", queue.poll());
+            assertEquals("three", queue.poll());
+            assertEquals("four", queue.poll());
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+        assertEquals(0, queue.getHandoffs());
+    }
+
+    @Test
+    public void testTimedPollExpires() throws Exception
+    {
+        HandoffArrayQueue<String> queue = new HandoffArrayQueue<>(4);
+
+        long start = System.nanoTime();
+        assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), greaterThanOrEqualTo(100L));
+
+        // The expired waiter must not swallow elements.
+        assertTrue(queue.offer("one"));
+        assertEquals("one", queue.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testHandoffToWaitingConsumer() throws Exception
+    {
+        HandoffArrayQueue<String> queue = new HandoffArrayQueue<>(4);
+        AtomicReference<String> taken = new AtomicReference<>();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread consumer = new Thread(() ->
+        {
+            try
+            {
+                taken.set(queue.take());
+            }
+            catch (Throwable x)
+            {
+                failures.add(x);
+            }
+            finally
+            {
+                latch.countDown();
+            }
+        });
+        consumer.start();
+        awaitParked(consumer);
+
+        assertTrue(queue.offer("job"));
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThat(failures, empty());
+        assertEquals("job", taken.get());
+        assertEquals(1, queue.getHandoffs());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testInterruptWaitingConsumer() throws Exception
+    {
+        HandoffArrayQueue<String> queue = new HandoffArrayQueue<>(4);
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread consumer = new Thread(() ->
+        {
+            try
+            {
+                queue.take();
+            }
+            catch (InterruptedException x)
+            {
+                latch.countDown();
+            }
+        });
+        consumer.start();
+        awaitParked(consumer);
+
+        consumer.interrupt();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        assertTrue(queue.offer("job"));
+        assertEquals(0, queue.getHandoffs());
+        assertEquals("job", queue.poll());
+    }
+
+    @Test
+    public void testConcurrentProducersConsumers() throws Exception
+    {
+        int producers = 4;
+        int consumers = 4;
+        int count = 100_000;
+        HandoffArrayQueue<Long> queue = new HandoffArrayQueue<>(64);
+        AtomicLong sum = new AtomicLong();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch consumed = new CountDownLatch(producers * count);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < consumers; ++c)
+        {
+            threads.add(new Thread(() ->
+            {
+                try
+                {
+                    while (true)
+                    {
+                        Long value = (consumed.getCount() & 1) == 0 ? queue.take() : queue.poll(1, TimeUnit.MILLISECONDS);
+                        if (value == null)
+                            continue;
+                        if (value < 0)
+                            return;
+                        sum.addAndGet(value);
+                        consumed.countDown();
+                    }
+                }
+                catch (Throwable x)
+                {
+                    failures.add(x);
+                }
+            }));
+        }
+        for (int p = 0; p < producers; ++p)
+        {
+            threads.add(new Thread(() ->
+            {
+                try
+                {
+                    for (long i = 1; i <= count; ++i)
+                    {
+                        while (!queue.offer(i))
+                        {
+                            Thread.yield();
+                        }
+                    }
+                }
+                catch (Throwable x)
+                {
+                    failures.add(x);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        boolean completed = consumed.await(30, TimeUnit.SECONDS);
+        assertThat(failures, empty());
+        assertTrue(completed);
+        assertEquals(producers * (long)count * (count + 1) / 2, sum.get());
+
+        for (int c = 0; c < consumers; ++c)
+        {
+            queue.put(-1L);
+        }
+        for (Thread thread : threads)
+        {
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+        }
+        assertThat(failures, empty());
+        assertTrue(queue.isEmpty());
+    }
+
+    private static void awaitParked(Thread thread) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING)
+        {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
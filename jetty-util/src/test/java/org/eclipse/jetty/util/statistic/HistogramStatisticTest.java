@@ -0,0 +1,218 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistogramStatisticTest
+{
+    @Test
+    public void testEmpty()
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMean(), is(0.0D));
+        assertThat(histogram.getValueAtPercentile(99), is(0L));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+
+    @Test
+    public void testSmallValuesAreExact()
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        for (int i = 1; i <= 100; i++)
+        {
+            histogram.record(i);
+        }
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(histogram.getTotal(), is(5050L));
+        assertThat(histogram.getMean(), is(50.5D));
+        assertThat(histogram.getValueAtPercentile(50), is(50L));
+        assertThat(histogram.getValueAtPercentile(99), is(99L));
+        assertThat(histogram.getValueAtPercentile(100), is(100L));
+        assertThat(histogram.getMax(), is(100L));
+    }
+
+    @Test
+    public void testLargeValuesPrecision()
+    {
+        HistogramStatistic histogram = new HistogramStatistic(Long.MAX_VALUE);
+        for (long i = 1; i <= 100_000; i++)
+        {
+            histogram.record(i * 1000);
+        }
+        double[] percentiles = {10, 50, 90, 99, 99.9};
+        for (double percentile : percentiles)
+        {
+            double expected = percentile * 1000 * 1000;
+            long value = histogram.getValueAtPercentile(percentile);
+            assertThat(Math.abs(value - expected) / expected, lessThanOrEqualTo(1.0D / 64));
+        }
+        assertThat(histogram.getValueAtPercentile(100), is(100_000_000L));
+    }
+
+    @Test
+    public void testMaxValue()
+    {
+        HistogramStatistic histogram = new HistogramStatistic(TimeUnit.SECONDS.toNanos(1));
+        histogram.record(-10);
+        histogram.record(TimeUnit.SECONDS.toNanos(10));
+        assertThat(histogram.getCount(), is(2L));
+        assertThat(histogram.getValueAtPercentile(50), is(0L));
+        assertThat(histogram.getMax(), is(TimeUnit.SECONDS.toNanos(1)));
+
+        histogram.reset();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getValueAtPercentile(50), is(0L));
+
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.getValueAtPercentile(100), is(TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void testDefaultMaxValue()
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        histogram.record(TimeUnit.DAYS.toMillis(1));
+        assertThat(histogram.getMax(), is(HistogramStatistic.DEFAULT_MAX_VALUE));
+        assertThat(histogram.getValueAtPercentile(100), is(HistogramStatistic.DEFAULT_MAX_VALUE));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        int threads = 4;
+        int samples = 100_000;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            new Thread(() ->
+            {
+                for (int i = 0; i < samples; i++)
+                {
+                    histogram.record(i);
+                }
+                latch.countDown();
+            }).start();
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertThat(histogram.getCount(), is((long)threads * samples));
+        assertThat((double)histogram.getValueAtPercentile(50), closeTo(samples / 2.0D, samples / 64.0D));
+    }
+
+    @Test
+    public void testStdDev()
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        histogram.record(2);
+        histogram.record(4);
+        histogram.record(4);
+        histogram.record(4);
+        histogram.record(5);
+        histogram.record(5);
+        histogram.record(7);
+        histogram.record(9);
+        assertThat(histogram.getMean(), is(5.0D));
+        assertThat(histogram.getStdDev(), closeTo(2.138D, 0.001D));
+    }
+
+    @Test
+    public void testRollInterval()
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        histogram.record(10);
+        histogram.record(20);
+
+        HistogramStatistic.Interval first = histogram.roll();
+        assertThat(first.getCount(), is(2L));
+        assertThat(first.getTotal(), is(30L));
+        assertThat(first.getMax(), is(20L));
+        assertThat(histogram.getLastInterval(), sameInstance(first));
+
+        histogram.record(100);
+        HistogramStatistic.Interval second = histogram.roll();
+        assertThat(second.getCount(), is(1L));
+        assertThat(second.getValueAtPercentile(50), is(100L));
+        Map<String, Long> percentiles = second.getPercentiles();
+        assertThat(percentiles.get("count"), is(1L));
+        assertThat(percentiles.get("max"), is(100L));
+
+        // The cumulative statistics include all the intervals.
+        assertThat(histogram.getCount(), is(3L));
+        assertThat(histogram.getTotal(), is(130L));
+        assertThat(histogram.getMax(), is(100L));
+        assertThat(histogram.getValueAtPercentile(50), is(20L));
+
+        // Rolling recycles the histogram of the interval before the last.
+        HistogramStatistic.Interval third = histogram.roll();
+        assertThat(third, sameInstance(first));
+        assertThat(third.getCount(), is(0L));
+        assertThat(histogram.getCount(), is(3L));
+
+        histogram.reset();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getLastInterval().getCount(), is(0L));
+    }
+
+    @Test
+    public void testConcurrentRecordingAndRolling() throws Exception
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        int threads = 4;
+        int samples = 100_000;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            new Thread(() ->
+            {
+                for (int i = 0; i < samples; i++)
+                {
+                    histogram.record(1);
+                }
+                latch.countDown();
+            }).start();
+        }
+
+        long rolled = 0;
+        boolean done = false;
+        while (!done)
+        {
+            done = latch.getCount() == 0;
+            HistogramStatistic.Interval interval = histogram.roll();
+            assertThat(interval.getTotal(), is(interval.getCount()));
+            rolled += interval.getCount();
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertThat(rolled, is((long)threads * samples));
+        assertThat(histogram.getCount(), is((long)threads * samples));
+    }
+}
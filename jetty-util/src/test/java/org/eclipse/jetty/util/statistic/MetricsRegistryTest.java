@@ -0,0 +1,146 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MetricsRegistryTest
+{
+    @Test
+    public void testNoop()
+    {
+        Metrics metrics = Metrics.NOOP;
+        assertThat(metrics.withLabel("name", "value"), sameInstance(metrics));
+        assertThat(metrics.counter("c", "counter"), sameInstance(Metrics.Counter.NOOP));
+        assertThat(metrics.histogram("h", "histogram"), sameInstance(Metrics.Histogram.NOOP));
+        assertThat(metrics.timer("t", "timer"), sameInstance(Metrics.Timer.NOOP));
+    }
+
+    @Test
+    public void testCounterIsShared()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        Metrics.Counter counter1 = registry.counter("requests_total", "requests");
+        Metrics.Counter counter2 = registry.counter("requests_total", "requests");
+        assertThat(counter2, sameInstance(counter1));
+        counter1.increment();
+        counter2.add(2);
+
+        List<MetricsRegistry.Family> families = registry.getFamilies();
+        assertThat(families.size(), is(1));
+        MetricsRegistry.Family family = families.get(0);
+        assertThat(family.getName(), is("requests_total"));
+        assertThat(family.getType(), is(MetricsRegistry.Type.COUNTER));
+        assertThat(family.getSamples().iterator().next().getValue(), is(3L));
+    }
+
+    @Test
+    public void testLabels()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        AtomicLong value = new AtomicLong(5);
+        registry.withLabel("code", "2xx").gauge("responses", "responses", value::get);
+        registry.withLabel("code", "4xx").withLabel("path", "/").gauge("responses", "responses", () -> 1);
+        value.set(7);
+
+        MetricsRegistry.Family family = registry.getFamilies().get(0);
+        List<Map<String, String>> labels = new ArrayList<>();
+        List<Long> values = new ArrayList<>();
+        for (MetricsRegistry.Sample sample : family.getSamples())
+        {
+            labels.add(sample.getLabels());
+            values.add(sample.getValue());
+        }
+        assertThat(labels, contains(Map.of("code", "2xx"), Map.of("code", "4xx", "path", "/")));
+        assertThat(values, contains(7L, 1L));
+    }
+
+    @Test
+    public void testTypeMismatch()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.gauge("metric", "gauge", () -> 0);
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("metric", "counter"));
+    }
+
+    @Test
+    public void testInstrumentConflict()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        AtomicLong count = new AtomicLong(5);
+        registry.counter("requests_total", "requests", count::get);
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("requests_total", "requests"));
+        assertThat(registry.getFamilies().get(0).getSamples().iterator().next().getValue(), is(5L));
+
+        registry.histogram("sizes", "sizes");
+        assertThrows(IllegalArgumentException.class, () -> registry.timer("sizes", "sizes"));
+        registry.withLabel("name", "value").timer("sizes", "sizes");
+    }
+
+    @Test
+    public void testTimerScale()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.timer("push_seconds", "push").record(TimeUnit.MILLISECONDS.toNanos(250));
+        HistogramStatistic histogram = new HistogramStatistic();
+        histogram.record(500);
+        registry.timer("function_seconds", "function", histogram, TimeUnit.MILLISECONDS);
+
+        List<MetricsRegistry.Family> families = registry.getFamilies();
+        MetricsRegistry.Sample function = families.get(0).getSamples().iterator().next();
+        assertThat(function.getHistogram().getTotal() * function.getScale(), closeTo(0.5D, 0.0001D));
+        MetricsRegistry.Sample push = families.get(1).getSamples().iterator().next();
+        assertThat(push.getHistogram().getTotal() * push.getScale(), closeTo(0.25D, 0.0001D));
+    }
+
+    @Test
+    public void testPublishContainer()
+    {
+        ContainerLifeCycle container = new ContainerLifeCycle();
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        threadPool.setName("test");
+        container.addBean(threadPool);
+
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.publish(container);
+
+        MetricsRegistry.Family family = registry.getFamilies().stream()
+            .filter(f -> f.getName().equals("jetty_threadpool_threads_max"))
+            .findFirst()
+            .orElseThrow();
+        MetricsRegistry.Sample sample = family.getSamples().iterator().next();
+        assertThat(sample.getLabels(), is(Map.of("pool", "test")));
+        assertThat(sample.getValue(), is((long)threadPool.getMaxThreads()));
+    }
+}
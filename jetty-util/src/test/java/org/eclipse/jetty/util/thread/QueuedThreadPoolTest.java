@@ -20,11 +20,15 @@ package org.eclipse.jetty.util.thread;
 
 import java.io.Closeable;
 import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.logging.StacklessLogging;
+import org.eclipse.jetty.util.HandoffArrayQueue;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.thread.ThreadPool.SizedThreadPool;
 import org.junit.jupiter.api.Test;
@@ -32,14 +36,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 public class QueuedThreadPoolTest extends AbstractThreadPoolTest
 {
@@ -854,6 +861,152 @@ public class QueuedThreadPoolTest extends AbstractThreadPoolTest
         assertThat(count(dump, "QueuedThreadPoolTest.lambda$testDump$"), is(1));
     }
 
+    @Test
+    public void testVirtualThreadsExecutorRunsBlockingTasks() throws Exception
+    {
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2);
+        pool.setName("platform");
+        pool.setUseVirtualThreads(true);
+        pool.setVirtualThreadsExecutor(task -> new Thread(task, "virtual").start());
+        pool.start();
+        try
+        {
+            assertTrue(pool.isUseVirtualThreads());
+
+            BlockingQueue<String> names = new LinkedBlockingQueue<>();
+            Runnable recordName = () -> names.offer(Thread.currentThread().getName());
+
+            pool.execute(invocable(Invocable.InvocationType.BLOCKING, recordName));
+            assertThat(names.poll(5, TimeUnit.SECONDS), is("virtual"));
+
+            assertTrue(pool.tryExecute(invocable(Invocable.InvocationType.BLOCKING, recordName)));
+            assertThat(names.poll(5, TimeUnit.SECONDS), is("virtual"));
+
+            pool.execute(invocable(Invocable.InvocationType.NON_BLOCKING, recordName));
+            assertThat(names.poll(5, TimeUnit.SECONDS), startsWith("platform"));
+
+            // Tasks that are not Invocable, such as selector loops, run in platform threads.
+            pool.execute(recordName);
+            assertThat(names.poll(5, TimeUnit.SECONDS), startsWith("platform"));
+        }
+        finally
+        {
+            pool.stop();
+        }
+        assertThrows(RejectedExecutionException.class, () -> pool.execute(invocable(Invocable.InvocationType.BLOCKING, () ->
+        {
+        })));
+    }
+
+    @Test
+    public void testHandoffQueue() throws Exception
+    {
+        HandoffArrayQueue<Runnable> queue = new HandoffArrayQueue<>(4);
+        QueuedThreadPool pool = new QueuedThreadPool(2, 2, 60000, 0, queue, null);
+        pool.start();
+        try
+        {
+            waitForIdle(pool, 2);
+
+            // Jobs are handed off directly to the idle threads.
+            for (int i = 0; i < 10; ++i)
+            {
+                CountDownLatch ran = new CountDownLatch(1);
+                pool.execute(ran::countDown);
+                assertTrue(ran.await(5, TimeUnit.SECONDS));
+            }
+            assertThat(queue.getHandoffs(), greaterThan(0L));
+
+            // Block both threads, then fill the queue.
+            CountDownLatch blocked = new CountDownLatch(2);
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 2; ++i)
+            {
+                pool.execute(() ->
+                {
+                    blocked.countDown();
+                    waitFor(release);
+                });
+            }
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            waitForIdle(pool, 0);
+
+            CountDownLatch queued = new CountDownLatch(4);
+            for (int i = 0; i < 4; ++i)
+            {
+                pool.execute(queued::countDown);
+            }
+            assertThat(pool.getQueueSize(), is(4));
+            assertTrue(pool.isLowOnThreads());
+            assertThrows(RejectedExecutionException.class, () -> pool.execute(queued::countDown));
+
+            release.countDown();
+            assertTrue(queued.await(5, TimeUnit.SECONDS));
+            waitForIdle(pool, 2);
+            assertThat(pool.getQueueSize(), is(0));
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+
+    private static void waitFor(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException x)
+        {
+            throw new RuntimeException(x);
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsNotSupported() throws Exception
+    {
+        assumeFalse(VirtualThreads.areSupported());
+
+        QueuedThreadPool pool = new QueuedThreadPool(4, 2);
+        pool.setUseVirtualThreads(true);
+        try (StacklessLogging ignored = new StacklessLogging(QueuedThreadPool.class))
+        {
+            pool.start();
+        }
+        try
+        {
+            assertFalse(pool.isUseVirtualThreads());
+            CountDownLatch latch = new CountDownLatch(1);
+            pool.execute(invocable(Invocable.InvocationType.BLOCKING, latch::countDown));
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+
+    private static Runnable invocable(Invocable.InvocationType invocationType, Runnable task)
+    {
+        class InvocableTask implements Runnable, Invocable
+        {
+            @Override
+            public void run()
+            {
+                task.run();
+            }
+
+            @Override
+            public InvocationType getInvocationType()
+            {
+                return invocationType;
+            }
+        }
+
+        return new InvocableTask();
+    }
+
     private int count(String s, String p)
     {
         int c = 0;
@@ -21,7 +21,6 @@ package org.eclipse.jetty.util.thread;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -205,6 +204,82 @@ public class ReservedThreadExecutorTest
         assertFalse(thread.isAlive());
     }
 
+    @Test
+    public void testElastic() throws Exception
+    {
+        _reservedExecutor.stop();
+        _reservedExecutor.setElastic(true);
+        _reservedExecutor.start();
+        assertThat(_reservedExecutor.getTargetCapacity(), is(1));
+
+        // A window of misses grows the number of reserved threads.
+        for (int i = 0; i < 64; i++)
+        {
+            assertThat(_reservedExecutor.tryExecute(NOOP), is(false));
+        }
+        assertThat(_reservedExecutor.getTargetCapacity(), is(SIZE));
+        assertThat(_reservedExecutor.getMisses(), is(64L));
+        assertThat(_executor._queue.size(), is(SIZE));
+
+        while (_executor.startThread() != null)
+        {
+            Thread.onSpinWait();
+        }
+        waitForAllAvailable();
+
+        // A window without misses shrinks the number of reserved threads.
+        for (int i = 0; i < 63; i++)
+        {
+            assertThat(_reservedExecutor.tryExecute(NOOP), is(true));
+            waitForAllAvailable();
+        }
+        assertThat(_reservedExecutor.tryExecute(NOOP), is(true));
+        assertThat(_reservedExecutor.getTargetCapacity(), is(1));
+        waitForAvailable(1);
+        Thread.sleep(100);
+        assertThat(_reservedExecutor.getAvailable(), is(1));
+        assertThat(_reservedExecutor.getHits(), is(64L));
+    }
+
+    @Test
+    public void testElasticLowOnThreads() throws Exception
+    {
+        _reservedExecutor.stop();
+        _reservedExecutor.setElastic(true);
+        _reservedExecutor.start();
+
+        for (int i = 0; i < 64; i++)
+        {
+            assertThat(_reservedExecutor.tryExecute(NOOP), is(false));
+        }
+        while (_executor.startThread() != null)
+        {
+            Thread.onSpinWait();
+        }
+        waitForAllAvailable();
+
+        // When the executor is low on threads, no thread is reserved
+        // and the idle reserved threads are released.
+        _executor._low = true;
+        Task[] tasks = new Task[SIZE];
+        for (int i = 0; i < SIZE; i++)
+        {
+            tasks[i] = new Task();
+            assertThat(_reservedExecutor.tryExecute(tasks[i]), is(true));
+        }
+        assertThat(_reservedExecutor.tryExecute(NOOP), is(false));
+        assertThat(_executor._queue.size(), is(0));
+        assertThat(_reservedExecutor.getTargetCapacity(), is(1));
+
+        for (int i = 0; i < SIZE; i++)
+        {
+            tasks[i]._complete.countDown();
+        }
+        waitForAvailable(1);
+        Thread.sleep(100);
+        assertThat(_reservedExecutor.getAvailable(), is(1));
+    }
+
     protected void waitForAvailable(int size) throws InterruptedException
     {
         long started = System.nanoTime();
@@ -223,9 +298,33 @@ public class ReservedThreadExecutorTest
         waitForAvailable(SIZE);
     }
 
-    private static class TestExecutor implements Executor
+    private static class TestExecutor implements ThreadPool
     {
         private final Deque<Runnable> _queue = new ArrayDeque<>();
+        private volatile boolean _low;
+
+        @Override
+        public void join()
+        {
+        }
+
+        @Override
+        public int getThreads()
+        {
+            return 0;
+        }
+
+        @Override
+        public int getIdleThreads()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean isLowOnThreads()
+        {
+            return _low;
+        }
 
         @Override
         public void execute(Runnable task)
@@ -20,6 +20,7 @@ package org.eclipse.jetty.util.thread;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -28,6 +29,7 @@ import java.util.stream.Stream;
 import org.eclipse.jetty.logging.StacklessLogging;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -43,7 +45,8 @@ public class SchedulerTest
     {
         return Stream.of(
             TimerScheduler.class,
-            ScheduledExecutorScheduler.class
+            ScheduledExecutorScheduler.class,
+            TimingWheelScheduler.class
         );
     }
 
@@ -182,7 +185,7 @@ public class SchedulerTest
     public void testTaskThrowsException(Class<? extends Scheduler> impl) throws Exception
     {
         Scheduler scheduler = start(impl);
-        try (StacklessLogging ignore = new StacklessLogging(TimerScheduler.class))
+        try (StacklessLogging ignore = new StacklessLogging(TimerScheduler.class, TimingWheelScheduler.class))
         {
             long delay = 500;
             scheduler.schedule(new Runnable()
@@ -211,4 +214,40 @@ public class SchedulerTest
             assertTrue(latch.await(2 * delay, TimeUnit.MILLISECONDS));
         }
     }
+
+    @Test
+    public void testTimingWheelManyTasks() throws Exception
+    {
+        // Delays longer than 512 ticks are stored in the second level of the wheel.
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(null, false, 1, 2);
+        scheduler.start();
+        schedulers.add(scheduler);
+
+        int count = 1000;
+        CountDownLatch latch = new CountDownLatch(count / 2);
+        AtomicLong early = new AtomicLong();
+        AtomicLong cancelledRuns = new AtomicLong();
+        Random random = new Random();
+        for (int i = 0; i < count; ++i)
+        {
+            long delay = random.nextInt(1500);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            boolean cancel = (i & 1) == 1;
+            Scheduler.Task task = scheduler.schedule(() ->
+            {
+                if (cancel)
+                    cancelledRuns.incrementAndGet();
+                if (System.nanoTime() < deadline)
+                    early.incrementAndGet();
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+            if (cancel)
+                task.cancel();
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(0, early.get());
+        assertEquals(0, cancelledRuns.get());
+    }
 }
@@ -0,0 +1,179 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.util.ListIterator;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Measures the manipulation of response fields by a chain of filters, each looking up
+ * and replacing some fields, with the {@link HttpFields.Mutable} lookups compared to a scan
+ * of the fields, as the lookups were implemented before the fields were indexed.</p>
+ */
+@State(Scope.Thread)
+@Threads(1)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HttpFieldsBenchmark
+{
+    private static final HttpHeader[] LOOKUPS = {
+        HttpHeader.CONTENT_TYPE,
+        HttpHeader.CACHE_CONTROL,
+        HttpHeader.VARY,
+        HttpHeader.ETAG,
+        HttpHeader.CONTENT_ENCODING,
+        HttpHeader.LOCATION
+    };
+
+    @Param({"8", "32", "64"})
+    int size;
+
+    HttpFields.Mutable template;
+    HttpField[] puts;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        template = HttpFields.build();
+        template.put(HttpHeader.CONTENT_TYPE, "text/html;charset=utf-8");
+        template.put(HttpHeader.CACHE_CONTROL, "no-cache");
+        template.put(HttpHeader.VARY, "Accept-Encoding");
+        for (int i = template.size(); i < size; i++)
+        {
+            template.add("X-Custom-Header-" + i, "value-" + i);
+        }
+        puts = new HttpField[LOOKUPS.length];
+        for (int i = 0; i < LOOKUPS.length; i++)
+        {
+            puts[i] = new HttpField(LOOKUPS[i], "filtered");
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public int testIndexed()
+    {
+        HttpFields.Mutable fields = HttpFields.build(template);
+        int found = 0;
+        for (int filter = 0; filter < 4; filter++)
+        {
+            for (int i = 0; i < LOOKUPS.length; i++)
+            {
+                HttpHeader header = LOOKUPS[i];
+                if (fields.contains(header))
+                    found += fields.get(header).length();
+                fields.put(puts[i]);
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public int testScan()
+    {
+        HttpFields.Mutable fields = HttpFields.build(template);
+        int found = 0;
+        for (int filter = 0; filter < 4; filter++)
+        {
+            for (int i = 0; i < LOOKUPS.length; i++)
+            {
+                HttpHeader header = LOOKUPS[i];
+                if (scanContains(fields, header))
+                    found += scanGet(fields, header).length();
+                scanPut(fields, puts[i]);
+            }
+        }
+        return found;
+    }
+
+    private static boolean scanContains(HttpFields fields, HttpHeader header)
+    {
+        for (int i = 0; i < fields.size(); i++)
+        {
+            if (fields.getField(i).getHeader() == header)
+                return true;
+        }
+        return false;
+    }
+
+    private static String scanGet(HttpFields fields, HttpHeader header)
+    {
+        for (int i = 0; i < fields.size(); i++)
+        {
+            HttpField field = fields.getField(i);
+            if (field.getHeader() == header)
+                return field.getValue();
+        }
+        return null;
+    }
+
+    private static void scanPut(HttpFields.Mutable fields, HttpField field)
+    {
+        // As Mutable.put(HttpField) without an index, replacing via the list iterator.
+        boolean put = false;
+        for (ListIterator<HttpField> i = fields.listIterator(); i.hasNext(); )
+        {
+            HttpField f = i.next();
+            if (f.isSameName(field))
+            {
+                if (put)
+                    i.remove();
+                else
+                {
+                    i.set(field);
+                    put = true;
+                }
+            }
+        }
+        if (!put)
+            fields.add(field);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HttpFieldsBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
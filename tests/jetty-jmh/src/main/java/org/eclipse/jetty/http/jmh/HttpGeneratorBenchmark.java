@@ -0,0 +1,147 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.DateGenerator;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpGenerator;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Measures the generation of a response, headers and content, by {@link HttpGenerator}.</p>
+ * <p>Run with {@code -prof gc} to report the allocation per response.</p>
+ */
+@State(Scope.Thread)
+@Threads(1)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HttpGeneratorBenchmark
+{
+    private static final PreEncodedHttpField DATE = new PreEncodedHttpField(HttpHeader.DATE, DateGenerator.formatDate(System.currentTimeMillis()));
+    private static final PreEncodedHttpField SERVER = new PreEncodedHttpField(HttpHeader.SERVER, "Jetty(10.0.x)");
+
+    @Param({"PAGE", "API"})
+    String response;
+
+    HttpGenerator generator;
+    MetaData.Response info;
+    ByteBuffer header;
+    ByteBuffer content;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        HttpFields.Mutable fields = HttpFields.build()
+            .put(SERVER)
+            .put(DATE);
+        byte[] bytes;
+        switch (response)
+        {
+            case "PAGE":
+                fields.put(HttpHeader.CONTENT_TYPE, "text/html;charset=utf-8")
+                    .put(HttpHeader.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
+                    .put(HttpHeader.VARY, "Accept-Encoding")
+                    .put(HttpHeader.SET_COOKIE, "JSESSIONID=node0x7fmu2xw1y3b1n8kq5v0mwd3k0.node0; Path=/; HttpOnly")
+                    .put(HttpHeader.EXPIRES, DateGenerator.__01Jan1970);
+                bytes = new byte[2048];
+                break;
+            case "API":
+                fields.put(HttpHeader.CONTENT_TYPE, "application/json")
+                    .put("X-Request-Id", "7b0e9c6a-4f1d-4d8e-9a2b-3c4d5e6f7a8b");
+                bytes = new byte[128];
+                break;
+            default:
+                throw new IllegalArgumentException(response);
+        }
+        info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, fields, bytes.length);
+        content = ByteBuffer.wrap(bytes);
+        header = BufferUtil.allocate(8192);
+        generator = new HttpGenerator();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public long testGenerate() throws IOException
+    {
+        generator.reset();
+        BufferUtil.clear(header);
+        content.position(0);
+        ByteBuffer headerBuffer = null;
+        long flushed = 0;
+        while (true)
+        {
+            HttpGenerator.Result result = generator.generateResponse(info, false, headerBuffer, null, content, true);
+            switch (result)
+            {
+                case NEED_HEADER:
+                    headerBuffer = header;
+                    break;
+                case FLUSH:
+                    // Simulate the write of the header and content.
+                    flushed += headerBuffer.remaining() + content.remaining();
+                    BufferUtil.clear(headerBuffer);
+                    content.position(content.limit());
+                    break;
+                case CONTINUE:
+                    break;
+                case DONE:
+                    return flushed;
+                default:
+                    throw new IllegalStateException(result.toString());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HttpGeneratorBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,155 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpParser;
+import org.eclipse.jetty.http.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Measures the parsing of the requests of a {@link RequestProfile} by {@link HttpParser},
+ * with the parsed fields collected in a {@link HttpFields.Mutable}, as the server does.</p>
+ * <p>Run with {@code -prof gc} to report the allocation per request.</p>
+ */
+@State(Scope.Thread)
+@Threads(1)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HttpParserBenchmark
+{
+    @Param({"BROWSER", "API", "COOKIES", "LARGE_COOKIES"})
+    RequestProfile profile;
+
+    @Param({"false", "true"})
+    boolean direct;
+
+    ByteBuffer buffer;
+    HttpParser parser;
+    Handler handler;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        buffer = profile.toBuffer(direct);
+        handler = new Handler();
+        parser = new HttpParser(handler);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public HttpFields testParse()
+    {
+        buffer.position(0);
+        parser.reset();
+        handler.fields.clear();
+        while (buffer.hasRemaining())
+        {
+            if (parser.parseNext(buffer))
+                break;
+        }
+        if (!handler.complete)
+            throw new IllegalStateException();
+        handler.complete = false;
+        return handler.fields;
+    }
+
+    private static class Handler implements HttpParser.RequestHandler
+    {
+        private final HttpFields.Mutable fields = HttpFields.build();
+        private String method;
+        private String uri;
+        private boolean complete;
+
+        @Override
+        public void startRequest(String method, String uri, HttpVersion version)
+        {
+            this.method = method;
+            this.uri = uri;
+        }
+
+        @Override
+        public void parsedHeader(HttpField field)
+        {
+            fields.add(field);
+        }
+
+        @Override
+        public boolean headerComplete()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean content(ByteBuffer item)
+        {
+            return false;
+        }
+
+        @Override
+        public boolean contentComplete()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean messageComplete()
+        {
+            complete = true;
+            return true;
+        }
+
+        @Override
+        public void earlyEOF()
+        {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HttpParserBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,184 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.jmh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.jmh.RequestProfile;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Measures the HTTP/1.1 request path of the server: parsing by {@code HttpParser},
+ * handling by {@code HttpChannelOverHttp} and generation of the response by {@code HttpGenerator}.</p>
+ * <p>Each benchmark thread writes the requests of a {@link RequestProfile}, possibly pipelined,
+ * to a persistent connection of a {@link LocalConnector}. The requests are filled, parsed,
+ * handled and responded to by the benchmark thread, within the call that adds them to the
+ * {@code ByteArrayEndPoint}, so the allocation reported by {@code -prof gc} is that of
+ * the server, for {@code pipelined} requests per operation.</p>
+ */
+@State(Scope.Benchmark)
+@Threads(1)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HttpRequestBenchmark
+{
+    private static final byte[] CONTENT = "Hello, World!".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"BROWSER", "API", "COOKIES"})
+    RequestProfile profile;
+
+    @Param({"1", "8"})
+    int pipelined;
+
+    Server server;
+    LocalConnector connector;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception
+    {
+        server = new Server();
+        // The input buffer holds all the pipelined requests, otherwise
+        // the requests that do not fit are handled by another thread.
+        HttpConnectionFactory http = new HttpConnectionFactory();
+        http.setInputBufferSize(16 * 1024);
+        connector = new LocalConnector(server, http);
+        connector.setIdleTimeout(TimeUnit.MINUTES.toMillis(5));
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                // Access the request as a typical application would.
+                request.getHeader(HttpHeader.ACCEPT.asString());
+                request.getParameter("id");
+                Cookie[] cookies = request.getCookies();
+                response.setContentType(cookies == null ? "text/plain" : "text/html");
+                response.setContentLength(CONTENT.length);
+                response.getOutputStream().write(CONTENT);
+            }
+        });
+        server.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception
+    {
+        server.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class Client
+    {
+        LocalConnector.LocalEndPoint endPoint;
+        ByteBuffer requests;
+
+        @Setup(Level.Trial)
+        public void connect(HttpRequestBenchmark benchmark) throws Exception
+        {
+            // Wait for a first response, and for the connection to be idle, so that
+            // the next requests are filled by the thread that adds them.
+            endPoint = benchmark.connector.executeRequest(benchmark.profile.getRequest());
+            if (endPoint.getResponse() == null)
+                throw new IllegalStateException("No response");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!endPoint.isFillInterested())
+            {
+                if (System.nanoTime() > deadline)
+                    throw new IllegalStateException("Connection not idle");
+                Thread.sleep(1);
+            }
+
+            requests = benchmark.profile.toBuffer(benchmark.pipelined);
+            ByteBuffer output = exchange();
+            String responses = BufferUtil.toString(output);
+            BufferUtil.clear(output);
+            int count = responses.split("HTTP/1.1 200 ", -1).length - 1;
+            if (count != benchmark.pipelined)
+                throw new IllegalStateException("Expected " + benchmark.pipelined + " responses: " + responses);
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect()
+        {
+            endPoint.close();
+        }
+
+        private ByteBuffer exchange()
+        {
+            requests.position(0);
+            // The requests are handled by this thread, before addInput() returns.
+            endPoint.addInput(requests);
+            return endPoint.getOutput();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public int testRequests(Client client)
+    {
+        ByteBuffer output = client.exchange();
+        int length = output.remaining();
+        BufferUtil.clear(output);
+        return length;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(HttpRequestBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,177 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Measures the pooled buffer memory held by idle persistent connections,
+ * reported by the {@code heldBuffers} and {@code heldBytesPerConnection} counters,
+ * with and without {@link HttpConfiguration#setReleaseRequestBufferWhenIdle(boolean)}.</p>
+ */
+@State(Scope.Benchmark)
+@Threads(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IdleConnectionBufferBenchmark
+{
+    @Param({"false", "true"})
+    boolean releaseWhenIdle;
+
+    @Param({"false", "true"})
+    boolean adaptive;
+
+    Server server;
+    LocalConnector connector;
+    CountingByteBufferPool bufferPool;
+    List<LocalConnector.LocalEndPoint> endPoints;
+
+    @Setup(Level.Iteration)
+    public void startServer() throws Exception
+    {
+        bufferPool = new CountingByteBufferPool();
+        server = new Server();
+        HttpConfiguration config = new HttpConfiguration();
+        config.setReleaseRequestBufferWhenIdle(releaseWhenIdle);
+        HttpConnectionFactory http = new HttpConnectionFactory(config);
+        http.setAdaptiveInputBufferSize(adaptive);
+        connector = new LocalConnector(server, null, null, bufferPool, -1, http);
+        connector.setIdleTimeout(TimeUnit.MINUTES.toMillis(5));
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            {
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+        endPoints = new ArrayList<>();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopServer() throws Exception
+    {
+        for (LocalConnector.LocalEndPoint endPoint : endPoints)
+        {
+            endPoint.close();
+        }
+        server.stop();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Held
+    {
+        public long idleConnections;
+        public long heldBuffers;
+        public long heldBytesPerConnection;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            idleConnections = 0;
+            heldBuffers = 0;
+            heldBytesPerConnection = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void testIdleConnection(Held held) throws Exception
+    {
+        // Each operation leaves one more persistent connection idle.
+        LocalConnector.LocalEndPoint endPoint = connector.executeRequest("GET / HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "\r\n");
+        endPoint.getResponse();
+        endPoints.add(endPoint);
+
+        held.idleConnections = endPoints.size();
+        held.heldBuffers = bufferPool.buffers.get();
+        held.heldBytesPerConnection = bufferPool.bytes.get() / endPoints.size();
+    }
+
+    private static class CountingByteBufferPool extends ArrayByteBufferPool
+    {
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong buffers = new AtomicLong();
+
+        @Override
+        public ByteBuffer acquire(int size, boolean direct)
+        {
+            ByteBuffer buffer = super.acquire(size, direct);
+            bytes.addAndGet(buffer.capacity());
+            buffers.incrementAndGet();
+            return buffer;
+        }
+
+        @Override
+        public void release(ByteBuffer buffer)
+        {
+            bytes.addAndGet(-buffer.capacity());
+            buffers.decrementAndGet();
+            super.release(buffer);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(IdleConnectionBufferBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,145 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.TimerScheduler;
+import org.eclipse.jetty.util.thread.TimingWheelScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Compares the cost of scheduling and cancelling timeouts, as done by
+ * {@code IdleTimeout} and {@code CyclicTimeout}, with a large number of
+ * pending timeouts.</p>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+public class SchedulerBenchmark
+{
+    public enum Type
+    {
+        SES, TIMER, WHEEL
+    }
+
+    @Param({"SES", "TIMER", "WHEEL"})
+    Type type;
+
+    @Param({"100000"})
+    int pending;
+
+    Scheduler scheduler;
+    Scheduler.Task[] tasks;
+
+    @Setup(Level.Trial)
+    public void startScheduler() throws Exception
+    {
+        switch (type)
+        {
+            case SES:
+                scheduler = new ScheduledExecutorScheduler();
+                break;
+            case TIMER:
+                scheduler = new TimerScheduler();
+                break;
+            case WHEEL:
+                scheduler = new TimingWheelScheduler();
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+        LifeCycle.start(scheduler);
+
+        // Long timeouts that stay pending, like those of idle connections.
+        tasks = new Scheduler.Task[pending];
+        for (int i = 0; i < pending; ++i)
+        {
+            tasks[i] = scheduler.schedule(this::noop, 30 + i % 30, TimeUnit.MINUTES);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopScheduler()
+    {
+        for (Scheduler.Task task : tasks)
+        {
+            task.cancel();
+        }
+        LifeCycle.stop(scheduler);
+    }
+
+    private void noop()
+    {
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public boolean testScheduleCancel()
+    {
+        return scheduler.schedule(this::noop, 30, TimeUnit.SECONDS).cancel();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public boolean testConcurrentScheduleCancel()
+    {
+        return scheduler.schedule(this::noop, 30, TimeUnit.SECONDS).cancel();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public void testConcurrentSchedule(Blackhole blackhole)
+    {
+        // Timeouts that expire, like those of busy connections that are rescheduled.
+        blackhole.consume(scheduler.schedule(this::noop, 1, TimeUnit.MILLISECONDS));
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(SchedulerBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}